@@ -0,0 +1,78 @@
+package com.marmik.brokerhub.security;
+
+import jakarta.servlet.FilterChain;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of JwtFilter for an authenticated GET.
+ *
+ * - cachedVerification: default setup, repeat tokens hit the verified cache.
+ * - uncachedVerification: cache disabled, one signature check per request.
+ * - legacyDoubleParse: the old validateToken + getUserId flow (two parser
+ * builds and two signature checks), kept as the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-0123";
+
+    private JwtFilter cachedFilter;
+    private JwtFilter uncachedFilter;
+    private Key legacyKey;
+    private String token;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private final FilterChain chain = (req, res) -> {
+    };
+
+    @Setup
+    public void setUp() {
+        JwtUtil cached = new JwtUtil(SECRET, 3_600_000);
+        JwtUtil uncached = new JwtUtil(SECRET, 3_600_000, 0);
+        cachedFilter = new JwtFilter(cached);
+        uncachedFilter = new JwtFilter(uncached);
+        legacyKey = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        token = cached.generateUserToken("00000000-0000-0000-0000-000000000001");
+
+        request = new MockHttpServletRequest("GET", "/api/accounts");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object cachedVerification() throws Exception {
+        SecurityContextHolder.clearContext();
+        cachedFilter.doFilter(request, response, chain);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Object uncachedVerification() throws Exception {
+        SecurityContextHolder.clearContext();
+        uncachedFilter.doFilter(request, response, chain);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Object legacyDoubleParse() {
+        Jwts.parserBuilder().setSigningKey(legacyKey).build().parseClaimsJws(token);
+        return Jwts.parserBuilder().setSigningKey(legacyKey).build().parseClaimsJws(token).getBody().getSubject();
+    }
+}
@@ -0,0 +1,185 @@
+package com.marmik.brokerhub.broker.adapter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.marmik.brokerhub.broker.dto.HoldingItem;
+import com.marmik.brokerhub.broker.dto.PositionItem;
+
+/**
+ * Streams Dhan holdings / positions JSON straight into unified HoldingItem /
+ * PositionItem objects.
+ *
+ * Only the fields the backend uses are read; everything else (most of a
+ * Dhan position) is skipped token by token without being materialised.
+ *
+ * At most maxItems elements are accepted; a larger array fails the parse
+ * with {@link PayloadLimitException} rather than growing the heap without
+ * bound. The body size itself is bounded by the HTTP layer.
+ */
+public class DhanResponseParser {
+
+    /**
+     * Thrown when a response holds more items than allowed.
+     */
+    public static class PayloadLimitException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public PayloadLimitException(String message) {
+            super(message);
+        }
+    }
+
+    private final JsonFactory jsonFactory;
+
+    public DhanResponseParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    public List<HoldingItem> parseHoldings(byte[] body, int maxItems) throws IOException {
+        return parseArray(body, maxItems, ItemReader.HOLDING);
+    }
+
+    public List<PositionItem> parsePositions(byte[] body, int maxItems) throws IOException {
+        return parseArray(body, maxItems, ItemReader.POSITION);
+    }
+
+    private <T> List<T> parseArray(byte[] body, int maxItems, ItemReader<T> reader) throws IOException {
+        if (body == null || body.length == 0) {
+            return Collections.emptyList();
+        }
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            JsonToken first = parser.nextToken();
+            if (first == null || first == JsonToken.VALUE_NULL) {
+                return Collections.emptyList();
+            }
+            if (first != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array but found " + first);
+            }
+
+            List<T> items = new ArrayList<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IOException("Unexpected end of input");
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    // nulls and stray scalars carry no position data
+                    parser.skipChildren();
+                    continue;
+                }
+                if (items.size() >= maxItems) {
+                    throw new PayloadLimitException("Response has more than " + maxItems + " items");
+                }
+                items.add(reader.read(parser));
+            }
+            return items;
+        }
+    }
+
+    /**
+     * Reads one object (the parser is on its START_OBJECT) into an item.
+     */
+    private interface ItemReader<T> {
+
+        T read(JsonParser parser) throws IOException;
+
+        ItemReader<HoldingItem> HOLDING = new ItemReader<>() {
+
+            @Override
+            public HoldingItem read(JsonParser p) throws IOException {
+                HoldingItem.HoldingItemBuilder holding = HoldingItem.builder();
+                int collateralQty = 0;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    p.nextToken();
+                    switch (field) {
+                        case "exchange" -> holding.exchange(text(p));
+                        case "tradingSymbol" -> holding.tradingSymbol(text(p));
+                        case "isin" -> holding.isin(text(p));
+                        case "totalQty" -> holding.quantity(intValue(p));
+                        case "t1Qty" -> holding.t1Quantity(intValue(p));
+                        case "collateralQty" -> collateralQty = intValue(p);
+                        case "avgCostPrice" -> holding.averagePrice(doubleValue(p));
+                        case "lastPrice" -> holding.lastPrice(doubleValue(p));
+                        default -> p.skipChildren();
+                    }
+                }
+                return holding.collateralQuantity(String.valueOf(collateralQty)).build();
+            }
+        };
+
+        ItemReader<PositionItem> POSITION = new ItemReader<>() {
+
+            @Override
+            public PositionItem read(JsonParser p) throws IOException {
+                PositionItem.PositionItemBuilder position = PositionItem.builder();
+                double buyAvg = 0;
+                double costPrice = 0;
+                double unrealized = 0;
+                double realized = 0;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    p.nextToken();
+                    switch (field) {
+                        case "exchangeSegment" -> position.exchange(text(p));
+                        case "tradingSymbol" -> position.tradingSymbol(text(p));
+                        case "securityId" -> position.securityId(text(p));
+                        case "positionType" -> position.positionType(text(p));
+                        case "productType" -> position.productType(text(p));
+                        case "netQty" -> position.quantity(intValue(p));
+                        case "buyAvg" -> buyAvg = doubleValue(p);
+                        case "costPrice" -> costPrice = doubleValue(p);
+                        case "unrealizedProfit" -> unrealized = doubleValue(p);
+                        case "realizedProfit" -> realized = doubleValue(p);
+                        default -> p.skipChildren();
+                    }
+                }
+
+                double avgPrice = buyAvg > 0 ? buyAvg : costPrice;
+                double lastPrice = costPrice > 0 ? costPrice : avgPrice;
+                return position
+                        .averagePrice(avgPrice)
+                        .lastPrice(lastPrice)
+                        .unrealizedProfit(unrealized)
+                        .realizedProfit(realized)
+                        .totalPnl(unrealized + realized)
+                        .build();
+            }
+        };
+    }
+
+    private static int intValue(JsonParser p) throws IOException {
+        if (p.currentToken().isStructStart()) {
+            p.skipChildren();
+            return 0;
+        }
+        return p.getValueAsInt();
+    }
+
+    private static double doubleValue(JsonParser p) throws IOException {
+        if (p.currentToken().isStructStart()) {
+            p.skipChildren();
+            return 0;
+        }
+        return p.getValueAsDouble();
+    }
+
+    /**
+     * Scalar as text (numbers included, as Jackson would coerce them);
+     * null for JSON null, objects and arrays.
+     */
+    private static String text(JsonParser p) throws IOException {
+        if (p.currentToken().isScalarValue()) {
+            return p.currentToken() == JsonToken.VALUE_NULL ? null : p.getText();
+        }
+        p.skipChildren();
+        return null;
+    }
+}
@@ -2,10 +2,17 @@ package com.marmik.brokerhub.broker.core;
 
 import com.marmik.brokerhub.broker.dto.HoldingItem;
 import com.marmik.brokerhub.broker.dto.PositionItem;
+import com.marmik.brokerhub.http.Deadline;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Interface for interacting with various broker APIs.
+ *
+ * The async variants let non-blocking adapters keep a broker round trip in
+ * flight without holding a thread. Blocking adapters inherit a default bridge
+ * that runs the blocking call on the supplied executor.
  */
 public interface BrokerClient {
 
@@ -14,6 +21,14 @@ public interface BrokerClient {
      */
     String getBrokerType();
 
+    /**
+     * Whether items from this broker come back without live prices and must
+     * be priced from the market-data service before aggregation.
+     */
+    default boolean requiresPriceEnrichment() {
+        return false;
+    }
+
     /**
      * Fetch holdings for the given broker access token.
      */
@@ -23,4 +38,40 @@ public interface BrokerClient {
      * Fetch positions for the given broker access token.
      */
     List<PositionItem> getPositions(String token);
+
+    /**
+     * Fetch holdings without blocking the caller.
+     *
+     * @param executor runs any blocking work (the whole call for blocking
+     *                 adapters, post-processing for non-blocking ones)
+     */
+    default CompletableFuture<List<HoldingItem>> getHoldingsAsync(String token, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> getHoldings(token), executor);
+    }
+
+    /**
+     * Fetch positions without blocking the caller.
+     *
+     * @param executor runs any blocking work (the whole call for blocking
+     *                 adapters, post-processing for non-blocking ones)
+     */
+    default CompletableFuture<List<PositionItem>> getPositionsAsync(String token, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> getPositions(token), executor);
+    }
+
+    /**
+     * Fetch holdings, finishing (or giving up) by the caller's deadline.
+     * Adapters that cannot shorten their own timeouts inherit this bridge.
+     */
+    default CompletableFuture<List<HoldingItem>> getHoldingsAsync(String token, Executor executor, Deadline deadline) {
+        return getHoldingsAsync(token, executor);
+    }
+
+    /**
+     * Fetch positions, finishing (or giving up) by the caller's deadline.
+     * Adapters that cannot shorten their own timeouts inherit this bridge.
+     */
+    default CompletableFuture<List<PositionItem>> getPositionsAsync(String token, Executor executor, Deadline deadline) {
+        return getPositionsAsync(token, executor);
+    }
 }
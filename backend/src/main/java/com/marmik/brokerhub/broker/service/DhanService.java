@@ -1,40 +1,79 @@
 package com.marmik.brokerhub.broker.service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClient;
 
-import com.marmik.brokerhub.broker.adapter.DhanAdapter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marmik.brokerhub.broker.adapter.DhanResponseParser;
 import com.marmik.brokerhub.broker.core.BrokerClient;
+import com.marmik.brokerhub.concurrent.Futures;
 import lombok.extern.slf4j.Slf4j;
 import com.marmik.brokerhub.broker.dto.HoldingItem;
 import com.marmik.brokerhub.broker.dto.PositionItem;
-import com.marmik.brokerhub.broker.dto.dhan.DhanHolding;
-import com.marmik.brokerhub.broker.dto.dhan.DhanPosition;
-import com.marmik.brokerhub.broker.model.PriceResponse;
+import com.marmik.brokerhub.http.Deadline;
+import com.marmik.brokerhub.http.LimitedBodyHandler;
+import com.marmik.brokerhub.http.UpstreamHttpClient;
+import com.marmik.brokerhub.http.UpstreamStatusException;
 
 /**
  * BrokerClient implementation for Dhan broker.
+ *
+ * Calls go through the shared "dhan" UpstreamHttpClient asynchronously, so an
+ * in-flight Dhan request holds no thread and is bounded by that upstream's
+ * pool and timeouts. Only response parsing runs on the executor passed by
+ * the caller.
+ *
+ * A caller's Deadline shortens the Dhan request timeout.
+ *
+ * Dhan does not return live prices, so items come back unpriced
+ * ({@link #requiresPriceEnrichment()}); the portfolio pipeline prices all
+ * credentials of a request together.
+ *
+ * Cancelling a returned future aborts the underlying Dhan request.
+ *
+ * Responses are streamed straight into HoldingItem / PositionItem by
+ * DhanResponseParser. Bodies over dhan.response.max-bytes or arrays over
+ * dhan.response.max-items fail the call instead of being buffered.
+ *
+ * The async methods complete exceptionally when Dhan fails, so callers (and
+ * BrokerCallGuard) can tell an outage from an empty portfolio. The blocking
+ * methods wait for them and keep returning an empty list on failure.
  */
 @Service
 @Slf4j
 public class DhanService implements BrokerClient {
 
+    static final long DEFAULT_MAX_BODY_BYTES = 4L * 1024 * 1024;
+    static final int DEFAULT_MAX_ITEMS = 5_000;
+
     @Value("${dhan.api.base-url}")
     private String baseUrl;
 
-    private final RestClient restClient;
-    private final MarketDataService marketDataService;
+    @Value("${dhan.response.max-bytes:" + DEFAULT_MAX_BODY_BYTES + "}")
+    private long maxBodyBytes = DEFAULT_MAX_BODY_BYTES;
+
+    @Value("${dhan.response.max-items:" + DEFAULT_MAX_ITEMS + "}")
+    private int maxItems = DEFAULT_MAX_ITEMS;
+
+    private final UpstreamHttpClient http;
+    private final DhanResponseParser parser;
 
-    public DhanService(RestClient.Builder restClientBuilder, MarketDataService marketDataService) {
-        this.marketDataService = marketDataService;
-        this.restClient = restClientBuilder.build();
+    public DhanService(
+            @Qualifier("dhanHttpClient") UpstreamHttpClient http,
+            ObjectMapper objectMapper) {
+        this.http = http;
+        this.parser = new DhanResponseParser(objectMapper.getFactory());
     }
 
     @Override
@@ -42,52 +81,15 @@ public class DhanService implements BrokerClient {
         return "DHAN";
     }
 
+    @Override
+    public boolean requiresPriceEnrichment() {
+        return true;
+    }
+
     @Override
     public List<HoldingItem> getHoldings(String accessToken) {
         try {
-            String url = baseUrl.endsWith("/") ? baseUrl + "holdings" : baseUrl + "/holdings";
-            
-            List<DhanHolding> dhanHoldings = restClient.get()
-                    .uri(url)
-                    .header("access-token", accessToken)
-                    .retrieve()
-                    .body(new ParameterizedTypeReference<List<DhanHolding>>() {});
-
-            if (dhanHoldings == null) return Collections.emptyList();
-
-            List<HoldingItem> holdings = dhanHoldings.stream()
-                    .map(DhanAdapter::fromDhan)
-                    .toList();
-
-            List<String> symbols = holdings.stream()
-                    .map(HoldingItem::getTradingSymbol)
-                    .toList();
-
-            List<PriceResponse> prices = marketDataService.getPrices(symbols);
-
-            Map<String, PriceResponse> priceMap = prices.stream()
-                    .collect(Collectors.toMap(PriceResponse::getSymbol, p -> p));
-
-            holdings.forEach(holding -> {
-                PriceResponse price = priceMap.get(holding.getTradingSymbol());
-
-                if (price != null && price.getLastPrice() != 0) {
-                    holding.setLastPrice(price.getLastPrice());
-                    holding.setDayChange(price.getDayChange());
-                    holding.setDayChangePercentage(price.getDayChangePercentage());
-
-                    double pnl = (price.getLastPrice() - holding.getAveragePrice()) * holding.getQuantity();
-                    holding.setPnl(pnl);
-                } else {
-                    double avg = holding.getAveragePrice();
-                    holding.setLastPrice(avg);
-                    holding.setDayChange(0);
-                    holding.setDayChangePercentage(0);
-                    holding.setPnl(0);
-                }
-            });
-
-            return holdings;
+            return getHoldingsAsync(accessToken, Runnable::run).join();
         } catch (Exception e) {
             log.error("Failed to fetch holdings from Dhan", e);
             return Collections.emptyList();
@@ -97,39 +99,66 @@ public class DhanService implements BrokerClient {
     @Override
     public List<PositionItem> getPositions(String accessToken) {
         try {
-            String url = baseUrl.endsWith("/") ? baseUrl + "positions" : baseUrl + "/positions";
-            
-            List<DhanPosition> dhanPositions = restClient.get()
-                    .uri(url)
-                    .header("access-token", accessToken)
-                    .retrieve()
-                    .body(new ParameterizedTypeReference<List<DhanPosition>>() {});
-
-            if (dhanPositions == null) return Collections.emptyList();
-
-            List<PositionItem> positions = dhanPositions.stream()
-                    .map(DhanAdapter::fromDhanPosition)
-                    .toList();
-
-            List<String> symbols = positions.stream()
-                    .map(PositionItem::getTradingSymbol)
-                    .toList();
-
-            List<PriceResponse> prices = marketDataService.getPrices(symbols);
-            Map<String, PriceResponse> priceMap = prices.stream()
-                    .collect(Collectors.toMap(PriceResponse::getSymbol, p -> p));
-
-            positions.forEach(position -> {
-                PriceResponse price = priceMap.get(position.getTradingSymbol());
-                if (price != null && price.getLastPrice() != 0) {
-                    position.setLastPrice(price.getLastPrice());
-                }
-            });
-
-            return positions;
+            return getPositionsAsync(accessToken, Runnable::run).join();
         } catch (Exception e) {
             log.error("Failed to fetch positions from Dhan", e);
             return Collections.emptyList();
         }
     }
+
+    @Override
+    public CompletableFuture<List<HoldingItem>> getHoldingsAsync(String accessToken, Executor executor) {
+        return getHoldingsAsync(accessToken, executor, Deadline.none());
+    }
+
+    @Override
+    public CompletableFuture<List<PositionItem>> getPositionsAsync(String accessToken, Executor executor) {
+        return getPositionsAsync(accessToken, executor, Deadline.none());
+    }
+
+    @Override
+    public CompletableFuture<List<HoldingItem>> getHoldingsAsync(
+            String accessToken, Executor executor, Deadline deadline) {
+        return fetch("holdings", accessToken, body -> parser.parseHoldings(body, maxItems), executor, deadline);
+    }
+
+    @Override
+    public CompletableFuture<List<PositionItem>> getPositionsAsync(
+            String accessToken, Executor executor, Deadline deadline) {
+        return fetch("positions", accessToken, body -> parser.parsePositions(body, maxItems), executor, deadline);
+    }
+
+    /**
+     * Parses a response body; IOException covers both malformed JSON and
+     * payload limits.
+     */
+    @FunctionalInterface
+    private interface BodyParser<T> {
+        List<T> parse(byte[] body) throws IOException;
+    }
+
+    private <T> CompletableFuture<List<T>> fetch(
+            String path, String accessToken, BodyParser<T> reader, Executor executor, Deadline deadline) {
+        String url = baseUrl.endsWith("/") ? baseUrl + path : baseUrl + "/" + path;
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .header("access-token", accessToken)
+                .header("Accept", "application/json")
+                .GET();
+
+        CompletableFuture<HttpResponse<byte[]>> sent = http.sendAsync(
+                request, LimitedBodyHandler.ofByteArray(maxBodyBytes), deadline);
+        return Futures.cancelWith(sent
+                .thenApplyAsync(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new UpstreamStatusException(
+                                "Dhan " + path + " returned HTTP " + response.statusCode(), response.statusCode());
+                    }
+                    try {
+                        return reader.parse(response.body());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor), sent);
+    }
 }
@@ -0,0 +1,187 @@
+package com.marmik.brokerhub.broker.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.marmik.brokerhub.broker.model.PriceResponse;
+import com.marmik.brokerhub.http.Deadline;
+import com.marmik.brokerhub.http.UpstreamHttpClient;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Calls the market-data service's POST /prices endpoint.
+ *
+ * Symbols go in the request body ({"symbols": [...]}), so a large portfolio
+ * never runs into URL length limits. Sets larger than chunkSize are split
+ * into chunks sent in parallel; how many run at once is bounded by the
+ * "market-data" UpstreamHttpClient's own concurrency limit.
+ *
+ * Responses are stream-parsed straight into a map keyed by symbol, without
+ * building a JSON tree first. A failed chunk only loses its own symbols.
+ */
+@Slf4j
+final class MarketDataBatchClient {
+
+    private final UpstreamHttpClient http;
+    private final JsonFactory jsonFactory;
+    private final int chunkSize;
+
+    MarketDataBatchClient(UpstreamHttpClient http, JsonFactory jsonFactory, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.http = http;
+        this.jsonFactory = jsonFactory;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Prices for symbols, keyed by symbol. Never completes exceptionally;
+     * symbols the service did not return (or whose chunk failed) are absent.
+     */
+    CompletableFuture<Map<String, PriceResponse>> fetch(String baseUrl, List<String> symbols, Deadline deadline) {
+        if (symbols.isEmpty() || deadline.isExpired()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        URI endpoint = URI.create(baseUrl.endsWith("/") ? baseUrl + "prices" : baseUrl + "/prices");
+        if (symbols.size() <= chunkSize) {
+            return fetchChunk(endpoint, symbols, deadline);
+        }
+
+        List<CompletableFuture<Map<String, PriceResponse>>> chunks = new ArrayList<>();
+        for (int from = 0; from < symbols.size(); from += chunkSize) {
+            List<String> chunk = symbols.subList(from, Math.min(symbols.size(), from + chunkSize));
+            chunks.add(fetchChunk(endpoint, chunk, deadline));
+        }
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new))
+                .thenApply(done -> {
+                    Map<String, PriceResponse> merged = new HashMap<>(symbols.size() * 2);
+                    for (CompletableFuture<Map<String, PriceResponse>> chunk : chunks) {
+                        chunk.join().forEach(merged::putIfAbsent);
+                    }
+                    return merged;
+                });
+    }
+
+    private CompletableFuture<Map<String, PriceResponse>> fetchChunk(
+            URI endpoint, List<String> symbols, Deadline deadline) {
+        HttpRequest.Builder request;
+        try {
+            request = HttpRequest.newBuilder(endpoint)
+                    .header("Accept", "application/json")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(writeRequest(symbols)));
+        } catch (IOException e) {
+            log.error("Failed to write market data request", e);
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+
+        return http.sendAsync(request, deadline)
+                .thenApply(this::readPrices)
+                .exceptionally(e -> {
+                    log.error("Failed to fetch market data for {} symbols", symbols.size(), e);
+                    return Collections.emptyMap();
+                });
+    }
+
+    private byte[] writeRequest(List<String> symbols) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + symbols.size() * 16);
+        try (JsonGenerator gen = jsonFactory.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("symbols");
+            for (String symbol : symbols) {
+                gen.writeString(symbol);
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    private Map<String, PriceResponse> readPrices(HttpResponse<byte[]> response) {
+        if (response.statusCode() / 100 != 2) {
+            log.error("Failed to fetch market data: HTTP {}", response.statusCode());
+            return Collections.emptyMap();
+        }
+        try {
+            return parse(response.body());
+        } catch (IOException e) {
+            log.error("Failed to parse market data", e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Read {"results": [{symbol, lastPrice, dayChange, dayChangePercentage}, ...]},
+     * skipping any other fields.
+     */
+    Map<String, PriceResponse> parse(byte[] body) throws IOException {
+        Map<String, PriceResponse> prices = new HashMap<>();
+        try (JsonParser p = jsonFactory.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if (!"results".equals(field) || value != JsonToken.START_ARRAY) {
+                    p.skipChildren();
+                    continue;
+                }
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    PriceResponse price = readPrice(p);
+                    if (price.getSymbol() != null) {
+                        prices.putIfAbsent(price.getSymbol(), price);
+                    }
+                }
+            }
+        }
+        return prices;
+    }
+
+    private static PriceResponse readPrice(JsonParser p) throws IOException {
+        PriceResponse price = new PriceResponse();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "symbol" -> price.setSymbol(text(p, value));
+                case "lastPrice" -> price.setLastPrice(number(p, value));
+                case "dayChange" -> price.setDayChange(number(p, value));
+                case "dayChangePercentage" -> price.setDayChangePercentage(number(p, value));
+                default -> p.skipChildren();
+            }
+        }
+        return price;
+    }
+
+    private static String text(JsonParser p, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return p.getText();
+        }
+        p.skipChildren();
+        return null;
+    }
+
+    private static double number(JsonParser p, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT) {
+            return p.getDoubleValue();
+        }
+        p.skipChildren();
+        return 0;
+    }
+}
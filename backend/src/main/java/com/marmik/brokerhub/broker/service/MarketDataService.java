@@ -1,51 +1,358 @@
 package com.marmik.brokerhub.broker.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.marmik.brokerhub.broker.model.PriceResponse;
+import com.marmik.brokerhub.cache.InstrumentIds;
+import com.marmik.brokerhub.cache.PriceTable;
+import com.marmik.brokerhub.http.Deadline;
+import com.marmik.brokerhub.http.UpstreamHttpClient;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClient;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Client for the market-data service's price API.
+ *
+ * Calls go through the shared "market-data" UpstreamHttpClient. When a
+ * Deadline is given, the request timeout is cut to the time left, and no
+ * request is made once it has passed; callers then fall back to unpriced
+ * data.
+ *
+ * Prices are cached per symbol in-process for marketdata.price-cache.ttl-seconds
+ * (by default the market-data service's own CACHE_TTL_SECONDS), so only
+ * symbols missing locally go over the wire. The cache is a PriceTable indexed
+ * by InstrumentIds, holding up to marketdata.price-cache.max-entries symbols;
+ * symbols beyond that are simply not cached. Concurrent callers missing the
+ * same symbol share one remote lookup instead of each requesting it. Zero
+ * (unavailable) prices are not cached. A TTL of 0 disables the cache.
+ *
+ * Symbols missing locally are first read from the market-data service's own
+ * Redis cache (SharedPriceCache, one MGET); only what is not there goes to
+ * the service over HTTP. A price taken from Redis is cached locally only for
+ * as long as its Redis entry has left, so it never outlives the service's
+ * copy.
+ *
+ * Cached prices are also refreshed in place when the service publishes a new
+ * price (PriceUpdateSubscriber), so the local TTL mainly bounds staleness
+ * while that subscription is down. Every cached price that differs from the
+ * previous one is handed to the registered PriceListeners.
+ *
+ * Remote lookups from concurrent callers are coalesced by a PriceBatcher:
+ * symbols requested within marketdata.batch.window-micros (or until
+ * marketdata.batch.max-symbols are queued) go out as one call.
+ *
+ * Calls are POSTs made by MarketDataBatchClient; a batch larger than
+ * marketdata.request.chunk-size is split into chunks fetched in parallel.
+ */
 @Service
 @Slf4j
 public class MarketDataService {
 
-    private final RestClient restClient;
-    private final ObjectMapper objectMapper;
+    private final MarketDataBatchClient client;
+    private final InstrumentIds instruments;
+    private final PriceTable priceTable;
+    private final long cacheTtlMillis;
+    private final Map<String, CompletableFuture<PriceResponse>> inFlight = new ConcurrentHashMap<>();
+    private final PriceBatcher batcher;
+    private final SharedPriceCache sharedCache;
+    private final List<PriceListener> listeners = new CopyOnWriteArrayList<>();
 
     @Value("${marketdata.base-url}")
     private String baseUrl;
 
-    public MarketDataService(RestClient.Builder restClientBuilder, ObjectMapper objectMapper) {
-        this.restClient = restClientBuilder.build();
-        this.objectMapper = objectMapper;
+    public MarketDataService(
+            ObjectMapper objectMapper,
+            @Qualifier("marketDataHttpClient") UpstreamHttpClient http,
+            @Value("${marketdata.price-cache.ttl-seconds:${CACHE_TTL_SECONDS:1200}}") long cacheTtlSeconds,
+            @Value("${marketdata.price-cache.max-entries:20000}") int cacheMaxEntries,
+            @Value("${marketdata.batch.window-micros:3000}") long batchWindowMicros,
+            @Value("${marketdata.batch.max-symbols:200}") int batchMaxSymbols,
+            @Value("${marketdata.request.chunk-size:100}") int requestChunkSize,
+            SharedPriceCache sharedCache) {
+        this.client = new MarketDataBatchClient(http, objectMapper.getFactory(), requestChunkSize);
+        this.sharedCache = sharedCache;
+        boolean cached = cacheTtlSeconds > 0;
+        this.instruments = cached ? new InstrumentIds(cacheMaxEntries) : null;
+        this.priceTable = cached ? new PriceTable(cacheMaxEntries) : null;
+        this.cacheTtlMillis = TimeUnit.SECONDS.toMillis(Math.max(0, cacheTtlSeconds));
+        this.batcher = new PriceBatcher(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(batchWindowMicros)),
+                batchMaxSymbols, this::fetchPricesAsync);
     }
 
     public List<PriceResponse> getPrices(List<String> symbols) {
+        return getPrices(symbols, Deadline.none());
+    }
+
+    public List<PriceResponse> getPrices(List<String> symbols, Deadline deadline) {
         if (symbols == null || symbols.isEmpty()) {
             return Collections.emptyList();
         }
+        List<String> requested = new ArrayList<>(new LinkedHashSet<>(symbols));
+        requested.remove(null);
+        if (priceTable == null) {
+            Map<String, PriceResponse> found = new HashMap<>();
+            readShared(requested, deadline).forEach((symbol, shared) -> found.put(symbol, shared.price()));
+            List<String> missing = new ArrayList<>();
+            for (String symbol : requested) {
+                if (!found.containsKey(symbol)) {
+                    missing.add(symbol);
+                }
+            }
+            if (!missing.isEmpty()) {
+                Map<String, PriceResponse> fetched = await(batcher.submit(missing, deadline), deadline);
+                if (fetched != null) {
+                    found.putAll(fetched);
+                }
+            }
+            return inOrder(requested, found);
+        }
 
-        String joinedSymbols = String.join(",", symbols);
+        Map<String, PriceResponse> found = new HashMap<>();
+        Map<String, CompletableFuture<PriceResponse>> owned = new LinkedHashMap<>();
+        Map<String, CompletableFuture<PriceResponse>> pending = new HashMap<>();
 
-        try {
-            JsonNode root = restClient.get()
-                    .uri(baseUrl + "/prices?symbols={symbols}", joinedSymbols)
-                    .retrieve()
-                    .body(JsonNode.class);
+        for (String symbol : requested) {
+            PriceResponse cached = cached(symbol);
+            if (cached != null) {
+                found.put(symbol, cached);
+                continue;
+            }
+            CompletableFuture<PriceResponse> mine = new CompletableFuture<>();
+            CompletableFuture<PriceResponse> theirs = inFlight.putIfAbsent(symbol, mine);
+            if (theirs == null) {
+                owned.put(symbol, mine);
+                pending.put(symbol, mine);
+            } else {
+                pending.put(symbol, theirs);
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            fetchOwned(owned, deadline);
+        }
+        pending.forEach((symbol, lookup) -> {
+            PriceResponse price = await(lookup, deadline);
+            if (price != null) {
+                found.put(symbol, price);
+            }
+        });
+        return inOrder(requested, found);
+    }
 
-            if (root != null && root.has("results")) {
-                return objectMapper.readerForListOf(PriceResponse.class).readValue(root.get("results"));
+    private static List<PriceResponse> inOrder(List<String> requested, Map<String, PriceResponse> found) {
+        List<PriceResponse> out = new ArrayList<>(found.size());
+        for (String symbol : requested) {
+            PriceResponse price = found.get(symbol);
+            if (price != null) {
+                out.add(price);
             }
-        } catch (Exception e) {
-            log.error("Failed to fetch market data", e);
         }
-        return Collections.emptyList();
+        return out;
+    }
+
+    /**
+     * Apply a price pushed by the market-data service. Only symbols already
+     * cached here are refreshed; zero prices are ignored.
+     *
+     * @return true when a cached price was replaced
+     */
+    public boolean applyPriceUpdate(PriceResponse price) {
+        if (priceTable == null || price == null || price.getLastPrice() == 0) {
+            return false;
+        }
+        int id = instruments.idOf(price.getSymbol());
+        PriceTable.Quote current = new PriceTable.Quote();
+        if (id < 0 || !priceTable.read(id, current) || !isFresh(current)) {
+            return false;
+        }
+        publish(id, price, System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Be told about every price change published into the local cache. Has
+     * no effect when the cache is disabled.
+     */
+    public void addPriceListener(PriceListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Cache ID of a symbol, registering it if new; -1 when the cache is
+     * disabled or full. Used by streaming sources (TickPipeline) that write
+     * prices directly.
+     */
+    public int cacheId(String symbol) {
+        return instruments == null ? -1 : instruments.register(symbol);
+    }
+
+    /**
+     * Write a price into the cache without notifying listeners.
+     *
+     * @return true when the last price differs from the cached one; false
+     * when the cache is disabled
+     */
+    public boolean storePrice(int id, double lastPrice, double previousClose, double dayChange,
+            double dayChangePercentage, long timestampMillis) {
+        if (priceTable == null) {
+            return false;
+        }
+        double previous = priceTable.lastPrice(id);
+        priceTable.update(id, lastPrice, previousClose, dayChange, dayChangePercentage, timestampMillis);
+        return previous != lastPrice;
+    }
+
+    /**
+     * Hand a stored price change to the registered listeners. Does nothing
+     * when the cache is disabled.
+     */
+    public void notifyPriceListeners(int id, double lastPrice, double dayChange, double dayChangePercentage) {
+        if (instruments == null) {
+            return;
+        }
+        String symbol = instruments.symbolOf(id);
+        for (PriceListener listener : listeners) {
+            try {
+                listener.onPrice(symbol, lastPrice, dayChange, dayChangePercentage);
+            } catch (RuntimeException ex) {
+                log.warn("Price listener failed for {}", symbol, ex);
+            }
+        }
+    }
+
+    public PriceBatchStats batchStats() {
+        return batcher.stats();
+    }
+
+    /**
+     * Fetch the symbols this caller claimed: from the shared Redis cache
+     * first, the rest from the service (batched with other callers'). What
+     * comes back is cached and handed to everyone waiting on it. Claims
+     * left for the batch are released when it completes, even if this caller
+     * has stopped waiting by then.
+     */
+    private void fetchOwned(Map<String, CompletableFuture<PriceResponse>> owned, Deadline deadline) {
+        Map<String, SharedPriceCache.CachedPrice> shared = readShared(owned.keySet(), deadline);
+        Map<String, CompletableFuture<PriceResponse>> missing = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        owned.forEach((symbol, claim) -> {
+            SharedPriceCache.CachedPrice hit = shared.get(symbol);
+            if (hit != null) {
+                release(symbol, claim, hit.price(), sharedTimestamp(now, hit.remainingTtlMillis()));
+            } else {
+                missing.put(symbol, claim);
+            }
+        });
+        if (missing.isEmpty()) {
+            return;
+        }
+        batcher.submit(missing.keySet(), deadline).whenComplete((fetched, error) ->
+                missing.forEach((symbol, claim) -> release(symbol, claim,
+                        fetched == null ? null : fetched.get(symbol), System.currentTimeMillis())));
+    }
+
+    /**
+     * Local timestamp for a price read from Redis, backdated so that it goes
+     * stale here once its Redis entry would have expired.
+     */
+    private long sharedTimestamp(long now, long remainingTtlMillis) {
+        if (remainingTtlMillis < 0 || remainingTtlMillis >= cacheTtlMillis) {
+            return now;
+        }
+        return now - (cacheTtlMillis - remainingTtlMillis);
+    }
+
+    private void release(
+            String symbol, CompletableFuture<PriceResponse> claim, PriceResponse price, long timestampMillis) {
+        if (price != null && price.getLastPrice() != 0) {
+            int id = instruments.register(symbol);
+            if (id >= 0) {
+                publish(id, price, timestampMillis);
+            }
+        }
+        inFlight.remove(symbol, claim);
+        claim.complete(price);
+    }
+
+    private PriceResponse cached(String symbol) {
+        int id = instruments.idOf(symbol);
+        PriceTable.Quote quote = new PriceTable.Quote();
+        if (id < 0 || !priceTable.read(id, quote) || !isFresh(quote)) {
+            return null;
+        }
+        PriceResponse price = new PriceResponse();
+        price.setSymbol(symbol);
+        price.setLastPrice(quote.lastPrice());
+        price.setDayChange(quote.dayChange());
+        price.setDayChangePercentage(quote.dayChangePercentage());
+        return price;
+    }
+
+    private boolean isFresh(PriceTable.Quote quote) {
+        return System.currentTimeMillis() - quote.timestampMillis() < cacheTtlMillis;
+    }
+
+    private void publish(int id, PriceResponse price, long timestampMillis) {
+        if (storePrice(id, price.getLastPrice(), price.getLastPrice() - price.getDayChange(),
+                price.getDayChange(), price.getDayChangePercentage(), timestampMillis)) {
+            notifyPriceListeners(id, price.getLastPrice(), price.getDayChange(), price.getDayChangePercentage());
+        }
+    }
+
+    private Map<String, SharedPriceCache.CachedPrice> readShared(Collection<String> symbols, Deadline deadline) {
+        if (sharedCache == null || deadline.isExpired()) {
+            return Collections.emptyMap();
+        }
+        return sharedCache.getAll(symbols);
+    }
+
+    /**
+     * Wait for a lookup (this caller's or another's), no longer than the
+     * deadline allows; null when it failed or did not finish in time.
+     */
+    private static <T> T await(CompletableFuture<T> pending, Deadline deadline) {
+        try {
+            if (!deadline.isBounded()) {
+                return pending.get();
+            }
+            long remainingNanos = deadline.remaining().toNanos();
+            return remainingNanos <= 0 ? pending.getNow(null) : pending.get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    /**
+     * One remote price call (chunked by the client). Completes with the
+     * prices found, never exceptionally; empty when the call fails or the
+     * deadline has passed.
+     */
+    private CompletableFuture<Map<String, PriceResponse>> fetchPricesAsync(List<String> symbols, Deadline deadline) {
+        if (deadline.isExpired()) {
+            log.debug("Skipping market data call for {} symbols: deadline passed", symbols.size());
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        return client.fetch(baseUrl, symbols, deadline);
     }
 }
@@ -0,0 +1,25 @@
+package com.marmik.brokerhub.broker.service;
+
+/**
+ * Point-in-time counters for market-data price micro-batching.
+ *
+ * @param windowMicros        configured collection window (0 = batching off)
+ * @param maxBatchSymbols     configured symbol count that sends a batch early
+ * @param lookups             price lookups handed to the batcher
+ * @param batches             remote price calls issued for them
+ * @param meanBatchSymbols    average distinct symbols per remote call
+ * @param largestBatchSymbols largest remote call so far
+ * @param queueDelayMeanMs    average time a lookup waited for its batch to be
+ *                            sent
+ * @param queueDelayP99Ms     99th percentile of that wait (bucket upper bound)
+ */
+public record PriceBatchStats(
+        long windowMicros,
+        int maxBatchSymbols,
+        long lookups,
+        long batches,
+        double meanBatchSymbols,
+        long largestBatchSymbols,
+        double queueDelayMeanMs,
+        long queueDelayP99Ms) {
+}
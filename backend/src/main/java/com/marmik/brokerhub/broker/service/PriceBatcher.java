@@ -0,0 +1,180 @@
+package com.marmik.brokerhub.broker.service;
+
+import com.marmik.brokerhub.broker.model.PriceResponse;
+import com.marmik.brokerhub.http.Deadline;
+import com.marmik.brokerhub.http.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Coalesces price lookups arriving within a short window into one remote
+ * call.
+ *
+ * The first lookup after a quiet period opens a window; lookups arriving
+ * before it closes join the same batch, which is sent when the window ends or
+ * as soon as maxBatchSymbols distinct symbols are queued. Each lookup's
+ * future completes with the prices of its own symbols only.
+ *
+ * The batch call is made with the latest deadline among its lookups, so a
+ * short deadline does not starve the others; each caller still stops waiting
+ * at its own deadline. A window of zero disables batching.
+ */
+final class PriceBatcher {
+
+    private static final class Lookup {
+        final Collection<String> symbols;
+        final Deadline deadline;
+        final long enqueuedNanos = System.nanoTime();
+        final CompletableFuture<Map<String, PriceResponse>> result = new CompletableFuture<>();
+
+        Lookup(Collection<String> symbols, Deadline deadline) {
+            this.symbols = symbols;
+            this.deadline = deadline;
+        }
+    }
+
+    private final long windowNanos;
+    private final int maxBatchSymbols;
+    private final BiFunction<List<String>, Deadline, CompletableFuture<Map<String, PriceResponse>>> fetcher;
+
+    private final Object lock = new Object();
+    private List<Lookup> pending = new ArrayList<>();
+    private Set<String> pendingSymbols = new LinkedHashSet<>();
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedSymbols = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private final LatencyHistogram queueDelay = new LatencyHistogram();
+
+    PriceBatcher(
+            Duration window,
+            int maxBatchSymbols,
+            BiFunction<List<String>, Deadline, CompletableFuture<Map<String, PriceResponse>>> fetcher) {
+        if (maxBatchSymbols <= 0) {
+            throw new IllegalArgumentException("maxBatchSymbols must be positive");
+        }
+        this.windowNanos = Math.max(0, window.toNanos());
+        this.maxBatchSymbols = maxBatchSymbols;
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * Prices for symbols, keyed by symbol. Never completes exceptionally;
+     * symbols the remote call did not return are simply absent.
+     */
+    CompletableFuture<Map<String, PriceResponse>> submit(Collection<String> symbols, Deadline deadline) {
+        if (symbols.isEmpty() || deadline.isExpired()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        lookups.incrementAndGet();
+        Lookup lookup = new Lookup(symbols, deadline);
+        if (windowNanos == 0) {
+            send(List.of(lookup), new LinkedHashSet<>(symbols));
+            return lookup.result;
+        }
+
+        boolean openWindow;
+        List<Lookup> full = null;
+        Set<String> fullSymbols = null;
+        synchronized (lock) {
+            openWindow = pending.isEmpty();
+            pending.add(lookup);
+            pendingSymbols.addAll(symbols);
+            if (pendingSymbols.size() >= maxBatchSymbols) {
+                full = pending;
+                fullSymbols = pendingSymbols;
+                pending = new ArrayList<>();
+                pendingSymbols = new LinkedHashSet<>();
+            }
+        }
+        if (full != null) {
+            send(full, fullSymbols);
+        } else if (openWindow) {
+            CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS).execute(this::flush);
+        }
+        return lookup.result;
+    }
+
+    PriceBatchStats stats() {
+        long sent = batches.get();
+        return new PriceBatchStats(
+                TimeUnit.NANOSECONDS.toMicros(windowNanos),
+                maxBatchSymbols,
+                lookups.get(),
+                sent,
+                sent == 0 ? 0.0 : (double) batchedSymbols.get() / sent,
+                largestBatch.get(),
+                queueDelay.meanMs(),
+                queueDelay.percentileMs(0.99));
+    }
+
+    /**
+     * Sends whatever is queued when a window closes. A batch sent early for
+     * size leaves this with nothing (or a newer, not yet due batch whose own
+     * timer is running) to do.
+     */
+    private void flush() {
+        List<Lookup> batch;
+        Set<String> symbols;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            long oldest = pending.get(0).enqueuedNanos;
+            if (System.nanoTime() - oldest < windowNanos) {
+                // Window of a newer batch; its own timer will send it.
+                return;
+            }
+            batch = pending;
+            symbols = pendingSymbols;
+            pending = new ArrayList<>();
+            pendingSymbols = new LinkedHashSet<>();
+        }
+        send(batch, symbols);
+    }
+
+    private void send(List<Lookup> batch, Set<String> symbols) {
+        long now = System.nanoTime();
+        Deadline deadline = batch.get(0).deadline;
+        for (Lookup lookup : batch) {
+            deadline = deadline.latest(lookup.deadline);
+            queueDelay.record(now - lookup.enqueuedNanos);
+        }
+        batches.incrementAndGet();
+        batchedSymbols.addAndGet(symbols.size());
+        largestBatch.accumulateAndGet(symbols.size(), Math::max);
+
+        CompletableFuture<Map<String, PriceResponse>> call;
+        try {
+            call = fetcher.apply(new ArrayList<>(symbols), deadline);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((prices, error) -> {
+            Map<String, PriceResponse> bySymbol = prices == null ? Collections.emptyMap() : prices;
+            for (Lookup lookup : batch) {
+                Map<String, PriceResponse> slice = new HashMap<>();
+                for (String symbol : lookup.symbols) {
+                    PriceResponse price = bySymbol.get(symbol);
+                    if (price != null) {
+                        slice.put(symbol, price);
+                    }
+                }
+                lookup.result.complete(slice);
+            }
+        });
+    }
+}
@@ -0,0 +1,16 @@
+package com.marmik.brokerhub.broker.service;
+
+/**
+ * Receives prices as MarketDataService publishes them into its local cache.
+ *
+ * Called on the publishing thread (a batch completion or the price-update
+ * subscriber), so implementations must return quickly and never block.
+ */
+@FunctionalInterface
+public interface PriceListener {
+
+    /**
+     * A symbol's last price changed.
+     */
+    void onPrice(String symbol, double lastPrice, double dayChange, double dayChangePercentage);
+}
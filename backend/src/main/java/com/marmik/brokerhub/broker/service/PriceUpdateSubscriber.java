@@ -0,0 +1,102 @@
+package com.marmik.brokerhub.broker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.marmik.brokerhub.broker.model.PriceResponse;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the node-local price cache fresh from prices the market-data service
+ * publishes on a Redis channel (marketdata.price-updates.channel) each time
+ * it refreshes a symbol.
+ *
+ * A dedicated channel is used rather than keyspace notifications: it needs no
+ * server-side notify-keyspace-events setting and carries the price itself, so
+ * no follow-up GET is needed. Pub/sub is best effort; an update missed while
+ * disconnected is covered by the cache TTL.
+ */
+@Component
+@Slf4j
+public class PriceUpdateSubscriber implements MessageListener {
+
+    private final MarketDataService marketDataService;
+    private final ObjectReader priceReader;
+    private final ObjectProvider<RedisConnectionFactory> connectionFactory;
+    private final boolean enabled;
+    private final String channel;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private RedisMessageListenerContainer container;
+
+    public PriceUpdateSubscriber(
+            MarketDataService marketDataService,
+            ObjectMapper objectMapper,
+            ObjectProvider<RedisConnectionFactory> connectionFactory,
+            @Value("${marketdata.price-updates.enabled:true}") boolean enabled,
+            @Value("${marketdata.price-updates.channel:md:price-updates}") String channel) {
+        this.marketDataService = marketDataService;
+        this.priceReader = objectMapper.readerFor(PriceResponse.class);
+        this.connectionFactory = connectionFactory;
+        this.enabled = enabled;
+        this.channel = channel;
+    }
+
+    @PostConstruct
+    public void start() {
+        RedisConnectionFactory factory = enabled ? connectionFactory.getIfAvailable() : null;
+        if (factory == null) {
+            return;
+        }
+        RedisMessageListenerContainer c = new RedisMessageListenerContainer();
+        c.setConnectionFactory(factory);
+        c.addMessageListener(this, new ChannelTopic(channel));
+        c.afterPropertiesSet();
+        c.start();
+        container = c;
+        log.info("Subscribed to market price updates on {}", channel);
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        if (container != null) {
+            container.destroy();
+            container = null;
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        received.incrementAndGet();
+        try {
+            PriceResponse price = priceReader.readValue(message.getBody());
+            if (marketDataService.applyPriceUpdate(price)) {
+                applied.incrementAndGet();
+            }
+        } catch (Exception e) {
+            log.debug("Ignoring unreadable price update on {}", channel);
+        }
+    }
+
+    public long receivedCount() {
+        return received.get();
+    }
+
+    public long appliedCount() {
+        return applied.get();
+    }
+}
@@ -0,0 +1,124 @@
+package com.marmik.brokerhub.broker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.marmik.brokerhub.broker.model.PriceResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Read-only view of the market-data service's Redis price cache.
+ *
+ * The Python service stores each price as JSON under md:price:{SYMBOL}
+ * (upper-cased) with its own TTL. Reading those keys directly, with one MGET
+ * for all symbols, saves the HTTP hop for every symbol the service already
+ * has; only the misses need to go to the service. Each key's remaining TTL
+ * is read in the same pipeline, so callers caching a price locally can stop
+ * serving it when the service's copy would have expired.
+ *
+ * Fails open: a Redis error or an unreadable entry is treated as a miss.
+ */
+@Component
+@Slf4j
+public class SharedPriceCache {
+
+    static final String KEY_PREFIX = "md:price:";
+
+    private final StringRedisTemplate redis;
+    private final ObjectReader priceReader;
+    private final boolean enabled;
+
+    /**
+     * A cached price and how long the service's entry has left, in
+     * milliseconds; -1 when the entry has no expiry.
+     */
+    public record CachedPrice(PriceResponse price, long remainingTtlMillis) {
+    }
+
+    public SharedPriceCache(
+            StringRedisTemplate redis,
+            ObjectMapper objectMapper,
+            @Value("${marketdata.redis-read.enabled:true}") boolean enabled) {
+        this.redis = redis;
+        this.priceReader = objectMapper.readerFor(PriceResponse.class);
+        this.enabled = enabled && redis != null;
+    }
+
+    /**
+     * Cached prices for the symbols that have one, keyed by the symbol as
+     * requested. Zero (unavailable) prices count as misses.
+     */
+    public Map<String, CachedPrice> getAll(Collection<String> symbols) {
+        if (!enabled || symbols.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<String> requested = new ArrayList<>(symbols);
+        List<String> keys = new ArrayList<>(requested.size());
+        for (String symbol : requested) {
+            keys.add(key(symbol));
+        }
+
+        List<Object> results;
+        try {
+            results = redis.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection strings = (StringRedisConnection) connection;
+                strings.mGet(keys.toArray(String[]::new));
+                for (String key : keys) {
+                    strings.pTtl(key);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.debug("Shared price cache read failed for {} symbols", keys.size(), e);
+            return Collections.emptyMap();
+        }
+        if (results == null || results.isEmpty() || !(results.get(0) instanceof List<?> values)) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, CachedPrice> found = new HashMap<>();
+        for (int i = 0; i < requested.size() && i < values.size(); i++) {
+            if (!(values.get(i) instanceof String json) || json.isBlank()) {
+                continue;
+            }
+            try {
+                PriceResponse price = priceReader.readValue(json);
+                if (price != null && price.getLastPrice() != 0) {
+                    price.setSymbol(requested.get(i));
+                    found.put(requested.get(i), new CachedPrice(price, remainingTtl(results, i + 1)));
+                }
+            } catch (Exception e) {
+                log.debug("Ignoring unreadable shared price for {}", requested.get(i));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * PTTL reply at index, or -1 (no expiry) when it is missing; -2 (the key
+     * expired since the MGET) is reported as 0.
+     */
+    private static long remainingTtl(List<Object> results, int index) {
+        if (index >= results.size() || !(results.get(index) instanceof Long ttl) || ttl == -1) {
+            return -1;
+        }
+        return Math.max(0, ttl);
+    }
+
+    static String key(String symbol) {
+        return KEY_PREFIX + symbol.toUpperCase(Locale.ROOT);
+    }
+}
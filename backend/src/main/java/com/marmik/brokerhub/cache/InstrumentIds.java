@@ -0,0 +1,73 @@
+package com.marmik.brokerhub.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Assigns dense int IDs (0, 1, 2, ...) to symbols, for indexing a
+ * PriceTable of the same capacity.
+ *
+ * IDs are never reused; once capacity symbols are registered, new ones get
+ * -1 and callers treat them as uncached.
+ */
+public final class InstrumentIds {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> symbols;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public InstrumentIds(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.symbols = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * ID of a registered symbol, or -1.
+     */
+    public int idOf(String symbol) {
+        Integer id = symbol == null ? null : ids.get(symbol);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * ID of symbol, registering it if new; -1 when the table is full.
+     */
+    public int register(String symbol) {
+        if (symbol == null) {
+            return -1;
+        }
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        if (next.get() >= symbols.length()) {
+            return -1;
+        }
+        id = ids.computeIfAbsent(symbol, s -> {
+            int assigned = next.getAndIncrement();
+            if (assigned >= symbols.length()) {
+                next.decrementAndGet();
+                return null;
+            }
+            symbols.set(assigned, s);
+            return assigned;
+        });
+        return id == null ? -1 : id;
+    }
+
+    public String symbolOf(int id) {
+        return id < 0 || id >= symbols.length() ? null : symbols.get(id);
+    }
+
+    public int size() {
+        return Math.min(next.get(), symbols.length());
+    }
+
+    public int capacity() {
+        return symbols.length();
+    }
+}
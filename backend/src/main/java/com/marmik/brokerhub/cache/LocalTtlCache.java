@@ -0,0 +1,170 @@
+package com.marmik.brokerhub.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Small bounded in-process cache with per-entry expiry.
+ *
+ * - Size-bounded; the least recently used entry is evicted first.
+ * - Every entry carries its own deadline and is dropped lazily on read.
+ * - An optional removal listener sees every entry that leaves the cache
+ * (expiry, eviction, replacement, invalidation) so holders of sensitive
+ * values can scrub them.
+ *
+ * Operations lock the instance; meant for small, hot, per-node sets where
+ * the cached work is far more expensive than the lock.
+ */
+public final class LocalTtlCache<K, V> {
+
+    private final int maxEntries;
+    private final long defaultTtlNanos;
+    private final BiConsumer<K, V> removalListener;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAtNanos;
+
+        Entry(V value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    public LocalTtlCache(int maxEntries, Duration defaultTtl) {
+        this(maxEntries, defaultTtl, null, System::nanoTime);
+    }
+
+    public LocalTtlCache(int maxEntries, Duration defaultTtl, BiConsumer<K, V> removalListener) {
+        this(maxEntries, defaultTtl, removalListener, System::nanoTime);
+    }
+
+    LocalTtlCache(int maxEntries, Duration defaultTtl, BiConsumer<K, V> removalListener, LongSupplier nanoClock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.defaultTtlNanos = defaultTtl == null ? 0 : defaultTtl.toNanos();
+        this.removalListener = removalListener;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns the live value for the key, or null when absent or expired.
+     */
+    public synchronized V get(K key) {
+        Entry<V> e = entries.get(key);
+        if (e == null) {
+            return null;
+        }
+        if (isExpired(e, nanoClock.getAsLong())) {
+            entries.remove(key);
+            notifyRemoval(key, e.value);
+            return null;
+        }
+        return e.value;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, defaultTtlNanos);
+    }
+
+    public void put(K key, V value, Duration ttl) {
+        put(key, value, ttl == null ? 0 : ttl.toNanos());
+    }
+
+    private synchronized void put(K key, V value, long ttlNanos) {
+        if (ttlNanos <= 0) {
+            invalidate(key);
+            return;
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(value, nanoClock.getAsLong() + ttlNanos));
+        if (previous != null && previous.value != value) {
+            notifyRemoval(key, previous.value);
+        }
+        evictOverflow();
+    }
+
+    /**
+     * Replaces the value of a live entry (restarting its default TTL) and
+     * leaves absent or expired keys alone; for pushing fresh values into
+     * whatever is already cached without growing the cache.
+     *
+     * @return true when an entry was replaced
+     */
+    public synchronized boolean replaceIfPresent(K key, V value) {
+        if (get(key) == null) {
+            return false;
+        }
+        put(key, value, defaultTtlNanos);
+        return true;
+    }
+
+    public synchronized void invalidate(K key) {
+        Entry<V> e = entries.remove(key);
+        if (e != null) {
+            notifyRemoval(key, e.value);
+        }
+    }
+
+    public synchronized void invalidateIf(Predicate<K> keyPredicate) {
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, Entry<V>> e = it.next();
+            if (keyPredicate.test(e.getKey())) {
+                it.remove();
+                notifyRemoval(e.getKey(), e.getValue().value);
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        invalidateIf(k -> true);
+    }
+
+    /**
+     * Drops every expired entry. Reads already do this lazily; callers holding
+     * sensitive values can run it periodically so expiry is not read-driven.
+     */
+    public synchronized void purgeExpired() {
+        long now = nanoClock.getAsLong();
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, Entry<V>> e = it.next();
+            if (isExpired(e.getValue(), now)) {
+                it.remove();
+                notifyRemoval(e.getKey(), e.getValue().value);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            Map.Entry<K, Entry<V>> eldest = it.next();
+            it.remove();
+            notifyRemoval(eldest.getKey(), eldest.getValue().value);
+        }
+    }
+
+    private static boolean isExpired(Entry<?> e, long now) {
+        return now - e.expiresAtNanos >= 0;
+    }
+
+    private void notifyRemoval(K key, V value) {
+        if (removalListener != null) {
+            removalListener.accept(key, value);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.marmik.brokerhub.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fixed-capacity table of prices indexed by int instrument ID.
+ *
+ * Each instrument owns one 64-byte slot in a single long[] (version, last
+ * price, previous close, day change, day change %, timestamp), so a lookup is
+ * an index computation rather than a hash probe and updates allocate nothing.
+ *
+ * Notes:
+ * - Readers never lock. Each slot is guarded by a sequence number: a writer
+ * makes it odd while it writes and even again when done; a reader retries if
+ * the sequence was odd or changed while it read, so it never sees a torn
+ * price.
+ * - Writers to the same slot are serialized by a CAS on the sequence number;
+ * writers to different slots never contend.
+ * - Primitive arrays are used rather than off-heap memory: the table is a few
+ * MB at most and stays visible to heap tooling, and the GC never has to
+ * trace it.
+ */
+public final class PriceTable {
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int STRIDE = 8;
+    private static final int SEQ = 0;
+    private static final int LAST = 1;
+    private static final int PREV_CLOSE = 2;
+    private static final int CHANGE = 3;
+    private static final int CHANGE_PCT = 4;
+    private static final int TIMESTAMP = 5;
+
+    /**
+     * Reusable holder for one slot's values; not thread-safe.
+     */
+    public static final class Quote {
+        private double lastPrice;
+        private double previousClose;
+        private double dayChange;
+        private double dayChangePercentage;
+        private long timestampMillis;
+
+        public double lastPrice() {
+            return lastPrice;
+        }
+
+        public double previousClose() {
+            return previousClose;
+        }
+
+        public double dayChange() {
+            return dayChange;
+        }
+
+        public double dayChangePercentage() {
+            return dayChangePercentage;
+        }
+
+        public long timestampMillis() {
+            return timestampMillis;
+        }
+    }
+
+    private final long[] slots;
+    private final int capacity;
+
+    public PriceTable(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (capacity > Integer.MAX_VALUE / STRIDE) {
+            throw new IllegalArgumentException("capacity too large: " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = new long[capacity * STRIDE];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Publish a price for an instrument. Readers see either the previous
+     * values or all of these.
+     */
+    public void update(int id, double lastPrice, double previousClose, double dayChange,
+            double dayChangePercentage, long timestampMillis) {
+        int base = base(id);
+        long seq;
+        do {
+            seq = (long) LONGS.getOpaque(slots, base + SEQ);
+            if ((seq & 1) != 0) {
+                Thread.onSpinWait();
+            }
+        } while ((seq & 1) != 0 || !LONGS.compareAndSet(slots, base + SEQ, seq, seq + 1));
+        VarHandle.storeStoreFence();
+
+        LONGS.setOpaque(slots, base + LAST, Double.doubleToRawLongBits(lastPrice));
+        LONGS.setOpaque(slots, base + PREV_CLOSE, Double.doubleToRawLongBits(previousClose));
+        LONGS.setOpaque(slots, base + CHANGE, Double.doubleToRawLongBits(dayChange));
+        LONGS.setOpaque(slots, base + CHANGE_PCT, Double.doubleToRawLongBits(dayChangePercentage));
+        LONGS.setOpaque(slots, base + TIMESTAMP, timestampMillis);
+
+        LONGS.setRelease(slots, base + SEQ, seq + 2);
+    }
+
+    /**
+     * Copy an instrument's current values into out.
+     *
+     * @return false when no price was ever published for id
+     */
+    public boolean read(int id, Quote out) {
+        int base = base(id);
+        while (true) {
+            long before = (long) LONGS.getAcquire(slots, base + SEQ);
+            if (before == 0) {
+                return false;
+            }
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long last = (long) LONGS.getOpaque(slots, base + LAST);
+            long prevClose = (long) LONGS.getOpaque(slots, base + PREV_CLOSE);
+            long change = (long) LONGS.getOpaque(slots, base + CHANGE);
+            long changePct = (long) LONGS.getOpaque(slots, base + CHANGE_PCT);
+            long timestamp = (long) LONGS.getOpaque(slots, base + TIMESTAMP);
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getOpaque(slots, base + SEQ) == before) {
+                out.lastPrice = Double.longBitsToDouble(last);
+                out.previousClose = Double.longBitsToDouble(prevClose);
+                out.dayChange = Double.longBitsToDouble(change);
+                out.dayChangePercentage = Double.longBitsToDouble(changePct);
+                out.timestampMillis = timestamp;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Last price alone (0 when never published); cheaper than a full read
+     * for P&L recomputation.
+     */
+    public double lastPrice(int id) {
+        return Double.longBitsToDouble((long) LONGS.getOpaque(slots, base(id) + LAST));
+    }
+
+    /**
+     * Number of updates published for id (0 when never written). Lets a
+     * reader tell cheaply whether a price changed since it last looked.
+     */
+    public long version(int id) {
+        return ((long) LONGS.getAcquire(slots, base(id) + SEQ)) >>> 1;
+    }
+
+    private int base(int id) {
+        if (id < 0 || id >= capacity) {
+            throw new IndexOutOfBoundsException("instrument id " + id + " outside table of " + capacity);
+        }
+        return id * STRIDE;
+    }
+}
@@ -0,0 +1,56 @@
+package com.marmik.brokerhub.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Groups the in-flight work started for one request so it can be cancelled
+ * as a unit, e.g. when the HTTP client goes away.
+ *
+ * Work registered after the scope was cancelled is cancelled immediately,
+ * and {@link #isCancelled()} lets callers avoid starting work at all.
+ */
+public final class CancellationScope {
+
+    private final List<Future<?>> registered = new ArrayList<>();
+    private boolean cancelled;
+
+    /**
+     * Track future; cancels it right away if the scope is already cancelled.
+     */
+    public <F extends Future<?>> F register(F future) {
+        boolean cancelNow;
+        synchronized (this) {
+            cancelNow = cancelled;
+            if (!cancelNow && !future.isDone()) {
+                registered.removeIf(Future::isDone);
+                registered.add(future);
+            }
+        }
+        if (cancelNow) {
+            future.cancel(true);
+        }
+        return future;
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancel every registered future that has not completed yet.
+     */
+    public void cancel() {
+        List<Future<?>> toCancel;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toCancel = new ArrayList<>(registered);
+            registered.clear();
+        }
+        toCancel.forEach(f -> f.cancel(true));
+    }
+}
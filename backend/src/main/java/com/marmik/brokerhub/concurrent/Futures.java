@@ -0,0 +1,51 @@
+package com.marmik.brokerhub.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * CompletableFuture helpers.
+ *
+ * Cancelling a CompletableFuture does not reach the stage it was derived
+ * from (thenApply, whenComplete, thenCompose all return new futures), so code
+ * that wants a caller's cancel to abort the underlying work has to link the
+ * two explicitly with {@link #cancelWith}.
+ */
+public final class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * When dependent is cancelled, cancel source too. Returns dependent.
+     */
+    public static <T> CompletableFuture<T> cancelWith(CompletableFuture<T> dependent, Future<?> source) {
+        return onCancel(dependent, () -> source.cancel(true));
+    }
+
+    /**
+     * Run action if future is cancelled. Returns future.
+     */
+    public static <T> CompletableFuture<T> onCancel(CompletableFuture<T> future, Runnable action) {
+        future.whenComplete((value, error) -> {
+            if (future.isCancelled()) {
+                action.run();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Strip the CompletionException / ExecutionException wrapper a future
+     * adds around the real failure.
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable t = error;
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+}
@@ -1,30 +1,60 @@
 package com.marmik.brokerhub.controller;
 
+import com.marmik.brokerhub.concurrent.Futures;
+import com.marmik.brokerhub.http.Deadline;
 import com.marmik.brokerhub.service.AccountPortfolioService;
 import com.marmik.brokerhub.service.AccountAccessValidator;
+import com.marmik.brokerhub.service.PortfolioStreamService;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST controller for retrieving aggregated portfolio data (holdings and positions).
+ *
+ * Clients may send X-Request-Timeout-Ms to bound how long aggregation may
+ * take; it defaults to portfolio.request-timeout-ms and is capped at
+ * portfolio.max-request-timeout-ms. Credentials that could not be fetched in
+ * time are listed under "cutOff" in the response.
+ *
+ * Aggregation runs asynchronously (the servlet thread is released while
+ * brokers are called) and is cancelled if the client disconnects.
  */
 @RestController
 @RequestMapping("/api/accounts")
 public class AccountPortfolioController {
 
+    private static final long ASYNC_TIMEOUT_GRACE_MS = 5_000;
+
     private final AccountPortfolioService portfolioService;
     private final AccountAccessValidator accessValidator;
+    private final PortfolioStreamService streamService;
+
+    private final long defaultTimeoutMs;
+    private final long maxTimeoutMs;
 
     public AccountPortfolioController(
             AccountPortfolioService portfolioService,
-            AccountAccessValidator accessValidator) {
+            AccountAccessValidator accessValidator,
+            PortfolioStreamService streamService,
+            @Value("${portfolio.request-timeout-ms:30000}") long defaultTimeoutMs,
+            @Value("${portfolio.max-request-timeout-ms:60000}") long maxTimeoutMs) {
         this.portfolioService = portfolioService;
         this.accessValidator = accessValidator;
+        this.streamService = streamService;
+        this.defaultTimeoutMs = defaultTimeoutMs;
+        this.maxTimeoutMs = Math.max(defaultTimeoutMs, maxTimeoutMs);
     }
 
     /**
@@ -35,9 +65,10 @@ public class AccountPortfolioController {
      * Accessible to any member of the account.
      */
     @GetMapping("/{accountId}/aggregate-holdings")
-    public ResponseEntity<?> getAggregateHoldings(
+    public DeferredResult<ResponseEntity<?>> getAggregateHoldings(
             @PathVariable String accountId,
-            @AuthenticationPrincipal String userId) {
+            @AuthenticationPrincipal String userId,
+            @RequestHeader(value = "X-Request-Timeout-Ms", required = false) Long timeoutMs) {
 
         UUID caller;
         UUID accId;
@@ -45,15 +76,40 @@ public class AccountPortfolioController {
             caller = UUID.fromString(userId);
             accId = UUID.fromString(accountId);
         } catch (IllegalArgumentException ex) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Invalid UUID"));
+            return completed(ResponseEntity.badRequest().body(Map.of("error", "Invalid UUID")));
         }
 
         accessValidator.requireMembership(caller, accId);
 
-        // returns Map { full: [...], partial: [...] }
-        Map<String, Object> result = portfolioService.aggregateHoldingsForAccount(accId, caller);
+        // completes with Map { full: [...], partial: [...], cutOff?: [...] }
+        Deadline deadline = requestDeadline(timeoutMs);
+        return deferred(portfolioService.aggregateHoldingsForAccountAsync(accId, caller, deadline), deadline);
+    }
+
+    /**
+     * GET /api/accounts/{accountId}/holdings-stream
+     *
+     * Server-Sent Events stream of aggregated holdings: a "snapshot" event
+     * with the aggregate-holdings body, then "holdings" events with the rows
+     * whose price changed. Same membership checks as aggregate-holdings.
+     */
+    @GetMapping(value = "/{accountId}/holdings-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamHoldings(
+            @PathVariable String accountId,
+            @AuthenticationPrincipal String userId) {
 
-        return ResponseEntity.ok(result);
+        UUID caller;
+        UUID accId;
+        try {
+            caller = UUID.fromString(userId);
+            accId = UUID.fromString(accountId);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        accessValidator.requireMembership(caller, accId);
+
+        return ResponseEntity.ok(streamService.subscribe(accId, caller));
     }
 
     /**
@@ -63,9 +119,10 @@ public class AccountPortfolioController {
      * brokers. Uses identical auth & membership checks as holdings.
      */
     @GetMapping("/{accountId}/aggregate-positions")
-    public ResponseEntity<?> getAggregatePositions(
+    public DeferredResult<ResponseEntity<?>> getAggregatePositions(
             @PathVariable String accountId,
-            @AuthenticationPrincipal String userId) {
+            @AuthenticationPrincipal String userId,
+            @RequestHeader(value = "X-Request-Timeout-Ms", required = false) Long timeoutMs) {
 
         UUID caller;
         UUID accId;
@@ -73,14 +130,59 @@ public class AccountPortfolioController {
             caller = UUID.fromString(userId);
             accId = UUID.fromString(accountId);
         } catch (IllegalArgumentException ex) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Invalid UUID"));
+            return completed(ResponseEntity.badRequest().body(Map.of("error", "Invalid UUID")));
         }
 
         accessValidator.requireMembership(caller, accId);
 
-        // returns Map { full: [...], partial: [...] }
-        Map<String, Object> result = portfolioService.aggregatePositionsForAccount(accId, caller);
+        // completes with Map { full: [...], partial: [...], cutOff?: [...] }
+        Deadline deadline = requestDeadline(timeoutMs);
+        return deferred(portfolioService.aggregatePositionsForAccountAsync(accId, caller, deadline), deadline);
+    }
 
-        return ResponseEntity.ok(result);
+    /**
+     * Bridge an aggregation to Spring MVC async processing.
+     *
+     * The service answers with a partial result at the deadline, so the async
+     * timeout (deadline plus a grace period) only catches a stuck aggregation.
+     * If the request ends early (client disconnect, async error or timeout),
+     * the aggregation is cancelled, down to its outstanding broker calls.
+     */
+    private DeferredResult<ResponseEntity<?>> deferred(
+            CompletableFuture<Map<String, Object>> aggregation,
+            Deadline deadline) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(
+                deadline.remaining().toMillis() + ASYNC_TIMEOUT_GRACE_MS);
+        result.onTimeout(() -> {
+            aggregation.cancel(true);
+            result.setErrorResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Aggregation timed out")));
+        });
+        result.onError(error -> aggregation.cancel(true));
+        result.onCompletion(() -> aggregation.cancel(true));
+
+        aggregation.whenComplete((body, error) -> {
+            if (error == null) {
+                result.setResult(ResponseEntity.ok(body));
+            } else if (!aggregation.isCancelled()) {
+                result.setErrorResult(Futures.unwrap(error));
+            }
+        });
+        return result;
+    }
+
+    private static DeferredResult<ResponseEntity<?>> completed(ResponseEntity<?> response) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+        result.setResult(response);
+        return result;
+    }
+
+    /**
+     * Deadline from the client's header, falling back to the configured
+     * default and never exceeding the configured maximum.
+     */
+    private Deadline requestDeadline(Long timeoutMs) {
+        long ms = timeoutMs == null || timeoutMs <= 0 ? defaultTimeoutMs : Math.min(timeoutMs, maxTimeoutMs);
+        return Deadline.after(Duration.ofMillis(ms));
     }
 }
@@ -0,0 +1,118 @@
+package com.marmik.brokerhub.controller;
+
+import com.marmik.brokerhub.broker.service.MarketDataService;
+import com.marmik.brokerhub.broker.service.PriceBatchStats;
+import com.marmik.brokerhub.feed.TickFeedService;
+import com.marmik.brokerhub.feed.TickFeedStats;
+import com.marmik.brokerhub.http.UpstreamHttpClient;
+import com.marmik.brokerhub.http.UpstreamStats;
+import com.marmik.brokerhub.resilience.BrokerCallGuard;
+import com.marmik.brokerhub.resilience.BrokerGuardStats;
+import com.marmik.brokerhub.resilience.BrokerHedgingPolicy;
+import com.marmik.brokerhub.resilience.HedgeStats;
+import com.marmik.brokerhub.service.PortfolioStreamService;
+import com.marmik.brokerhub.service.PortfolioStreamStats;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Operational metrics for outbound calls (authenticated).
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final List<UpstreamHttpClient> upstreams;
+    private final BrokerCallGuard brokerCallGuard;
+    private final BrokerHedgingPolicy hedgingPolicy;
+    private final MarketDataService marketDataService;
+    private final PortfolioStreamService portfolioStreamService;
+    private final TickFeedService tickFeedService;
+
+    public MetricsController(
+            List<UpstreamHttpClient> upstreams,
+            BrokerCallGuard brokerCallGuard,
+            BrokerHedgingPolicy hedgingPolicy,
+            MarketDataService marketDataService,
+            PortfolioStreamService portfolioStreamService,
+            TickFeedService tickFeedService) {
+        this.upstreams = upstreams;
+        this.brokerCallGuard = brokerCallGuard;
+        this.hedgingPolicy = hedgingPolicy;
+        this.marketDataService = marketDataService;
+        this.portfolioStreamService = portfolioStreamService;
+        this.tickFeedService = tickFeedService;
+    }
+
+    /**
+     * GET /api/metrics/upstreams
+     *
+     * Pool utilization, queue depth, error counts and latency percentiles per
+     * upstream.
+     */
+    @GetMapping("/upstreams")
+    public ResponseEntity<List<UpstreamStats>> getUpstreamStats() {
+        return ResponseEntity.ok(upstreams.stream()
+                .map(UpstreamHttpClient::stats)
+                .toList());
+    }
+
+    /**
+     * GET /api/metrics/brokers
+     *
+     * Circuit state and adaptive concurrency limit per broker type.
+     */
+    @GetMapping("/brokers")
+    public ResponseEntity<List<BrokerGuardStats>> getBrokerGuardStats() {
+        return ResponseEntity.ok(brokerCallGuard.stats());
+    }
+
+    /**
+     * GET /api/metrics/hedges
+     *
+     * Hedged broker requests issued and won, and the current hedge delay, per
+     * broker type.
+     */
+    @GetMapping("/hedges")
+    public ResponseEntity<List<HedgeStats>> getHedgeStats() {
+        return ResponseEntity.ok(hedgingPolicy.stats());
+    }
+
+    /**
+     * GET /api/metrics/price-batches
+     *
+     * Market-data micro-batching: lookups coalesced, batch sizes and the
+     * queueing delay added by the batch window.
+     */
+    @GetMapping("/price-batches")
+    public ResponseEntity<PriceBatchStats> getPriceBatchStats() {
+        return ResponseEntity.ok(marketDataService.batchStats());
+    }
+
+    /**
+     * GET /api/metrics/portfolio-streams
+     *
+     * Real-time holdings streams: open subscriptions, symbols indexed, price
+     * changes fanned out and how many row updates were coalesced away.
+     */
+    @GetMapping("/portfolio-streams")
+    public ResponseEntity<PortfolioStreamStats> getPortfolioStreamStats() {
+        return ResponseEntity.ok(portfolioStreamService.stats());
+    }
+
+    /**
+     * GET /api/metrics/tick-feed
+     *
+     * Binary tick feed: connection state, ticks received and processed,
+     * throughput and latency percentiles per pipeline stage.
+     */
+    @GetMapping("/tick-feed")
+    public ResponseEntity<TickFeedStats> getTickFeedStats() {
+        return ResponseEntity.ok(tickFeedService.stats());
+    }
+}
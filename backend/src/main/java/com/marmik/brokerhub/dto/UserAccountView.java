@@ -0,0 +1,18 @@
+package com.marmik.brokerhub.dto;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Row returned by the "My Accounts" endpoint.
+ * One entry per membership of the caller, joined with the account's
+ * display fields.
+ */
+public record UserAccountView(
+        UUID accountId,
+        String name,
+        String description,
+        String role,
+        UUID accountMemberId,
+        Map<String, Object> rules) {
+}
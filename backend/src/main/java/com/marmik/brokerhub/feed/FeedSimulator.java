@@ -0,0 +1,207 @@
+package com.marmik.brokerhub.feed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local stand-in for a market feed: serves recorded tick frames over TCP at
+ * a fixed rate.
+ *
+ * Every client that connects gets the recording replayed from the start,
+ * with sequence numbers rewritten so a looped recording stays gapless. A
+ * rate of 0 sends as fast as the client reads.
+ *
+ * Run it next to the backend (feed.enabled=true, feed.port=9400). The
+ * backend jar is a Spring Boot jar, so the class is started through its
+ * PropertiesLauncher:
+ *
+ * <pre>
+ * java -cp backend.jar -Dloader.main=com.marmik.brokerhub.feed.FeedSimulator \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     --port 9400 --rate 50000 --loop [--file ticks.bin | --symbols INFY,TCS --ticks 100000]
+ * java -cp backend.jar -Dloader.main=com.marmik.brokerhub.feed.FeedSimulator \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     --record ticks.bin --symbols INFY,TCS --ticks 100000
+ * </pre>
+ *
+ * A recording is a file of back-to-back TickCodec frames; without --file a
+ * random walk over --symbols is generated.
+ */
+public final class FeedSimulator implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedSimulator.class);
+
+    /** Frames written per socket write; also the pacing granularity. */
+    private static final int CHUNK_FRAMES = 256;
+
+    private final byte[] recording;
+    private final long ticksPerSecond;
+    private final boolean loop;
+    private final ServerSocketChannel server;
+    private final Thread acceptor;
+    private volatile boolean running = true;
+
+    public FeedSimulator(byte[] recording, int port, long ticksPerSecond, boolean loop) throws IOException {
+        if (recording.length == 0 || recording.length % TickCodec.FRAME_SIZE != 0) {
+            throw new IllegalArgumentException("recording must be a non-empty sequence of "
+                    + TickCodec.FRAME_SIZE + "-byte frames");
+        }
+        this.recording = recording;
+        this.ticksPerSecond = Math.max(0, ticksPerSecond);
+        this.loop = loop;
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        this.acceptor = new Thread(this::acceptLoop, "feed-simulator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int port() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        server.close();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel client = server.accept();
+                Thread t = new Thread(() -> replay(client), "feed-simulator-client");
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException ex) {
+                if (running) {
+                    log.warn("Feed simulator stopped accepting", ex);
+                }
+                return;
+            }
+        }
+    }
+
+    private void replay(SocketChannel client) {
+        int frames = recording.length / TickCodec.FRAME_SIZE;
+        byte[] chunk = new byte[CHUNK_FRAMES * TickCodec.FRAME_SIZE];
+        ByteBuffer out = ByteBuffer.wrap(chunk);
+        long sent = 0;
+        long started = System.nanoTime();
+        try (client) {
+            client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            int next = 0;
+            while (running) {
+                if (next == frames) {
+                    if (!loop) {
+                        break;
+                    }
+                    next = 0;
+                }
+                int count = Math.min(CHUNK_FRAMES, frames - next);
+                System.arraycopy(recording, next * TickCodec.FRAME_SIZE, chunk, 0, count * TickCodec.FRAME_SIZE);
+                for (int i = 0; i < count; i++) {
+                    TickCodec.setSequence(chunk, i * TickCodec.FRAME_SIZE, sent + i + 1);
+                }
+                pace(started, sent + count);
+                out.clear().limit(count * TickCodec.FRAME_SIZE);
+                while (out.hasRemaining()) {
+                    client.write(out);
+                }
+                sent += count;
+                next += count;
+            }
+        } catch (IOException ex) {
+            log.debug("Feed simulator client left after {} ticks", sent);
+        }
+    }
+
+    /**
+     * Sleep until total ticks are due at the configured rate.
+     */
+    private void pace(long started, long total) {
+        if (ticksPerSecond == 0) {
+            return;
+        }
+        long due = started + total * TimeUnit.SECONDS.toNanos(1) / ticksPerSecond;
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0 && running) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    /**
+     * Random-walk recording: ticks cycle through the symbols, each moving up
+     * to 0.1% from its previous price.
+     */
+    public static byte[] generate(List<String> symbols, int ticks, long seed) {
+        if (symbols.isEmpty() || ticks <= 0) {
+            throw new IllegalArgumentException("need at least one symbol and one tick");
+        }
+        Random random = new Random(seed);
+        double[] previousClose = new double[symbols.size()];
+        double[] price = new double[symbols.size()];
+        for (int i = 0; i < price.length; i++) {
+            previousClose[i] = 100 + random.nextInt(3_000);
+            price[i] = previousClose[i];
+        }
+        byte[] out = new byte[ticks * TickCodec.FRAME_SIZE];
+        long startMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        for (int t = 0; t < ticks; t++) {
+            int s = t % price.length;
+            price[s] = Math.max(0.05, Math.round(price[s] * (1 + (random.nextDouble() - 0.5) * 0.002) * 20) / 20.0);
+            TickCodec.encode(out, t * TickCodec.FRAME_SIZE, t + 1, startMicros + t,
+                    symbols.get(s), price[s], previousClose[s]);
+        }
+        return out;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 9400;
+        long rate = 10_000;
+        boolean loop = false;
+        Path file = null;
+        Path record = null;
+        List<String> symbols = List.of("RELIANCE", "TCS", "INFY", "HDFCBANK", "ICICIBANK");
+        int ticks = 100_000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--rate" -> rate = Long.parseLong(args[++i]);
+                case "--loop" -> loop = true;
+                case "--file" -> file = Path.of(args[++i]);
+                case "--record" -> record = Path.of(args[++i]);
+                case "--symbols" -> symbols = Arrays.asList(args[++i].split(","));
+                case "--ticks" -> ticks = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        byte[] recording = file != null ? Files.readAllBytes(file) : generate(symbols, ticks, 42);
+        if (record != null) {
+            Files.write(record, recording);
+            log.info("Wrote {} ticks to {}", recording.length / TickCodec.FRAME_SIZE, record);
+            return;
+        }
+        try (FeedSimulator simulator = new FeedSimulator(recording, port, rate, loop)) {
+            log.info("Serving {} ticks on port {} at {}{}", recording.length / TickCodec.FRAME_SIZE,
+                    simulator.port(), rate == 0 ? "full speed" : rate + " ticks/s", loop ? ", looping" : "");
+            simulator.acceptor.join();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.marmik.brokerhub.feed;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Single-writer latency histogram with nanosecond resolution.
+ *
+ * Buckets split every power of two into four, so a reported percentile (the
+ * upper bound of its bucket) is at most 25% above the true value. Recording
+ * is one array read and one release store, cheap enough for every tick;
+ * LatencyHistogram's millisecond buckets are too coarse for pipeline stages.
+ * Only one thread may record; any thread may read.
+ */
+final class NanoHistogram {
+
+    private static final int SUB_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+    private volatile long max;
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int index = indexOf(value);
+        counts.setRelease(index, counts.getPlain(index) + 1);
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    long count() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    long maxNanos() {
+        return max;
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.99
+     * @return upper bound (ns) of the bucket holding the quantile, 0 when
+     *         empty
+     */
+    long percentileNanos(double quantile) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(1.0, Math.max(0.0, quantile)) * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) ((value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+        return exponent * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS;
+        int sub = index % SUB_BUCKETS;
+        if (exponent >= 62) {
+            return Long.MAX_VALUE;
+        }
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+}
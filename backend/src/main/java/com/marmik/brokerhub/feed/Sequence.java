@@ -0,0 +1,46 @@
+package com.marmik.brokerhub.feed;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Ring-buffer cursor: the last slot a producer published or a stage
+ * finished. Padded on both sides so cursors of different threads never
+ * share a cache line.
+ */
+final class Sequence extends SequenceValue {
+
+    @SuppressWarnings("unused")
+    private long p11, p12, p13, p14, p15, p16, p17;
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    Sequence() {
+        value = -1;
+    }
+
+    long get() {
+        return (long) VALUE.getAcquire(this);
+    }
+
+    void set(long sequence) {
+        VALUE.setRelease(this, sequence);
+    }
+}
+
+abstract class SequencePadding {
+    @SuppressWarnings("unused")
+    private long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class SequenceValue extends SequencePadding {
+    protected long value;
+}
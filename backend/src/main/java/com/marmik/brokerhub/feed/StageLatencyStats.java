@@ -0,0 +1,20 @@
+package com.marmik.brokerhub.feed;
+
+/**
+ * Latency from socket read to the end of one pipeline stage.
+ *
+ * @param stage      decode, resolve, update or fanout
+ * @param ticks      ticks timed at this stage
+ * @param p50Micros  median (bucket upper bound)
+ * @param p99Micros  99th percentile
+ * @param p999Micros 99.9th percentile
+ * @param maxMicros  slowest tick so far
+ */
+public record StageLatencyStats(
+        String stage,
+        long ticks,
+        double p50Micros,
+        double p99Micros,
+        double p999Micros,
+        double maxMicros) {
+}
@@ -0,0 +1,118 @@
+package com.marmik.brokerhub.feed;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary market-feed tick frames.
+ *
+ * Every frame is FRAME_SIZE bytes, big-endian, so a reader never has to scan
+ * for boundaries:
+ *
+ * <pre>
+ *  0  u16  magic 'TK'
+ *  2  u8   version (1)
+ *  3  u8   message type (1 = last trade price)
+ *  4  u32  symbol length in bytes (1..16)
+ *  8  i64  feed sequence number, +1 per frame
+ * 16  i64  exchange timestamp, epoch microseconds
+ * 24  i64  last price, in 1/10000 of a rupee
+ * 32  i64  previous close, in 1/10000 of a rupee (0 = unknown)
+ * 40  16B  symbol, ASCII, zero padded
+ * </pre>
+ *
+ * The symbol is also read as two longs, which lets the pipeline look it up
+ * without building a String per tick.
+ */
+public final class TickCodec {
+
+    public static final int FRAME_SIZE = 56;
+    public static final short MAGIC = 0x544B;
+    public static final byte VERSION = 1;
+    public static final byte TYPE_TRADE = 1;
+    public static final int MAX_SYMBOL = 16;
+    public static final double PRICE_SCALE = 10_000.0;
+
+    static final int SYMBOL_OFFSET = 40;
+
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private TickCodec() {
+    }
+
+    /**
+     * Write one trade frame at off.
+     */
+    public static void encode(byte[] dst, int off, long sequence, long exchangeTimeMicros,
+            String symbol, double lastPrice, double previousClose) {
+        byte[] sym = symbol.getBytes(StandardCharsets.US_ASCII);
+        if (sym.length == 0 || sym.length > MAX_SYMBOL) {
+            throw new IllegalArgumentException("symbol must be 1-" + MAX_SYMBOL + " ASCII bytes: " + symbol);
+        }
+        SHORT.set(dst, off, MAGIC);
+        dst[off + 2] = VERSION;
+        dst[off + 3] = TYPE_TRADE;
+        INT.set(dst, off + 4, sym.length);
+        LONG.set(dst, off + 8, sequence);
+        LONG.set(dst, off + 16, exchangeTimeMicros);
+        LONG.set(dst, off + 24, Math.round(lastPrice * PRICE_SCALE));
+        LONG.set(dst, off + 32, Math.round(previousClose * PRICE_SCALE));
+        System.arraycopy(sym, 0, dst, off + SYMBOL_OFFSET, sym.length);
+        for (int i = sym.length; i < MAX_SYMBOL; i++) {
+            dst[off + SYMBOL_OFFSET + i] = 0;
+        }
+    }
+
+    /**
+     * Overwrite a frame's sequence number, e.g. when replaying a recording
+     * in a loop.
+     */
+    public static void setSequence(byte[] dst, int off, long sequence) {
+        LONG.set(dst, off + 8, sequence);
+    }
+
+    /**
+     * True when the frame at off has the expected magic, version and type
+     * and a symbol length in range.
+     */
+    public static boolean isValid(byte[] src, int off) {
+        int symbolLength = (int) INT.get(src, off + 4);
+        return (short) SHORT.get(src, off) == MAGIC && src[off + 2] == VERSION && src[off + 3] == TYPE_TRADE
+                && symbolLength > 0 && symbolLength <= MAX_SYMBOL;
+    }
+
+    public static long sequence(byte[] src, int off) {
+        return (long) LONG.get(src, off + 8);
+    }
+
+    public static long exchangeTimeMicros(byte[] src, int off) {
+        return (long) LONG.get(src, off + 16);
+    }
+
+    public static double lastPrice(byte[] src, int off) {
+        return (long) LONG.get(src, off + 24) / PRICE_SCALE;
+    }
+
+    public static double previousClose(byte[] src, int off) {
+        return (long) LONG.get(src, off + 32) / PRICE_SCALE;
+    }
+
+    /** First 8 symbol bytes as a long. */
+    public static long symbolHigh(byte[] src, int off) {
+        return (long) LONG.get(src, off + SYMBOL_OFFSET);
+    }
+
+    /** Last 8 symbol bytes as a long. */
+    public static long symbolLow(byte[] src, int off) {
+        return (long) LONG.get(src, off + SYMBOL_OFFSET + 8);
+    }
+
+    public static String symbol(byte[] src, int off) {
+        int length = (int) INT.get(src, off + 4);
+        return new String(src, off + SYMBOL_OFFSET, length, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,145 @@
+package com.marmik.brokerhub.feed;
+
+import com.marmik.brokerhub.broker.service.MarketDataService;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams prices from a binary market feed (TickCodec frames over TCP) into
+ * the local price cache through a TickPipeline.
+ *
+ * Off unless feed.enabled is set. Once the application is ready, a receiver
+ * thread connects to feed.host:feed.port and hands everything it reads to
+ * the pipeline; if the connection fails or ends it reconnects after
+ * feed.reconnect-ms. Each connection is a new pipeline session, as the feed
+ * numbers its frames from 1 again. Prices arriving this way keep the cache fresh, so
+ * MarketDataService rarely has to call the market-data service, and price
+ * listeners (portfolio streams) see every change as it happens.
+ *
+ * FeedSimulator serves recorded ticks for local runs.
+ */
+@Service
+public class TickFeedService {
+
+    private static final Logger log = LoggerFactory.getLogger(TickFeedService.class);
+
+    /** Socket read buffer size, in frames. */
+    private static final int READ_FRAMES = 1024;
+
+    private final boolean enabled;
+    private final String host;
+    private final int port;
+    private final long reconnectMs;
+    private final TickPipeline pipeline;
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile SocketChannel channel;
+    private Thread receiver;
+
+    public TickFeedService(
+            MarketDataService marketDataService,
+            @Value("${feed.enabled:false}") boolean enabled,
+            @Value("${feed.host:localhost}") String host,
+            @Value("${feed.port:9400}") int port,
+            @Value("${feed.ring-size:65536}") int ringSize,
+            @Value("${feed.reconnect-ms:1000}") long reconnectMs) {
+        this.enabled = enabled;
+        this.host = host;
+        this.port = port;
+        this.reconnectMs = Math.max(100, reconnectMs);
+        this.pipeline = new TickPipeline(marketDataService, enabled ? ringSize : 1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        pipeline.start();
+        receiver = new Thread(this::receive, "tick-feed-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        closeChannel();
+        if (receiver != null) {
+            receiver.interrupt();
+            try {
+                receiver.join(1_000);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            receiver = null;
+        }
+        pipeline.stop();
+    }
+
+    public TickFeedStats stats() {
+        return pipeline.stats(enabled, connected);
+    }
+
+    private void receive() {
+        ByteBuffer buf = ByteBuffer.allocate(READ_FRAMES * TickCodec.FRAME_SIZE);
+        while (running) {
+            try (SocketChannel ch = SocketChannel.open()) {
+                channel = ch;
+                ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                ch.connect(new InetSocketAddress(host, port));
+                connected = true;
+                pipeline.newSession();
+                log.info("Connected to tick feed {}:{}", host, port);
+                buf.clear();
+                while (running && ch.read(buf) >= 0) {
+                    buf.flip();
+                    pipeline.publish(buf);
+                    buf.compact();
+                }
+                log.info("Tick feed {}:{} closed the connection", host, port);
+            } catch (IOException ex) {
+                if (running) {
+                    log.warn("Tick feed {}:{} unavailable: {}", host, port, ex.toString());
+                }
+            } finally {
+                connected = false;
+                channel = null;
+            }
+            if (running) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(reconnectMs);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void closeChannel() {
+        SocketChannel ch = channel;
+        if (ch != null) {
+            try {
+                ch.close();
+            } catch (IOException ex) {
+                // Closing only to unblock the receiver.
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.marmik.brokerhub.feed;
+
+import java.util.List;
+
+/**
+ * Point-in-time counters for the binary tick feed.
+ *
+ * @param enabled        feed.enabled
+ * @param connected      whether the receiver is connected to the feed
+ * @param received       frames read from the feed
+ * @param processed      ticks that went through every stage
+ * @param invalidFrames  frames with a bad magic, version, type or symbol
+ * @param sequenceGaps   breaks in the feed's sequence numbers (lost or
+ *                       replayed frames)
+ * @param unresolved     ticks for symbols the price cache could not take
+ * @param priceChanges   ticks that changed a cached price and were fanned
+ *                       out to price listeners
+ * @param ticksPerSecond throughput over the last full second
+ * @param ringCapacity   slots in the ring buffer
+ * @param ringBacklog    slots published but not yet through every stage
+ * @param stages         latency percentiles per stage
+ */
+public record TickFeedStats(
+        boolean enabled,
+        boolean connected,
+        long received,
+        long processed,
+        long invalidFrames,
+        long sequenceGaps,
+        long unresolved,
+        long priceChanges,
+        double ticksPerSecond,
+        int ringCapacity,
+        long ringBacklog,
+        List<StageLatencyStats> stages) {
+}
@@ -0,0 +1,475 @@
+package com.marmik.brokerhub.feed;
+
+import com.marmik.brokerhub.broker.service.MarketDataService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ring-buffer pipeline that turns binary feed frames into cached prices.
+ *
+ * A single producer (the feed receiver) copies frames into a preallocated
+ * ring; four stages, one thread each, then work through every slot in
+ * order:
+ *
+ * - decode: validate the frame, read price, previous close and the symbol
+ * as two longs, and count feed sequence gaps within a feed session (see
+ * newSession);
+ * - resolve: symbol to price-cache ID through a pipeline-local open
+ * addressing table, so only a symbol's first tick builds a String;
+ * - update: write the price into MarketDataService's PriceTable;
+ * - fanout: hand changed prices to MarketDataService's PriceListeners
+ * (e.g. the portfolio streams).
+ *
+ * Notes:
+ * - Each stage follows the cursor of the one before it and the producer
+ * follows the last stage, so nothing is locked or allocated per tick. Slot
+ * fields are plain arrays written by one stage and read by later ones after
+ * its cursor's release store.
+ * - Stages take every slot that is ready at once and publish their cursor
+ * once per batch; under load this amortizes the cursor traffic.
+ * - A full ring blocks the producer, which stops reading the socket, so TCP
+ * flow control pushes back on the feed instead of ticks being dropped.
+ * - Idle stages spin briefly, then yield, then park for 50 microseconds.
+ * - Latency per stage is measured from the socket read that delivered the
+ * frame to the end of that stage.
+ */
+public final class TickPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(TickPipeline.class);
+
+    static final String[] STAGES = { "decode", "resolve", "update", "fanout" };
+
+    private static final int DECODE = 0;
+    private static final int RESOLVE = 1;
+    private static final int UPDATE = 2;
+    private static final int FANOUT = 3;
+
+    private static final int INVALID = -2;
+    private static final int UNRESOLVED = -1;
+
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final MarketDataService marketData;
+    private final int capacity;
+    private final int mask;
+
+    // Slot fields, one entry per ring slot.
+    private final byte[] frames;
+    private final long[] receivedNanos;
+    private final long[] symbolHigh;
+    private final long[] symbolLow;
+    private final double[] lastPrice;
+    private final double[] previousClose;
+    private final double[] dayChange;
+    private final double[] dayChangePercentage;
+    private final int[] ids;
+    private final boolean[] changed;
+    private final int[] sessions;
+
+    private final Sequence published = new Sequence();
+    private final Sequence[] done = new Sequence[STAGES.length];
+    private final NanoHistogram[] latency = new NanoHistogram[STAGES.length];
+    private final SymbolIds symbols = new SymbolIds(1024);
+
+    // Producer-only state.
+    private long claimed = -1;
+    private long gate = -1;
+    private int session;
+
+    // Per-stage counters: each written by one stage thread only.
+    private volatile long received;
+    private volatile long invalidFrames;
+    private volatile long sequenceGaps;
+    private long lastFeedSequence = -1;
+    private int decodedSession;
+    private volatile long unresolved;
+    private volatile long priceChanges;
+    private volatile long processed;
+    private long windowStartNanos;
+    private long windowStartCount;
+    private volatile double ticksPerSecond;
+    private volatile long rateUpdatedNanos;
+
+    private final Thread[] workers = new Thread[STAGES.length];
+    private volatile boolean running;
+
+    public TickPipeline(MarketDataService marketData, int ringSize) {
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("ringSize must be a positive power of two: " + ringSize);
+        }
+        if (ringSize > Integer.MAX_VALUE / TickCodec.FRAME_SIZE) {
+            throw new IllegalArgumentException("ringSize too large: " + ringSize);
+        }
+        this.marketData = marketData;
+        this.capacity = ringSize;
+        this.mask = ringSize - 1;
+        this.frames = new byte[ringSize * TickCodec.FRAME_SIZE];
+        this.receivedNanos = new long[ringSize];
+        this.symbolHigh = new long[ringSize];
+        this.symbolLow = new long[ringSize];
+        this.lastPrice = new double[ringSize];
+        this.previousClose = new double[ringSize];
+        this.dayChange = new double[ringSize];
+        this.dayChangePercentage = new double[ringSize];
+        this.ids = new int[ringSize];
+        this.changed = new boolean[ringSize];
+        this.sessions = new int[ringSize];
+        for (int i = 0; i < STAGES.length; i++) {
+            done[i] = new Sequence();
+            latency[i] = new NanoHistogram();
+        }
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < STAGES.length; i++) {
+            int stage = i;
+            Thread t = new Thread(() -> runStage(stage), "tick-" + STAGES[i]);
+            t.setDaemon(true);
+            workers[i] = t;
+            t.start();
+        }
+    }
+
+    public synchronized void stop() {
+        running = false;
+        for (Thread t : workers) {
+            if (t != null) {
+                LockSupport.unpark(t);
+                try {
+                    t.join(1_000);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        Arrays.fill(workers, null);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Start a new feed session: frames published from now on are not checked
+     * for sequence gaps against earlier ones, since a feed restarts its
+     * sequence on every connection. Producer thread only, like publish.
+     */
+    public void newSession() {
+        session++;
+    }
+
+    /**
+     * Copy every complete frame in buf (read mode) into the ring, waiting
+     * for free slots; a trailing partial frame is left in buf. Must only be
+     * called from one thread.
+     *
+     * @return frames published, fewer than available if stopped meanwhile
+     */
+    public int publish(ByteBuffer buf) {
+        int count = buf.remaining() / TickCodec.FRAME_SIZE;
+        if (count == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        int copied = 0;
+        while (copied < count) {
+            long first = claimed + 1;
+            int batch = (int) waitForSlots(first, count - copied);
+            if (batch == 0) {
+                break;
+            }
+            for (int i = 0; i < batch; i++) {
+                int slot = (int) ((first + i) & mask);
+                buf.get(frames, slot * TickCodec.FRAME_SIZE, TickCodec.FRAME_SIZE);
+                receivedNanos[slot] = now;
+                sessions[slot] = session;
+            }
+            claimed = first + batch - 1;
+            received += batch;
+            published.set(claimed);
+            copied += batch;
+        }
+        return copied;
+    }
+
+    /**
+     * Slots free from first on, up to wanted; 0 once stopped.
+     */
+    private long waitForSlots(long first, int wanted) {
+        int idle = 0;
+        while (true) {
+            long free = gate + capacity - first + 1;
+            if (free > 0) {
+                return Math.min(free, wanted);
+            }
+            gate = done[FANOUT].get();
+            if (gate + capacity - first + 1 > 0) {
+                continue;
+            }
+            if (!running) {
+                return 0;
+            }
+            idle = idle(idle);
+        }
+    }
+
+    private void runStage(int stage) {
+        Sequence upstream = stage == DECODE ? published : done[stage - 1];
+        Sequence mine = done[stage];
+        NanoHistogram timings = latency[stage];
+        long next = mine.get() + 1;
+        int idle = 0;
+        while (running) {
+            long available = upstream.get();
+            if (available < next) {
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            for (long seq = next; seq <= available; seq++) {
+                int slot = (int) (seq & mask);
+                try {
+                    process(stage, slot);
+                } catch (RuntimeException ex) {
+                    // Later stages skip the tick.
+                    ids[slot] = INVALID;
+                    log.warn("Tick pipeline stage {} failed", STAGES[stage], ex);
+                }
+                if (ids[slot] != INVALID) {
+                    timings.record(System.nanoTime() - receivedNanos[slot]);
+                }
+            }
+            if (stage == FANOUT) {
+                updateRate(available - next + 1);
+            }
+            mine.set(available);
+            next = available + 1;
+        }
+    }
+
+    private void process(int stage, int slot) {
+        switch (stage) {
+            case DECODE -> decode(slot);
+            case RESOLVE -> resolve(slot);
+            case UPDATE -> update(slot);
+            default -> fanOut(slot);
+        }
+    }
+
+    private void decode(int slot) {
+        int off = slot * TickCodec.FRAME_SIZE;
+        if (sessions[slot] != decodedSession) {
+            decodedSession = sessions[slot];
+            lastFeedSequence = -1;
+        }
+        if (!TickCodec.isValid(frames, off)) {
+            ids[slot] = INVALID;
+            invalidFrames++;
+            return;
+        }
+        long feedSequence = TickCodec.sequence(frames, off);
+        if (lastFeedSequence >= 0 && feedSequence != lastFeedSequence + 1) {
+            sequenceGaps++;
+        }
+        lastFeedSequence = feedSequence;
+        symbolHigh[slot] = TickCodec.symbolHigh(frames, off);
+        symbolLow[slot] = TickCodec.symbolLow(frames, off);
+        lastPrice[slot] = TickCodec.lastPrice(frames, off);
+        previousClose[slot] = TickCodec.previousClose(frames, off);
+        ids[slot] = UNRESOLVED;
+    }
+
+    private void resolve(int slot) {
+        if (ids[slot] == INVALID) {
+            return;
+        }
+        long high = symbolHigh[slot];
+        long low = symbolLow[slot];
+        int id = symbols.get(high, low);
+        if (id == SymbolIds.MISSING) {
+            id = marketData.cacheId(TickCodec.symbol(frames, slot * TickCodec.FRAME_SIZE));
+            symbols.put(high, low, id);
+        }
+        ids[slot] = id;
+        if (id < 0) {
+            unresolved++;
+        }
+    }
+
+    private void update(int slot) {
+        int id = ids[slot];
+        changed[slot] = false;
+        double last = lastPrice[slot];
+        if (id < 0 || last <= 0) {
+            return;
+        }
+        double prevClose = previousClose[slot];
+        double change = prevClose > 0 ? last - prevClose : 0;
+        double changePct = prevClose > 0 ? change / prevClose * 100 : 0;
+        dayChange[slot] = change;
+        dayChangePercentage[slot] = changePct;
+        changed[slot] = marketData.storePrice(id, last, prevClose, change, changePct, System.currentTimeMillis());
+    }
+
+    private void fanOut(int slot) {
+        int id = ids[slot];
+        if (id == INVALID) {
+            return;
+        }
+        if (changed[slot]) {
+            priceChanges++;
+            marketData.notifyPriceListeners(id, lastPrice[slot], dayChange[slot], dayChangePercentage[slot]);
+        }
+        processed++;
+    }
+
+    private void updateRate(long ticks) {
+        long now = System.nanoTime();
+        if (windowStartNanos == 0) {
+            windowStartNanos = now;
+            windowStartCount = processed - ticks;
+        }
+        long elapsed = now - windowStartNanos;
+        if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+            ticksPerSecond = (processed - windowStartCount) * 1e9 / elapsed;
+            rateUpdatedNanos = now;
+            windowStartNanos = now;
+            windowStartCount = processed;
+        }
+    }
+
+    private static int idle(int idle) {
+        if (idle < 100) {
+            Thread.onSpinWait();
+        } else if (idle < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return idle + 1;
+    }
+
+    TickFeedStats stats(boolean enabled, boolean connected) {
+        long backlog = published.get() - done[FANOUT].get();
+        // Without ticks for two seconds the last window's rate is stale.
+        boolean recent = System.nanoTime() - rateUpdatedNanos < TimeUnit.SECONDS.toNanos(2);
+        List<StageLatencyStats> stages = new ArrayList<>(STAGES.length);
+        for (int i = 0; i < STAGES.length; i++) {
+            NanoHistogram h = latency[i];
+            stages.add(new StageLatencyStats(
+                    STAGES[i],
+                    h.count(),
+                    micros(h.percentileNanos(0.50)),
+                    micros(h.percentileNanos(0.99)),
+                    micros(h.percentileNanos(0.999)),
+                    micros(h.maxNanos())));
+        }
+        return new TickFeedStats(
+                enabled,
+                connected,
+                received,
+                processed,
+                invalidFrames,
+                sequenceGaps,
+                unresolved,
+                priceChanges,
+                recent ? ticksPerSecond : 0.0,
+                capacity,
+                Math.max(0, backlog),
+                stages);
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    /**
+     * Open-addressing map from a 16-byte symbol (two longs) to a cache ID.
+     * Used by the resolve stage only, so it needs no synchronization.
+     */
+    static final class SymbolIds {
+        static final int MISSING = Integer.MIN_VALUE;
+
+        private long[] highs;
+        private long[] lows;
+        private int[] values;
+        private boolean[] used;
+        private int size;
+
+        SymbolIds(int initialCapacity) {
+            allocate(Integer.highestOneBit(Math.max(16, initialCapacity - 1)) << 1);
+        }
+
+        int get(long high, long low) {
+            int m = used.length - 1;
+            for (int i = hash(high, low) & m; used[i]; i = (i + 1) & m) {
+                if (highs[i] == high && lows[i] == low) {
+                    return values[i];
+                }
+            }
+            return MISSING;
+        }
+
+        void put(long high, long low, int value) {
+            if ((size + 1) * 2 > used.length) {
+                grow();
+            }
+            int m = used.length - 1;
+            int i = hash(high, low) & m;
+            while (used[i]) {
+                if (highs[i] == high && lows[i] == low) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & m;
+            }
+            used[i] = true;
+            highs[i] = high;
+            lows[i] = low;
+            values[i] = value;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] oldHighs = highs;
+            long[] oldLows = lows;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            allocate(oldUsed.length * 2);
+            for (int i = 0; i < oldUsed.length; i++) {
+                if (oldUsed[i]) {
+                    put(oldHighs[i], oldLows[i], oldValues[i]);
+                }
+            }
+        }
+
+        private void allocate(int slots) {
+            highs = new long[slots];
+            lows = new long[slots];
+            values = new int[slots];
+            used = new boolean[slots];
+            size = 0;
+        }
+
+        private static int hash(long high, long low) {
+            long h = high * 0x9E3779B97F4A7C15L ^ low * 0xC2B2AE3D27D4EB4FL;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
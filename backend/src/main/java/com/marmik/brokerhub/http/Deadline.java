@@ -0,0 +1,75 @@
+package com.marmik.brokerhub.http;
+
+import java.time.Duration;
+
+/**
+ * Absolute point in time by which a request's work must be done.
+ *
+ * Created once per incoming request and passed down to every outbound call,
+ * which uses {@link #cap} to shorten its own timeout to what is left.
+ * Based on System.nanoTime, so it is only meaningful within this JVM.
+ */
+public final class Deadline {
+
+    private static final Deadline NONE = new Deadline(0L, false);
+
+    private final long deadlineNanos;
+    private final boolean bounded;
+
+    private Deadline(long deadlineNanos, boolean bounded) {
+        this.deadlineNanos = deadlineNanos;
+        this.bounded = bounded;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + Math.max(0, timeout.toNanos()), true);
+    }
+
+    /**
+     * No deadline; only the callee's own timeouts apply.
+     */
+    public static Deadline none() {
+        return NONE;
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    public boolean isExpired() {
+        return bounded && deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Time left, or ZERO once expired. Unbounded deadlines report the
+     * longest representable duration.
+     */
+    public Duration remaining() {
+        if (!bounded) {
+            return Duration.ofNanos(Long.MAX_VALUE);
+        }
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * The later of the two deadlines (unbounded wins), for one call made on
+     * behalf of several requests.
+     */
+    public Deadline latest(Deadline other) {
+        if (!bounded || !other.bounded) {
+            return NONE;
+        }
+        return deadlineNanos - other.deadlineNanos >= 0 ? this : other;
+    }
+
+    /**
+     * The shorter of timeout and the time left.
+     */
+    public Duration cap(Duration timeout) {
+        if (!bounded) {
+            return timeout;
+        }
+        Duration left = remaining();
+        return left.compareTo(timeout) < 0 ? left : timeout;
+    }
+}
@@ -0,0 +1,15 @@
+package com.marmik.brokerhub.http;
+
+/**
+ * Thrown (or used to fail a future) when work is skipped or cut short
+ * because the caller's deadline has passed, as opposed to the upstream
+ * itself being slow.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,73 @@
+package com.marmik.brokerhub.http;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed, roughly logarithmic buckets.
+ *
+ * Percentiles are reported as the upper bound of the bucket that holds them,
+ * which is accurate enough for dashboards and limit tuning and costs one
+ * array increment per sample.
+ */
+public final class LatencyHistogram {
+
+    private static final long[] BOUNDS_MS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 300, 500, 750,
+            1_000, 2_000, 3_000, 5_000, 10_000, 20_000, 30_000, 60_000 };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MS.length + 1);
+    private final LongAdder totalMs = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+
+    public void record(long elapsedNanos) {
+        long ms = Math.max(0, elapsedNanos / 1_000_000);
+        counts.incrementAndGet(bucketOf(ms));
+        totalMs.add(ms);
+        samples.increment();
+    }
+
+    public long count() {
+        return samples.sum();
+    }
+
+    public double meanMs() {
+        long n = samples.sum();
+        return n == 0 ? 0.0 : (double) totalMs.sum() / n;
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.99
+     * @return upper bound (ms) of the bucket containing the quantile, 0 when
+     *         empty, or Long.MAX_VALUE when it falls past the last bound
+     */
+    public long percentileMs(double quantile) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.min(1.0, Math.max(0.0, quantile)) * total);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && snapshot[i] > 0) {
+                return i < BOUNDS_MS.length ? BOUNDS_MS[i] : Long.MAX_VALUE;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static int bucketOf(long ms) {
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            if (ms <= BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return BOUNDS_MS.length;
+    }
+}
@@ -0,0 +1,103 @@
+package com.marmik.brokerhub.http;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Body handler that buffers the response into a byte array, like
+ * {@link HttpResponse.BodyHandlers#ofByteArray()}, but gives up once the body
+ * exceeds maxBytes.
+ *
+ * A Content-Length over the limit is rejected before any of the body is
+ * read; otherwise bytes are counted as they arrive. Either way the body
+ * future fails with {@link ResponseTooLargeException} and the subscription
+ * is cancelled.
+ */
+public final class LimitedBodyHandler implements HttpResponse.BodyHandler<byte[]> {
+
+    private final long maxBytes;
+
+    private LimitedBodyHandler(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    public static LimitedBodyHandler ofByteArray(long maxBytes) {
+        return new LimitedBodyHandler(maxBytes);
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<byte[]> apply(HttpResponse.ResponseInfo responseInfo) {
+        long declared = responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1);
+        return new Subscriber(maxBytes, declared);
+    }
+
+    private static final class Subscriber implements HttpResponse.BodySubscriber<byte[]> {
+
+        private final long maxBytes;
+        private final long declared;
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private final ByteArrayOutputStream buffer;
+        private Flow.Subscription subscription;
+        private long received;
+
+        Subscriber(long maxBytes, long declared) {
+            this.maxBytes = maxBytes;
+            this.declared = declared;
+            this.buffer = new ByteArrayOutputStream(declared > 0 && declared <= maxBytes ? (int) declared : 8192);
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (declared > maxBytes) {
+                subscription.cancel();
+                body.completeExceptionally(new ResponseTooLargeException(
+                        "Response of " + declared + " bytes exceeds limit of " + maxBytes));
+                return;
+            }
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (body.isDone()) {
+                return;
+            }
+            for (ByteBuffer item : items) {
+                received += item.remaining();
+                if (received > maxBytes) {
+                    subscription.cancel();
+                    body.completeExceptionally(new ResponseTooLargeException(
+                            "Response exceeds limit of " + maxBytes + " bytes"));
+                    return;
+                }
+                byte[] chunk = new byte[item.remaining()];
+                item.get(chunk);
+                buffer.write(chunk, 0, chunk.length);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(buffer.toByteArray());
+        }
+    }
+}
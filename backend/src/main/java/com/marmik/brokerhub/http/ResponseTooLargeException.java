@@ -0,0 +1,17 @@
+package com.marmik.brokerhub.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an upstream response body exceeds the size the caller is
+ * willing to buffer. The connection is abandoned as soon as the limit is
+ * crossed, so the rest of the body is never read.
+ */
+public class ResponseTooLargeException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ResponseTooLargeException(String message) {
+        super(message);
+    }
+}
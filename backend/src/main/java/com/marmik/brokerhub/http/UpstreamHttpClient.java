@@ -0,0 +1,342 @@
+package com.marmik.brokerhub.http;
+
+import com.marmik.brokerhub.concurrent.Futures;
+
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP client for one named upstream (Dhan, market data, ...).
+ *
+ * - One JDK HttpClient per upstream: its own keep-alive connection pool,
+ * HTTP/2 when the server supports it, connect timeout, and named threads.
+ * - At most maxConcurrent requests in flight; further requests wait in a
+ * FIFO queue without holding a thread, for at most the request timeout.
+ * - Every request gets the upstream's request timeout, shortened to the
+ * caller's {@link Deadline} when one is given. A request whose deadline has
+ * already passed is not sent; one cut short by its deadline fails with
+ * {@link DeadlineExceededException} rather than a plain timeout.
+ * - Latency, in-flight, queue depth, failures and timeouts are recorded and
+ * exposed via {@link #stats()}.
+ *
+ * Cancelling a future returned by sendAsync, or its failing early (e.g. at
+ * the caller's deadline), releases its queue slot or aborts the exchange.
+ *
+ * Async callers use {@link #sendAsync}; blocking callers use the RestClient
+ * from {@link #restClient}, which goes through the same pool, limit and
+ * metrics.
+ */
+public class UpstreamHttpClient implements AutoCloseable {
+
+    private final UpstreamSettings settings;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+
+    private final Object permitLock = new Object();
+    private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int freePermits;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder queueRejections = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public UpstreamHttpClient(UpstreamSettings settings) {
+        this.settings = settings;
+        this.freePermits = settings.maxConcurrent();
+
+        AtomicInteger threadSeq = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "http-" + settings.name() + "-" + threadSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(settings.http2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(settings.connectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+    }
+
+    public String name() {
+        return settings.name();
+    }
+
+    public UpstreamSettings settings() {
+        return settings;
+    }
+
+    /**
+     * Send a request without blocking; the body is read as bytes.
+     */
+    public CompletableFuture<HttpResponse<byte[]>> sendAsync(HttpRequest.Builder request) {
+        return sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Send a request without blocking. The upstream's request timeout is
+     * applied; queueing for a free slot counts against it separately.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(
+            HttpRequest.Builder request,
+            HttpResponse.BodyHandler<T> bodyHandler) {
+        return sendAsync(request, bodyHandler, Deadline.none());
+    }
+
+    /**
+     * Send a request without blocking, within the caller's deadline; the body
+     * is read as bytes.
+     */
+    public CompletableFuture<HttpResponse<byte[]>> sendAsync(HttpRequest.Builder request, Deadline deadline) {
+        return sendAsync(request, HttpResponse.BodyHandlers.ofByteArray(), deadline);
+    }
+
+    /**
+     * Send a request without blocking. The timeout is the upstream's request
+     * timeout or the time left before deadline, whichever is shorter, and
+     * covers queueing, headers and body.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(
+            HttpRequest.Builder request,
+            HttpResponse.BodyHandler<T> bodyHandler,
+            Deadline deadline) {
+        if (deadline.isExpired()) {
+            return CompletableFuture.failedFuture(
+                    new DeadlineExceededException("Deadline passed before calling " + settings.name()));
+        }
+        Duration timeout = deadline.cap(settings.requestTimeout());
+        boolean deadlineBound = timeout.compareTo(settings.requestTimeout()) < 0;
+        if (!deadlineBound) {
+            return send(request.timeout(timeout).build(), bodyHandler);
+        }
+        CompletableFuture<HttpResponse<T>> sent = send(request.timeout(timeout).build(), bodyHandler);
+        // The deadline times out a copy; sent itself is cancelled so its
+        // queue slot or exchange is given up.
+        CompletableFuture<HttpResponse<T>> bounded = sent.copy()
+                .orTimeout(Math.max(1, timeout.toMillis()), TimeUnit.MILLISECONDS);
+        bounded.whenComplete((response, error) -> {
+            if (error != null) {
+                sent.cancel(true);
+            }
+        });
+        return Futures.cancelWith(bounded
+                .exceptionallyCompose(error -> CompletableFuture.failedFuture(isTimeout(error)
+                        ? new DeadlineExceededException("Deadline exceeded calling " + settings.name())
+                        : error)), sent);
+    }
+
+    /**
+     * Cancelling (or otherwise failing) the returned future gives up a
+     * queued slot, or aborts the exchange if it has already started. A slot
+     * handed over after the caller has gone is released straight away.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> send(HttpRequest built, HttpResponse.BodyHandler<T> bodyHandler) {
+        AtomicReference<CompletableFuture<HttpResponse<T>>> exchange = new AtomicReference<>();
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        CompletableFuture<Void> permit = acquire();
+        permit.whenComplete((ignored, queueError) -> {
+            if (queueError != null) {
+                result.completeExceptionally(queueError);
+                return;
+            }
+            if (result.isDone()) {
+                release();
+                return;
+            }
+            long start = begin();
+            CompletableFuture<HttpResponse<T>> sent;
+            try {
+                sent = httpClient.sendAsync(built, bodyHandler);
+            } catch (RuntimeException ex) {
+                sent = CompletableFuture.failedFuture(ex);
+            }
+            exchange.set(sent);
+            sent.whenComplete((response, error) -> {
+                end(start, response == null ? -1 : response.statusCode(), error);
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(response);
+                }
+            });
+            if (result.isDone()) {
+                sent.cancel(true);
+            }
+        });
+        result.whenComplete((response, error) -> {
+            if (error != null) {
+                permit.cancel(true);
+                CompletableFuture<HttpResponse<T>> started = exchange.get();
+                if (started != null) {
+                    started.cancel(true);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * RestClient for blocking callers, sharing this upstream's connections,
+     * limit, timeouts and metrics.
+     */
+    public RestClient restClient(RestClient.Builder base) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient, executor);
+        factory.setReadTimeout(settings.requestTimeout());
+
+        ClientHttpRequestInterceptor limitAndMeasure = (request, body, execution) -> {
+            acquireBlocking();
+            long start = begin();
+            ClientHttpResponse response = null;
+            Throwable error = null;
+            try {
+                response = execution.execute(request, body);
+                return response;
+            } catch (IOException | RuntimeException ex) {
+                error = ex;
+                throw ex;
+            } finally {
+                end(start, response == null ? -1 : response.getStatusCode().value(), error);
+            }
+        };
+
+        return base.clone()
+                .requestFactory(factory)
+                .requestInterceptor(limitAndMeasure)
+                .build();
+    }
+
+    public UpstreamStats stats() {
+        int max = settings.maxConcurrent();
+        int active = inFlight.get();
+        return new UpstreamStats(
+                settings.name(),
+                max,
+                active,
+                queued.get(),
+                (double) active / max,
+                requests.sum(),
+                failures.sum(),
+                timeouts.sum(),
+                serverErrors.sum(),
+                queueRejections.sum(),
+                latency.meanMs(),
+                latency.percentileMs(0.50),
+                latency.percentileMs(0.95),
+                latency.percentileMs(0.99));
+    }
+
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // ---------- concurrency limit ----------
+
+    private CompletableFuture<Void> acquire() {
+        CompletableFuture<Void> waiter;
+        synchronized (permitLock) {
+            if (freePermits > 0) {
+                freePermits--;
+                return CompletableFuture.completedFuture(null);
+            }
+            waiter = new CompletableFuture<>();
+            waiters.addLast(waiter);
+        }
+        queued.incrementAndGet();
+        // Callers get the waiter itself so cancelling it works; release()
+        // skips cancelled or timed-out waiters, and send() releases a slot
+        // handed to a caller that has gone, so no slot is lost.
+        waiter.orTimeout(settings.requestTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((ok, error) -> {
+                    queued.decrementAndGet();
+                    if (error != null && !waiter.isCancelled()) {
+                        queueRejections.increment();
+                    }
+                });
+        return waiter;
+    }
+
+    private void acquireBlocking() throws IOException {
+        try {
+            acquire().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for " + settings.name() + " connection slot", ex);
+        } catch (ExecutionException ex) {
+            throw new HttpTimeoutException("Timed out waiting for " + settings.name() + " connection slot");
+        }
+    }
+
+    private void release() {
+        while (true) {
+            CompletableFuture<Void> next;
+            synchronized (permitLock) {
+                next = waiters.pollFirst();
+                if (next == null) {
+                    freePermits++;
+                    return;
+                }
+            }
+            // Hand the permit over; skip waiters that already timed out.
+            if (next.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    // ---------- metrics ----------
+
+    private long begin() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    private void end(long start, int status, Throwable error) {
+        latency.record(System.nanoTime() - start);
+        inFlight.decrementAndGet();
+        requests.increment();
+        if (error != null) {
+            failures.increment();
+            if (isTimeout(error)) {
+                timeouts.increment();
+            }
+        } else if (status >= 500) {
+            serverErrors.increment();
+        }
+        release();
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        Throwable t = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return t instanceof HttpTimeoutException || t instanceof TimeoutException;
+    }
+}
@@ -0,0 +1,41 @@
+package com.marmik.brokerhub.http;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * One UpstreamHttpClient per external dependency, so a slow or hung upstream
+ * can only exhaust its own pool and timeouts.
+ */
+@Configuration
+public class UpstreamHttpConfig {
+
+    @Bean(destroyMethod = "close")
+    public UpstreamHttpClient dhanHttpClient(
+            @Value("${http.upstream.dhan.connect-timeout-ms:3000}") long connectTimeoutMs,
+            @Value("${http.upstream.dhan.request-timeout-ms:10000}") long requestTimeoutMs,
+            @Value("${http.upstream.dhan.max-concurrent:64}") int maxConcurrent,
+            @Value("${http.upstream.dhan.http2:true}") boolean http2) {
+        return new UpstreamHttpClient(new UpstreamSettings("dhan",
+                Duration.ofMillis(connectTimeoutMs),
+                Duration.ofMillis(requestTimeoutMs),
+                maxConcurrent,
+                http2));
+    }
+
+    @Bean(destroyMethod = "close")
+    public UpstreamHttpClient marketDataHttpClient(
+            @Value("${http.upstream.marketdata.connect-timeout-ms:1000}") long connectTimeoutMs,
+            @Value("${http.upstream.marketdata.request-timeout-ms:3000}") long requestTimeoutMs,
+            @Value("${http.upstream.marketdata.max-concurrent:32}") int maxConcurrent,
+            @Value("${http.upstream.marketdata.http2:false}") boolean http2) {
+        return new UpstreamHttpClient(new UpstreamSettings("marketdata",
+                Duration.ofMillis(connectTimeoutMs),
+                Duration.ofMillis(requestTimeoutMs),
+                maxConcurrent,
+                http2));
+    }
+}
@@ -0,0 +1,40 @@
+package com.marmik.brokerhub.http;
+
+import java.time.Duration;
+
+/**
+ * Per-upstream HTTP settings.
+ *
+ * @param name           upstream name used in thread names and metrics
+ * @param connectTimeout TCP/TLS connect timeout
+ * @param requestTimeout time from send to response headers, per attempt
+ * @param maxConcurrent  requests allowed in flight at once; the rest queue
+ * @param http2          prefer HTTP/2 (falls back to HTTP/1.1 when the
+ *                       server does not negotiate it)
+ */
+public record UpstreamSettings(
+        String name,
+        Duration connectTimeout,
+        Duration requestTimeout,
+        int maxConcurrent,
+        boolean http2) {
+
+    public UpstreamSettings {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("upstream name is required");
+        }
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+        if (connectTimeout == null || connectTimeout.isNegative() || connectTimeout.isZero()) {
+            throw new IllegalArgumentException("connectTimeout must be positive");
+        }
+        if (requestTimeout == null || requestTimeout.isNegative() || requestTimeout.isZero()) {
+            throw new IllegalArgumentException("requestTimeout must be positive");
+        }
+    }
+
+    public static UpstreamSettings defaults(String name) {
+        return new UpstreamSettings(name, Duration.ofSeconds(3), Duration.ofSeconds(10), 64, true);
+    }
+}
@@ -0,0 +1,22 @@
+package com.marmik.brokerhub.http;
+
+/**
+ * Point-in-time view of one upstream's pool and latency metrics.
+ * Latency percentiles are bucket upper bounds in milliseconds.
+ */
+public record UpstreamStats(
+        String name,
+        int maxConcurrent,
+        int inFlight,
+        int queued,
+        double utilization,
+        long requests,
+        long failures,
+        long timeouts,
+        long serverErrors,
+        long queueRejections,
+        double meanMs,
+        long p50Ms,
+        long p95Ms,
+        long p99Ms) {
+}
@@ -0,0 +1,31 @@
+package com.marmik.brokerhub.http;
+
+/**
+ * Thrown (or used to fail a future) when an upstream answers with a non-2xx
+ * status, so callers can tell a client-side error (bad or expired token)
+ * from the upstream itself failing.
+ */
+public class UpstreamStatusException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public UpstreamStatusException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+
+    /**
+     * True for 4xx statuses that concern this request or its credentials
+     * rather than the upstream's health; 408 and 429 are excluded, as they
+     * signal an overloaded upstream.
+     */
+    public boolean isClientError() {
+        return statusCode / 100 == 4 && statusCode != 408 && statusCode != 429;
+    }
+}
@@ -0,0 +1,320 @@
+package com.marmik.brokerhub.instrument;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps broker instrument identifiers to one canonical int instrument ID per
+ * ISIN.
+ *
+ * Brokers spell the same instrument differently (Kite "NSE"/"RELIANCE", Dhan
+ * "NSE_EQ"/"RELIANCE-EQ" or a numeric securityId, holdings on "ALL"
+ * exchanges), and the same ISIN trades on NSE and BSE. The master resolves
+ * any of those to the ISIN's ID, so aggregation can key on it.
+ *
+ * The master is loaded from a local CSV dump (instruments.master-file) with a
+ * header naming at least the isin, exchange and symbol (or trading_symbol)
+ * columns, and optionally security_id; other columns are ignored, fields must
+ * not be quoted. Each row is one broker listing; several rows may carry the
+ * same ISIN. The file is memory-mapped and scanned byte by byte, so a full
+ * broker dump loads without reading it onto the heap first.
+ *
+ * Lookups are a few HashMap probes on an immutable snapshot and allocate
+ * nothing for already-normalized input, so they are cheap enough to run per
+ * item. Without a file every lookup misses, and callers fall back to
+ * normalized exchange and symbol.
+ */
+@Component
+public class InstrumentMaster {
+
+    private static final Logger log = LoggerFactory.getLogger(InstrumentMaster.class);
+
+    private static final String[] SERIES_SUFFIXES = { "-EQ", "-BE", "-BZ", "-SM", "-ST" };
+
+    private record Snapshot(
+            Map<String, Integer> byIsin,
+            Map<String, Map<String, Integer>> byListing,
+            Map<String, Map<String, Integer>> bySecurityId,
+            String[] isins,
+            String[] symbols,
+            String[] exchanges) {
+
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), Map.of(),
+                new String[0], new String[0], new String[0]);
+    }
+
+    private final String masterFile;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public InstrumentMaster(@Value("${instruments.master-file:}") String masterFile) {
+        this.masterFile = masterFile;
+    }
+
+    @PostConstruct
+    public void loadConfigured() {
+        if (masterFile == null || masterFile.isBlank()) {
+            return;
+        }
+        try {
+            int count = load(Path.of(masterFile));
+            log.info("Loaded {} instruments from {}", count, masterFile);
+        } catch (Exception ex) {
+            log.error("Could not load instrument master {}; aggregating on broker symbols", masterFile, ex);
+        }
+    }
+
+    /**
+     * Replace the master with the contents of a dump file.
+     *
+     * @return number of distinct instruments (ISINs) loaded
+     */
+    public int load(Path file) throws IOException {
+        Snapshot loaded;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Instrument master too large: " + size + " bytes");
+            }
+            loaded = parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+        snapshot = loaded;
+        return loaded.isins().length;
+    }
+
+    public int size() {
+        return snapshot.isins().length;
+    }
+
+    /**
+     * Canonical instrument ID for a broker item, or -1 when the master does
+     * not know it. Tries the ISIN, then the exchange's security ID, then the
+     * exchange and symbol; an item without a specific exchange (e.g. Dhan's
+     * "ALL") is looked up on NSE, then BSE.
+     */
+    public int resolve(String exchange, String symbol, String securityId, String isin) {
+        Snapshot s = snapshot;
+        if (s.isins().length == 0) {
+            return -1;
+        }
+        if (isin != null) {
+            Integer id = s.byIsin().get(isin);
+            if (id != null) {
+                return id;
+            }
+        }
+        String ex = normalizeExchange(exchange);
+        if (securityId != null) {
+            Integer id = lookup(s.bySecurityId(), ex, securityId);
+            if (id != null) {
+                return id;
+            }
+        }
+        String sym = normalizeSymbol(symbol);
+        if (sym == null) {
+            return -1;
+        }
+        Integer id = lookup(s.byListing(), ex, sym);
+        if (id == null && (ex.isEmpty() || "ALL".equals(ex))) {
+            id = lookup(s.byListing(), "NSE", sym);
+            if (id == null) {
+                id = lookup(s.byListing(), "BSE", sym);
+            }
+        }
+        return id == null ? -1 : id;
+    }
+
+    public String isin(int id) {
+        return id < 0 || id >= snapshot.isins().length ? null : snapshot.isins()[id];
+    }
+
+    /**
+     * Canonical symbol of an instrument: its NSE symbol when listed there.
+     */
+    public String symbol(int id) {
+        return id < 0 || id >= snapshot.symbols().length ? null : snapshot.symbols()[id];
+    }
+
+    /**
+     * Primary exchange of an instrument (NSE when listed there).
+     */
+    public String exchange(int id) {
+        return id < 0 || id >= snapshot.exchanges().length ? null : snapshot.exchanges()[id];
+    }
+
+    /**
+     * Broker exchange or segment code to a plain exchange (NSE_EQ -> NSE,
+     * BSE_EQ -> BSE, NSE_FNO -> NFO, ...). Null becomes "".
+     */
+    public static String normalizeExchange(String exchange) {
+        if (exchange == null) {
+            return "";
+        }
+        switch (exchange) {
+            case "NSE", "BSE", "NFO", "BFO", "MCX", "CDS", "":
+                return exchange;
+            default:
+                break;
+        }
+        String ex = exchange.trim().toUpperCase(Locale.ROOT);
+        return switch (ex) {
+            case "NSE_EQ" -> "NSE";
+            case "BSE_EQ" -> "BSE";
+            case "NSE_FNO" -> "NFO";
+            case "BSE_FNO" -> "BFO";
+            case "MCX_COMM" -> "MCX";
+            case "NSE_CURRENCY" -> "CDS";
+            default -> ex;
+        };
+    }
+
+    /**
+     * Broker trading symbol to its plain form: upper case, without an equity
+     * series suffix (RELIANCE-EQ -> RELIANCE).
+     */
+    public static String normalizeSymbol(String symbol) {
+        if (symbol == null) {
+            return null;
+        }
+        String sym = symbol.trim().toUpperCase(Locale.ROOT);
+        for (String suffix : SERIES_SUFFIXES) {
+            if (sym.length() > suffix.length() && sym.endsWith(suffix)) {
+                return sym.substring(0, sym.length() - suffix.length());
+            }
+        }
+        return sym;
+    }
+
+    private static Integer lookup(Map<String, Map<String, Integer>> index, String exchange, String key) {
+        Map<String, Integer> byKey = index.get(exchange);
+        return byKey == null ? null : byKey.get(key);
+    }
+
+    private static Snapshot parse(MappedByteBuffer buf) throws IOException {
+        int limit = buf.limit();
+        List<int[]> fields = new ArrayList<>();
+        int pos = nextLine(buf, 0, limit, fields);
+        if (fields.isEmpty()) {
+            throw new IOException("Instrument master is empty");
+        }
+        int isinCol = -1;
+        int exchangeCol = -1;
+        int symbolCol = -1;
+        int securityIdCol = -1;
+        for (int i = 0; i < fields.size(); i++) {
+            switch (text(buf, fields.get(i)).toLowerCase(Locale.ROOT)) {
+                case "isin" -> isinCol = i;
+                case "exchange" -> exchangeCol = i;
+                case "symbol", "trading_symbol", "tradingsymbol" -> symbolCol = i;
+                case "security_id", "securityid" -> securityIdCol = i;
+                default -> {
+                }
+            }
+        }
+        if (isinCol < 0 || exchangeCol < 0 || symbolCol < 0) {
+            throw new IOException("Instrument master needs isin, exchange and symbol columns");
+        }
+
+        Map<String, Integer> byIsin = new HashMap<>();
+        Map<String, Map<String, Integer>> byListing = new HashMap<>();
+        Map<String, Map<String, Integer>> bySecurityId = new HashMap<>();
+        List<String> isins = new ArrayList<>();
+        List<String> symbols = new ArrayList<>();
+        List<String> exchanges = new ArrayList<>();
+
+        while (pos < limit) {
+            pos = nextLine(buf, pos, limit, fields);
+            String isin = field(buf, fields, isinCol);
+            String exchange = normalizeExchange(field(buf, fields, exchangeCol));
+            String symbol = normalizeSymbol(field(buf, fields, symbolCol));
+            if (isin == null || exchange.isEmpty() || symbol == null || symbol.isEmpty()) {
+                continue;
+            }
+            Integer id = byIsin.get(isin);
+            if (id == null) {
+                id = isins.size();
+                byIsin.put(isin, id);
+                isins.add(isin);
+                symbols.add(symbol);
+                exchanges.add(exchange);
+            } else if ("NSE".equals(exchange) && !"NSE".equals(exchanges.get(id))) {
+                symbols.set(id, symbol);
+                exchanges.set(id, exchange);
+            }
+            byListing.computeIfAbsent(exchange, e -> new HashMap<>()).putIfAbsent(symbol, id);
+            String securityId = field(buf, fields, securityIdCol);
+            if (securityId != null) {
+                bySecurityId.computeIfAbsent(exchange, e -> new HashMap<>()).putIfAbsent(securityId, id);
+            }
+        }
+        return new Snapshot(Collections.unmodifiableMap(byIsin), freeze(byListing), freeze(bySecurityId),
+                isins.toArray(String[]::new), symbols.toArray(String[]::new), exchanges.toArray(String[]::new));
+    }
+
+    /**
+     * Split the line starting at pos into (start, end) field ranges; returns
+     * the position after the line break.
+     */
+    private static int nextLine(MappedByteBuffer buf, int pos, int limit, List<int[]> fields) {
+        fields.clear();
+        int start = pos;
+        while (pos < limit) {
+            byte b = buf.get(pos);
+            if (b == ',' || b == '\n') {
+                fields.add(new int[] { start, trimEnd(buf, start, pos) });
+                start = pos + 1;
+                if (b == '\n') {
+                    return pos + 1;
+                }
+            }
+            pos++;
+        }
+        if (start < limit || !fields.isEmpty()) {
+            fields.add(new int[] { start, trimEnd(buf, start, limit) });
+        }
+        return limit;
+    }
+
+    private static int trimEnd(MappedByteBuffer buf, int start, int end) {
+        while (end > start && (buf.get(end - 1) == '\r' || buf.get(end - 1) == ' ')) {
+            end--;
+        }
+        return end;
+    }
+
+    private static String field(MappedByteBuffer buf, List<int[]> fields, int col) {
+        if (col < 0 || col >= fields.size()) {
+            return null;
+        }
+        String value = text(buf, fields.get(col)).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String text(MappedByteBuffer buf, int[] range) {
+        byte[] bytes = new byte[range[1] - range[0]];
+        buf.get(range[0], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Map<String, Integer>> freeze(Map<String, Map<String, Integer>> index) {
+        Map<String, Map<String, Integer>> frozen = new HashMap<>();
+        index.forEach((k, v) -> frozen.put(k, Collections.unmodifiableMap(v)));
+        return Collections.unmodifiableMap(frozen);
+    }
+}
@@ -1,7 +1,9 @@
 package com.marmik.brokerhub.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import com.marmik.brokerhub.dto.UserAccountView;
 import com.marmik.brokerhub.model.AccountMember;
 
 import java.util.List;
@@ -18,4 +20,16 @@ public interface AccountMemberRepository extends JpaRepository<AccountMember, UU
 
     // Fetch membership by its id and account id (safety check)
     Optional<AccountMember> findByIdAndAccountId(UUID id, UUID accountId);
+
+    /**
+     * All memberships of a user joined with their account in a single query.
+     */
+    @Query("""
+                SELECT new com.marmik.brokerhub.dto.UserAccountView(
+                    m.accountId, a.name, a.description, m.role, m.id, m.rules)
+                FROM AccountMember m
+                LEFT JOIN Account a ON a.id = m.accountId
+                WHERE m.user.id = :userId
+            """)
+    List<UserAccountView> findAccountViewsByUserId(UUID userId);
 }
@@ -0,0 +1,92 @@
+package com.marmik.brokerhub.resilience;
+
+import java.time.Duration;
+
+/**
+ * AIMD concurrency limit.
+ *
+ * The limit grows by roughly one per "window" of successful calls while the
+ * limit is actually being used, and is multiplied by backoffRatio whenever a
+ * call fails or takes longer than latencyThreshold. Callers that cannot get a
+ * slot should fail fast rather than queue.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+    /**
+     * @param initialLimit     starting limit
+     * @param minLimit         floor; the limit never drops below it
+     * @param maxLimit         ceiling
+     * @param backoffRatio     multiplier applied on a drop (e.g. 0.7)
+     * @param latencyThreshold calls slower than this count as drops
+     */
+    public record Settings(
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            double backoffRatio,
+            Duration latencyThreshold) {
+
+        public Settings {
+            if (minLimit <= 0 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("limits must satisfy 0 < min <= initial <= max");
+            }
+            if (backoffRatio <= 0 || backoffRatio >= 1) {
+                throw new IllegalArgumentException("backoffRatio must be between 0 and 1");
+            }
+        }
+    }
+
+    private final Settings settings;
+    private double limit;
+    private int inFlight;
+    private long rejected;
+
+    public AdaptiveConcurrencyLimit(Settings settings) {
+        this.settings = settings;
+        this.limit = settings.initialLimit();
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejected++;
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Release a slot and adapt the limit.
+     *
+     * @param dropped the call failed (timeouts, 5xx, connection errors)
+     */
+    public synchronized void onResult(long elapsedNanos, boolean dropped) {
+        int usedBefore = inFlight;
+        inFlight = Math.max(0, inFlight - 1);
+
+        if (dropped || elapsedNanos > settings.latencyThreshold().toNanos()) {
+            limit = Math.max(settings.minLimit(), limit * settings.backoffRatio());
+        } else if (usedBefore * 2 >= (int) limit) {
+            limit = Math.min(settings.maxLimit(), limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * Release a slot without adapting (cancelled calls).
+     */
+    public synchronized void onIgnored() {
+        inFlight = Math.max(0, inFlight - 1);
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized long rejectedCount() {
+        return rejected;
+    }
+}
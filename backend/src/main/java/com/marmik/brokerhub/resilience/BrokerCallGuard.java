@@ -0,0 +1,240 @@
+package com.marmik.brokerhub.resilience;
+
+import com.marmik.brokerhub.concurrent.Futures;
+import com.marmik.brokerhub.http.DeadlineExceededException;
+import com.marmik.brokerhub.http.UpstreamStatusException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Guards outbound broker calls with a circuit breaker and an AIMD
+ * concurrency limit per broker type, plus (optionally) a breaker per
+ * credential so one revoked token cannot trip the whole broker.
+ *
+ * Only errors that say something about the broker count against its
+ * breaker and limit: 5xx (and 408/429) responses, timeouts and I/O errors.
+ * Other 4xx responses (e.g. an expired token) and unexpected exceptions
+ * count against the credential's breaker only, and operations a broker
+ * does not support are ignored, so one user's errors cannot shut a broker
+ * down for everyone.
+ *
+ * Rejected calls fail immediately with {@link BrokerUnavailableException},
+ * so callers can fall back to cached data instead of waiting out a degraded
+ * broker.
+ */
+@Component
+public class BrokerCallGuard {
+
+    private final boolean enabled;
+    private final boolean perCredential;
+    private final CircuitBreaker.Settings breakerSettings;
+    private final AdaptiveConcurrencyLimit.Settings limitSettings;
+
+    private final Map<String, BrokerGuard> brokers = new ConcurrentHashMap<>();
+    private final Map<UUID, CircuitBreaker> credentials = new ConcurrentHashMap<>();
+
+    /**
+     * What a finished call says about the broker and the credential.
+     */
+    private enum Outcome {
+        SUCCESS,
+        BROKER_FAILURE,
+        CREDENTIAL_FAILURE,
+        IGNORED
+    }
+
+    private static final class BrokerGuard {
+        final CircuitBreaker breaker;
+        final AdaptiveConcurrencyLimit limit;
+
+        BrokerGuard(CircuitBreaker breaker, AdaptiveConcurrencyLimit limit) {
+            this.breaker = breaker;
+            this.limit = limit;
+        }
+    }
+
+    public BrokerCallGuard(
+            @Value("${broker.guard.enabled:true}") boolean enabled,
+            @Value("${broker.guard.per-credential:false}") boolean perCredential,
+            @Value("${broker.guard.breaker.window-size:50}") int windowSize,
+            @Value("${broker.guard.breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${broker.guard.breaker.failure-rate:0.5}") double failureRate,
+            @Value("${broker.guard.breaker.slow-call-rate:0.8}") double slowCallRate,
+            @Value("${broker.guard.breaker.slow-call-ms:5000}") long slowCallMs,
+            @Value("${broker.guard.breaker.open-ms:30000}") long openMs,
+            @Value("${broker.guard.breaker.half-open-probes:3}") int halfOpenProbes,
+            @Value("${broker.guard.limit.initial:20}") int initialLimit,
+            @Value("${broker.guard.limit.min:2}") int minLimit,
+            @Value("${broker.guard.limit.max:200}") int maxLimit,
+            @Value("${broker.guard.limit.backoff-ratio:0.7}") double backoffRatio,
+            @Value("${broker.guard.limit.latency-threshold-ms:3000}") long latencyThresholdMs) {
+        this(enabled, perCredential,
+                new CircuitBreaker.Settings(windowSize, minimumCalls, failureRate, slowCallRate,
+                        Duration.ofMillis(slowCallMs), Duration.ofMillis(openMs), halfOpenProbes),
+                new AdaptiveConcurrencyLimit.Settings(initialLimit, minLimit, maxLimit, backoffRatio,
+                        Duration.ofMillis(latencyThresholdMs)));
+    }
+
+    public BrokerCallGuard(
+            boolean enabled,
+            boolean perCredential,
+            CircuitBreaker.Settings breakerSettings,
+            AdaptiveConcurrencyLimit.Settings limitSettings) {
+        this.enabled = enabled;
+        this.perCredential = perCredential;
+        this.breakerSettings = breakerSettings;
+        this.limitSettings = limitSettings;
+    }
+
+    /**
+     * Cheap pre-check (no permit taken): false when the broker or credential
+     * circuit is open, so callers can skip work such as token decryption.
+     */
+    public boolean isCallPermitted(String brokerType, UUID credentialId) {
+        if (!enabled) {
+            return true;
+        }
+        if (!guardFor(brokerType).breaker.isCallPermitted()) {
+            return false;
+        }
+        CircuitBreaker credentialBreaker = credentialBreaker(credentialId);
+        return credentialBreaker == null || credentialBreaker.isCallPermitted();
+    }
+
+    /**
+     * Run an async broker call under the broker's breaker and limit.
+     * Failures of the returned future are counted as described above;
+     * cancellation and the caller's own deadline running out are ignored.
+     * Cancelling the returned future cancels the call.
+     */
+    public <T> CompletableFuture<T> execute(String brokerType, UUID credentialId, Supplier<CompletableFuture<T>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        BrokerGuard guard = guardFor(brokerType);
+        CircuitBreaker credentialBreaker = credentialBreaker(credentialId);
+
+        CircuitBreaker.Permit brokerPermit = guard.breaker.tryAcquire();
+        if (brokerPermit == null) {
+            return CompletableFuture.failedFuture(
+                    new BrokerUnavailableException("Circuit open for broker " + guard.breaker.name()));
+        }
+        CircuitBreaker.Permit credentialPermit = null;
+        if (credentialBreaker != null) {
+            credentialPermit = credentialBreaker.tryAcquire();
+            if (credentialPermit == null) {
+                guard.breaker.onIgnored(brokerPermit);
+                return CompletableFuture.failedFuture(
+                        new BrokerUnavailableException("Circuit open for credential " + credentialId));
+            }
+        }
+        if (!guard.limit.tryAcquire()) {
+            guard.breaker.onIgnored(brokerPermit);
+            if (credentialBreaker != null) {
+                credentialBreaker.onIgnored(credentialPermit);
+            }
+            return CompletableFuture.failedFuture(
+                    new BrokerUnavailableException("Concurrency limit reached for broker " + guard.breaker.name()));
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<T> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException ex) {
+            result = CompletableFuture.failedFuture(ex);
+        }
+
+        CircuitBreaker.Permit credPermit = credentialPermit;
+        // Bookkeeping hangs off the call's own future, which is returned as is,
+        // so a caller's cancel reaches the call and is still accounted for.
+        result.whenComplete((value, error) -> {
+            long elapsed = System.nanoTime() - start;
+            Outcome outcome = classify(error);
+            if (outcome == Outcome.IGNORED || outcome == Outcome.CREDENTIAL_FAILURE) {
+                guard.limit.onIgnored();
+                guard.breaker.onIgnored(brokerPermit);
+            } else {
+                boolean failed = outcome == Outcome.BROKER_FAILURE;
+                guard.limit.onResult(elapsed, failed);
+                guard.breaker.onResult(brokerPermit, elapsed, failed);
+            }
+            if (credentialBreaker != null) {
+                if (outcome == Outcome.IGNORED) {
+                    credentialBreaker.onIgnored(credPermit);
+                } else {
+                    credentialBreaker.onResult(credPermit, elapsed, outcome != Outcome.SUCCESS);
+                }
+            }
+        });
+        return result;
+    }
+
+    public List<BrokerGuardStats> stats() {
+        return brokers.values().stream()
+                .map(g -> new BrokerGuardStats(
+                        g.breaker.name(),
+                        g.breaker.state(),
+                        g.limit.limit(),
+                        g.limit.inFlight(),
+                        g.breaker.rejectedCount(),
+                        g.limit.rejectedCount()))
+                .toList();
+    }
+
+    /**
+     * Drop a credential's breaker; called once a credential is deleted.
+     */
+    public void forgetCredential(UUID credentialId) {
+        if (credentialId != null) {
+            credentials.remove(credentialId);
+        }
+    }
+
+    private BrokerGuard guardFor(String brokerType) {
+        String key = brokerType == null ? "UNKNOWN" : brokerType.toUpperCase(Locale.ROOT);
+        return brokers.computeIfAbsent(key, k -> new BrokerGuard(
+                new CircuitBreaker(k, breakerSettings),
+                new AdaptiveConcurrencyLimit(limitSettings)));
+    }
+
+    private CircuitBreaker credentialBreaker(UUID credentialId) {
+        if (!perCredential || credentialId == null) {
+            return null;
+        }
+        return credentials.computeIfAbsent(credentialId,
+                id -> new CircuitBreaker("credential:" + id, breakerSettings));
+    }
+
+    private static Outcome classify(Throwable error) {
+        if (error == null) {
+            return Outcome.SUCCESS;
+        }
+        Throwable t = Futures.unwrap(error);
+        if (t instanceof CancellationException || t instanceof DeadlineExceededException
+                || t instanceof UnsupportedOperationException) {
+            return Outcome.IGNORED;
+        }
+        if (t instanceof UpstreamStatusException status) {
+            return status.isClientError() ? Outcome.CREDENTIAL_FAILURE : Outcome.BROKER_FAILURE;
+        }
+        if (t instanceof IOException || t instanceof UncheckedIOException || t instanceof TimeoutException) {
+            return Outcome.BROKER_FAILURE;
+        }
+        return Outcome.CREDENTIAL_FAILURE;
+    }
+}
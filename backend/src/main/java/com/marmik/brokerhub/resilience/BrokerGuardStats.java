@@ -0,0 +1,13 @@
+package com.marmik.brokerhub.resilience;
+
+/**
+ * Point-in-time view of one broker's breaker and concurrency limit.
+ */
+public record BrokerGuardStats(
+        String broker,
+        CircuitBreaker.State state,
+        int limit,
+        int inFlight,
+        long breakerRejections,
+        long limitRejections) {
+}
@@ -0,0 +1,206 @@
+package com.marmik.brokerhub.resilience;
+
+import com.marmik.brokerhub.http.LatencyHistogram;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests for idempotent broker reads (holdings, positions).
+ *
+ * If an attempt has not completed by the broker's observed latency
+ * percentile (p95 by default), a second attempt is started and whichever
+ * succeeds first wins; the other is cancelled. A hedge is not a retry: an
+ * attempt that fails before the hedge delay fails the call.
+ *
+ * Hedges are paid for from a budget that every call tops up by maxRate, so
+ * at most roughly maxRate of calls are hedged even while the broker is slow
+ * across the board (when hedging would only add load). Callers may also
+ * pass an admission check (e.g. a zero-wait rate-limit token); a hedge it
+ * refuses is skipped, so hedges never exceed the broker's request budgets.
+ *
+ * Opt-in via broker.hedge.enabled.
+ */
+@Component
+public class BrokerHedgingPolicy {
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long minSamples;
+    private final double maxRate;
+    private final double maxBurst;
+
+    private final Map<String, BrokerHedge> brokers = new ConcurrentHashMap<>();
+
+    private static final class BrokerHedge {
+        final String broker;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong issued = new AtomicLong();
+        final AtomicLong won = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        private double credits;
+
+        BrokerHedge(String broker) {
+            this.broker = broker;
+        }
+
+        synchronized void deposit(double amount, double max) {
+            credits = Math.min(max, credits + amount);
+        }
+
+        synchronized boolean withdraw() {
+            if (credits < 1) {
+                return false;
+            }
+            credits -= 1;
+            return true;
+        }
+    }
+
+    public BrokerHedgingPolicy(
+            @Value("${broker.hedge.enabled:false}") boolean enabled,
+            @Value("${broker.hedge.percentile:0.95}") double percentile,
+            @Value("${broker.hedge.min-delay-ms:50}") long minDelayMs,
+            @Value("${broker.hedge.min-samples:20}") long minSamples,
+            @Value("${broker.hedge.max-rate:0.1}") double maxRate,
+            @Value("${broker.hedge.max-burst:5}") double maxBurst) {
+        if (percentile <= 0 || percentile >= 1 || maxRate < 0 || maxRate > 1) {
+            throw new IllegalArgumentException("hedge percentile must be in (0,1) and max rate in [0,1]");
+        }
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, minDelayMs));
+        this.minSamples = Math.max(1, minSamples);
+        this.maxRate = maxRate;
+        this.maxBurst = Math.max(1, maxBurst);
+    }
+
+    /**
+     * Run attempt, hedging it once if it is slower than the broker's usual
+     * latency. attempt must be safe to invoke twice.
+     */
+    public <T> CompletableFuture<T> execute(String brokerType, Supplier<CompletableFuture<T>> attempt) {
+        return execute(brokerType, attempt, () -> CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * As {@link #execute(String, Supplier)}, but the hedge is only started
+     * once hedgeAdmission completes normally; if it fails, the hedge is
+     * skipped. Each attempt is expected to take its own concurrency permit.
+     */
+    public <T> CompletableFuture<T> execute(
+            String brokerType,
+            Supplier<CompletableFuture<T>> attempt,
+            Supplier<CompletableFuture<Void>> hedgeAdmission) {
+        if (!enabled) {
+            return attempt.get();
+        }
+        BrokerHedge hedge = brokers.computeIfAbsent(normalize(brokerType), BrokerHedge::new);
+        hedge.calls.incrementAndGet();
+        hedge.deposit(maxRate, maxBurst);
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        CompletableFuture<T> primary = start(hedge, attempt, result, pending, false);
+
+        long delayNanos = hedgeDelayNanos(hedge);
+        if (delayNanos < 0) {
+            return result;
+        }
+        Executor delayed = CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS);
+        CompletableFuture.runAsync(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (!hedge.withdraw()) {
+                hedge.skipped.incrementAndGet();
+                return;
+            }
+            CompletableFuture<Void> admitted;
+            try {
+                admitted = hedgeAdmission.get();
+            } catch (RuntimeException ex) {
+                admitted = CompletableFuture.failedFuture(ex);
+            }
+            admitted.whenComplete((ignored, refused) -> {
+                if (refused != null || result.isDone()) {
+                    // Not sent: give the budget back.
+                    hedge.deposit(1, maxBurst);
+                    hedge.skipped.incrementAndGet();
+                    return;
+                }
+                hedge.issued.incrementAndGet();
+                pending.incrementAndGet();
+                CompletableFuture<T> second = start(hedge, attempt, result, pending, true);
+                result.whenComplete((v, e) -> second.cancel(false));
+            });
+        }, delayed);
+        result.whenComplete((v, e) -> primary.cancel(false));
+        return result;
+    }
+
+    public List<HedgeStats> stats() {
+        return brokers.values().stream()
+                .map(h -> new HedgeStats(
+                        h.broker,
+                        h.calls.get(),
+                        h.issued.get(),
+                        h.won.get(),
+                        h.skipped.get(),
+                        h.latency.count() < minSamples ? -1
+                                : TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos(h))))
+                .toList();
+    }
+
+    private <T> CompletableFuture<T> start(
+            BrokerHedge hedge,
+            Supplier<CompletableFuture<T>> attempt,
+            CompletableFuture<T> result,
+            AtomicInteger pending,
+            boolean isHedge) {
+        long start = System.nanoTime();
+        CompletableFuture<T> f;
+        try {
+            f = attempt.get();
+        } catch (RuntimeException ex) {
+            f = CompletableFuture.failedFuture(ex);
+        }
+        f.whenComplete((value, error) -> {
+            if (error == null) {
+                hedge.latency.record(System.nanoTime() - start);
+                if (result.complete(value) && isHedge) {
+                    hedge.won.incrementAndGet();
+                }
+            } else if (pending.decrementAndGet() == 0) {
+                // Only fail once no attempt is left that could still succeed.
+                result.completeExceptionally(error);
+            }
+        });
+        return f;
+    }
+
+    private long hedgeDelayNanos(BrokerHedge hedge) {
+        if (hedge.latency.count() < minSamples) {
+            return -1;
+        }
+        long p = TimeUnit.MILLISECONDS.toNanos(hedge.latency.percentileMs(percentile));
+        return Math.max(minDelayNanos, p);
+    }
+
+    private static String normalize(String brokerType) {
+        return brokerType == null ? "UNKNOWN" : brokerType.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,247 @@
+package com.marmik.brokerhub.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces outbound broker calls so a burst of dashboard loads stays inside
+ * the broker's per-app and per-token request limits.
+ *
+ * - Node budgets: an in-process token bucket per broker type and per
+ * credential, always on.
+ * - Cluster budgets (optional): the same two buckets kept in Redis and
+ * charged atomically by a Lua script, so the limit holds across replicas.
+ * If Redis is unreachable the node budgets still apply.
+ *
+ * Calls over budget are queued (delayed, without holding a thread) as long as
+ * they can start within maxWait; otherwise they fail with
+ * {@link BrokerUnavailableException} so callers can serve cached data.
+ */
+@Component
+public class BrokerRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerRateLimiter.class);
+
+    private static final String KEY_PREFIX = "rl:broker:";
+
+    /**
+     * Token bucket size and refill rate.
+     */
+    public record Budget(int burst, double perSecond) {
+
+        public Budget {
+            if (burst <= 0 || perSecond <= 0) {
+                throw new IllegalArgumentException("burst and rate must be positive");
+            }
+        }
+    }
+
+    /**
+     * @param maxWait           longest a call may be queued before it is
+     *                          rejected
+     * @param nodeBroker        per broker type, per node
+     * @param nodeCredential    per credential (access token), per node
+     * @param clusterEnabled    also charge the Redis-backed budgets below
+     * @param clusterBroker     per broker type, across all nodes
+     * @param clusterCredential per credential, across all nodes
+     */
+    public record Settings(
+            boolean enabled,
+            Duration maxWait,
+            Budget nodeBroker,
+            Budget nodeCredential,
+            boolean clusterEnabled,
+            Budget clusterBroker,
+            Budget clusterCredential) {
+    }
+
+    private final Settings settings;
+    private final StringRedisTemplate redis;
+    private final RedisScript<Long> reserveScript;
+
+    private final Map<String, TokenBucket> brokers = new ConcurrentHashMap<>();
+    private final Map<UUID, TokenBucket> credentials = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong clusterErrors = new AtomicLong();
+
+    @Autowired
+    public BrokerRateLimiter(
+            StringRedisTemplate redis,
+            @Value("${broker.rate-limit.enabled:true}") boolean enabled,
+            @Value("${broker.rate-limit.max-wait-ms:2000}") long maxWaitMs,
+            @Value("${broker.rate-limit.node.broker-burst:20}") int nodeBrokerBurst,
+            @Value("${broker.rate-limit.node.broker-per-second:10}") double nodeBrokerRate,
+            @Value("${broker.rate-limit.node.credential-burst:5}") int nodeCredentialBurst,
+            @Value("${broker.rate-limit.node.credential-per-second:2}") double nodeCredentialRate,
+            @Value("${broker.rate-limit.cluster.enabled:false}") boolean clusterEnabled,
+            @Value("${broker.rate-limit.cluster.broker-burst:20}") int clusterBrokerBurst,
+            @Value("${broker.rate-limit.cluster.broker-per-second:20}") double clusterBrokerRate,
+            @Value("${broker.rate-limit.cluster.credential-burst:5}") int clusterCredentialBurst,
+            @Value("${broker.rate-limit.cluster.credential-per-second:2}") double clusterCredentialRate) {
+        this(new Settings(enabled, Duration.ofMillis(maxWaitMs),
+                new Budget(nodeBrokerBurst, nodeBrokerRate),
+                new Budget(nodeCredentialBurst, nodeCredentialRate),
+                clusterEnabled,
+                new Budget(clusterBrokerBurst, clusterBrokerRate),
+                new Budget(clusterCredentialBurst, clusterCredentialRate)),
+                redis);
+    }
+
+    public BrokerRateLimiter(Settings settings, StringRedisTemplate redis) {
+        this.settings = settings;
+        this.redis = settings.clusterEnabled() ? redis : null;
+        if (settings.clusterEnabled() && redis == null) {
+            log.warn("Cluster broker rate limit enabled but no Redis template available; using node budgets only");
+        }
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("redis/token-bucket.lua"));
+        script.setResultType(Long.class);
+        this.reserveScript = script;
+    }
+
+    /**
+     * Wait for budget to call the broker for this credential.
+     *
+     * The returned future completes (on executor) once the call may start,
+     * or fails with BrokerUnavailableException if it could not start within
+     * maxWait. The Redis round trip, when enabled, also runs on executor.
+     */
+    public CompletableFuture<Void> acquire(String brokerType, UUID credentialId, Executor executor) {
+        return acquire(brokerType, credentialId, executor, settings.maxWait());
+    }
+
+    /**
+     * As {@link #acquire(String, UUID, Executor)}, but never queues longer
+     * than maxWait (e.g. the time left before the request's deadline).
+     */
+    public CompletableFuture<Void> acquire(String brokerType, UUID credentialId, Executor executor, Duration maxWait) {
+        if (!settings.enabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String broker = normalize(brokerType);
+        long maxWaitNanos = Math.min(settings.maxWait().toNanos(), maxWait.toNanos());
+
+        TokenBucket credentialBucket = credentialId == null ? null
+                : credentials.computeIfAbsent(credentialId,
+                        id -> new TokenBucket(settings.nodeCredential().burst(), settings.nodeCredential().perSecond()));
+        TokenBucket brokerBucket = brokers.computeIfAbsent(broker,
+                b -> new TokenBucket(settings.nodeBroker().burst(), settings.nodeBroker().perSecond()));
+
+        long credentialWait = credentialBucket == null ? 0 : credentialBucket.reserve(maxWaitNanos);
+        if (credentialWait < 0) {
+            return reject("Rate limit reached for credential " + credentialId);
+        }
+        long brokerWait = brokerBucket.reserve(maxWaitNanos);
+        if (brokerWait < 0) {
+            if (credentialBucket != null) {
+                credentialBucket.refund();
+            }
+            return reject("Rate limit reached for broker " + broker);
+        }
+        long nodeWait = Math.max(credentialWait, brokerWait);
+
+        if (redis == null) {
+            return delay(nodeWait, executor);
+        }
+        return CompletableFuture
+                .supplyAsync(() -> reserveCluster(broker, credentialId, maxWaitNanos - nodeWait), executor)
+                .thenCompose(clusterWait -> {
+                    if (clusterWait < 0) {
+                        brokerBucket.refund();
+                        if (credentialBucket != null) {
+                            credentialBucket.refund();
+                        }
+                        return reject("Cluster rate limit reached for broker " + broker);
+                    }
+                    return delay(Math.max(nodeWait, clusterWait), executor);
+                });
+    }
+
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    public long clusterErrorCount() {
+        return clusterErrors.get();
+    }
+
+    /**
+     * Drop a credential's node bucket; called once a credential is deleted.
+     */
+    public void forgetCredential(UUID credentialId) {
+        if (credentialId != null) {
+            credentials.remove(credentialId);
+        }
+    }
+
+    /**
+     * Charge the cluster budgets; returns the wait in nanos, -1 if over
+     * budget, or 0 when Redis fails (node budgets still protect the broker).
+     */
+    private long reserveCluster(String broker, UUID credentialId, long maxWaitNanos) {
+        if (maxWaitNanos < 0) {
+            return -1;
+        }
+        // Hash tag on the broker keeps both keys in one slot for Redis Cluster.
+        String brokerKey = KEY_PREFIX + "{" + broker + "}:app";
+        Budget b = settings.clusterBroker();
+        Budget c = settings.clusterCredential();
+        long maxWaitMs = TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+        try {
+            Long waitMs;
+            if (credentialId == null) {
+                waitMs = redis.execute(reserveScript, List.of(brokerKey),
+                        Long.toString(maxWaitMs), Integer.toString(b.burst()), Double.toString(b.perSecond()));
+            } else {
+                String credentialKey = KEY_PREFIX + "{" + broker + "}:cred:" + credentialId;
+                waitMs = redis.execute(reserveScript, List.of(credentialKey, brokerKey),
+                        Long.toString(maxWaitMs),
+                        Integer.toString(c.burst()), Double.toString(c.perSecond()),
+                        Integer.toString(b.burst()), Double.toString(b.perSecond()));
+            }
+            if (waitMs == null) {
+                return 0;
+            }
+            return waitMs < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(waitMs);
+        } catch (Exception ex) {
+            clusterErrors.incrementAndGet();
+            log.debug("Cluster rate limit check failed for broker {}; using node budget only", broker, ex);
+            return 0;
+        }
+    }
+
+    private CompletableFuture<Void> reject(String message) {
+        rejected.incrementAndGet();
+        return CompletableFuture.failedFuture(new BrokerUnavailableException(message));
+    }
+
+    private static CompletableFuture<Void> delay(long waitNanos, Executor executor) {
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS, executor));
+    }
+
+    private static String normalize(String brokerType) {
+        return brokerType == null ? "UNKNOWN" : brokerType.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,14 @@
+package com.marmik.brokerhub.resilience;
+
+/**
+ * Thrown (as a failed future) when a broker call is rejected up front because
+ * the broker's circuit is open or its concurrency limit is reached.
+ */
+public class BrokerUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BrokerUnavailableException(String message) {
+        super(message);
+    }
+}
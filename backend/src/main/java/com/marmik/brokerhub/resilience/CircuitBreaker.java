@@ -0,0 +1,212 @@
+package com.marmik.brokerhub.resilience;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker.
+ *
+ * - CLOSED: calls pass; the last windowSize outcomes are kept. Once at least
+ * minimumCalls are recorded and the failure rate or slow-call rate reaches
+ * its threshold, the breaker opens.
+ * - OPEN: calls are rejected until openDuration has elapsed.
+ * - HALF_OPEN: up to halfOpenProbes calls are let through; if all succeed
+ * (and are not slow) the breaker closes, any failure re-opens it.
+ *
+ * Callers take a permit with {@link #tryAcquire()} and report its outcome
+ * with {@link #onResult} or {@link #onIgnored}. Outcomes of permits issued
+ * before a state change are ignored, so a late response from before the trip
+ * cannot close or re-open the breaker.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * @param windowSize            number of most recent calls considered
+     * @param minimumCalls          calls needed before rates are evaluated
+     * @param failureRateThreshold  failure fraction (0-1) that opens the breaker
+     * @param slowCallRateThreshold slow-call fraction (0-1) that opens it
+     * @param slowCallThreshold     calls at least this long count as slow
+     * @param openDuration          how long to reject before probing
+     * @param halfOpenProbes        trial calls allowed while half-open
+     */
+    public record Settings(
+            int windowSize,
+            int minimumCalls,
+            double failureRateThreshold,
+            double slowCallRateThreshold,
+            Duration slowCallThreshold,
+            Duration openDuration,
+            int halfOpenProbes) {
+
+        public Settings {
+            if (windowSize <= 0 || minimumCalls <= 0 || halfOpenProbes <= 0) {
+                throw new IllegalArgumentException("window, minimum calls and probes must be positive");
+            }
+        }
+    }
+
+    /**
+     * Permit handed out by tryAcquire; null means rejected.
+     */
+    public static final class Permit {
+        private final long generation;
+
+        private Permit(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAtNanos;
+
+    private final boolean[] failedRing;
+    private final boolean[] slowRing;
+    private int ringIndex;
+    private int recorded;
+    private int failures;
+    private int slows;
+
+    private int probesInFlight;
+    private int probeSuccesses;
+    private long rejected;
+
+    public CircuitBreaker(String name, Settings settings) {
+        this(name, settings, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, Settings settings, LongSupplier nanoClock) {
+        this.name = name;
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+        this.failedRing = new boolean[settings.windowSize()];
+        this.slowRing = new boolean[settings.windowSize()];
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized long rejectedCount() {
+        return rejected;
+    }
+
+    /**
+     * Whether a call would currently be allowed, without taking a permit.
+     */
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> openDurationElapsed();
+            case HALF_OPEN -> probesInFlight < settings.halfOpenProbes();
+        };
+    }
+
+    /**
+     * Take a permit for one call, or null when the breaker rejects it.
+     */
+    public synchronized Permit tryAcquire() {
+        if (state == State.OPEN && openDurationElapsed()) {
+            transitionTo(State.HALF_OPEN);
+        }
+        switch (state) {
+            case CLOSED:
+                return new Permit(generation);
+            case HALF_OPEN:
+                if (probesInFlight < settings.halfOpenProbes()) {
+                    probesInFlight++;
+                    return new Permit(generation);
+                }
+                rejected++;
+                return null;
+            default:
+                rejected++;
+                return null;
+        }
+    }
+
+    /**
+     * Report the outcome of a permitted call.
+     */
+    public synchronized void onResult(Permit permit, long elapsedNanos, boolean failed) {
+        if (permit == null || permit.generation != generation) {
+            return;
+        }
+        boolean slow = elapsedNanos >= settings.slowCallThreshold().toNanos();
+
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            if (failed || slow) {
+                transitionTo(State.OPEN);
+            } else if (++probeSuccesses >= settings.halfOpenProbes()) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (state != State.CLOSED) {
+            return;
+        }
+
+        if (recorded == failedRing.length) {
+            failures -= failedRing[ringIndex] ? 1 : 0;
+            slows -= slowRing[ringIndex] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failedRing[ringIndex] = failed;
+        slowRing[ringIndex] = slow;
+        failures += failed ? 1 : 0;
+        slows += slow ? 1 : 0;
+        ringIndex = (ringIndex + 1) % failedRing.length;
+
+        if (recorded >= settings.minimumCalls()
+                && ((double) failures / recorded >= settings.failureRateThreshold()
+                        || (double) slows / recorded >= settings.slowCallRateThreshold())) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * Release a permit whose call ended without a meaningful outcome
+     * (e.g. cancelled by the caller).
+     */
+    public synchronized void onIgnored(Permit permit) {
+        if (permit != null && permit.generation == generation && state == State.HALF_OPEN) {
+            probesInFlight--;
+        }
+    }
+
+    private boolean openDurationElapsed() {
+        return nanoClock.getAsLong() - openedAtNanos >= settings.openDuration().toNanos();
+    }
+
+    private void transitionTo(State next) {
+        state = next;
+        generation++;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (next == State.OPEN) {
+            openedAtNanos = nanoClock.getAsLong();
+        }
+        if (next == State.CLOSED) {
+            recorded = 0;
+            failures = 0;
+            slows = 0;
+            ringIndex = 0;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.marmik.brokerhub.resilience;
+
+/**
+ * Point-in-time hedging counters for one broker type.
+ *
+ * @param hedgeDelayMs current trigger delay (the observed latency percentile),
+ *                     or -1 while there are too few samples to hedge
+ */
+public record HedgeStats(
+        String broker,
+        long calls,
+        long hedgesIssued,
+        long hedgesWon,
+        long hedgesSkipped,
+        long hedgeDelayMs) {
+}
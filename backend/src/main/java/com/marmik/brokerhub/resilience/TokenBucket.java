@@ -0,0 +1,87 @@
+package com.marmik.brokerhub.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process token bucket with reservations.
+ *
+ * {@link #reserve(long)} lets a caller borrow a token that is not yet
+ * available, as long as it would be available within the caller's maximum
+ * wait; the caller is told how long to wait before using it. Callers are thus
+ * queued in arrival order without any thread blocking, and a call that could
+ * not start within its deadline is rejected up front.
+ */
+public final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param capacity      burst size (tokens available after an idle period)
+     * @param ratePerSecond sustained refill rate
+     */
+    public TokenBucket(int capacity, double ratePerSecond) {
+        this(capacity, ratePerSecond, System::nanoTime);
+    }
+
+    TokenBucket(int capacity, double ratePerSecond, LongSupplier nanoClock) {
+        if (capacity <= 0 || ratePerSecond <= 0) {
+            throw new IllegalArgumentException("capacity and rate must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Reserve one token.
+     *
+     * @return nanos the caller must wait before using the token (0 when one is
+     *         available now), or -1 if it would have to wait longer than
+     *         maxWaitNanos; nothing is reserved in that case
+     */
+    public synchronized long reserve(long maxWaitNanos) {
+        refill();
+        long waitNanos = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    public long reserve(Duration maxWait) {
+        return reserve(maxWait.toNanos());
+    }
+
+    /**
+     * Give back a reserved token that was not used (e.g. another limiter
+     * rejected the same call).
+     */
+    public synchronized void refund() {
+        refill();
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    public synchronized double availableTokens() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillNanos = now;
+        }
+    }
+}
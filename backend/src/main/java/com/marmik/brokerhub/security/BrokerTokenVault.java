@@ -0,0 +1,130 @@
+package com.marmik.brokerhub.security;
+
+import com.marmik.brokerhub.cache.LocalTtlCache;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in, short-lived store of decrypted broker tokens.
+ *
+ * Without it every aggregation unwraps the DEK and decrypts the token for
+ * every credential. With it, a token decrypted once is reused for a short
+ * TTL.
+ *
+ * Notes:
+ * - Plaintext is kept in direct (off-heap) buffers, so it is never copied
+ * around by the GC and stays out of heap dumps.
+ * - Buffers are zeroed when an entry expires, is evicted or replaced, when
+ * its credential is deleted, and on shutdown. A sweeper zeroes expired
+ * entries even if nobody reads them again.
+ * - get() hands out a fresh byte[] copy; callers zero it exactly as they
+ * zero the output of EnvelopeEncryptionService.
+ * - The vault does not authorize; callers check access before reading it.
+ */
+@Component
+public class BrokerTokenVault {
+
+    private final boolean enabled;
+    private final LocalTtlCache<UUID, SealedToken> tokens;
+    private final ScheduledExecutorService sweeper;
+
+    private static final class SealedToken {
+        private final ByteBuffer buffer;
+        private boolean wiped;
+
+        SealedToken(byte[] plain) {
+            buffer = ByteBuffer.allocateDirect(plain.length);
+            buffer.put(plain);
+        }
+
+        synchronized byte[] copy() {
+            if (wiped) {
+                return null;
+            }
+            byte[] out = new byte[buffer.capacity()];
+            buffer.get(0, out);
+            return out;
+        }
+
+        synchronized void wipe() {
+            for (int i = 0; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            wiped = true;
+        }
+    }
+
+    public BrokerTokenVault(
+            @Value("${app.security.token-vault.enabled:false}") boolean enabled,
+            @Value("${app.security.token-vault.ttl-ms:60000}") long ttlMs,
+            @Value("${app.security.token-vault.max-entries:1000}") int maxEntries) {
+        this.enabled = enabled && ttlMs > 0;
+        this.tokens = new LocalTtlCache<>(maxEntries, Duration.ofMillis(ttlMs), (id, token) -> token.wipe());
+
+        if (this.enabled) {
+            long sweepMs = Math.max(1_000, ttlMs / 2);
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "broker-token-vault-sweeper");
+                t.setDaemon(true);
+                return t;
+            });
+            this.sweeper.scheduleWithFixedDelay(tokens::purgeExpired, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.sweeper = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns a copy of the cached plaintext token, or null on a miss.
+     * Caller must zero the returned byte[].
+     */
+    public byte[] get(UUID credentialId) {
+        if (!enabled || credentialId == null) {
+            return null;
+        }
+        SealedToken token = tokens.get(credentialId);
+        return token == null ? null : token.copy();
+    }
+
+    /**
+     * Store a copy of the plaintext token. The caller still owns (and zeroes)
+     * the passed array.
+     */
+    public void put(UUID credentialId, byte[] plain) {
+        if (!enabled || credentialId == null || plain == null || plain.length == 0) {
+            return;
+        }
+        tokens.put(credentialId, new SealedToken(plain));
+    }
+
+    /**
+     * Zero and drop the token for a credential (e.g., on deletion).
+     */
+    public void evict(UUID credentialId) {
+        if (credentialId != null) {
+            tokens.invalidate(credentialId);
+        }
+    }
+
+    @PreDestroy
+    public void clear() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        tokens.invalidateAll();
+    }
+}
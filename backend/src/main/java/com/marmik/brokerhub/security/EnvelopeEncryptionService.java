@@ -1,5 +1,6 @@
 package com.marmik.brokerhub.security;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -7,8 +8,14 @@ import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Envelope encryption helper.
@@ -20,9 +27,17 @@ import java.util.Arrays;
  *
  * Notes:
  * - The master key is read from app.security.master-key-base64 and MUST be 32
- * raw bytes when base64-decoded.
+ * raw bytes when base64-decoded. It is registered under
+ * app.security.master-key-id (default local-master-v1).
+ * - Further master keys for rotation come from app.security.master-keys as
+ * comma-separated keyId:base64 pairs. New DEKs are wrapped with
+ * app.security.active-master-key-id; existing DEKs are unwrapped with the key
+ * named by their tokenKeyId, so old and new keys work side by side until
+ * BrokerCredentialRewrapService has moved every row.
  * - This class avoids logging secret material. Callers must zero sensitive
  * byte[] after use.
+ * - Cipher instances are reused per thread; every operation re-initializes
+ * the cipher with its own key and IV.
  */
 @Component
 public class EnvelopeEncryptionService {
@@ -31,21 +46,98 @@ public class EnvelopeEncryptionService {
     private static final int GCM_IV_BYTES = 12;
     private static final int GCM_TAG_BITS = 128;
 
+    private static final ThreadLocal<Cipher> GCM_CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/GCM not available", e);
+        }
+    });
+
+    public static final String DEFAULT_MASTER_KEY_ID = "local-master-v1";
+
     private final SecureRandom secureRandom = new SecureRandom();
-    private final SecretKey masterKey;
+    private final Map<String, SecretKey> masterKeys;
+    private final String activeKeyId;
+
+    public EnvelopeEncryptionService(String masterKeyBase64) {
+        this(masterKeyBase64, DEFAULT_MASTER_KEY_ID, "", "");
+    }
 
-    public EnvelopeEncryptionService(@Value("${app.security.master-key-base64}") String masterKeyBase64) {
+    /**
+     * @param masterKeyBase64 primary master key
+     * @param masterKeyId     key id the primary master key is registered under
+     * @param extraKeys       additional keys as keyId:base64[,keyId:base64...]
+     * @param activeKeyId     key used for new wraps; blank means masterKeyId
+     */
+    @Autowired
+    public EnvelopeEncryptionService(
+            @Value("${app.security.master-key-base64}") String masterKeyBase64,
+            @Value("${app.security.master-key-id:" + DEFAULT_MASTER_KEY_ID + "}") String masterKeyId,
+            @Value("${app.security.master-keys:}") String extraKeys,
+            @Value("${app.security.active-master-key-id:}") String activeKeyId) {
         if (masterKeyBase64 == null || masterKeyBase64.isBlank()) {
             throw new IllegalArgumentException("app.security.master-key-base64 must be configured");
         }
-        byte[] raw = java.util.Base64.getDecoder().decode(masterKeyBase64);
-        if (raw.length != 32) {
-            throw new IllegalArgumentException("master key must be 32 bytes (base64 decode result)");
+        String primaryId = masterKeyId == null || masterKeyId.isBlank() ? DEFAULT_MASTER_KEY_ID : masterKeyId.trim();
+
+        Map<String, SecretKey> keys = new LinkedHashMap<>();
+        keys.put(primaryId, toMasterKey(masterKeyBase64));
+
+        if (extraKeys != null && !extraKeys.isBlank()) {
+            for (String entry : extraKeys.split(",")) {
+                if (entry.isBlank()) {
+                    continue;
+                }
+                int sep = entry.indexOf(':');
+                if (sep <= 0 || sep == entry.length() - 1) {
+                    throw new IllegalArgumentException("app.security.master-keys entries must be keyId:base64");
+                }
+                String keyId = entry.substring(0, sep).trim();
+                if (keys.putIfAbsent(keyId, toMasterKey(entry.substring(sep + 1).trim())) != null) {
+                    throw new IllegalArgumentException("duplicate master key id: " + keyId);
+                }
+            }
+        }
+
+        String active = activeKeyId == null || activeKeyId.isBlank() ? primaryId : activeKeyId.trim();
+        if (!keys.containsKey(active)) {
+            throw new IllegalArgumentException("active master key id is not configured: " + active);
+        }
+        this.masterKeys = Collections.unmodifiableMap(keys);
+        this.activeKeyId = active;
+    }
+
+    private static SecretKey toMasterKey(String base64) {
+        byte[] raw = Base64.getDecoder().decode(base64);
+        try {
+            if (raw.length != 32) {
+                throw new IllegalArgumentException("master key must be 32 bytes (base64 decode result)");
+            }
+            return new SecretKeySpec(raw, "AES");
+        } finally {
+            // zero raw copy for safety
+            Arrays.fill(raw, (byte) 0);
         }
-        this.masterKey = new SecretKeySpec(raw, "AES");
+    }
+
+    /**
+     * Key id new DEKs are wrapped with; store it as the row's tokenKeyId.
+     */
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
 
-        // zero raw copy for safety
-        Arrays.fill(raw, (byte) 0);
+    public Set<String> getKeyIds() {
+        return masterKeys.keySet();
+    }
+
+    private SecretKey masterKey(String keyId) {
+        SecretKey key = masterKeys.get(keyId == null ? activeKeyId : keyId);
+        if (key == null) {
+            throw new IllegalArgumentException("unknown master key id: " + keyId);
+        }
+        return key;
     }
 
     /**
@@ -69,7 +161,7 @@ public class EnvelopeEncryptionService {
 
         SecretKey dekKey = new SecretKeySpec(dek, "AES");
 
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        Cipher cipher = GCM_CIPHER.get();
         GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_BITS, iv);
         cipher.init(Cipher.ENCRYPT_MODE, dekKey, spec);
         byte[] cipherText = cipher.doFinal(plaintext);
@@ -85,24 +177,32 @@ public class EnvelopeEncryptionService {
     public byte[] decryptWithDek(byte[] dek, byte[] iv, byte[] cipherText) throws Exception {
         SecretKey dekKey = new SecretKeySpec(dek, "AES");
 
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        Cipher cipher = GCM_CIPHER.get();
         GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_BITS, iv);
         cipher.init(Cipher.DECRYPT_MODE, dekKey, spec);
         return cipher.doFinal(cipherText);
     }
 
     /**
-     * Wrap (encrypt) the per-row DEK using the master key.
+     * Wrap (encrypt) the per-row DEK using the active master key.
      * We use AES-GCM with a random 12-byte IV. The returned byte[] is IV ||
      * ciphertext.
      *
      * Caller must zero dek after use.
      */
     public byte[] wrapDek(byte[] dek) throws Exception {
+        return wrapDek(activeKeyId, dek);
+    }
+
+    /**
+     * Wrap the per-row DEK using the named master key.
+     */
+    public byte[] wrapDek(String keyId, byte[] dek) throws Exception {
+        SecretKey masterKey = masterKey(keyId);
         byte[] iv = new byte[GCM_IV_BYTES];
         secureRandom.nextBytes(iv);
 
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        Cipher cipher = GCM_CIPHER.get();
         GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_BITS, iv);
         cipher.init(Cipher.ENCRYPT_MODE, masterKey, spec);
         byte[] wrapped = cipher.doFinal(dek);
@@ -120,26 +220,28 @@ public class EnvelopeEncryptionService {
     }
 
     /**
-     * Unwrap DEK previously wrapped by wrapDek (iv || ciphertext).
+     * Unwrap DEK previously wrapped by wrapDek (iv || ciphertext) with the
+     * active master key.
      * Returns the raw DEK bytes; caller must zero after use.
      */
     public byte[] unwrapDek(byte[] wrappedIvAndCiphertext) throws Exception {
+        return unwrapDek(activeKeyId, wrappedIvAndCiphertext);
+    }
+
+    /**
+     * Unwrap DEK with the master key it was wrapped with (the row's
+     * tokenKeyId). Returns the raw DEK bytes; caller must zero after use.
+     */
+    public byte[] unwrapDek(String keyId, byte[] wrappedIvAndCiphertext) throws Exception {
+        SecretKey masterKey = masterKey(keyId);
         if (wrappedIvAndCiphertext == null || wrappedIvAndCiphertext.length <= GCM_IV_BYTES) {
             throw new IllegalArgumentException("invalid wrapped dek format");
         }
-        byte[] iv = Arrays.copyOfRange(wrappedIvAndCiphertext, 0, GCM_IV_BYTES);
-        byte[] cipherBytes = Arrays.copyOfRange(wrappedIvAndCiphertext, GCM_IV_BYTES, wrappedIvAndCiphertext.length);
-
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-        GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_BITS, iv);
+        // iv and ciphertext are read in place, so there are no temporary copies
+        Cipher cipher = GCM_CIPHER.get();
+        GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_BITS, wrappedIvAndCiphertext, 0, GCM_IV_BYTES);
         cipher.init(Cipher.DECRYPT_MODE, masterKey, spec);
-        byte[] dek = cipher.doFinal(cipherBytes);
-
-        // zero temp buffers
-        Arrays.fill(iv, (byte) 0);
-        Arrays.fill(cipherBytes, (byte) 0);
-
-        return dek;
+        return cipher.doFinal(wrappedIvAndCiphertext, GCM_IV_BYTES, wrappedIvAndCiphertext.length - GCM_IV_BYTES);
     }
 
     /**
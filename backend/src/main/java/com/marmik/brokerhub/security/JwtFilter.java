@@ -43,13 +43,14 @@ public class JwtFilter extends OncePerRequestFilter {
                 // "Bearer " length is 7
                 String token = header.substring(7).trim();
 
-                if (jwtUtil.validateToken(token)) {
-                    Optional<String> userIdOpt = jwtUtil.getUserId(token);
+                // Single verification: signature, expiry and subject in one parse.
+                Optional<JwtUtil.VerifiedToken> verified = jwtUtil.verify(token);
 
-                    if (userIdOpt.isPresent()
-                            && SecurityContextHolder.getContext().getAuthentication() == null) {
+                if (verified.isPresent()) {
+                    String userId = verified.get().subject();
 
-                        String userId = userIdOpt.get();
+                    if (userId != null
+                            && SecurityContextHolder.getContext().getAuthentication() == null) {
 
                         // Minimal global authority: ROLE_USER
                         // Account-specific roles (ADMIN/MEMBER) are resolved at runtime per account
@@ -1,31 +1,70 @@
 package com.marmik.brokerhub.security;
 
+import com.marmik.brokerhub.cache.LocalTtlCache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.Optional;
 
 /**
  * JWT utility class — user-based (no account info).
  * sub = userId (UUID)
+ *
+ * Verification uses one prebuilt (immutable, thread-safe) parser. Recently
+ * verified tokens are remembered by SHA-256 digest until they expire, so a
+ * client polling with the same token pays for HMAC verification once.
+ * Only successfully verified tokens are cached.
  */
 @Component
 public class JwtUtil {
+    private static final int DEFAULT_VERIFIED_CACHE_ENTRIES = 10_000;
+    private static final Duration MAX_VERIFIED_CACHE_TTL = Duration.ofMinutes(5);
+
     private final Key key;
     private final long expirationMs;
+    private final JwtParser parser;
+    private final LocalTtlCache<String, VerifiedToken> verifiedCache;
+
+    /**
+     * Verified token contents needed by request authentication.
+     */
+    public record VerifiedToken(String subject, Instant expiresAt) {
+    }
 
+    public JwtUtil(String secret, long expirationMs) {
+        this(secret, expirationMs, DEFAULT_VERIFIED_CACHE_ENTRIES);
+    }
+
+    /**
+     * @param verifiedCacheEntries max tokens remembered as verified; 0 disables
+     *                             the cache
+     */
+    @Autowired
     public JwtUtil(@Value("${jwt.secret}") String secret,
-            @Value("${jwt.expiration-ms}") long expirationMs) {
+            @Value("${jwt.expiration-ms}") long expirationMs,
+            @Value("${jwt.verified-cache.max-entries:10000}") int verifiedCacheEntries) {
         if (secret == null || secret.length() < 32) {
             throw new IllegalArgumentException("jwt.secret must be at least 32 characters");
         }
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         this.expirationMs = expirationMs;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        this.verifiedCache = verifiedCacheEntries > 0
+                ? new LocalTtlCache<>(verifiedCacheEntries, MAX_VERIFIED_CACHE_TTL)
+                : null;
     }
 
     /**
@@ -44,30 +83,75 @@ public class JwtUtil {
     }
 
     public Jws<Claims> parseClaimsJws(String token) throws JwtException {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token);
+        return parser.parseClaimsJws(token);
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Verify signature and expiry once and return the token contents.
+     * Empty when the token is malformed, tampered with or expired.
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+
+        String digest = verifiedCache == null ? null : digest(token);
+        if (digest != null) {
+            VerifiedToken cached = verifiedCache.get(digest);
+            if (cached != null) {
+                if (isLive(cached, Instant.now())) {
+                    return Optional.of(cached);
+                }
+                verifiedCache.invalidate(digest);
+                return Optional.empty();
+            }
+        }
+
+        VerifiedToken verified;
         try {
-            parseClaimsJws(token);
-            return true;
+            Claims c = parseClaimsJws(token).getBody();
+            Date exp = c.getExpiration();
+            verified = new VerifiedToken(c.getSubject(), exp == null ? null : exp.toInstant());
         } catch (JwtException | IllegalArgumentException ex) {
-            return false;
+            return Optional.empty();
+        }
+
+        if (digest != null) {
+            verifiedCache.put(digest, verified, cacheTtl(verified, Instant.now()));
         }
+        return Optional.of(verified);
+    }
+
+    public boolean validateToken(String token) {
+        return verify(token).isPresent();
     }
 
     /**
      * Extract and return the userId from the JWT subject.
      */
     public Optional<String> getUserId(String token) {
+        return verify(token).map(VerifiedToken::subject);
+    }
+
+    private static boolean isLive(VerifiedToken t, Instant now) {
+        return t.expiresAt() == null || now.isBefore(t.expiresAt());
+    }
+
+    private static Duration cacheTtl(VerifiedToken t, Instant now) {
+        if (t.expiresAt() == null) {
+            return MAX_VERIFIED_CACHE_TTL;
+        }
+        Duration remaining = Duration.between(now, t.expiresAt());
+        return remaining.compareTo(MAX_VERIFIED_CACHE_TTL) < 0 ? remaining : MAX_VERIFIED_CACHE_TTL;
+    }
+
+    // Cache key: the raw bearer token is never kept as a map key.
+    private static String digest(String token) {
         try {
-            Claims c = parseClaimsJws(token).getBody();
-            return Optional.ofNullable(c.getSubject());
-        } catch (JwtException e) {
-            return Optional.empty();
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 }
@@ -1,7 +1,6 @@
 package com.marmik.brokerhub.service;
 
 import com.marmik.brokerhub.model.AccountMember;
-import com.marmik.brokerhub.repository.AccountMemberRepository;
 
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
@@ -11,14 +10,15 @@ import java.util.UUID;
 /**
  * Utility service for verifying user membership and roles within accounts.
  * Use this instead of repeating membership checks in every controller.
+ * Lookups go through AccountMembershipCache.
  */
 @Service
 public class AccountAccessValidator {
 
-    private final AccountMemberRepository memberRepo;
+    private final AccountMembershipCache membershipCache;
 
-    public AccountAccessValidator(AccountMemberRepository memberRepo) {
-        this.memberRepo = memberRepo;
+    public AccountAccessValidator(AccountMembershipCache membershipCache) {
+        this.membershipCache = membershipCache;
     }
 
     /**
@@ -26,7 +26,7 @@ public class AccountAccessValidator {
      * Throws AccessDeniedException if not.
      */
     public AccountMember requireMembership(UUID userId, UUID accountId) {
-        return memberRepo.findByUserIdAndAccountId(userId, accountId)
+        return membershipCache.find(userId, accountId)
                 .orElseThrow(
                         () -> new AccessDeniedException("User " + userId + " is not a member of account " + accountId));
     }
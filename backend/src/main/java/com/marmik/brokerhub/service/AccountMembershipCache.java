@@ -0,0 +1,118 @@
+package com.marmik.brokerhub.service;
+
+import com.marmik.brokerhub.cache.LocalTtlCache;
+import com.marmik.brokerhub.model.AccountMember;
+import com.marmik.brokerhub.repository.AccountMemberRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Membership lookups keyed by (userId, accountId).
+ *
+ * Two layers:
+ * - a per-request memo, so one HTTP call never resolves the same membership
+ * twice (misses included);
+ * - a bounded, short-TTL node-local cache of existing memberships, so repeated
+ * calls from the same user skip the database.
+ *
+ * AccountService invalidates entries on membership writes. Writes made on
+ * another node are only visible here once the TTL elapses, so keep it short.
+ * Returned entities are shared and must be treated as read-only.
+ */
+@Component
+public class AccountMembershipCache {
+
+    private static final String REQUEST_MEMO_ATTRIBUTE = AccountMembershipCache.class.getName() + ".memo";
+
+    private final AccountMemberRepository memberRepo;
+    private final LocalTtlCache<MembershipKey, AccountMember> cache;
+
+    private record MembershipKey(UUID userId, UUID accountId) {
+    }
+
+    public AccountMembershipCache(
+            AccountMemberRepository memberRepo,
+            @Value("${account.membership-cache.ttl-ms:15000}") long ttlMs,
+            @Value("${account.membership-cache.max-entries:10000}") int maxEntries) {
+        this.memberRepo = memberRepo;
+        this.cache = new LocalTtlCache<>(maxEntries, Duration.ofMillis(ttlMs));
+    }
+
+    public Optional<AccountMember> find(UUID userId, UUID accountId) {
+        MembershipKey key = new MembershipKey(userId, accountId);
+
+        Map<MembershipKey, Optional<AccountMember>> memo = requestMemo();
+        if (memo != null) {
+            Optional<AccountMember> seen = memo.get(key);
+            if (seen != null) {
+                return seen;
+            }
+        }
+
+        AccountMember cached = cache.get(key);
+        Optional<AccountMember> result;
+        if (cached != null) {
+            result = Optional.of(cached);
+        } else {
+            // Only positive results are shared across requests; a new member
+            // must be visible immediately.
+            result = memberRepo.findByUserIdAndAccountId(userId, accountId);
+            result.ifPresent(m -> cache.put(key, m));
+        }
+
+        if (memo != null) {
+            memo.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Drop a membership now and again after the surrounding transaction
+     * commits, so a concurrent read cannot re-cache the pre-change row.
+     */
+    public void invalidate(UUID userId, UUID accountId) {
+        MembershipKey key = new MembershipKey(userId, accountId);
+        evict(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(key);
+                }
+            });
+        }
+    }
+
+    private void evict(MembershipKey key) {
+        cache.invalidate(key);
+        Map<MembershipKey, Optional<AccountMember>> memo = requestMemo();
+        if (memo != null) {
+            memo.remove(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<MembershipKey, Optional<AccountMember>> requestMemo() {
+        RequestAttributes attrs = RequestContextHolder.getRequestAttributes();
+        if (attrs == null) {
+            return null;
+        }
+        Object memo = attrs.getAttribute(REQUEST_MEMO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null) {
+            memo = new ConcurrentHashMap<MembershipKey, Optional<AccountMember>>();
+            attrs.setAttribute(REQUEST_MEMO_ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return (Map<MembershipKey, Optional<AccountMember>>) memo;
+    }
+}
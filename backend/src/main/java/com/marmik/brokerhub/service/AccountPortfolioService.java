@@ -5,32 +5,66 @@ import com.marmik.brokerhub.dto.AggregatedPosition;
 import com.marmik.brokerhub.broker.dto.HoldingItem;
 import com.marmik.brokerhub.broker.dto.PositionItem;
 import com.marmik.brokerhub.broker.core.BrokerClient;
+import com.marmik.brokerhub.concurrent.CancellationScope;
+import com.marmik.brokerhub.concurrent.Futures;
+import com.marmik.brokerhub.http.Deadline;
+import com.marmik.brokerhub.http.DeadlineExceededException;
+import com.marmik.brokerhub.instrument.InstrumentMaster;
 import com.marmik.brokerhub.model.AccountMember;
 import com.marmik.brokerhub.model.BrokerCredential;
 import com.marmik.brokerhub.repository.AccountMemberRepository;
 import com.marmik.brokerhub.repository.BrokerCredentialRepository;
+import com.marmik.brokerhub.resilience.BrokerCallGuard;
+import com.marmik.brokerhub.resilience.BrokerHedgingPolicy;
+import com.marmik.brokerhub.resilience.BrokerRateLimiter;
+import com.marmik.brokerhub.resilience.BrokerUnavailableException;
 
 import lombok.RequiredArgsConstructor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import org.springframework.core.task.TaskExecutor;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 /**
  * Aggregates holdings and positions across all members in an account.
  *
  * Design notes:
- * - Fetches broker data concurrently with a bounded executor.
+ * - Fetches broker data concurrently: token decryption runs on a bounded
+ * executor, broker calls go through the async BrokerClient API so
+ * non-blocking adapters hold no thread while waiting on the broker.
+ * - Broker calls run under BrokerCallGuard (circuit breaker + adaptive
+ * concurrency limit); when a broker is failing or shedding load, holdings
+ * fall back to the last known good copy instead of waiting on the broker.
+ * - Calls are paced by BrokerRateLimiter to stay inside the broker's request
+ * limits; a call that cannot get budget in time is treated like a rejected
+ * one.
+ * - Every request carries a Deadline down to each broker and market-data
+ * call. Work that cannot start in time is skipped, and credentials cut off
+ * by the deadline are listed under "cutOff" in the response.
+ * - Aggregation can run asynchronously; cancelling the returned future (e.g.
+ * when the HTTP client disconnects) cancels outstanding broker calls.
+ * - Optionally hedges slow broker reads (BrokerHedgingPolicy) so one stalled
+ * connection does not decide the latency of the whole fan-out.
+ * - Items from brokers without live prices are priced after the fan-out, in
+ * one PriceEnrichmentService call for the whole account, so credentials
+ * holding the same symbols do not each call the market-data service.
+ * - Items are grouped per instrument resolved by InstrumentMaster, so the
+ * same listing spelled differently by two brokers is one row; with
+ * portfolio.aggregation.merge-by-isin, NSE and BSE lines of one ISIN are
+ * merged too.
  * - Uses BrokerCredentialService for authorization + token decryption.
  * - Applies member privacy rules before producing caller-visible output.
+ * What those rules need is copied out of the AccountMember entities on the
+ * request thread (MemberView); the async stages never touch an entity.
  * - Avoids logging secret values and zeroes decrypted token bytes after use.
  */
 @Service
@@ -41,6 +75,7 @@ public class AccountPortfolioService {
     private static final Map<String, Object> EMPTY = Map.of(
             "full", Collections.emptyList(),
             "partial", Collections.emptyList());
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
 
     private final AccountMemberRepository memberRepo;
     private final BrokerCredentialRepository credentialRepo;
@@ -48,24 +83,63 @@ public class AccountPortfolioService {
     private final BrokerHoldingsCacheService holdingsCacheService;
     private final List<BrokerClient> brokerClients;
     private final TaskExecutor taskExecutor;
+    private final BrokerCallGuard callGuard;
+    private final BrokerRateLimiter rateLimiter;
+    private final BrokerHedgingPolicy hedgingPolicy;
+    private final PriceEnrichmentService priceEnrichment;
+    private final InstrumentMaster instruments;
+
+    @Value("${portfolio.aggregation.merge-by-isin:false}")
+    private boolean mergeByIsin;
+
+    @FunctionalInterface
+    private interface AsyncBrokerCall<T> {
+        CompletableFuture<List<T>> call(BrokerClient client, String token, Executor executor, Deadline deadline);
+    }
+
+    /**
+     * The parts of an AccountMember that aggregation needs, read on the
+     * request thread while the persistence context is still open.
+     */
+    private record MemberView(UUID id, UUID userId, String role, PrivacyLevel privacy) {
+    }
 
     private static final class CredentialBundle {
         final List<BrokerCredential> creds;
-        final Map<UUID, AccountMember> credOwner;
+        // Credential id -> owning member id.
+        final Map<UUID, UUID> credOwner;
 
-        private CredentialBundle(List<BrokerCredential> creds, Map<UUID, AccountMember> credOwner) {
+        private CredentialBundle(List<BrokerCredential> creds, Map<UUID, UUID> credOwner) {
             this.creds = creds;
             this.credOwner = credOwner;
         }
     }
 
     private static final class MemberItems<T> {
-        final AccountMember member;
+        final UUID memberId;
         final List<T> items;
+        final boolean cutOff;
+        final boolean unpriced;
 
-        private MemberItems(AccountMember member, List<T> items) {
-            this.member = member;
+        private MemberItems(UUID memberId, List<T> items, boolean cutOff, boolean unpriced) {
+            this.memberId = memberId;
             this.items = items;
+            this.cutOff = cutOff;
+            this.unpriced = unpriced;
+        }
+    }
+
+    private static final class FetchResult<T> {
+        // Keyed by member id.
+        final Map<UUID, List<T>> byMember;
+        final List<UUID> cutOff;
+        // Items (shared with byMember) still to be priced from market data.
+        final List<T> unpriced;
+
+        private FetchResult(Map<UUID, List<T>> byMember, List<UUID> cutOff, List<T> unpriced) {
+            this.byMember = byMember;
+            this.cutOff = cutOff;
+            this.unpriced = unpriced;
         }
     }
 
@@ -86,7 +160,7 @@ public class AccountPortfolioService {
     }
 
     private CredentialBundle collectCredentials(List<AccountMember> members) {
-        Map<UUID, AccountMember> credOwner = new HashMap<>();
+        Map<UUID, UUID> credOwner = new HashMap<>();
         List<BrokerCredential> creds = new ArrayList<>();
 
         for (AccountMember m : members) {
@@ -95,7 +169,7 @@ public class AccountPortfolioService {
                 if (list != null) {
                     creds.addAll(list);
                     for (BrokerCredential bc : list) {
-                        credOwner.put(bc.getCredentialId(), m);
+                        credOwner.put(bc.getCredentialId(), m.getId());
                     }
                 }
             } catch (Exception ex) {
@@ -106,78 +180,163 @@ public class AccountPortfolioService {
         return new CredentialBundle(creds, credOwner);
     }
 
-    private <R> List<R> awaitAll(List<CompletableFuture<R>> futures, long timeout, TimeUnit unit) {
-        List<R> fetched = new ArrayList<>();
-
-        try {
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(timeout, unit);
+    /**
+     * Completes with the successful results once every future is done or the
+     * deadline passes, whichever comes first. Work still running at the
+     * deadline is cancelled, down to the broker calls registered in scope.
+     */
+    private <R> CompletableFuture<List<R>> awaitAll(
+            List<CompletableFuture<R>> futures,
+            Deadline deadline,
+            CancellationScope scope) {
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        if (deadline.isBounded()) {
+            all = all.orTimeout(Math.max(1, deadline.remaining().toMillis()), TimeUnit.MILLISECONDS);
+        }
+        return all.handle((ignored, error) -> {
+            List<R> fetched = new ArrayList<>();
+            boolean timedOut = false;
             for (CompletableFuture<R> cf : futures) {
-                try {
+                if (!cf.isDone()) {
+                    timedOut = true;
+                    cf.cancel(true);
+                } else if (!cf.isCompletedExceptionally()) {
                     R r = cf.getNow(null);
                     if (r != null) {
                         fetched.add(r);
                     }
-                } catch (Exception ignored) {
                 }
             }
-            return fetched;
-        } catch (Exception ex) {
-            for (CompletableFuture<R> cf : futures) {
-                if (cf.isDone() && !cf.isCompletedExceptionally()) {
-                    try {
-                        R r = cf.get();
-                        if (r != null) {
-                            fetched.add(r);
-                        }
-                    } catch (Exception ignored) {
-                    }
-                }
+            if (timedOut) {
+                scope.cancel();
             }
-            futures.forEach(f -> {
-                if (!f.isDone()) {
-                    f.cancel(true);
-                }
-            });
             return fetched;
+        });
+    }
+
+    /**
+     * Credentials whose fetch was still running at the deadline (and was
+     * cancelled) or was skipped / cut short because of it.
+     */
+    private <T> List<UUID> cutOffCredentials(
+            List<BrokerCredential> creds,
+            List<CompletableFuture<MemberItems<T>>> futures) {
+        List<UUID> cutOff = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<MemberItems<T>> f = futures.get(i);
+            MemberItems<T> mi = f.isDone() && !f.isCompletedExceptionally() ? f.getNow(null) : null;
+            if (mi == null || mi.cutOff) {
+                cutOff.add(creds.get(i).getCredentialId());
+            }
         }
+        return cutOff;
     }
 
-    private <T> Map<AccountMember, List<T>> groupByMember(List<? extends MemberItems<T>> fetched) {
-        Map<AccountMember, List<T>> byMember = new HashMap<>();
+    private <T> Map<UUID, List<T>> groupByMember(List<? extends MemberItems<T>> fetched) {
+        Map<UUID, List<T>> byMember = new HashMap<>();
         for (MemberItems<T> mi : fetched) {
-            if (mi == null || mi.member == null) {
+            if (mi == null || mi.memberId == null) {
                 continue;
             }
-            byMember.computeIfAbsent(mi.member, k -> new ArrayList<>())
+            byMember.computeIfAbsent(mi.memberId, k -> new ArrayList<>())
                     .addAll(mi.items);
         }
         return byMember;
     }
 
-    private <T> List<T> fetchItems(
+    /**
+     * Wait for rate-limit budget, decrypt the credential's token on the
+     * executor, then hand it to the broker's async call under the call guard.
+     *
+     * Completes exceptionally only when the broker call itself failed, was
+     * rejected by the guard or the rate limiter, or the deadline passed before
+     * it could start; a token that cannot be decrypted yields an empty list.
+     * The broker call is registered in scope so the request can cancel it.
+     */
+    private <T> CompletableFuture<List<T>> fetchItems(
             BrokerCredential cred,
             UUID callerUserId,
-            BiFunction<BrokerClient, String, List<T>> brokerCall) {
+            AsyncBrokerCall<T> brokerCall,
+            Deadline deadline,
+            CancellationScope scope) {
+        UUID credId = cred.getCredentialId();
+        if (scope.isCancelled()) {
+            return CompletableFuture.failedFuture(new CancellationException());
+        }
+        if (deadline.isExpired()) {
+            return CompletableFuture.failedFuture(deadlineExceeded(credId));
+        }
+        if (!callGuard.isCallPermitted(cred.getBroker(), credId)) {
+            return CompletableFuture.failedFuture(
+                    new BrokerUnavailableException("Broker " + cred.getBroker() + " unavailable"));
+        }
+
+        return rateLimiter.acquire(cred.getBroker(), credId, taskExecutor, deadline.remaining())
+                .thenApplyAsync(ignored -> {
+                    if (scope.isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    if (deadline.isExpired()) {
+                        throw deadlineExceeded(credId);
+                    }
+                    return decryptToken(cred, callerUserId);
+                }, taskExecutor)
+                .thenCompose(token -> {
+                    if (token == null) {
+                        return CompletableFuture.completedFuture(Collections.<T>emptyList());
+                    }
+                    BrokerClient client = findClientForBroker(cred.getBroker());
+                    if (client == null) {
+                        log.warn("No broker client for broker {}", cred.getBroker());
+                        return CompletableFuture.completedFuture(Collections.<T>emptyList());
+                    }
+                    if (deadline.isExpired()) {
+                        return CompletableFuture.failedFuture(deadlineExceeded(credId));
+                    }
+                    // Every attempt, hedge included, takes its own guard permit; a hedge
+                    // is only sent if a rate-limit token is available right away.
+                    return scope.register(hedgingPolicy.execute(cred.getBroker(),
+                            () -> callGuard.execute(cred.getBroker(), credId,
+                                    () -> brokerCall.call(client, token, taskExecutor, deadline)),
+                            () -> rateLimiter.acquire(cred.getBroker(), credId, taskExecutor, Duration.ZERO)));
+                })
+                .thenApply(out -> out == null ? Collections.<T>emptyList() : out);
+    }
+
+    private <T> List<T> emptyOnFailure(BrokerCredential cred, Throwable error) {
+        logFetchFailure(cred, error);
+        return Collections.emptyList();
+    }
+
+    private static DeadlineExceededException deadlineExceeded(UUID credId) {
+        return new DeadlineExceededException("Deadline passed before fetching credential " + credId);
+    }
+
+    private static boolean isDeadlineExceeded(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof DeadlineExceededException || cause instanceof CancellationException;
+    }
+
+    private void logFetchFailure(BrokerCredential cred, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof BrokerUnavailableException || cause instanceof DeadlineExceededException) {
+            log.debug("Skipped broker call for credential {}: {}", safeIdString(cred), cause.getMessage());
+        } else {
+            log.warn("Failed to fetch data for credential {}", safeIdString(cred));
+        }
+    }
+
+    private String decryptToken(BrokerCredential cred, UUID callerUserId) {
         byte[] plain = null;
         try {
-            UUID credId = cred.getCredentialId();
-            plain = credentialService.decryptCredentialToken(callerUserId, credId);
+            plain = credentialService.decryptCredentialToken(callerUserId, cred.getCredentialId());
             if (plain == null || plain.length == 0) {
-                return Collections.emptyList();
+                return null;
             }
-
-            String token = new String(plain, StandardCharsets.UTF_8);
-            BrokerClient client = findClientForBroker(cred.getBroker());
-            if (client == null) {
-                log.warn("No broker client for broker {}", cred.getBroker());
-                return Collections.emptyList();
-            }
-
-            List<T> out = brokerCall.apply(client, token);
-            return out == null ? Collections.emptyList() : out;
+            return new String(plain, StandardCharsets.UTF_8);
         } catch (Exception e) {
-            log.warn("Failed to fetch data for credential {}", safeIdString(cred));
-            return Collections.emptyList();
+            log.warn("Failed to decrypt token for credential {}", safeIdString(cred));
+            return null;
         } finally {
             if (plain != null) {
                 Arrays.fill(plain, (byte) 0);
@@ -185,93 +344,155 @@ public class AccountPortfolioService {
         }
     }
 
-    private <T> Map<AccountMember, List<T>> fetchByMember(
+    private <T> CompletableFuture<FetchResult<T>> fetchByMember(
             List<BrokerCredential> creds,
-            Map<UUID, AccountMember> credOwner,
+            Map<UUID, UUID> credOwner,
             UUID callerUserId,
-            BiFunction<BrokerClient, String, List<T>> brokerCall) {
+            AsyncBrokerCall<T> brokerCall,
+            Deadline deadline,
+            CancellationScope scope) {
 
         List<CompletableFuture<MemberItems<T>>> futures = new ArrayList<>();
 
         for (BrokerCredential cred : creds) {
-            futures.add(CompletableFuture.supplyAsync(() -> {
-                UUID credId = cred.getCredentialId();
-                List<T> items = fetchItems(cred, callerUserId, brokerCall);
-                return new MemberItems<>(credOwner.get(credId), items);
-            }, taskExecutor));
+            UUID owner = credOwner.get(cred.getCredentialId());
+            boolean unpriced = requiresPriceEnrichment(cred);
+            futures.add(fetchItems(cred, callerUserId, brokerCall, deadline, scope)
+                    .handle((items, error) -> error == null
+                            ? new MemberItems<>(owner, items, false, unpriced)
+                            : new MemberItems<>(owner, emptyOnFailure(cred, error), isDeadlineExceeded(error),
+                                    unpriced)));
         }
 
-        List<MemberItems<T>> fetched = awaitAll(futures, 30, TimeUnit.SECONDS);
-        if (fetched.isEmpty()) {
-            return Collections.emptyMap();
-        }
-
-        return groupByMember(fetched);
+        return collect(creds, futures, deadline, scope);
     }
 
-    private List<HoldingItem> fetchHoldingsWithCache(BrokerCredential cred, UUID callerUserId) {
+    private CompletableFuture<MemberItems<HoldingItem>> fetchHoldingsWithCache(
+            BrokerCredential cred,
+            UUID owner,
+            UUID callerUserId,
+            Deadline deadline,
+            CancellationScope scope) {
         UUID credId = cred.getCredentialId();
-        Optional<List<HoldingItem>> cached = holdingsCacheService.getCachedHoldings(cred.getBroker(), credId);
-        if (cached.isPresent()) {
-            return cached.get();
-        }
-
-        List<HoldingItem> fetched = fetchItems(cred, callerUserId, BrokerClient::getHoldings);
-        if (fetched != null && !fetched.isEmpty()) {
-            holdingsCacheService.cacheHoldings(cred.getBroker(), credId, fetched);
-        }
-        return fetched == null ? Collections.emptyList() : fetched;
+        boolean unpriced = requiresPriceEnrichment(cred);
+        return CompletableFuture
+                .supplyAsync(() -> holdingsCacheService.getCachedHoldings(cred.getBroker(), credId), taskExecutor)
+                .thenCompose(cached -> {
+                    if (cached.isPresent()) {
+                        return CompletableFuture.completedFuture(
+                                new MemberItems<>(owner, cached.get(), false, unpriced));
+                    }
+                    return fetchItems(cred, callerUserId, BrokerClient::getHoldingsAsync, deadline, scope)
+                            .handleAsync((fetched, error) -> {
+                                if (error == null) {
+                                    if (!fetched.isEmpty()) {
+                                        holdingsCacheService.cacheHoldings(cred.getBroker(), credId, fetched);
+                                    }
+                                    return new MemberItems<>(owner, fetched, false, unpriced);
+                                }
+                                logFetchFailure(cred, error);
+                                if (scope.isCancelled()) {
+                                    return new MemberItems<>(owner, Collections.<HoldingItem>emptyList(), true,
+                                            unpriced);
+                                }
+                                List<HoldingItem> stale = holdingsCacheService.getStaleHoldings(cred.getBroker(), credId)
+                                        .orElse(Collections.emptyList());
+                                return new MemberItems<>(owner, stale, isDeadlineExceeded(error), unpriced);
+                            }, taskExecutor);
+                });
     }
 
-    private Map<AccountMember, List<HoldingItem>> fetchHoldingsByMember(
+    private CompletableFuture<FetchResult<HoldingItem>> fetchHoldingsByMember(
             List<BrokerCredential> creds,
-            Map<UUID, AccountMember> credOwner,
-            UUID callerUserId) {
+            Map<UUID, UUID> credOwner,
+            UUID callerUserId,
+            Deadline deadline,
+            CancellationScope scope) {
 
         List<CompletableFuture<MemberItems<HoldingItem>>> futures = new ArrayList<>();
 
         for (BrokerCredential cred : creds) {
-            futures.add(CompletableFuture.supplyAsync(() -> {
-                UUID credId = cred.getCredentialId();
-                List<HoldingItem> items = fetchHoldingsWithCache(cred, callerUserId);
-                return new MemberItems<>(credOwner.get(credId), items);
-            }, taskExecutor));
+            UUID owner = credOwner.get(cred.getCredentialId());
+            futures.add(fetchHoldingsWithCache(cred, owner, callerUserId, deadline, scope));
         }
 
-        List<MemberItems<HoldingItem>> fetched = awaitAll(futures, 30, TimeUnit.SECONDS);
-        if (fetched.isEmpty()) {
-            return Collections.emptyMap();
+        return collect(creds, futures, deadline, scope);
+    }
+
+    private <T> CompletableFuture<FetchResult<T>> collect(
+            List<BrokerCredential> creds,
+            List<CompletableFuture<MemberItems<T>>> futures,
+            Deadline deadline,
+            CancellationScope scope) {
+        return awaitAll(futures, deadline, scope).thenApply(fetched -> {
+            List<UUID> cutOff = cutOffCredentials(creds, futures);
+            if (fetched.isEmpty()) {
+                return new FetchResult<T>(Collections.emptyMap(), cutOff, Collections.emptyList());
+            }
+            List<T> unpriced = new ArrayList<>();
+            for (MemberItems<T> mi : fetched) {
+                if (mi.unpriced && mi.memberId != null) {
+                    unpriced.addAll(mi.items);
+                }
+            }
+            return new FetchResult<>(groupByMember(fetched), cutOff, unpriced);
+        });
+    }
+
+    /**
+     * Adds the cut-off credential ids to a response, leaving it unchanged
+     * when every credential finished in time.
+     */
+    private static Map<String, Object> withCutOff(Map<String, Object> result, List<UUID> cutOff) {
+        if (cutOff.isEmpty()) {
+            return result;
         }
+        Map<String, Object> out = new LinkedHashMap<>(result);
+        out.put("cutOff", cutOff);
+        return out;
+    }
 
-        return groupByMember(fetched);
+    /**
+     * Copy what aggregation needs out of the member entities, keyed by
+     * member id. Must run on the request thread.
+     */
+    private Map<UUID, MemberView> memberViews(List<AccountMember> members) {
+        Map<UUID, MemberView> views = new HashMap<>();
+        for (AccountMember m : members) {
+            views.put(m.getId(), new MemberView(m.getId(), m.getUser().getId(), m.getRole(),
+                    extractPrivacyLevel(m.getRules())));
+        }
+        return views;
     }
 
-    private AccountMember findCallerMember(List<AccountMember> members, UUID callerUserId) {
-        return members.stream()
-                .filter(m -> m.getUser().getId().equals(callerUserId))
+    private MemberView findCallerMember(Map<UUID, MemberView> members, UUID callerUserId) {
+        return members.values().stream()
+                .filter(m -> m.userId().equals(callerUserId))
                 .findFirst()
                 .orElse(null);
     }
 
-    private boolean isAdmin(AccountMember callerMember) {
-        String callerRole = callerMember == null ? "MEMBER" : callerMember.getRole();
+    private boolean isAdmin(MemberView callerMember) {
+        String callerRole = callerMember == null ? "MEMBER" : callerMember.role();
         return "ADMIN".equalsIgnoreCase(callerRole);
     }
 
     private <T> VisibilityResult<T> applyPrivacyRules(
-            Map<AccountMember, List<T>> byMember,
-            AccountMember callerMember,
+            Map<UUID, List<T>> byMember,
+            Map<UUID, MemberView> members,
+            MemberView callerMember,
             java.util.function.Function<T, String> symbolExtractor) {
 
         List<T> fullInput = new ArrayList<>();
         Set<String> partialTickers = new HashSet<>();
+        UUID callerMemberId = callerMember == null ? null : callerMember.id();
 
-        for (Map.Entry<AccountMember, List<T>> entry : byMember.entrySet()) {
-            AccountMember m = entry.getKey();
+        for (Map.Entry<UUID, List<T>> entry : byMember.entrySet()) {
+            MemberView m = members.get(entry.getKey());
             List<T> items = entry.getValue();
 
-            PrivacyLevel privacy = extractPrivacyLevel(m.getRules());
-            boolean detailedForCaller = m.equals(callerMember) || privacy == PrivacyLevel.DETAILED;
+            PrivacyLevel privacy = m == null ? PrivacyLevel.PRIVATE : m.privacy();
+            boolean detailedForCaller = entry.getKey().equals(callerMemberId) || privacy == PrivacyLevel.DETAILED;
 
             if (detailedForCaller) {
                 fullInput.addAll(items);
@@ -293,36 +514,70 @@ public class AccountPortfolioService {
 
     // ---------- Holdings flow ----------
     public Map<String, Object> aggregateHoldingsForAccount(UUID accountId, UUID callerUserId) {
+        return aggregateHoldingsForAccount(accountId, callerUserId, Deadline.after(DEFAULT_TIMEOUT));
+    }
+
+    /**
+     * Aggregate holdings, giving up on credentials that cannot be fetched
+     * before deadline; those are reported under "cutOff".
+     */
+    public Map<String, Object> aggregateHoldingsForAccount(UUID accountId, UUID callerUserId, Deadline deadline) {
+        return join(aggregateHoldingsForAccountAsync(accountId, callerUserId, deadline));
+    }
+
+    /**
+     * Non-blocking variant: members and credentials are loaded on the calling
+     * thread, the broker fan-out completes the returned future. Cancelling it
+     * cancels every outstanding broker call for this request.
+     */
+    public CompletableFuture<Map<String, Object>> aggregateHoldingsForAccountAsync(
+            UUID accountId,
+            UUID callerUserId,
+            Deadline deadline) {
 
         // 1) Load members.
         List<AccountMember> members = memberRepo.findByAccountId(accountId);
         if (members.isEmpty()) {
-            return EMPTY;
+            return CompletableFuture.completedFuture(EMPTY);
         }
 
         // 2) Load broker credentials and map each credential to its owner member.
         CredentialBundle bundle = collectCredentials(members);
-        List<BrokerCredential> creds = bundle.creds;
-        Map<UUID, AccountMember> credOwner = bundle.credOwner;
-
-        if (creds.isEmpty()) {
-            return EMPTY;
+        if (bundle.creds.isEmpty()) {
+            return CompletableFuture.completedFuture(EMPTY);
         }
 
-        // 3) Fetch holdings concurrently and regroup by member.
-        Map<AccountMember, List<HoldingItem>> byMember = fetchHoldingsByMember(
-                creds,
-                credOwner,
-                callerUserId);
+        // 3) Copy member details for the privacy rules and resolve caller membership.
+        Map<UUID, MemberView> memberViews = memberViews(members);
+        MemberView callerMember = findCallerMember(memberViews, callerUserId);
+
+        // 4) Fetch holdings concurrently and regroup by member.
+        CancellationScope scope = new CancellationScope();
+        CompletableFuture<Map<String, Object>> result = fetchHoldingsByMember(
+                bundle.creds,
+                bundle.credOwner,
+                callerUserId,
+                deadline,
+                scope)
+                .thenApplyAsync(fetched -> {
+                    // 5) Price items from every credential in one market-data lookup.
+                    priceEnrichment.enrichHoldings(fetched.unpriced, deadline);
+                    return holdingsResponse(fetched, memberViews, callerMember);
+                }, taskExecutor);
+        return Futures.onCancel(result, scope::cancel);
+    }
+
+    private Map<String, Object> holdingsResponse(
+            FetchResult<HoldingItem> fetched,
+            Map<UUID, MemberView> members,
+            MemberView callerMember) {
+        Map<UUID, List<HoldingItem>> byMember = fetched.byMember;
 
         if (byMember.isEmpty()) {
-            return EMPTY;
+            return withCutOff(EMPTY, fetched.cutOff);
         }
 
-        // 4) Resolve caller membership in this account.
-        AccountMember callerMember = findCallerMember(members, callerUserId);
-
-        // 5) Admins see full data for everyone.
+        // Admins see full data for everyone.
         if (isAdmin(callerMember)) {
 
             // Flatten all holdings before aggregation.
@@ -334,18 +589,19 @@ public class AccountPortfolioService {
             // Aggregate full holdings.
             List<AggregatedHolding> aggregated = aggregateHoldings(all);
 
-            return Map.of(
+            return withCutOff(Map.of(
                     "full", aggregated,
-                    "partial", Collections.emptyList());
+                    "partial", Collections.emptyList()), fetched.cutOff);
         }
 
-        // 6) Non-admins are filtered by privacy rules.
+        // Non-admins are filtered by privacy rules.
         VisibilityResult<HoldingItem> visible = applyPrivacyRules(
                 byMember,
+                members,
                 callerMember,
-                HoldingItem::getTradingSymbol);
+                this::holdingSymbol);
 
-        // 7) Aggregate only caller-visible full items.
+        // Aggregate only caller-visible full items.
         List<AggregatedHolding> aggregatedFull = aggregateHoldings(visible.fullItems);
 
         // Preserve response contract: full aggregated data + partial symbols.
@@ -353,42 +609,75 @@ public class AccountPortfolioService {
                 "full", aggregatedFull,
                 "partial", visible.partialTickers);
 
-        return finalResult;
+        return withCutOff(finalResult, fetched.cutOff);
     }
 
     // ---------- Positions flow (same pipeline as holdings) ----------
     public Map<String, Object> aggregatePositionsForAccount(UUID accountId, UUID callerUserId) {
+        return aggregatePositionsForAccount(accountId, callerUserId, Deadline.after(DEFAULT_TIMEOUT));
+    }
+
+    /**
+     * Aggregate positions, giving up on credentials that cannot be fetched
+     * before deadline; those are reported under "cutOff".
+     */
+    public Map<String, Object> aggregatePositionsForAccount(UUID accountId, UUID callerUserId, Deadline deadline) {
+        return join(aggregatePositionsForAccountAsync(accountId, callerUserId, deadline));
+    }
+
+    /**
+     * Non-blocking variant of aggregatePositionsForAccount; cancelling the
+     * returned future cancels every outstanding broker call for this request.
+     */
+    public CompletableFuture<Map<String, Object>> aggregatePositionsForAccountAsync(
+            UUID accountId,
+            UUID callerUserId,
+            Deadline deadline) {
 
         // 1) Load members.
         List<AccountMember> members = memberRepo.findByAccountId(accountId);
         if (members.isEmpty()) {
-            return EMPTY;
+            return CompletableFuture.completedFuture(EMPTY);
         }
 
         // 2) Load broker credentials and map each credential to its owner member.
         CredentialBundle bundle = collectCredentials(members);
-        List<BrokerCredential> creds = bundle.creds;
-        Map<UUID, AccountMember> credOwner = bundle.credOwner;
-
-        if (creds.isEmpty()) {
-            return EMPTY;
+        if (bundle.creds.isEmpty()) {
+            return CompletableFuture.completedFuture(EMPTY);
         }
 
-        // 3) Fetch positions concurrently and regroup by member.
-        Map<AccountMember, List<PositionItem>> byMember = fetchByMember(
-                creds,
-                credOwner,
+        // 3) Copy member details for the privacy rules and resolve caller membership.
+        Map<UUID, MemberView> memberViews = memberViews(members);
+        MemberView callerMember = findCallerMember(memberViews, callerUserId);
+
+        // 4) Fetch positions concurrently and regroup by member.
+        CancellationScope scope = new CancellationScope();
+        CompletableFuture<Map<String, Object>> result = fetchByMember(
+                bundle.creds,
+                bundle.credOwner,
                 callerUserId,
-                BrokerClient::getPositions);
+                BrokerClient::getPositionsAsync,
+                deadline,
+                scope)
+                .thenApplyAsync(fetched -> {
+                    // 5) Price items from every credential in one market-data lookup.
+                    priceEnrichment.enrichPositions(fetched.unpriced, deadline);
+                    return positionsResponse(fetched, memberViews, callerMember);
+                }, taskExecutor);
+        return Futures.onCancel(result, scope::cancel);
+    }
+
+    private Map<String, Object> positionsResponse(
+            FetchResult<PositionItem> fetched,
+            Map<UUID, MemberView> members,
+            MemberView callerMember) {
+        Map<UUID, List<PositionItem>> byMember = fetched.byMember;
 
         if (byMember.isEmpty()) {
-            return EMPTY;
+            return withCutOff(EMPTY, fetched.cutOff);
         }
 
-        // 4) Resolve caller membership.
-        AccountMember callerMember = findCallerMember(members, callerUserId);
-
-        // 5) Admins see full data for everyone.
+        // Admins see full data for everyone.
         if (isAdmin(callerMember)) {
 
             List<PositionItem> all = new ArrayList<>();
@@ -398,22 +687,38 @@ public class AccountPortfolioService {
 
             List<AggregatedPosition> aggregated = aggregatePositions(all);
 
-            return Map.of(
+            return withCutOff(Map.of(
                     "full", aggregated,
-                    "partial", Collections.emptyList());
+                    "partial", Collections.emptyList()), fetched.cutOff);
         }
 
-        // 6) Non-admins are filtered by privacy rules.
+        // Non-admins are filtered by privacy rules.
         VisibilityResult<PositionItem> visible = applyPrivacyRules(
                 byMember,
+                members,
                 callerMember,
-                PositionItem::getTradingSymbol);
+                this::positionSymbol);
 
         List<AggregatedPosition> aggregatedFull = aggregatePositions(visible.fullItems);
 
-        return Map.of(
+        return withCutOff(Map.of(
                 "full", aggregatedFull,
-                "partial", visible.partialTickers);
+                "partial", visible.partialTickers), fetched.cutOff);
+    }
+
+    /**
+     * Wait for an async aggregation, rethrowing its failure unwrapped.
+     */
+    private static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = Futures.unwrap(ex);
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw ex;
+        }
     }
 
     /**
@@ -449,12 +754,15 @@ public class AccountPortfolioService {
         Map<String, Accumulator> acc = new HashMap<>();
 
         for (HoldingItem h : list) {
-            String key = (h.getExchange() == null ? "" : h.getExchange()) + "::" + h.getTradingSymbol();
+            int id = instruments.resolve(h.getExchange(), h.getTradingSymbol(), null, h.getIsin());
+            String exchange = exchangeOf(id, h.getExchange());
+            String symbol = symbolOf(id, h.getTradingSymbol());
+            String isin = id >= 0 ? instruments.isin(id) : h.getIsin();
 
-            Accumulator a = acc.computeIfAbsent(key,
-                    k -> new Accumulator(h.getExchange(), h.getTradingSymbol(), h.getIsin()));
+            Accumulator a = acc.computeIfAbsent(aggregationKey(exchange, symbol, isin),
+                    k -> new Accumulator(exchange, symbol, isin));
 
-            a.add(h);
+            a.add(h, exchange);
         }
 
         return acc.values().stream()
@@ -470,12 +778,15 @@ public class AccountPortfolioService {
         Map<String, PositionAccumulator> acc = new HashMap<>();
 
         for (PositionItem p : list) {
-            String key = (p.getExchange() == null ? "" : p.getExchange()) + "::" + p.getTradingSymbol();
+            int id = instruments.resolve(p.getExchange(), p.getTradingSymbol(), p.getSecurityId(), null);
+            String exchange = exchangeOf(id, p.getExchange());
+            String symbol = symbolOf(id, p.getTradingSymbol());
+            String isin = id >= 0 ? instruments.isin(id) : null;
 
-            PositionAccumulator a = acc.computeIfAbsent(key,
-                    k -> new PositionAccumulator(p.getExchange(), p.getTradingSymbol()));
+            PositionAccumulator a = acc.computeIfAbsent(aggregationKey(exchange, symbol, isin),
+                    k -> new PositionAccumulator(exchange, symbol));
 
-            a.add(p);
+            a.add(p, exchange);
         }
 
         return acc.values().stream()
@@ -483,6 +794,50 @@ public class AccountPortfolioService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Group key: the ISIN in merge-by-isin mode when known, otherwise the
+     * normalized listing.
+     */
+    private String aggregationKey(String exchange, String symbol, String isin) {
+        if (mergeByIsin && isin != null && !isin.isBlank()) {
+            return isin;
+        }
+        return exchange + "::" + symbol;
+    }
+
+    // Normalized exchange; items not tied to one exchange (e.g. "ALL") take
+    // the instrument's primary listing.
+    private String exchangeOf(int id, String brokerExchange) {
+        String exchange = InstrumentMaster.normalizeExchange(brokerExchange);
+        if (id >= 0 && isUnspecifiedExchange(exchange)) {
+            return instruments.exchange(id);
+        }
+        return exchange;
+    }
+
+    private String symbolOf(int id, String brokerSymbol) {
+        String symbol = id >= 0 ? instruments.symbol(id) : null;
+        return symbol != null ? symbol : InstrumentMaster.normalizeSymbol(brokerSymbol);
+    }
+
+    /**
+     * Symbol a holding is listed under in aggregated output, so partial
+     * tickers match the symbols of full rows.
+     */
+    private String holdingSymbol(HoldingItem h) {
+        int id = instruments.resolve(h.getExchange(), h.getTradingSymbol(), null, h.getIsin());
+        return symbolOf(id, h.getTradingSymbol());
+    }
+
+    private String positionSymbol(PositionItem p) {
+        int id = instruments.resolve(p.getExchange(), p.getTradingSymbol(), p.getSecurityId(), null);
+        return symbolOf(id, p.getTradingSymbol());
+    }
+
+    private static boolean isUnspecifiedExchange(String exchange) {
+        return exchange.isEmpty() || "ALL".equals(exchange);
+    }
+
     // Resolves broker implementation from injected broker clients.
     private BrokerClient findClientForBroker(String broker) {
         if (broker == null)
@@ -499,6 +854,11 @@ public class AccountPortfolioService {
         return null;
     }
 
+    private boolean requiresPriceEnrichment(BrokerCredential cred) {
+        BrokerClient client = findClientForBroker(cred.getBroker());
+        return client != null && client.requiresPriceEnrichment();
+    }
+
     // Safe helper for loggable credential identifier.
     private static String safeIdString(BrokerCredential cred) {
         try {
@@ -509,9 +869,25 @@ public class AccountPortfolioService {
         }
     }
 
+    // Exchanges of a merged row, e.g. "NSE,BSE".
+    private static String mergeExchanges(String merged, String exchange) {
+        if (exchange == null || exchange.isEmpty() || merged.equals(exchange)) {
+            return merged;
+        }
+        if (merged.isEmpty()) {
+            return exchange;
+        }
+        for (String e : merged.split(",")) {
+            if (e.equals(exchange)) {
+                return merged;
+            }
+        }
+        return merged + "," + exchange;
+    }
+
     // Internal accumulator for grouped holding math.
     private static class Accumulator {
-        private final String exchange;
+        private String exchange;
         private final String tradingSymbol;
         private final String isin;
 
@@ -529,7 +905,8 @@ public class AccountPortfolioService {
             this.isin = isin;
         }
 
-        void add(HoldingItem h) {
+        void add(HoldingItem h, String itemExchange) {
+            exchange = mergeExchanges(exchange, itemExchange);
             long qty = h.getQuantity();
             double avgPrice = h.getAveragePrice();
 
@@ -563,7 +940,7 @@ public class AccountPortfolioService {
     // Internal accumulator for grouped position math.
     private static class PositionAccumulator {
 
-        private final String exchange;
+        private String exchange;
         private final String tradingSymbol;
 
         private long totalQty = 0;
@@ -578,7 +955,8 @@ public class AccountPortfolioService {
             this.tradingSymbol = tradingSymbol;
         }
 
-        void add(PositionItem p) {
+        void add(PositionItem p, String itemExchange) {
+            exchange = mergeExchanges(exchange, itemExchange);
             long qty = p.getQuantity();
             double avgPrice = p.getAveragePrice();
             totalQty += qty;
@@ -1,5 +1,6 @@
 package com.marmik.brokerhub.service;
 
+import com.marmik.brokerhub.dto.UserAccountView;
 import com.marmik.brokerhub.model.Account;
 import com.marmik.brokerhub.model.AccountMember;
 import com.marmik.brokerhub.model.User;
@@ -28,6 +29,8 @@ public class AccountService {
     private final AccountRepository accountRepo;
     private final AccountMemberRepository memberRepo;
     private final UserRepository userRepo;
+    private final UserAccountViewCacheService accountViewCache;
+    private final AccountMembershipCache membershipCache;
 
     /**
      * Add member to an existing account.
@@ -58,7 +61,10 @@ public class AccountService {
         member.setRole("MEMBER");
         member.setRules(new HashMap<>(Map.of("privacy", "DETAILED")));
 
-        return memberRepo.save(member);
+        AccountMember saved = memberRepo.save(member);
+        membershipCache.invalidate(user.getId(), accUuid);
+        accountViewCache.evict(user.getId());
+        return saved;
     }
 
     /**
@@ -88,7 +94,9 @@ public class AccountService {
         admin.setRole("ADMIN");
         admin.setRules(new HashMap<>(Map.of("privacy", "DETAILED")));
 
-        return memberRepo.save(admin);
+        AccountMember saved = memberRepo.save(admin);
+        accountViewCache.evict(userId);
+        return saved;
     }
 
     /**
@@ -102,21 +110,23 @@ public class AccountService {
     /**
      * Aggregated account view for "My Accounts" API.
      * Controller should call ONLY this.
+     *
+     * Served from the per-user cache; a miss loads every membership and its
+     * account in a single join query.
      */
     @Transactional(readOnly = true)
-    public List<HashMap<String, Object>> listUserAccountViews(UUID userId) {
-        return memberRepo.findByUserId(userId).stream().map(m -> {
-            Optional<Account> accOpt = accountRepo.findById(m.getAccountId());
-
-            HashMap<String, Object> map = new HashMap<>();
-            map.put("accountId", m.getAccountId());
-            map.put("name", accOpt.map(Account::getName).orElse(null));
-            map.put("description", accOpt.map(Account::getDescription).orElse(null));
-            map.put("role", m.getRole());
-            map.put("accountMemberId", m.getId());
-            map.put("rules", m.getRules());
-            return map;
-        }).toList();
+    public List<UserAccountView> listUserAccountViews(UUID userId) {
+        Optional<List<UserAccountView>> cached = accountViewCache.getCachedViews(userId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        // Taken before the query, so views loaded before a concurrent change
+        // are not cached after that change's eviction.
+        long generation = accountViewCache.generation(userId);
+        List<UserAccountView> views = memberRepo.findAccountViewsByUserId(userId);
+        accountViewCache.cacheViews(userId, views, generation);
+        return views;
     }
 
     /**
@@ -143,6 +153,8 @@ public class AccountService {
                         "Member not found for this account"));
 
         memberRepo.delete(target);
+        membershipCache.invalidate(target.getUser().getId(), accountId);
+        accountViewCache.evict(target.getUser().getId());
     }
 
     /**
@@ -176,7 +188,10 @@ public class AccountService {
                         "Member not found for this account"));
 
         target.setRole(role.toUpperCase());
-        return memberRepo.save(target);
+        AccountMember saved = memberRepo.save(target);
+        membershipCache.invalidate(target.getUser().getId(), accountId);
+        accountViewCache.evict(target.getUser().getId());
+        return saved;
     }
 
     /**
@@ -209,6 +224,9 @@ public class AccountService {
         }
 
         member.setRules(new HashMap<>(Map.of("privacy", up)));
-        return memberRepo.save(member);
+        AccountMember saved = memberRepo.save(member);
+        membershipCache.invalidate(actorUserId, accountId);
+        accountViewCache.evict(actorUserId);
+        return saved;
     }
 }
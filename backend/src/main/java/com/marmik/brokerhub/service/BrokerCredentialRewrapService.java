@@ -0,0 +1,192 @@
+package com.marmik.brokerhub.service;
+
+import com.marmik.brokerhub.security.EnvelopeEncryptionService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background re-wrap of broker credential DEKs onto the active master key.
+ *
+ * - Walks account_member_brokers by credential_id (keyset pagination), only
+ * selecting rows whose token_key_id is not the active key. Only the wrapped
+ * DEK is read; token ciphertext is never touched.
+ * - Each page is unwrapped/re-wrapped on a small pool and written back with
+ * one batched UPDATE. The UPDATE is guarded by the old key id, so a row
+ * rewritten or deleted concurrently is simply skipped.
+ * - Pages are separated by a pause so live aggregation keeps the database and
+ * CPU.
+ * - Progress lives in the rows themselves: after a crash or restart the next
+ * run only sees rows that still carry an old key id.
+ *
+ * Opt-in via app.security.rewrap.enabled; runs once after startup.
+ */
+@Service
+public class BrokerCredentialRewrapService {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerCredentialRewrapService.class);
+
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+
+    private static final String SELECT_PAGE = "SELECT credential_id, token_key_id, token_encrypted_dek "
+            + "FROM account_member_brokers "
+            + "WHERE token_key_id <> ? AND credential_id > ? "
+            + "ORDER BY credential_id LIMIT ?";
+
+    private static final String UPDATE_ROW = "UPDATE account_member_brokers "
+            + "SET token_encrypted_dek = ?, token_key_id = ? "
+            + "WHERE credential_id = ? AND token_key_id = ?";
+
+    private final JdbcTemplate jdbc;
+    private final EnvelopeEncryptionService envelope;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int parallelism;
+    private final long pauseMs;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    record WrappedDek(UUID credentialId, String keyId, byte[] wrappedDek) {
+    }
+
+    private record Rewrapped(UUID credentialId, String oldKeyId, byte[] wrappedDek) {
+    }
+
+    /**
+     * Outcome of one run. skipped counts rows that failed to unwrap (unknown
+     * key id or corrupt data); they are left untouched and logged.
+     */
+    public record RewrapReport(int rewrapped, int skipped) {
+    }
+
+    public BrokerCredentialRewrapService(
+            JdbcTemplate jdbc,
+            EnvelopeEncryptionService envelope,
+            @Value("${app.security.rewrap.enabled:false}") boolean enabled,
+            @Value("${app.security.rewrap.batch-size:200}") int batchSize,
+            @Value("${app.security.rewrap.parallelism:2}") int parallelism,
+            @Value("${app.security.rewrap.pause-ms:250}") long pauseMs) {
+        this.jdbc = jdbc;
+        this.envelope = envelope;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.parallelism = Math.max(1, parallelism);
+        this.pauseMs = Math.max(0, pauseMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (!enabled) {
+            return;
+        }
+        Thread t = new Thread(() -> {
+            try {
+                rewrapAll();
+            } catch (Exception ex) {
+                log.error("Broker credential re-wrap stopped; it will resume on next start", ex);
+            }
+        }, "broker-credential-rewrap");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Re-wrap every credential that is not on the active master key.
+     * Returns immediately with an empty report if a run is already active.
+     */
+    public RewrapReport rewrapAll() throws InterruptedException {
+        if (!running.compareAndSet(false, true)) {
+            return new RewrapReport(0, 0);
+        }
+        String activeKeyId = envelope.getActiveKeyId();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "broker-credential-rewrap-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        int rewrapped = 0;
+        int skipped = 0;
+        try {
+            UUID cursor = MIN_UUID;
+            while (true) {
+                List<WrappedDek> page = jdbc.query(SELECT_PAGE,
+                        (rs, i) -> new WrappedDek(
+                                rs.getObject("credential_id", UUID.class),
+                                rs.getString("token_key_id"),
+                                rs.getBytes("token_encrypted_dek")),
+                        activeKeyId, cursor, batchSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                int done = rewrapPage(page, activeKeyId, pool);
+                rewrapped += done;
+                skipped += page.size() - done;
+                cursor = page.get(page.size() - 1).credentialId();
+
+                if (page.size() < batchSize) {
+                    break;
+                }
+                if (pauseMs > 0) {
+                    Thread.sleep(pauseMs);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            running.set(false);
+        }
+        log.info("Broker credential re-wrap to key {} finished: {} re-wrapped, {} skipped",
+                activeKeyId, rewrapped, skipped);
+        return new RewrapReport(rewrapped, skipped);
+    }
+
+    /**
+     * Re-wrap one page in parallel and write it with a single batch.
+     * Returns the number of rows prepared for update.
+     */
+    int rewrapPage(List<WrappedDek> page, String activeKeyId, ExecutorService pool) {
+        List<CompletableFuture<Rewrapped>> futures = new ArrayList<>(page.size());
+        for (WrappedDek row : page) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                byte[] dek = null;
+                try {
+                    dek = envelope.unwrapDek(row.keyId(), row.wrappedDek());
+                    return new Rewrapped(row.credentialId(), row.keyId(), envelope.wrapDek(activeKeyId, dek));
+                } catch (Exception ex) {
+                    log.warn("Cannot re-wrap credential {} (key {}): {}",
+                            row.credentialId(), row.keyId(), ex.getMessage());
+                    return null;
+                } finally {
+                    if (dek != null) {
+                        Arrays.fill(dek, (byte) 0);
+                    }
+                }
+            }, pool));
+        }
+
+        List<Object[]> updates = new ArrayList<>(page.size());
+        for (CompletableFuture<Rewrapped> f : futures) {
+            Rewrapped r = f.join();
+            if (r != null) {
+                updates.add(new Object[] { r.wrappedDek(), activeKeyId, r.credentialId(), r.oldKeyId() });
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbc.batchUpdate(UPDATE_ROW, updates);
+        }
+        return updates.size();
+    }
+}
@@ -4,12 +4,17 @@ import com.marmik.brokerhub.model.AccountMember;
 import com.marmik.brokerhub.model.BrokerCredential;
 import com.marmik.brokerhub.repository.AccountMemberRepository;
 import com.marmik.brokerhub.repository.BrokerCredentialRepository;
+import com.marmik.brokerhub.resilience.BrokerCallGuard;
+import com.marmik.brokerhub.resilience.BrokerRateLimiter;
+import com.marmik.brokerhub.security.BrokerTokenVault;
 import com.marmik.brokerhub.security.EnvelopeEncryptionService;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Arrays;
 import java.util.List;
@@ -26,8 +31,10 @@ public class BrokerCredentialService {
     private final BrokerCredentialRepository repo;
     private final AccountMemberRepository accountMemberRepo;
     private final EnvelopeEncryptionService envelope;
-
-    private static final String LOCAL_MASTER_KEY_ID = "local-master-v1";
+    private final AccountMembershipCache membershipCache;
+    private final BrokerTokenVault tokenVault;
+    private final BrokerCallGuard callGuard;
+    private final BrokerRateLimiter rateLimiter;
 
     /**
      * Store a token for the given accountMemberId.
@@ -47,7 +54,8 @@ public class BrokerCredentialService {
         try {
             EnvelopeEncryptionService.EncryptionResult enc = envelope.encryptWithDek(dek, tokenPlain);
 
-            byte[] wrappedDek = envelope.wrapDek(dek);
+            String keyId = envelope.getActiveKeyId();
+            byte[] wrappedDek = envelope.wrapDek(keyId, dek);
 
             BrokerCredential bc = new BrokerCredential();
             bc.setAccountMemberId(targetMembership.getId());
@@ -56,7 +64,7 @@ public class BrokerCredentialService {
             bc.setTokenCipher(enc.getCipherText());
             bc.setTokenIv(enc.getIv());
             bc.setTokenEncryptedDek(wrappedDek);
-            bc.setTokenKeyId(LOCAL_MASTER_KEY_ID);
+            bc.setTokenKeyId(keyId);
 
             return repo.save(bc);
         } finally {
@@ -91,11 +99,16 @@ public class BrokerCredentialService {
         requireOwnerOrAdmin(callerUserId, targetMembership.getAccountId(), targetMembership.getId());
 
         repo.delete(cred);
+        evictFromVault(credentialId);
+        forgetResilienceState(credentialId);
     }
 
     /**
      * Decrypt token for immediate use.
      * Caller must zero returned byte[].
+     *
+     * Access is checked on every call; only the crypto is skipped when the
+     * token vault already holds the plaintext.
      */
     @Transactional(readOnly = true)
     public byte[] decryptCredentialToken(
@@ -108,25 +121,63 @@ public class BrokerCredentialService {
         AccountMember targetMembership = getAccountMemberOrThrow(cred.getAccountMemberId());
         requireOwnerOrAdmin(callerUserId, targetMembership.getAccountId(), targetMembership.getId());
 
-        byte[] dek = envelope.unwrapDek(cred.getTokenEncryptedDek());
+        byte[] vaulted = tokenVault.get(credentialId);
+        if (vaulted != null) {
+            return vaulted;
+        }
+
+        byte[] dek = envelope.unwrapDek(cred.getTokenKeyId(), cred.getTokenEncryptedDek());
         try {
-            return envelope.decryptWithDek(
+            byte[] plain = envelope.decryptWithDek(
                     dek,
                     cred.getTokenIv(),
                     cred.getTokenCipher());
+            tokenVault.put(credentialId, plain);
+            return plain;
         } finally {
             Arrays.fill(dek, (byte) 0);
         }
     }
 
+    // Evict now and again after commit, in case a concurrent read re-vaulted it.
+    private void evictFromVault(UUID credentialId) {
+        tokenVault.evict(credentialId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    tokenVault.evict(credentialId);
+                }
+            });
+        }
+    }
+
+    // Per-credential breaker and rate-limit state is only dropped once the delete is committed.
+    private void forgetResilienceState(UUID credentialId) {
+        Runnable forget = () -> {
+            callGuard.forgetCredential(credentialId);
+            rateLimiter.forgetCredential(credentialId);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    forget.run();
+                }
+            });
+        } else {
+            forget.run();
+        }
+    }
+
     private AccountMember getAccountMemberOrThrow(UUID accountMemberId) {
         return accountMemberRepo.findById(accountMemberId)
                 .orElseThrow(() -> new IllegalArgumentException("Account member not found"));
     }
 
     private void requireOwnerOrAdmin(UUID callerUserId, UUID accountId, UUID targetAccountMemberId) {
-        AccountMember callerMembership = accountMemberRepo
-                .findByUserIdAndAccountId(callerUserId, accountId)
+        AccountMember callerMembership = membershipCache
+                .find(callerUserId, accountId)
                 .orElseThrow(() -> new AccessDeniedException("Not a member of this account"));
 
         boolean isOwner = callerMembership.getId().equals(targetAccountMemberId);
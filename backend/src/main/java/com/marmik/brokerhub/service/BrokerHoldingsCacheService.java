@@ -28,6 +28,10 @@ public class BrokerHoldingsCacheService {
     @Value("${broker.holdings-cache.ttl-seconds:43200}")
     private long holdingsCacheTtlSeconds;
 
+    // Last known good copy, served only when the broker is failing or shed.
+    @Value("${broker.holdings-cache.stale-ttl-seconds:604800}")
+    private long staleHoldingsTtlSeconds;
+
     public BrokerHoldingsCacheService(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
         this.redisTemplate = redisTemplate;
         this.objectMapper = objectMapper;
@@ -47,11 +51,33 @@ public class BrokerHoldingsCacheService {
         }
     }
 
+    /**
+     * Last successfully fetched holdings, kept well beyond the normal TTL.
+     * Used as a fallback when the broker call is rejected or fails.
+     */
+    public Optional<List<HoldingItem>> getStaleHoldings(String broker, UUID credentialId) {
+        String key = staleKey(broker, credentialId);
+        try {
+            String json = redisTemplate.opsForValue().get(key);
+            if (json == null || json.isBlank()) {
+                return Optional.empty();
+            }
+            return Optional.of(objectMapper.readValue(json, HOLDINGS_LIST_TYPE));
+        } catch (Exception ex) {
+            log.debug("Failed reading stale holdings cache for key {}", key, ex);
+            return Optional.empty();
+        }
+    }
+
     public void cacheHoldings(String broker, UUID credentialId, List<HoldingItem> holdings) {
         String key = cacheKey(broker, credentialId);
         try {
             String json = objectMapper.writeValueAsString(holdings);
             redisTemplate.opsForValue().set(key, json, Duration.ofSeconds(holdingsCacheTtlSeconds));
+            if (staleHoldingsTtlSeconds > 0) {
+                redisTemplate.opsForValue().set(staleKey(broker, credentialId), json,
+                        Duration.ofSeconds(staleHoldingsTtlSeconds));
+            }
         } catch (Exception ex) {
             log.debug("Failed writing holdings cache for key {}", key, ex);
         }
@@ -62,4 +88,8 @@ public class BrokerHoldingsCacheService {
         String safeCredId = credentialId == null ? "unknown" : credentialId.toString();
         return "bh:holdings:" + safeBroker + ":" + safeCredId;
     }
+
+    private String staleKey(String broker, UUID credentialId) {
+        return cacheKey(broker, credentialId).replaceFirst("^bh:holdings:", "bh:holdings-stale:");
+    }
 }
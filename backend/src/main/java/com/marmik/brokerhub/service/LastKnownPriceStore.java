@@ -0,0 +1,243 @@
+package com.marmik.brokerhub.service;
+
+import com.marmik.brokerhub.broker.model.PriceResponse;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Last known market price per symbol, persisted in the stock_price table.
+ *
+ * Used as a warm fallback when the market-data service has no price for a
+ * symbol (cold start, outage, lastPrice=0), so holdings show the last price
+ * seen rather than their average cost.
+ *
+ * - Every usable market price of a holding is recorded in memory and marked
+ * dirty by (isin, exchange).
+ * - A background flusher upserts dirty rows every flush-interval-ms with
+ * multi-row INSERT ... ON CONFLICT (isin, exchange) DO UPDATE statements of
+ * up to batch-size rows. Rows that fail to write stay dirty for the next
+ * flush.
+ * - The table is loaded into memory once the application is ready, and
+ * flushed one last time on shutdown.
+ *
+ * Positions carry no ISIN, so they can read the store but are not recorded.
+ */
+@Service
+public class LastKnownPriceStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LastKnownPriceStore.class);
+
+    private static final String SELECT_ALL = "SELECT trading_symbol, last_price, day_change, day_change_percentage "
+            + "FROM stock_price LIMIT ?";
+
+    private static final String UPSERT_PREFIX = "INSERT INTO stock_price "
+            + "(isin, exchange, trading_symbol, last_price, day_change, day_change_percentage) VALUES ";
+
+    private static final String UPSERT_ROW = "(?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_SUFFIX = " ON CONFLICT (isin, exchange) DO UPDATE SET "
+            + "trading_symbol = EXCLUDED.trading_symbol, "
+            + "last_price = EXCLUDED.last_price, "
+            + "day_change = EXCLUDED.day_change, "
+            + "day_change_percentage = EXCLUDED.day_change_percentage";
+
+    /** Column sizes from V2__stock_price.sql; longer values would fail the whole statement. */
+    private static final int MAX_ISIN = 20;
+    private static final int MAX_EXCHANGE = 20;
+    private static final int MAX_SYMBOL = 50;
+    private static final double MAX_PERCENTAGE = 999.9999;
+
+    private record Key(String isin, String exchange) {
+    }
+
+    record Row(String isin, String exchange, String tradingSymbol,
+            double lastPrice, double dayChange, double dayChangePercentage) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final long flushIntervalMs;
+    private final int batchSize;
+    private final int maxEntries;
+
+    private final Map<String, PriceResponse> bySymbol = new ConcurrentHashMap<>();
+    private final Map<Key, Row> dirty = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService flusher;
+
+    public LastKnownPriceStore(
+            JdbcTemplate jdbc,
+            @Value("${marketdata.last-known.enabled:true}") boolean enabled,
+            @Value("${marketdata.last-known.flush-interval-ms:60000}") long flushIntervalMs,
+            @Value("${marketdata.last-known.batch-size:500}") int batchSize,
+            @Value("${marketdata.last-known.max-entries:50000}") int maxEntries) {
+        this.jdbc = jdbc;
+        this.enabled = enabled && jdbc != null;
+        this.flushIntervalMs = Math.max(1_000, flushIntervalMs);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (!enabled) {
+            return;
+        }
+        preload();
+        ScheduledExecutorService s = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "last-known-price-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        s.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        flusher = s;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        flushQuietly();
+    }
+
+    /**
+     * Load stored prices into memory, keeping any already recorded since
+     * startup. Returns the number of rows read.
+     */
+    int preload() {
+        try {
+            List<PriceResponse> rows = jdbc.query(SELECT_ALL, (rs, i) -> {
+                PriceResponse price = new PriceResponse();
+                price.setSymbol(rs.getString("trading_symbol"));
+                price.setLastPrice(rs.getDouble("last_price"));
+                price.setDayChange(rs.getDouble("day_change"));
+                price.setDayChangePercentage(rs.getDouble("day_change_percentage"));
+                return price;
+            }, maxEntries);
+            for (PriceResponse price : rows) {
+                if (price.getSymbol() != null && price.getLastPrice() > 0) {
+                    bySymbol.putIfAbsent(price.getSymbol(), price);
+                }
+            }
+            log.info("Loaded {} last known prices", rows.size());
+            return rows.size();
+        } catch (Exception ex) {
+            log.warn("Could not load last known prices; starting without them", ex);
+            return 0;
+        }
+    }
+
+    /**
+     * Last known price for a symbol, or null.
+     */
+    public PriceResponse get(String tradingSymbol) {
+        return !enabled || tradingSymbol == null ? null : bySymbol.get(tradingSymbol);
+    }
+
+    /**
+     * Remember a fresh market price of a holding and queue it for the next
+     * flush. Zero prices and rows that do not fit the table are ignored.
+     */
+    public void record(String isin, String exchange, String tradingSymbol, PriceResponse price) {
+        if (!enabled || price == null || price.getLastPrice() <= 0 || !fits(isin, MAX_ISIN)
+                || !fits(exchange, MAX_EXCHANGE) || !fits(tradingSymbol, MAX_SYMBOL)) {
+            return;
+        }
+        if (bySymbol.size() < maxEntries || bySymbol.containsKey(tradingSymbol)) {
+            bySymbol.put(tradingSymbol, price);
+        }
+        double pct = Math.max(-MAX_PERCENTAGE, Math.min(MAX_PERCENTAGE, price.getDayChangePercentage()));
+        dirty.put(new Key(isin, exchange), new Row(isin, exchange, tradingSymbol,
+                price.getLastPrice(), price.getDayChange(), pct));
+    }
+
+    public int pendingCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Upsert every dirty row. Returns the number of rows written; on failure
+     * the unwritten rows are queued again (unless a newer price replaced
+     * them) and the error is rethrown.
+     */
+    int flush() {
+        synchronized (flushLock) {
+            List<Map.Entry<Key, Row>> drained = new ArrayList<>(dirty.size());
+            for (Map.Entry<Key, Row> e : dirty.entrySet()) {
+                if (dirty.remove(e.getKey(), e.getValue())) {
+                    drained.add(Map.entry(e.getKey(), e.getValue()));
+                }
+            }
+            int written = 0;
+            for (int from = 0; from < drained.size(); from += batchSize) {
+                List<Map.Entry<Key, Row>> chunk = drained.subList(from, Math.min(drained.size(), from + batchSize));
+                try {
+                    upsert(chunk);
+                    written += chunk.size();
+                } catch (RuntimeException ex) {
+                    drained.subList(from, drained.size()).forEach(e -> dirty.putIfAbsent(e.getKey(), e.getValue()));
+                    throw ex;
+                }
+            }
+            return written;
+        }
+    }
+
+    private void upsert(List<Map.Entry<Key, Row>> chunk) {
+        StringBuilder sql = new StringBuilder(UPSERT_PREFIX.length() + chunk.size() * 20 + UPSERT_SUFFIX.length());
+        sql.append(UPSERT_PREFIX);
+        Object[] args = new Object[chunk.size() * 6];
+        int i = 0;
+        for (Map.Entry<Key, Row> e : chunk) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(UPSERT_ROW);
+            Row row = e.getValue();
+            args[i++] = row.isin();
+            args[i++] = row.exchange();
+            args[i++] = row.tradingSymbol();
+            args[i++] = row.lastPrice();
+            args[i++] = row.dayChange();
+            args[i++] = row.dayChangePercentage();
+        }
+        sql.append(UPSERT_SUFFIX);
+        jdbc.update(sql.toString(), args);
+    }
+
+    private void flushQuietly() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int written = flush();
+            if (written > 0) {
+                log.debug("Stored {} last known prices", written);
+            }
+        } catch (Exception ex) {
+            log.warn("Could not store last known prices; will retry", ex);
+        }
+    }
+
+    private static boolean fits(String value, int maxLength) {
+        return value != null && !value.isEmpty() && value.length() <= maxLength;
+    }
+}
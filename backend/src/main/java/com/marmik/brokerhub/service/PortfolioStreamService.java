@@ -0,0 +1,346 @@
+package com.marmik.brokerhub.service;
+
+import com.marmik.brokerhub.broker.service.MarketDataService;
+import com.marmik.brokerhub.concurrent.Futures;
+import com.marmik.brokerhub.dto.AggregatedHolding;
+import com.marmik.brokerhub.http.Deadline;
+import com.marmik.brokerhub.instrument.InstrumentMaster;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes aggregated holdings to subscribed clients over Server-Sent Events
+ * as prices change.
+ *
+ * A subscription starts with a "snapshot" event carrying the same body as
+ * GET /aggregate-holdings. After that, each price change published by
+ * MarketDataService recomputes the affected rows (last price, day change and
+ * P&L at the new price) and the client receives "holdings" events with only
+ * the rows that changed.
+ *
+ * - An inverted index maps each normalized symbol to the subscriptions
+ * holding it, so a price tick touches only the portfolios it affects and
+ * costs one map probe when nobody holds the symbol.
+ * - Changes are coalesced per connection: a tick only marks its rows dirty,
+ * and dirty rows are sent at most every portfolio.stream.coalesce-ms, each
+ * with its latest values.
+ * - Each connection has at most one write in flight. Rows that change while
+ * a slow client is still receiving are sent once it has caught up, so it
+ * gets the latest state rather than a queue of every tick. A connection
+ * whose write has been stuck for portfolio.stream.stall-timeout-ms is closed.
+ * - Quantities are those of the snapshot. Streams end after
+ * portfolio.stream.timeout-ms; a reconnecting client gets a fresh snapshot.
+ *
+ * Only rows the caller may see in full are streamed; partial tickers carry
+ * no values to update.
+ */
+@Service
+public class PortfolioStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(PortfolioStreamService.class);
+
+    static final String SNAPSHOT_EVENT = "snapshot";
+    static final String HOLDINGS_EVENT = "holdings";
+
+    private final AccountPortfolioService portfolioService;
+    private final long coalesceMs;
+    private final long timeoutMs;
+    private final long snapshotTimeoutMs;
+    private final long stallTimeoutNanos;
+    private final ScheduledExecutorService writers;
+
+    private final Map<String, Set<Subscription>> bySymbol = new ConcurrentHashMap<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder ticksMatched = new LongAdder();
+    private final LongAdder rowsUpdated = new LongAdder();
+    private final LongAdder eventsSent = new LongAdder();
+    private final LongAdder rowsSent = new LongAdder();
+    private final LongAdder stalledClosed = new LongAdder();
+
+    public PortfolioStreamService(
+            AccountPortfolioService portfolioService,
+            MarketDataService marketDataService,
+            @Value("${portfolio.stream.coalesce-ms:250}") long coalesceMs,
+            @Value("${portfolio.stream.timeout-ms:1800000}") long timeoutMs,
+            @Value("${portfolio.request-timeout-ms:30000}") long snapshotTimeoutMs,
+            @Value("${portfolio.stream.stall-timeout-ms:30000}") long stallTimeoutMs,
+            @Value("${portfolio.stream.writer-threads:4}") int writerThreads) {
+        this.portfolioService = portfolioService;
+        this.coalesceMs = Math.max(0, coalesceMs);
+        this.timeoutMs = timeoutMs;
+        this.snapshotTimeoutMs = snapshotTimeoutMs;
+        this.stallTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1_000, stallTimeoutMs));
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writers = Executors.newScheduledThreadPool(Math.max(1, writerThreads), r -> {
+            Thread t = new Thread(r, "portfolio-stream-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        if (marketDataService != null) {
+            marketDataService.addPriceListener(this::onPrice);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        writers.shutdownNow();
+        for (Subscription s : subscriptions) {
+            close(s);
+            s.emitter.complete();
+        }
+    }
+
+    /**
+     * Open a holdings stream for a member of the account. The caller's
+     * membership must already have been checked.
+     */
+    public SseEmitter subscribe(UUID accountId, UUID callerUserId) {
+        Deadline deadline = Deadline.after(Duration.ofMillis(snapshotTimeoutMs));
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        return open(emitter, portfolioService.aggregateHoldingsForAccountAsync(accountId, callerUserId, deadline));
+    }
+
+    /**
+     * Start streaming once the snapshot aggregation completes. The
+     * aggregation is cancelled if the client goes away first.
+     */
+    SseEmitter open(SseEmitter emitter, CompletableFuture<Map<String, Object>> snapshot) {
+        Subscription s = new Subscription(emitter);
+        Runnable end = () -> {
+            snapshot.cancel(true);
+            close(s);
+        };
+        emitter.onCompletion(end);
+        emitter.onTimeout(end);
+        emitter.onError(error -> end.run());
+
+        snapshot.whenCompleteAsync((body, error) -> {
+            if (error != null) {
+                if (!snapshot.isCancelled()) {
+                    close(s);
+                    emitter.completeWithError(Futures.unwrap(error));
+                }
+                return;
+            }
+            start(s, body);
+        }, writers);
+        return emitter;
+    }
+
+    /**
+     * Forward a price change to the subscriptions holding the symbol.
+     */
+    void onPrice(String symbol, double lastPrice, double dayChange, double dayChangePercentage) {
+        String key = InstrumentMaster.normalizeSymbol(symbol);
+        Set<Subscription> holders = key == null ? null : bySymbol.get(key);
+        if (holders == null) {
+            return;
+        }
+        ticksMatched.increment();
+        long now = System.nanoTime();
+        for (Subscription s : holders) {
+            boolean stalled;
+            synchronized (s) {
+                stalled = s.writing && now - s.writeStartedNanos > stallTimeoutNanos;
+                if (!stalled && s.apply(key, lastPrice, dayChange, dayChangePercentage)) {
+                    rowsUpdated.increment();
+                    scheduleFlush(s);
+                }
+            }
+            if (stalled) {
+                stalledClosed.increment();
+                log.debug("Closing portfolio stream stalled for over {} ms", stallTimeoutNanos / 1_000_000);
+                close(s);
+                // Completing may wait for the stuck write; never on the publishing thread.
+                writers.execute(() -> s.emitter.completeWithError(new IOException("Client stopped reading")));
+            }
+        }
+    }
+
+    public PortfolioStreamStats stats() {
+        return new PortfolioStreamStats(
+                subscriptions.size(),
+                bySymbol.size(),
+                ticksMatched.sum(),
+                rowsUpdated.sum(),
+                eventsSent.sum(),
+                rowsSent.sum(),
+                stalledClosed.sum());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void start(Subscription s, Map<String, Object> body) {
+        Object full = body.get("full");
+        List<AggregatedHolding> holdings = full instanceof List<?> list ? (List<AggregatedHolding>) list : List.of();
+        synchronized (s) {
+            if (s.closed) {
+                return;
+            }
+            for (AggregatedHolding h : holdings) {
+                String key = InstrumentMaster.normalizeSymbol(h.getTradingSymbol());
+                if (key != null) {
+                    s.rows.computeIfAbsent(key, k -> new ArrayList<>(1)).add(copy(h));
+                }
+            }
+            // The snapshot goes out first; ticks from here on only mark rows dirty.
+            s.writing = true;
+            s.writeStartedNanos = System.nanoTime();
+        }
+        subscriptions.add(s);
+        for (String key : s.rows.keySet()) {
+            bySymbol.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(s);
+        }
+        if (s.closed) {
+            // Ended while being indexed: undo.
+            close(s);
+            return;
+        }
+        send(s, SNAPSHOT_EVENT, body, holdings.size());
+    }
+
+    private void flush(Subscription s) {
+        List<AggregatedHolding> changed;
+        synchronized (s) {
+            s.flushScheduled = false;
+            if (s.closed || s.writing || s.dirty.isEmpty()) {
+                return;
+            }
+            changed = new ArrayList<>(s.dirty.size());
+            for (String key : s.dirty) {
+                for (AggregatedHolding row : s.rows.get(key)) {
+                    changed.add(copy(row));
+                }
+            }
+            s.dirty.clear();
+            s.writing = true;
+            s.writeStartedNanos = System.nanoTime();
+        }
+        send(s, HOLDINGS_EVENT, changed, changed.size());
+    }
+
+    /**
+     * Write one event, then schedule the rows that changed meanwhile. Called
+     * with s.writing set.
+     */
+    private void send(Subscription s, String event, Object data, int rows) {
+        try {
+            s.emitter.send(SseEmitter.event().name(event).data(data));
+            eventsSent.increment();
+            rowsSent.add(rows);
+        } catch (IOException | IllegalStateException ex) {
+            // Client gone; the emitter's callbacks may not fire for a failed send.
+            close(s);
+            return;
+        }
+        synchronized (s) {
+            s.writing = false;
+            if (!s.dirty.isEmpty()) {
+                scheduleFlush(s);
+            }
+        }
+    }
+
+    /** Called holding s's lock. */
+    private void scheduleFlush(Subscription s) {
+        if (s.closed || s.writing || s.flushScheduled) {
+            return;
+        }
+        s.flushScheduled = true;
+        try {
+            writers.schedule(() -> flush(s), coalesceMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ex) {
+            // Shutting down.
+            s.flushScheduled = false;
+        }
+    }
+
+    private void close(Subscription s) {
+        synchronized (s) {
+            s.closed = true;
+        }
+        subscriptions.remove(s);
+        for (String key : s.rows.keySet()) {
+            bySymbol.computeIfPresent(key, (k, holders) -> {
+                holders.remove(s);
+                return holders.isEmpty() ? null : holders;
+            });
+        }
+    }
+
+    private static AggregatedHolding copy(AggregatedHolding h) {
+        return new AggregatedHolding(h.getExchange(), h.getTradingSymbol(), h.getIsin(), h.getQuantity(),
+                h.getAveragePrice(), h.getPnl(), h.getLastPrice(), h.getDayChange(), h.getDayChangePercentage());
+    }
+
+    /**
+     * One client connection. Rows are only read or changed holding the
+     * subscription's lock; they are copied before being serialized.
+     */
+    private static final class Subscription {
+        final SseEmitter emitter;
+        final Map<String, List<AggregatedHolding>> rows = new HashMap<>();
+        final Set<String> dirty = new LinkedHashSet<>();
+        boolean flushScheduled;
+        boolean writing;
+        long writeStartedNanos;
+        volatile boolean closed;
+
+        Subscription(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Reprice the rows of a symbol; returns true when any changed. P&L
+         * moves by the price change times the quantity; a row that had no
+         * price yet gets (price - average) * quantity.
+         */
+        boolean apply(String key, double lastPrice, double dayChange, double dayChangePercentage) {
+            List<AggregatedHolding> held = rows.get(key);
+            if (held == null || closed) {
+                return false;
+            }
+            boolean changed = false;
+            for (AggregatedHolding row : held) {
+                if (row.getLastPrice() == lastPrice && row.getDayChange() == dayChange) {
+                    continue;
+                }
+                double pnl = row.getLastPrice() > 0
+                        ? row.getPnl() + (lastPrice - row.getLastPrice()) * row.getQuantity()
+                        : (lastPrice - row.getAveragePrice()) * row.getQuantity();
+                row.setPnl(pnl);
+                row.setLastPrice(lastPrice);
+                row.setDayChange(dayChange);
+                row.setDayChangePercentage(dayChangePercentage);
+                changed = true;
+            }
+            if (changed) {
+                dirty.add(key);
+            }
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.marmik.brokerhub.service;
+
+/**
+ * Point-in-time counters for real-time portfolio streams.
+ *
+ * @param subscriptions  open holdings streams
+ * @param indexedSymbols symbols held by at least one open stream
+ * @param ticksMatched   price changes that touched at least one stream
+ * @param rowsUpdated    per-stream repricings caused by those changes
+ * @param eventsSent     snapshot and holdings events written
+ * @param rowsSent       holding rows carried by those events; lower than
+ *                       rowsUpdated when updates were coalesced
+ * @param stalledClosed  streams closed because the client stopped reading
+ */
+public record PortfolioStreamStats(
+        int subscriptions,
+        int indexedSymbols,
+        long ticksMatched,
+        long rowsUpdated,
+        long eventsSent,
+        long rowsSent,
+        long stalledClosed) {
+}
@@ -0,0 +1,123 @@
+package com.marmik.brokerhub.service;
+
+import com.marmik.brokerhub.broker.dto.HoldingItem;
+import com.marmik.brokerhub.broker.dto.PositionItem;
+import com.marmik.brokerhub.broker.model.PriceResponse;
+import com.marmik.brokerhub.broker.service.MarketDataService;
+import com.marmik.brokerhub.http.Deadline;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Prices broker items from the market-data service as one stage of the
+ * portfolio pipeline.
+ *
+ * The caller passes every item of a request that needs pricing (across all
+ * credentials), so the union of their symbols is looked up in a single
+ * market-data call instead of one call per credential.
+ *
+ * Usable holding prices are recorded in the LastKnownPriceStore. Items
+ * without a usable market price use the last known price when there is one;
+ * otherwise holdings fall back to their average cost with zero pnl and day
+ * change, and positions keep the broker's last price.
+ */
+@Service
+public class PriceEnrichmentService {
+
+    private final MarketDataService marketDataService;
+    private final LastKnownPriceStore lastKnownPrices;
+
+    public PriceEnrichmentService(MarketDataService marketDataService, LastKnownPriceStore lastKnownPrices) {
+        this.marketDataService = marketDataService;
+        this.lastKnownPrices = lastKnownPrices;
+    }
+
+    /**
+     * Sets last price, day change and pnl on each holding, in place.
+     */
+    public List<HoldingItem> enrichHoldings(List<HoldingItem> holdings, Deadline deadline) {
+        if (holdings.isEmpty()) {
+            return holdings;
+        }
+        Map<String, PriceResponse> priceMap = prices(symbols(holdings, HoldingItem::getTradingSymbol), deadline);
+
+        holdings.forEach(holding -> {
+            PriceResponse price = priceMap.get(holding.getTradingSymbol());
+            if (usable(price)) {
+                lastKnownPrices.record(holding.getIsin(), holding.getExchange(), holding.getTradingSymbol(), price);
+            } else {
+                price = lastKnownPrices.get(holding.getTradingSymbol());
+            }
+
+            if (usable(price)) {
+                holding.setLastPrice(price.getLastPrice());
+                holding.setDayChange(price.getDayChange());
+                holding.setDayChangePercentage(price.getDayChangePercentage());
+
+                double pnl = (price.getLastPrice() - holding.getAveragePrice()) * holding.getQuantity();
+                holding.setPnl(pnl);
+            } else {
+                double avg = holding.getAveragePrice();
+                holding.setLastPrice(avg);
+                holding.setDayChange(0);
+                holding.setDayChangePercentage(0);
+                holding.setPnl(0);
+            }
+        });
+
+        return holdings;
+    }
+
+    /**
+     * Sets the market last price on each position that has one, in place.
+     */
+    public List<PositionItem> enrichPositions(List<PositionItem> positions, Deadline deadline) {
+        if (positions.isEmpty()) {
+            return positions;
+        }
+        Map<String, PriceResponse> priceMap = prices(symbols(positions, PositionItem::getTradingSymbol), deadline);
+
+        positions.forEach(position -> {
+            PriceResponse price = priceMap.get(position.getTradingSymbol());
+            if (usable(price)) {
+                position.setLastPrice(price.getLastPrice());
+            } else if (position.getLastPrice() == 0) {
+                PriceResponse lastKnown = lastKnownPrices.get(position.getTradingSymbol());
+                if (usable(lastKnown)) {
+                    position.setLastPrice(lastKnown.getLastPrice());
+                }
+            }
+        });
+
+        return positions;
+    }
+
+    private static boolean usable(PriceResponse price) {
+        return price != null && price.getLastPrice() != 0;
+    }
+
+    private static <T> Set<String> symbols(Collection<T> items, Function<T, String> symbolOf) {
+        Set<String> symbols = new LinkedHashSet<>();
+        for (T item : items) {
+            String symbol = symbolOf.apply(item);
+            if (symbol != null) {
+                symbols.add(symbol);
+            }
+        }
+        return symbols;
+    }
+
+    private Map<String, PriceResponse> prices(Set<String> symbols, Deadline deadline) {
+        return marketDataService.getPrices(List.copyOf(symbols), deadline).stream()
+                .filter(p -> p.getSymbol() != null)
+                .collect(Collectors.toMap(PriceResponse::getSymbol, Function.identity(), (a, b) -> a));
+    }
+}
@@ -0,0 +1,156 @@
+package com.marmik.brokerhub.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marmik.brokerhub.dto.UserAccountView;
+
+/**
+ * Redis-backed cache for the per-user "My Accounts" view.
+ *
+ * Entries are evicted whenever one of the user's memberships changes, so the
+ * TTL only bounds staleness for changes made outside AccountService.
+ *
+ * Every eviction also bumps a per-user generation. Readers take the
+ * generation before loading the views and cache them only if it has not
+ * moved (checked atomically in Redis), so views loaded before a change can
+ * never be cached after its eviction.
+ */
+@Service
+public class UserAccountViewCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserAccountViewCacheService.class);
+    private static final TypeReference<List<UserAccountView>> VIEW_LIST_TYPE = new TypeReference<>() {
+    };
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final RedisScript<Long> putScript;
+    private final RedisScript<Long> evictScript;
+
+    @Value("${account.views-cache.ttl-seconds:300}")
+    private long viewsCacheTtlSeconds;
+
+    public UserAccountViewCacheService(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.putScript = script("redis/account-views-put.lua");
+        this.evictScript = script("redis/account-views-evict.lua");
+    }
+
+    public Optional<List<UserAccountView>> getCachedViews(UUID userId) {
+        String key = cacheKey(userId);
+        try {
+            String json = redisTemplate.opsForValue().get(key);
+            if (json == null || json.isBlank()) {
+                return Optional.empty();
+            }
+            return Optional.of(objectMapper.readValue(json, VIEW_LIST_TYPE));
+        } catch (Exception ex) {
+            log.debug("Failed reading account views cache for key {}", key, ex);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Current generation of a user's views; read it before loading the views
+     * and pass it to {@link #cacheViews}. -1 when Redis cannot be read, in
+     * which case nothing will be cached.
+     */
+    public long generation(UUID userId) {
+        try {
+            String value = redisTemplate.opsForValue().get(generationKey(userId));
+            return value == null ? 0 : Long.parseLong(value);
+        } catch (Exception ex) {
+            log.debug("Failed reading account views generation for user {}", userId, ex);
+            return -1;
+        }
+    }
+
+    /**
+     * Cache views loaded at the given generation, unless the user's views
+     * have been evicted since.
+     */
+    public void cacheViews(UUID userId, List<UserAccountView> views, long generation) {
+        if (generation < 0) {
+            return;
+        }
+        String key = cacheKey(userId);
+        try {
+            String json = objectMapper.writeValueAsString(views);
+            redisTemplate.execute(putScript, List.of(generationKey(userId), key),
+                    Long.toString(generation), json, Long.toString(ttl().toMillis()));
+        } catch (Exception ex) {
+            log.debug("Failed writing account views cache for key {}", key, ex);
+        }
+    }
+
+    /**
+     * Drop the cached view for a user and bump its generation.
+     * Inside a transaction the eviction is deferred until after commit, so
+     * readers that loaded the pre-change rows see the new generation and do
+     * not cache them.
+     */
+    public void evict(UUID userId) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    delete(userId);
+                }
+            });
+        } else {
+            delete(userId);
+        }
+    }
+
+    private void delete(UUID userId) {
+        String key = cacheKey(userId);
+        try {
+            // The generation outlives every views entry cached under it.
+            redisTemplate.execute(evictScript, List.of(generationKey(userId), key),
+                    Long.toString(ttl().multipliedBy(2).toMillis()));
+        } catch (Exception ex) {
+            log.debug("Failed evicting account views cache for key {}", key, ex);
+        }
+    }
+
+    private Duration ttl() {
+        return Duration.ofSeconds(viewsCacheTtlSeconds);
+    }
+
+    private static RedisScript<Long> script(String location) {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource(location));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+    private String cacheKey(UUID userId) {
+        String safeUserId = userId == null ? "unknown" : userId.toString();
+        return "bh:account-views:" + safeUserId;
+    }
+
+    private String generationKey(UUID userId) {
+        String safeUserId = userId == null ? "unknown" : userId.toString();
+        return "bh:account-views-gen:" + safeUserId;
+    }
+}
@@ -0,0 +1,10 @@
+-- Evict a user's account views and bump their generation, so a reader that
+-- loaded the views before the change cannot cache them afterwards.
+--
+-- KEYS:  generation key, views key
+-- ARGV:  generation key TTL in ms
+
+redis.call('INCR', KEYS[1])
+redis.call('PEXPIRE', KEYS[1], ARGV[1])
+redis.call('DEL', KEYS[2])
+return 1
@@ -0,0 +1,14 @@
+-- Cache a user's account views only if no eviction happened since the
+-- caller read the generation (before loading the views from the database).
+--
+-- KEYS:  generation key, views key
+-- ARGV:  generation read by the caller, views JSON, TTL in ms
+--
+-- Replies 1 when the views were cached, 0 when they were stale.
+
+local current = tonumber(redis.call('GET', KEYS[1]) or '0')
+if current ~= tonumber(ARGV[1]) then
+  return 0
+end
+redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[3])
+return 1
@@ -0,0 +1,47 @@
+-- Atomic multi-bucket reservation for the shared broker rate limit.
+--
+-- KEYS:  one hash per bucket (fields: tokens, ts)
+-- ARGV:  max_wait_ms, then capacity and rate (tokens/second) for each key
+--
+-- Every bucket refills from Redis server time, so nodes with skewed clocks
+-- share one budget. A token may be borrowed if it becomes available within
+-- max_wait_ms; the reply is how long the caller must wait (ms), or -1 when
+-- any bucket would exceed max_wait_ms. Either all buckets are charged or none.
+
+local max_wait = tonumber(ARGV[1])
+local t = redis.call('TIME')
+local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+
+local wait = 0
+local state = {}
+for i, key in ipairs(KEYS) do
+  local capacity = tonumber(ARGV[i * 2])
+  local rate = tonumber(ARGV[i * 2 + 1])
+  local current = redis.call('HMGET', key, 'tokens', 'ts')
+  local tokens = tonumber(current[1])
+  local ts = tonumber(current[2])
+  if tokens == nil or ts == nil then
+    tokens = capacity
+    ts = now
+  end
+  if now > ts then
+    tokens = math.min(capacity, tokens + (now - ts) * rate / 1000)
+    ts = now
+  end
+  if tokens < 1 then
+    local w = math.ceil((1 - tokens) * 1000 / rate)
+    if w > max_wait then
+      return -1
+    end
+    if w > wait then
+      wait = w
+    end
+  end
+  state[i] = { tokens - 1, ts, math.ceil(capacity * 1000 / rate) + max_wait + 1000 }
+end
+
+for i, key in ipairs(KEYS) do
+  redis.call('HSET', key, 'tokens', tostring(state[i][1]), 'ts', tostring(state[i][2]))
+  redis.call('PEXPIRE', key, state[i][3])
+end
+return wait
@@ -0,0 +1,116 @@
+package com.marmik.brokerhub.broker.adapter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marmik.brokerhub.broker.dto.HoldingItem;
+import com.marmik.brokerhub.broker.dto.PositionItem;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for DhanResponseParser.
+ *
+ * Covers:
+ * - Mapping Dhan holdings and positions fields onto unified items.
+ * - Skipping unknown fields, nested values and null elements.
+ * - Keeping elements in response order.
+ * - Item-count limit and non-array bodies failing the parse.
+ *
+ * Ensures that the streaming mapping stays equivalent to the Dhan field
+ * contract and that oversized responses are rejected.
+ */
+class DhanResponseParserTest {
+
+    private final DhanResponseParser parser = new DhanResponseParser(new ObjectMapper().getFactory());
+
+    @Test
+    void shouldMapHoldingFields() throws Exception {
+        List<HoldingItem> out = parser.parseHoldings(bytes(
+                "[{\"exchange\":\"NSE\",\"tradingSymbol\":\"INFY\",\"isin\":\"INE009A01021\",\"totalQty\":10,"
+                        + "\"t1Qty\":2,\"collateralQty\":3,\"avgCostPrice\":100.5,\"lastPrice\":120.0}]"),
+                10);
+
+        assertEquals(1, out.size());
+        HoldingItem h = out.get(0);
+        assertEquals("NSE", h.getExchange());
+        assertEquals("INFY", h.getTradingSymbol());
+        assertEquals("INE009A01021", h.getIsin());
+        assertEquals(10, h.getQuantity());
+        assertEquals(2, h.getT1Quantity());
+        assertEquals("3", h.getCollateralQuantity());
+        assertEquals(100.5, h.getAveragePrice());
+        assertEquals(120.0, h.getLastPrice());
+    }
+
+    @Test
+    void shouldMapPositionFieldsAndDerivePrices() throws Exception {
+        List<PositionItem> out = parser.parsePositions(bytes(
+                "[{\"dhanClientId\":\"1\",\"tradingSymbol\":\"TCS\",\"securityId\":\"11536\",\"positionType\":\"LONG\","
+                        + "\"exchangeSegment\":\"NSE_EQ\",\"productType\":\"CNC\",\"buyAvg\":0,\"costPrice\":50.0,"
+                        + "\"netQty\":4,\"realizedProfit\":1.5,\"unrealizedProfit\":2.5,\"drvExpiryDate\":\"0001-01-01\","
+                        + "\"crossCurrency\":false}]"),
+                10);
+
+        PositionItem p = out.get(0);
+        assertEquals("NSE_EQ", p.getExchange());
+        assertEquals("TCS", p.getTradingSymbol());
+        assertEquals("11536", p.getSecurityId());
+        assertEquals(4, p.getQuantity());
+        assertEquals(50.0, p.getAveragePrice());
+        assertEquals(50.0, p.getLastPrice());
+        assertEquals(4.0, p.getTotalPnl());
+        assertEquals("LONG", p.getPositionType());
+        assertEquals("CNC", p.getProductType());
+    }
+
+    @Test
+    void shouldSkipUnknownNestedValuesAndNullElements() throws Exception {
+        List<HoldingItem> out = parser.parseHoldings(bytes(
+                "[null,{\"meta\":{\"a\":[1,{\"b\":2}]},\"tradingSymbol\":\"INFY\",\"totalQty\":{\"x\":1},"
+                        + "\"avgCostPrice\":\"99.5\"}]"),
+                10);
+
+        assertEquals(1, out.size());
+        assertEquals("INFY", out.get(0).getTradingSymbol());
+        assertEquals(0, out.get(0).getQuantity());
+        assertEquals(99.5, out.get(0).getAveragePrice());
+    }
+
+    @Test
+    void shouldKeepElementsInResponseOrder() throws Exception {
+        List<HoldingItem> out = parser.parseHoldings(bytes(
+                "[{\"tradingSymbol\":\"TCS\"},{\"tradingSymbol\":\"INFY\"},{\"tradingSymbol\":\"TCS\"},{}]"), 10);
+
+        assertEquals(Arrays.asList("TCS", "INFY", "TCS", null),
+                out.stream().map(HoldingItem::getTradingSymbol).toList());
+    }
+
+    @Test
+    void shouldReturnEmptyForEmptyOrNullBody() throws Exception {
+        assertTrue(parser.parseHoldings(new byte[0], 10).isEmpty());
+        assertTrue(parser.parseHoldings(null, 10).isEmpty());
+        assertTrue(parser.parsePositions(bytes("null"), 10).isEmpty());
+        assertTrue(parser.parsePositions(bytes("[]"), 10).isEmpty());
+    }
+
+    @Test
+    void shouldRejectMoreItemsThanLimit() {
+        assertThrows(DhanResponseParser.PayloadLimitException.class,
+                () -> parser.parseHoldings(bytes("[{},{},{}]"), 2));
+    }
+
+    @Test
+    void shouldRejectNonArrayBody() {
+        assertThrows(IOException.class,
+                () -> parser.parseHoldings(bytes("{\"errorCode\":\"DH-901\"}"), 10));
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
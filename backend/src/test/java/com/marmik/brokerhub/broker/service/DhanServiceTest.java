@@ -2,10 +2,13 @@ package com.marmik.brokerhub.broker.service;
 
 import com.marmik.brokerhub.broker.dto.HoldingItem;
 import com.marmik.brokerhub.broker.dto.PositionItem;
-import com.marmik.brokerhub.broker.model.PriceResponse;
+import com.marmik.brokerhub.http.ResponseTooLargeException;
+import com.marmik.brokerhub.http.UpstreamHttpClient;
+import com.marmik.brokerhub.http.UpstreamSettings;
+import com.marmik.brokerhub.http.UpstreamStatusException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.web.client.RestClient;
 
 import com.sun.net.httpserver.HttpServer;
 
@@ -14,98 +17,135 @@ import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.*;
 
 /**
  * Tests for DhanService.
  *
  * Covers:
- * - Holdings enrichment from market prices.
- * - Fallback behavior when price data is missing.
+ * - Mapping Dhan holdings and positions into unpriced unified items.
  * - Empty-result behavior for upstream HTTP failures.
- * - Position last-price enrichment behavior.
+ * - Async holdings fetch parsing on the caller's executor.
+ * - Async failures surfacing to the caller instead of an empty list.
+ * - Response size and item-count limits failing the call.
  *
- * Ensures that broker data adaptation and price-enrichment constraints are not
- * broken.
+ * Ensures that broker data adaptation constraints are not broken.
  */
 class DhanServiceTest {
 
     private HttpServer server;
+    private final UpstreamHttpClient http = new UpstreamHttpClient(UpstreamSettings.defaults("dhan"));
 
     @AfterEach
     void tearDown() {
         if (server != null) {
             server.stop(0);
         }
+        http.close();
     }
 
     @Test
-    void shouldEnrichHoldingsWhenMarketPriceAvailable() throws Exception {
+    void shouldMapHoldingsWithoutPricing() throws Exception {
         startServer("/holdings", 200,
                 "[{\"exchange\":\"NSE\",\"tradingSymbol\":\"INFY\",\"isin\":\"I\",\"totalQty\":10,\"t1Qty\":0,\"collateralQty\":0,\"avgCostPrice\":100.0,\"lastPrice\":0.0}]");
-        MarketDataService marketData = mock(MarketDataService.class);
-        PriceResponse p = new PriceResponse();
-        p.setSymbol("INFY");
-        p.setLastPrice(130.0);
-        p.setDayChange(5.0);
-        p.setDayChangePercentage(4.0);
-        when(marketData.getPrices(List.of("INFY"))).thenReturn(List.of(p));
-
-        DhanService service = new DhanService(RestClient.builder(), marketData);
+        DhanService service = new DhanService(http, new ObjectMapper());
         setBaseUrl(service, "http://localhost:" + server.getAddress().getPort());
 
         List<HoldingItem> out = service.getHoldings("token");
 
         assertEquals(1, out.size());
-        assertEquals(130.0, out.get(0).getLastPrice());
-        assertEquals(300.0, out.get(0).getPnl());
+        assertEquals("INFY", out.get(0).getTradingSymbol());
+        assertEquals(10, out.get(0).getQuantity());
+        assertEquals(100.0, out.get(0).getAveragePrice());
+        assertEquals(0.0, out.get(0).getPnl());
+        assertTrue(service.requiresPriceEnrichment());
     }
 
     @Test
-    void shouldApplyFallbackWhenMarketPriceMissingOrZero() throws Exception {
+    void shouldReturnEmptyWhenHoldingsApiFails() throws Exception {
+        startServer("/holdings", 500, "{}");
+        DhanService service = new DhanService(http, new ObjectMapper());
+        setBaseUrl(service, "http://localhost:" + server.getAddress().getPort());
+
+        assertTrue(service.getHoldings("token").isEmpty());
+    }
+
+    @Test
+    void shouldMapPositionsWithoutPricing() throws Exception {
+        startServer("/positions", 200,
+                "[{\"tradingSymbol\":\"INFY\",\"securityId\":\"1\",\"positionType\":\"LONG\",\"exchangeSegment\":\"NSE\",\"productType\":\"CNC\",\"buyAvg\":100.0,\"costPrice\":100.0,\"netQty\":5,\"realizedProfit\":0.0,\"unrealizedProfit\":0.0}]");
+        DhanService service = new DhanService(http, new ObjectMapper());
+        setBaseUrl(service, "http://localhost:" + server.getAddress().getPort());
+
+        List<PositionItem> out = service.getPositions("token");
+
+        assertEquals(1, out.size());
+        assertEquals(5, out.get(0).getQuantity());
+        assertEquals(100.0, out.get(0).getLastPrice());
+    }
+
+    @Test
+    void shouldParseOnSuppliedExecutorForAsyncHoldings() throws Exception {
         startServer("/holdings", 200,
                 "[{\"exchange\":\"NSE\",\"tradingSymbol\":\"INFY\",\"isin\":\"I\",\"totalQty\":10,\"t1Qty\":0,\"collateralQty\":0,\"avgCostPrice\":100.0,\"lastPrice\":0.0}]");
-        MarketDataService marketData = mock(MarketDataService.class);
-        when(marketData.getPrices(List.of("INFY"))).thenReturn(List.of());
+        DhanService service = new DhanService(http, new ObjectMapper());
+        setBaseUrl(service, "http://localhost:" + server.getAddress().getPort());
 
-        DhanService service = new DhanService(RestClient.builder(), marketData);
+        AtomicInteger tasks = new AtomicInteger();
+        Executor counting = command -> {
+            tasks.incrementAndGet();
+            command.run();
+        };
+
+        List<HoldingItem> out = service.getHoldingsAsync("token", counting).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, out.size());
+        assertEquals(1, tasks.get());
+    }
+
+    @Test
+    void shouldFailAsyncHoldingsWhenApiFails() throws Exception {
+        startServer("/holdings", 503, "{}");
+        DhanService service = new DhanService(http, new ObjectMapper());
         setBaseUrl(service, "http://localhost:" + server.getAddress().getPort());
 
-        List<HoldingItem> out = service.getHoldings("token");
+        CompletableFuture<List<HoldingItem>> out = service.getHoldingsAsync("token", Runnable::run);
 
-        assertEquals(100.0, out.get(0).getLastPrice());
-        assertEquals(0.0, out.get(0).getPnl());
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> out.get(5, TimeUnit.SECONDS));
+        assertEquals(503, assertInstanceOf(UpstreamStatusException.class, ex.getCause()).statusCode());
     }
 
     @Test
-    void shouldReturnEmptyWhenHoldingsApiFails() throws Exception {
-        startServer("/holdings", 500, "{}");
-        MarketDataService marketData = mock(MarketDataService.class);
-        DhanService service = new DhanService(RestClient.builder(), marketData);
+    void shouldFailAsyncHoldingsWhenBodyExceedsLimit() throws Exception {
+        startServer("/holdings", 200,
+                "[{\"exchange\":\"NSE\",\"tradingSymbol\":\"INFY\",\"isin\":\"I\",\"totalQty\":10,\"t1Qty\":0,\"collateralQty\":0,\"avgCostPrice\":100.0,\"lastPrice\":0.0}]");
+        DhanService service = new DhanService(http, new ObjectMapper());
         setBaseUrl(service, "http://localhost:" + server.getAddress().getPort());
+        setField(service, "maxBodyBytes", 16L);
 
-        assertTrue(service.getHoldings("token").isEmpty());
+        CompletableFuture<List<HoldingItem>> out = service.getHoldingsAsync("token", Runnable::run);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> out.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ResponseTooLargeException.class, ex.getCause());
     }
 
     @Test
-    void shouldEnrichPositionsLastPriceWhenAvailable() throws Exception {
+    void shouldFailAsyncPositionsWhenItemCountExceedsLimit() throws Exception {
         startServer("/positions", 200,
-                "[{\"tradingSymbol\":\"INFY\",\"securityId\":\"1\",\"positionType\":\"LONG\",\"exchangeSegment\":\"NSE\",\"productType\":\"CNC\",\"buyAvg\":100.0,\"costPrice\":100.0,\"netQty\":5,\"realizedProfit\":0.0,\"unrealizedProfit\":0.0}]");
-        MarketDataService marketData = mock(MarketDataService.class);
-        PriceResponse p = new PriceResponse();
-        p.setSymbol("INFY");
-        p.setLastPrice(150.0);
-        when(marketData.getPrices(List.of("INFY"))).thenReturn(List.of(p));
-
-        DhanService service = new DhanService(RestClient.builder(), marketData);
+                "[{\"tradingSymbol\":\"INFY\",\"netQty\":1},{\"tradingSymbol\":\"TCS\",\"netQty\":1}]");
+        DhanService service = new DhanService(http, new ObjectMapper());
         setBaseUrl(service, "http://localhost:" + server.getAddress().getPort());
+        setField(service, "maxItems", 1);
 
-        List<PositionItem> out = service.getPositions("token");
+        CompletableFuture<List<PositionItem>> out = service.getPositionsAsync("token", Runnable::run);
 
-        assertEquals(1, out.size());
-        assertEquals(150.0, out.get(0).getLastPrice());
+        assertThrows(ExecutionException.class, () -> out.get(5, TimeUnit.SECONDS));
     }
 
     private void startServer(String path, int status, String body) throws IOException {
@@ -122,8 +162,12 @@ class DhanServiceTest {
     }
 
     private void setBaseUrl(DhanService service, String baseUrl) throws Exception {
-        Field f = DhanService.class.getDeclaredField("baseUrl");
+        setField(service, "baseUrl", baseUrl);
+    }
+
+    private void setField(DhanService service, String name, Object value) throws Exception {
+        Field f = DhanService.class.getDeclaredField(name);
         f.setAccessible(true);
-        f.set(service, baseUrl);
+        f.set(service, value);
     }
 }
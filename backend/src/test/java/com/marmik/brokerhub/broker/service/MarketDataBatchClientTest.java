@@ -0,0 +1,136 @@
+package com.marmik.brokerhub.broker.service;
+
+import com.marmik.brokerhub.broker.model.PriceResponse;
+import com.marmik.brokerhub.http.Deadline;
+import com.marmik.brokerhub.http.UpstreamHttpClient;
+import com.marmik.brokerhub.http.UpstreamSettings;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for MarketDataBatchClient.
+ *
+ * Covers:
+ * - Sending symbols in the POST body, including ones unsafe in a URL.
+ * - Splitting large sets into chunks that are in flight together.
+ * - Keeping the other chunks' prices when one chunk fails.
+ * - Stream-parsing results into a symbol map, skipping unknown fields.
+ * - Skipping the call once the deadline has passed.
+ *
+ * Ensures that large portfolios are priced without long URLs or one serial
+ * request.
+ */
+class MarketDataBatchClientTest {
+
+    private final UpstreamHttpClient http = new UpstreamHttpClient(UpstreamSettings.defaults("market-data"));
+    private MarketDataStub stub;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new MarketDataStub();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+        http.close();
+    }
+
+    @Test
+    void shouldSendSymbolsInRequestBody() {
+        stub.prices.put("M&M", 2900.0);
+        stub.prices.put("BAJAJ-AUTO", 9100.0);
+
+        Map<String, PriceResponse> out = client(100)
+                .fetch(stub.baseUrl(), List.of("M&M", "BAJAJ-AUTO"), Deadline.none()).join();
+
+        assertEquals(List.of("M&M,BAJAJ-AUTO"), stub.requests);
+        assertEquals(2900.0, out.get("M&M").getLastPrice());
+        assertEquals(9100.0, out.get("BAJAJ-AUTO").getLastPrice());
+    }
+
+    @Test
+    void shouldFetchChunksInParallel() throws Exception {
+        List<String> symbols = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            symbols.add("S" + i);
+            stub.prices.put("S" + i, 100.0 + i);
+        }
+        stub.release = new CountDownLatch(1);
+
+        CompletableFuture<Map<String, PriceResponse>> pending = client(2)
+                .fetch(stub.baseUrl(), symbols, Deadline.none());
+        stub.waitForRequests(3);
+        assertEquals(3, stub.requests.size());
+        assertFalse(pending.isDone());
+        stub.release.countDown();
+
+        Map<String, PriceResponse> out = pending.get(5, TimeUnit.SECONDS);
+        assertEquals(5, out.size());
+        assertEquals(104.0, out.get("S4").getLastPrice());
+        assertEquals(Set.of("S0,S1", "S2,S3", "S4"), Set.copyOf(stub.requests));
+    }
+
+    @Test
+    void shouldKeepOtherChunksWhenOneFails() {
+        stub.prices.put("INFY", 1500.0);
+        stub.prices.put("TCS", 3500.0);
+        stub.failing.add("BAD");
+
+        Map<String, PriceResponse> out = client(2)
+                .fetch(stub.baseUrl(), List.of("INFY", "TCS", "BAD"), Deadline.none()).join();
+
+        assertEquals(Set.of("INFY", "TCS"), out.keySet());
+    }
+
+    @Test
+    void shouldStreamParseResultsSkippingUnknownFields() throws IOException {
+        String body = "{\"meta\":{\"source\":[1,2]},\"results\":["
+                + "{\"symbol\":\"INFY\",\"lastPrice\":1500.5,\"dayChange\":-4,\"extra\":{\"a\":[1]},"
+                + "\"dayChangePercentage\":-0.27},"
+                + "{\"symbol\":{\"bad\":1},\"lastPrice\":1},"
+                + "{\"symbol\":\"TCS\",\"lastPrice\":\"n/a\"}]}";
+
+        Map<String, PriceResponse> out = client(100).parse(body.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(Set.of("INFY", "TCS"), out.keySet());
+        PriceResponse infy = out.get("INFY");
+        assertEquals(1500.5, infy.getLastPrice());
+        assertEquals(-4.0, infy.getDayChange());
+        assertEquals(-0.27, infy.getDayChangePercentage());
+        assertEquals(0.0, out.get("TCS").getLastPrice());
+    }
+
+    @Test
+    void shouldSkipCallAfterDeadline() {
+        Map<String, PriceResponse> out = client(100)
+                .fetch(stub.baseUrl(), List.of("INFY"), Deadline.after(Duration.ZERO)).join();
+
+        assertTrue(out.isEmpty());
+        assertTrue(stub.requests.isEmpty());
+    }
+
+    @Test
+    void shouldRejectNonPositiveChunkSize() {
+        assertThrows(IllegalArgumentException.class, () -> client(0));
+    }
+
+    private MarketDataBatchClient client(int chunkSize) {
+        return new MarketDataBatchClient(http, new JsonFactory(), chunkSize);
+    }
+}
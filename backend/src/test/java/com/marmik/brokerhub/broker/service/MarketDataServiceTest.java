@@ -0,0 +1,313 @@
+package com.marmik.brokerhub.broker.service;
+
+import com.marmik.brokerhub.broker.model.PriceResponse;
+import com.marmik.brokerhub.http.Deadline;
+import com.marmik.brokerhub.http.UpstreamHttpClient;
+import com.marmik.brokerhub.http.UpstreamSettings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for MarketDataService.
+ *
+ * Covers:
+ * - Serving repeated symbols from the in-process price cache.
+ * - Requesting only the symbols missing from the cache.
+ * - Sharing one remote lookup between concurrent callers of a symbol.
+ * - Not caching unavailable (zero) prices.
+ * - Disabling the cache with a zero TTL, including for streaming writers.
+ * - Reading the service's Redis price cache first and calling HTTP only for
+ * the misses, and not keeping such prices past their Redis TTL.
+ * - Refreshing cached prices from pushed updates, ignoring uncached symbols
+ * and zero prices.
+ * - Notifying price listeners of changed prices only.
+ * - Coalescing concurrent lookups into one batched call, sending early at
+ * the symbol limit, and batch metrics.
+ *
+ * Ensures that the price cache cuts calls to the market-data service without
+ * changing the prices callers see.
+ */
+class MarketDataServiceTest {
+
+    private final UpstreamHttpClient http = new UpstreamHttpClient(UpstreamSettings.defaults("market-data"));
+    private MarketDataStub stub;
+    private List<String> requests;
+    private Map<String, Double> prices;
+    private final Map<String, Double> sharedPrices = new ConcurrentHashMap<>();
+    private final Map<String, Long> sharedTtls = new ConcurrentHashMap<>();
+    private final SharedPriceCache sharedCache = new SharedPriceCache(null, new ObjectMapper(), false) {
+        @Override
+        public Map<String, CachedPrice> getAll(Collection<String> symbols) {
+            Map<String, CachedPrice> found = new HashMap<>();
+            for (String symbol : symbols) {
+                Double last = sharedPrices.get(symbol);
+                if (last != null) {
+                    PriceResponse p = new PriceResponse();
+                    p.setSymbol(symbol);
+                    p.setLastPrice(last);
+                    found.put(symbol, new CachedPrice(p, sharedTtls.getOrDefault(symbol, -1L)));
+                }
+            }
+            return found;
+        }
+    };
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new MarketDataStub();
+        requests = stub.requests;
+        prices = stub.prices;
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+        http.close();
+    }
+
+    @Test
+    void shouldServeRepeatedSymbolsFromCache() throws Exception {
+        prices.put("INFY", 1500.0);
+        MarketDataService service = service(1200);
+
+        List<PriceResponse> first = service.getPrices(List.of("INFY"));
+        List<PriceResponse> second = service.getPrices(List.of("INFY"));
+
+        assertEquals(1500.0, first.get(0).getLastPrice());
+        assertEquals(1500.0, second.get(0).getLastPrice());
+        assertEquals(List.of("INFY"), requests);
+    }
+
+    @Test
+    void shouldRequestOnlyMissingSymbols() throws Exception {
+        prices.put("INFY", 1500.0);
+        prices.put("TCS", 3500.0);
+        MarketDataService service = service(1200);
+
+        service.getPrices(List.of("INFY"));
+        List<PriceResponse> out = service.getPrices(List.of("TCS", "INFY"));
+
+        assertEquals(List.of("INFY", "TCS"), requests);
+        assertEquals(List.of("TCS", "INFY"), out.stream().map(PriceResponse::getSymbol).toList());
+    }
+
+    @Test
+    void shouldShareInFlightLookupBetweenConcurrentCallers() throws Exception {
+        prices.put("INFY", 1500.0);
+        stub.release = new CountDownLatch(1);
+        MarketDataService service = service(1200);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<PriceResponse>> first = pool.submit(() -> service.getPrices(List.of("INFY")));
+            stub.waitForRequests(1);
+            Future<List<PriceResponse>> second = pool.submit(() -> service.getPrices(List.of("INFY")));
+            Thread.sleep(100);
+            stub.release.countDown();
+
+            assertEquals(1500.0, first.get(5, TimeUnit.SECONDS).get(0).getLastPrice());
+            assertEquals(1500.0, second.get(5, TimeUnit.SECONDS).get(0).getLastPrice());
+            assertEquals(1, requests.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldNotCacheUnavailablePrices() throws Exception {
+        prices.put("INFY", 0.0);
+        MarketDataService service = service(1200);
+
+        service.getPrices(List.of("INFY"));
+        service.getPrices(List.of("INFY"));
+
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    void shouldCallRemoteEveryTimeWhenCacheDisabled() throws Exception {
+        prices.put("INFY", 1500.0);
+        MarketDataService service = service(0);
+
+        service.getPrices(List.of("INFY"));
+        service.getPrices(List.of("INFY"));
+
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    void shouldSkipRemoteCallAfterDeadline() throws Exception {
+        MarketDataService service = service(1200);
+
+        assertTrue(service.getPrices(List.of("INFY"), Deadline.after(Duration.ZERO)).isEmpty());
+        assertTrue(requests.isEmpty());
+    }
+
+    @Test
+    void shouldCoalesceConcurrentLookupsIntoOneCall() throws Exception {
+        prices.put("INFY", 1500.0);
+        prices.put("TCS", 3500.0);
+        MarketDataService service = service(1200, 200_000, 100);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<PriceResponse>> infy = pool.submit(() -> service.getPrices(List.of("INFY")));
+            Future<List<PriceResponse>> tcs = pool.submit(() -> service.getPrices(List.of("TCS")));
+
+            assertEquals(List.of("INFY"), infy.get(5, TimeUnit.SECONDS).stream().map(PriceResponse::getSymbol).toList());
+            assertEquals(List.of("TCS"), tcs.get(5, TimeUnit.SECONDS).stream().map(PriceResponse::getSymbol).toList());
+            assertEquals(1, requests.size());
+            assertEquals(Set.of("INFY", "TCS"), Set.of(requests.get(0).split(",")));
+
+            PriceBatchStats stats = service.batchStats();
+            assertEquals(2, stats.lookups());
+            assertEquals(1, stats.batches());
+            assertEquals(2, stats.largestBatchSymbols());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldSendBatchEarlyWhenSymbolLimitReached() throws Exception {
+        prices.put("INFY", 1500.0);
+        prices.put("TCS", 3500.0);
+        MarketDataService service = service(1200, 10_000_000, 2);
+
+        long start = System.nanoTime();
+        List<PriceResponse> out = service.getPrices(List.of("INFY", "TCS"));
+
+        assertEquals(2, out.size());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void shouldReadSharedCacheFirstAndFetchOnlyMisses() throws Exception {
+        prices.put("TCS", 3500.0);
+        sharedPrices.put("INFY", 1490.0);
+        MarketDataService service = service(1200);
+
+        List<PriceResponse> out = service.getPrices(List.of("INFY", "TCS"));
+
+        assertEquals(1490.0, out.get(0).getLastPrice());
+        assertEquals(3500.0, out.get(1).getLastPrice());
+        assertEquals(List.of("TCS"), requests);
+    }
+
+    @Test
+    void shouldNotCacheSharedPriceBeyondItsRedisTtl() throws Exception {
+        prices.put("INFY", 1500.0);
+        sharedPrices.put("INFY", 1490.0);
+        sharedTtls.put("INFY", 50L);
+        MarketDataService service = service(1200);
+
+        assertEquals(1490.0, service.getPrices(List.of("INFY")).get(0).getLastPrice());
+        sharedPrices.remove("INFY");
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        assertEquals(1500.0, service.getPrices(List.of("INFY")).get(0).getLastPrice());
+        assertEquals(List.of("INFY"), requests);
+    }
+
+    @Test
+    void shouldReadSharedCacheWhenLocalCacheDisabled() throws Exception {
+        sharedPrices.put("INFY", 1490.0);
+        MarketDataService service = service(0);
+
+        List<PriceResponse> out = service.getPrices(List.of("INFY"));
+
+        assertEquals(1490.0, out.get(0).getLastPrice());
+        assertTrue(requests.isEmpty());
+    }
+
+    @Test
+    void shouldRefreshCachedPriceFromPushedUpdate() throws Exception {
+        prices.put("INFY", 1500.0);
+        MarketDataService service = service(1200);
+        service.getPrices(List.of("INFY"));
+
+        assertTrue(service.applyPriceUpdate(price("INFY", 1510.0)));
+        assertFalse(service.applyPriceUpdate(price("INFY", 0.0)));
+
+        assertEquals(1510.0, service.getPrices(List.of("INFY")).get(0).getLastPrice());
+        assertEquals(List.of("INFY"), requests);
+    }
+
+    @Test
+    void shouldIgnorePushedUpdateForUncachedSymbol() throws Exception {
+        prices.put("INFY", 1500.0);
+        MarketDataService service = service(1200);
+
+        assertFalse(service.applyPriceUpdate(price("INFY", 1510.0)));
+
+        assertEquals(1500.0, service.getPrices(List.of("INFY")).get(0).getLastPrice());
+        assertEquals(List.of("INFY"), requests);
+    }
+
+    @Test
+    void shouldNotifyListenersOfChangedPricesOnly() throws Exception {
+        prices.put("INFY", 1500.0);
+        MarketDataService service = service(1200);
+        List<String> seen = new ArrayList<>();
+        service.addPriceListener((symbol, last, change, pct) -> seen.add(symbol + "@" + last));
+
+        service.getPrices(List.of("INFY"));
+        service.applyPriceUpdate(price("INFY", 1500.0));
+        service.applyPriceUpdate(price("INFY", 1510.0));
+
+        assertEquals(List.of("INFY@1500.0", "INFY@1510.0"), seen);
+    }
+
+    @Test
+    void shouldIgnoreStreamedPricesWhenCacheDisabled() throws Exception {
+        MarketDataService service = service(0);
+        List<String> seen = new ArrayList<>();
+        service.addPriceListener((symbol, last, change, pct) -> seen.add(symbol));
+
+        assertEquals(-1, service.cacheId("INFY"));
+        assertFalse(service.storePrice(0, 1500.0, 1490.0, 10.0, 0.67, System.currentTimeMillis()));
+        service.notifyPriceListeners(0, 1500.0, 10.0, 0.67);
+
+        assertTrue(seen.isEmpty());
+    }
+
+    private static PriceResponse price(String symbol, double last) {
+        PriceResponse p = new PriceResponse();
+        p.setSymbol(symbol);
+        p.setLastPrice(last);
+        return p;
+    }
+
+    private MarketDataService service(long ttlSeconds) throws Exception {
+        return service(ttlSeconds, 0, 200);
+    }
+
+    private MarketDataService service(long ttlSeconds, long batchWindowMicros, int batchMaxSymbols) throws Exception {
+        MarketDataService service = new MarketDataService(new ObjectMapper(), http, ttlSeconds, 100,
+                batchWindowMicros, batchMaxSymbols, 100, sharedCache);
+        Field f = MarketDataService.class.getDeclaredField("baseUrl");
+        f.setAccessible(true);
+        f.set(service, stub.baseUrl());
+        return service;
+    }
+
+}
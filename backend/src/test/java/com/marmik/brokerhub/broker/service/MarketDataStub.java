@@ -0,0 +1,102 @@
+package com.marmik.brokerhub.broker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the market-data service's POST /prices endpoint.
+ *
+ * Answers {"symbols": [...]} with a price for every symbol (0 when unknown)
+ * and records each request's symbols, comma-joined. Requests can be held on
+ * a latch, and requests containing a failing symbol answer HTTP 500.
+ */
+final class MarketDataStub implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    final Map<String, Double> prices = new ConcurrentHashMap<>();
+    final List<String> requests = new CopyOnWriteArrayList<>();
+    final Set<String> failing = ConcurrentHashMap.newKeySet();
+    volatile CountDownLatch release;
+
+    private final HttpServer server;
+
+    MarketDataStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/prices", exchange -> {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                exchange.close();
+                return;
+            }
+            List<String> symbols = new ArrayList<>();
+            try (InputStream in = exchange.getRequestBody()) {
+                JsonNode body = MAPPER.readTree(in);
+                body.path("symbols").forEach(s -> symbols.add(s.asText()));
+            }
+            requests.add(String.join(",", symbols));
+            CountDownLatch gate = release;
+            if (gate != null) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (symbols.stream().anyMatch(failing::contains)) {
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+            StringBuilder body = new StringBuilder("{\"results\":[");
+            for (int i = 0; i < symbols.size(); i++) {
+                if (i > 0) {
+                    body.append(',');
+                }
+                body.append("{\"symbol\":\"").append(symbols.get(i)).append("\",\"lastPrice\":")
+                        .append(prices.getOrDefault(symbols.get(i), 0.0)).append('}');
+            }
+            body.append("]}");
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    void waitForRequests(int count) throws InterruptedException {
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requests.size() < count && System.nanoTime() < until) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,96 @@
+package com.marmik.brokerhub.broker.service;
+
+import com.marmik.brokerhub.broker.model.PriceResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PriceUpdateSubscriber.
+ *
+ * Covers:
+ * - Passing published prices to MarketDataService and counting the ones
+ * applied.
+ * - Ignoring unreadable messages.
+ * - Not subscribing when disabled or without a Redis connection.
+ *
+ * Ensures that a bad message on the update channel never breaks the listener.
+ */
+class PriceUpdateSubscriberTest {
+
+    private final List<PriceResponse> updates = new CopyOnWriteArrayList<>();
+
+    private final MarketDataService marketData = new MarketDataService(
+            new ObjectMapper(), null, 0, 1, 0, 1, 1, null) {
+        @Override
+        public boolean applyPriceUpdate(PriceResponse price) {
+            updates.add(price);
+            return price.getLastPrice() != 0;
+        }
+    };
+
+    @Test
+    void shouldApplyPublishedPrices() {
+        PriceUpdateSubscriber subscriber = subscriber(true);
+
+        subscriber.onMessage(message("{\"symbol\":\"INFY\",\"lastPrice\":1510.5,\"dayChange\":10.5}"), null);
+        subscriber.onMessage(message("{\"symbol\":\"TCS\",\"lastPrice\":0}"), null);
+
+        assertEquals(2, updates.size());
+        assertEquals("INFY", updates.get(0).getSymbol());
+        assertEquals(1510.5, updates.get(0).getLastPrice());
+        assertEquals(2, subscriber.receivedCount());
+        assertEquals(1, subscriber.appliedCount());
+    }
+
+    @Test
+    void shouldIgnoreUnreadableMessages() {
+        PriceUpdateSubscriber subscriber = subscriber(true);
+
+        subscriber.onMessage(message("not json"), null);
+
+        assertTrue(updates.isEmpty());
+        assertEquals(1, subscriber.receivedCount());
+        assertEquals(0, subscriber.appliedCount());
+    }
+
+    @Test
+    void shouldNotSubscribeWhenDisabledOrWithoutConnection() throws Exception {
+        for (boolean enabled : new boolean[] { true, false }) {
+            PriceUpdateSubscriber subscriber = subscriber(enabled);
+
+            subscriber.start();
+            subscriber.stop();
+
+            assertEquals(0, subscriber.receivedCount());
+        }
+    }
+
+    private PriceUpdateSubscriber subscriber(boolean enabled) {
+        return new PriceUpdateSubscriber(marketData, new ObjectMapper(),
+                new StaticListableBeanFactory().getBeanProvider(RedisConnectionFactory.class), enabled, "md:price-updates");
+    }
+
+    private static Message message(String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return new Message() {
+            @Override
+            public byte[] getBody() {
+                return bytes;
+            }
+
+            @Override
+            public byte[] getChannel() {
+                return "md:price-updates".getBytes(StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
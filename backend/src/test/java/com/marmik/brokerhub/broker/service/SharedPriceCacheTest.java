@@ -0,0 +1,120 @@
+package com.marmik.brokerhub.broker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marmik.brokerhub.broker.service.SharedPriceCache.CachedPrice;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for SharedPriceCache.
+ *
+ * Covers:
+ * - One pipeline holding an MGET of md:price:{SYMBOL} keys for all
+ * requested symbols plus a PTTL per key.
+ * - Returning hits keyed by the symbol as requested, with their remaining
+ * Redis TTL.
+ * - Treating missing, zero-priced and unreadable entries as misses.
+ * - Failing open when Redis is unavailable or the read path is disabled.
+ *
+ * Ensures that reading the market-data service's cache directly never
+ * returns wrong or unavailable prices.
+ */
+@ExtendWith(MockitoExtension.class)
+class SharedPriceCacheTest {
+
+    @Mock
+    private StringRedisTemplate redis;
+    @Mock
+    private StringRedisConnection connection;
+
+    private SharedPriceCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SharedPriceCache(redis, new ObjectMapper(), true);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReadAllSymbolsAndTtlsInOnePipeline() {
+        ArgumentCaptor<RedisCallback<Object>> callback = ArgumentCaptor.forClass(RedisCallback.class);
+        when(redis.executePipelined(callback.capture())).thenReturn(Arrays.asList(
+                Arrays.asList(
+                        "{\"symbol\":\"INFY\",\"lastPrice\":1500.5,\"dayChange\":10.0,\"dayChangePercentage\":0.67}",
+                        null,
+                        "{\"symbol\":\"WIPRO\",\"lastPrice\":0,\"dayChange\":0,\"dayChangePercentage\":0}"),
+                4_000L, -2L, 900L));
+
+        Map<String, CachedPrice> out = cache.getAll(List.of("infy", "TCS", "WIPRO"));
+
+        assertEquals(1, out.size());
+        CachedPrice infy = out.get("infy");
+        assertEquals("infy", infy.price().getSymbol());
+        assertEquals(1500.5, infy.price().getLastPrice());
+        assertEquals(10.0, infy.price().getDayChange());
+        assertEquals(4_000L, infy.remainingTtlMillis());
+
+        callback.getValue().doInRedis(connection);
+        verify(connection).mGet("md:price:INFY", "md:price:TCS", "md:price:WIPRO");
+        verify(connection).pTtl("md:price:INFY");
+        verify(connection).pTtl("md:price:TCS");
+        verify(connection).pTtl("md:price:WIPRO");
+        verify(redis, times(1)).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReportNoExpiryAsNegativeTtl() {
+        when(redis.executePipelined(any(RedisCallback.class))).thenReturn(Arrays.asList(
+                List.of("{\"symbol\":\"TCS\",\"lastPrice\":3500.0,\"dayChange\":0,\"dayChangePercentage\":0}"),
+                -1L));
+
+        assertEquals(-1L, cache.getAll(List.of("TCS")).get("TCS").remainingTtlMillis());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldSkipUnreadableEntries() {
+        when(redis.executePipelined(any(RedisCallback.class))).thenReturn(Arrays.asList(
+                Arrays.asList(
+                        "not-json",
+                        "{\"symbol\":\"TCS\",\"lastPrice\":3500.0,\"dayChange\":0,\"dayChangePercentage\":0}"),
+                1_000L, 1_000L));
+
+        Map<String, CachedPrice> out = cache.getAll(List.of("INFY", "TCS"));
+
+        assertEquals(List.of("TCS"), List.copyOf(out.keySet()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldFailOpenWhenRedisUnavailable() {
+        when(redis.executePipelined(any(RedisCallback.class))).thenThrow(new RedisConnectionFailureException("down"));
+
+        assertTrue(cache.getAll(List.of("INFY")).isEmpty());
+    }
+
+    @Test
+    void shouldNotTouchRedisWhenDisabled() {
+        SharedPriceCache disabled = new SharedPriceCache(redis, new ObjectMapper(), false);
+
+        assertTrue(disabled.getAll(List.of("INFY")).isEmpty());
+        verifyNoInteractions(redis);
+    }
+}
@@ -0,0 +1,113 @@
+package com.marmik.brokerhub.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for LocalTtlCache.
+ *
+ * Covers:
+ * - Per-entry expiry driven by the supplied clock.
+ * - LRU eviction once the size bound is exceeded.
+ * - Removal notifications for expiry, eviction, replacement and invalidation.
+ * - Replacing only live entries in place.
+ *
+ * Ensures that cached values never outlive their TTL and that removal hooks
+ * (used to scrub sensitive values) always fire.
+ */
+class LocalTtlCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<String> removed = new ArrayList<>();
+
+    private LocalTtlCache<String, String> cache(int max, Duration ttl) {
+        return new LocalTtlCache<>(max, ttl, (k, v) -> removed.add(k + "=" + v), now::get);
+    }
+
+    @Test
+    void shouldReplaceOnlyLiveEntries() {
+        LocalTtlCache<String, String> cache = cache(10, Duration.ofSeconds(5));
+        cache.put("a", "1");
+        cache.put("b", "1");
+
+        now.addAndGet(Duration.ofSeconds(4).toNanos());
+        assertTrue(cache.replaceIfPresent("a", "2"));
+        assertFalse(cache.replaceIfPresent("c", "2"));
+
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertEquals("2", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNull(cache.get("c"));
+        assertFalse(cache.replaceIfPresent("b", "2"));
+    }
+
+    @Test
+    void shouldExpireEntryAfterTtl() {
+        LocalTtlCache<String, String> cache = cache(10, Duration.ofSeconds(5));
+        cache.put("a", "1");
+
+        now.addAndGet(Duration.ofSeconds(4).toNanos());
+        assertEquals("1", cache.get("a"));
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertNull(cache.get("a"));
+        assertEquals(List.of("a=1"), removed);
+    }
+
+    @Test
+    void shouldHonorPerEntryTtl() {
+        LocalTtlCache<String, String> cache = cache(10, Duration.ofMinutes(5));
+        cache.put("short", "1", Duration.ofSeconds(1));
+        cache.put("none", "2", Duration.ZERO);
+
+        assertNull(cache.get("none"));
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(cache.get("short"));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedWhenFull() {
+        LocalTtlCache<String, String> cache = cache(2, Duration.ofMinutes(1));
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(List.of("b=2"), removed);
+    }
+
+    @Test
+    void shouldNotifyOnReplacementAndInvalidation() {
+        LocalTtlCache<String, String> cache = cache(10, Duration.ofMinutes(1));
+        cache.put("a", "1");
+        cache.put("a", "2");
+        cache.put("b", "3");
+        cache.invalidate("a");
+        cache.invalidateAll();
+
+        assertEquals(0, cache.size());
+        assertEquals(List.of("a=1", "a=2", "b=3"), removed);
+    }
+
+    @Test
+    void shouldPurgeExpiredEntriesWithoutReads() {
+        LocalTtlCache<String, String> cache = cache(10, Duration.ofSeconds(1));
+        cache.put("a", "1");
+        cache.put("b", "2", Duration.ofMinutes(1));
+
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.purgeExpired();
+
+        assertEquals(1, cache.size());
+        assertEquals(List.of("a=1"), removed);
+    }
+}
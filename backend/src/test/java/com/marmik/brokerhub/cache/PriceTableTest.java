@@ -0,0 +1,111 @@
+package com.marmik.brokerhub.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PriceTable and InstrumentIds.
+ *
+ * Covers:
+ * - Publishing and reading a slot, and the per-slot version.
+ * - Slots never written reading as absent.
+ * - Readers never seeing a half-written slot while writers update it.
+ * - Dense instrument IDs, stable per symbol, bounded by capacity.
+ *
+ * Ensures that lock-free readers always get a consistent price.
+ */
+class PriceTableTest {
+
+    @Test
+    void shouldPublishAndReadPrice() {
+        PriceTable table = new PriceTable(4);
+        PriceTable.Quote quote = new PriceTable.Quote();
+
+        assertFalse(table.read(2, quote));
+        assertEquals(0, table.version(2));
+
+        table.update(2, 1510.0, 1500.0, 10.0, 0.67, 42L);
+
+        assertTrue(table.read(2, quote));
+        assertEquals(1510.0, quote.lastPrice());
+        assertEquals(1500.0, quote.previousClose());
+        assertEquals(10.0, quote.dayChange());
+        assertEquals(0.67, quote.dayChangePercentage());
+        assertEquals(42L, quote.timestampMillis());
+        assertEquals(1510.0, table.lastPrice(2));
+        assertEquals(1, table.version(2));
+        assertFalse(table.read(1, quote));
+    }
+
+    @Test
+    void shouldRejectIdsOutsideTable() {
+        PriceTable table = new PriceTable(4);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> table.lastPrice(4));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.update(-1, 1, 1, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new PriceTable(0));
+    }
+
+    @Test
+    void shouldNeverExposeTornSlots() throws Exception {
+        PriceTable table = new PriceTable(1);
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> writers = pool.submit(() -> write(table, stop, 1));
+            Future<?> writers2 = pool.submit(() -> write(table, stop, 1_000_000));
+            Future<Long> reader = pool.submit(() -> {
+                PriceTable.Quote quote = new PriceTable.Quote();
+                long reads = 0;
+                while (!stop.get()) {
+                    if (table.read(0, quote)) {
+                        double v = quote.lastPrice();
+                        assertEquals(v, quote.previousClose());
+                        assertEquals(v, quote.dayChange());
+                        assertEquals(v, quote.dayChangePercentage());
+                        assertEquals((long) v, quote.timestampMillis());
+                        reads++;
+                    }
+                }
+                return reads;
+            });
+            Thread.sleep(300);
+            stop.set(true);
+            writers.get(5, TimeUnit.SECONDS);
+            writers2.get(5, TimeUnit.SECONDS);
+            assertTrue(reader.get(5, TimeUnit.SECONDS) > 0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldAssignDenseStableIdsUpToCapacity() {
+        InstrumentIds ids = new InstrumentIds(2);
+
+        assertEquals(-1, ids.idOf("INFY"));
+        assertEquals(0, ids.register("INFY"));
+        assertEquals(1, ids.register("TCS"));
+        assertEquals(0, ids.register("INFY"));
+        assertEquals(-1, ids.register("RELIANCE"));
+        assertEquals(-1, ids.idOf("RELIANCE"));
+        assertEquals(-1, ids.register(null));
+
+        assertEquals(1, ids.idOf("TCS"));
+        assertEquals("TCS", ids.symbolOf(1));
+        assertEquals(2, ids.size());
+    }
+
+    private static void write(PriceTable table, AtomicBoolean stop, long start) {
+        for (long v = start; !stop.get(); v++) {
+            table.update(0, v, v, v, v, v);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.marmik.brokerhub.controller;
+
+import com.marmik.brokerhub.http.Deadline;
+import com.marmik.brokerhub.service.AccountAccessValidator;
+import com.marmik.brokerhub.service.AccountPortfolioService;
+import com.marmik.brokerhub.service.PortfolioStreamService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for AccountPortfolioController.
+ *
+ * Covers:
+ * - Async results that stay pending until the aggregation completes.
+ * - Request deadline from X-Request-Timeout-Ms, default and maximum.
+ * - Invalid UUIDs answered immediately without starting an aggregation.
+ * - Holdings streams opened only after the membership check.
+ *
+ * Ensures that the servlet thread is not tied to the broker fan-out and that
+ * clients cannot stretch aggregation beyond the configured maximum.
+ */
+@ExtendWith(MockitoExtension.class)
+class AccountPortfolioControllerTest {
+
+    @Mock
+    private AccountPortfolioService portfolioService;
+
+    @Mock
+    private AccountAccessValidator accessValidator;
+
+    @Mock
+    private PortfolioStreamService streamService;
+
+    private AccountPortfolioController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new AccountPortfolioController(portfolioService, accessValidator, streamService, 30_000, 60_000);
+    }
+
+    @Test
+    void shouldResolveHoldingsOnceAggregationCompletes() {
+        UUID accountId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        CompletableFuture<Map<String, Object>> aggregation = new CompletableFuture<>();
+        when(portfolioService.aggregateHoldingsForAccountAsync(eq(accountId), eq(userId), any()))
+                .thenReturn(aggregation);
+
+        DeferredResult<ResponseEntity<?>> result = controller.getAggregateHoldings(
+                accountId.toString(), userId.toString(), null);
+
+        assertFalse(result.hasResult());
+        verify(accessValidator).requireMembership(userId, accountId);
+
+        Map<String, Object> body = Map.of("full", List.of(), "partial", List.of());
+        aggregation.complete(body);
+
+        assertTrue(result.hasResult());
+        ResponseEntity<?> response = (ResponseEntity<?>) result.getResult();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(body, response.getBody());
+    }
+
+    @Test
+    void shouldResolvePositionsOnceAggregationCompletes() {
+        UUID accountId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        CompletableFuture<Map<String, Object>> aggregation = new CompletableFuture<>();
+        when(portfolioService.aggregatePositionsForAccountAsync(eq(accountId), eq(userId), any()))
+                .thenReturn(aggregation);
+
+        DeferredResult<ResponseEntity<?>> result = controller.getAggregatePositions(
+                accountId.toString(), userId.toString(), null);
+
+        assertFalse(result.hasResult());
+
+        Map<String, Object> body = Map.of("full", List.of(), "partial", List.of());
+        aggregation.complete(body);
+
+        ResponseEntity<?> response = (ResponseEntity<?>) result.getResult();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(body, response.getBody());
+    }
+
+    @Test
+    void shouldCapClientRequestedTimeoutAtConfiguredMaximum() {
+        UUID accountId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        when(portfolioService.aggregateHoldingsForAccountAsync(eq(accountId), eq(userId), any()))
+                .thenReturn(new CompletableFuture<>());
+
+        controller.getAggregateHoldings(accountId.toString(), userId.toString(), 600_000L);
+
+        ArgumentCaptor<Deadline> deadline = ArgumentCaptor.forClass(Deadline.class);
+        verify(portfolioService).aggregateHoldingsForAccountAsync(eq(accountId), eq(userId), deadline.capture());
+        assertTrue(deadline.getValue().isBounded());
+        assertTrue(deadline.getValue().remaining().compareTo(Duration.ofSeconds(60)) <= 0);
+        assertTrue(deadline.getValue().remaining().compareTo(Duration.ofSeconds(30)) > 0);
+    }
+
+    @Test
+    void shouldUseDefaultTimeoutWhenHeaderMissing() {
+        UUID accountId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        when(portfolioService.aggregatePositionsForAccountAsync(eq(accountId), eq(userId), any()))
+                .thenReturn(new CompletableFuture<>());
+
+        controller.getAggregatePositions(accountId.toString(), userId.toString(), null);
+
+        ArgumentCaptor<Deadline> deadline = ArgumentCaptor.forClass(Deadline.class);
+        verify(portfolioService).aggregatePositionsForAccountAsync(eq(accountId), eq(userId), deadline.capture());
+        assertTrue(deadline.getValue().remaining().compareTo(Duration.ofSeconds(30)) <= 0);
+        assertTrue(deadline.getValue().remaining().compareTo(Duration.ofSeconds(25)) > 0);
+    }
+
+    @Test
+    void shouldRejectInvalidUuidWithoutStartingAggregation() {
+        DeferredResult<ResponseEntity<?>> result = controller.getAggregateHoldings(
+                "not-a-uuid", UUID.randomUUID().toString(), null);
+
+        assertTrue(result.hasResult());
+        ResponseEntity<?> response = (ResponseEntity<?>) result.getResult();
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(portfolioService, accessValidator);
+    }
+
+    @Test
+    void shouldOpenHoldingsStreamAfterMembershipCheck() {
+        UUID accountId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        SseEmitter emitter = new SseEmitter();
+        when(streamService.subscribe(accountId, userId)).thenReturn(emitter);
+
+        ResponseEntity<SseEmitter> response = controller.streamHoldings(accountId.toString(), userId.toString());
+
+        assertSame(emitter, response.getBody());
+        InOrder order = inOrder(accessValidator, streamService);
+        order.verify(accessValidator).requireMembership(userId, accountId);
+        order.verify(streamService).subscribe(accountId, userId);
+    }
+
+    @Test
+    void shouldRejectInvalidUuidWithoutOpeningStream() {
+        ResponseEntity<SseEmitter> response = controller.streamHoldings("not-a-uuid", UUID.randomUUID().toString());
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(streamService, accessValidator);
+    }
+}
@@ -0,0 +1,94 @@
+package com.marmik.brokerhub.feed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marmik.brokerhub.broker.service.MarketDataService;
+import com.marmik.brokerhub.broker.service.SharedPriceCache;
+import com.marmik.brokerhub.http.UpstreamHttpClient;
+import com.marmik.brokerhub.http.UpstreamSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for TickFeedService and FeedSimulator.
+ *
+ * Covers:
+ * - Receiving a simulated feed end to end into the price cache.
+ * - Gapless sequence numbers across a looped recording.
+ * - No false gaps when reconnecting to a feed that restarts its sequence.
+ * - Staying idle when disabled.
+ *
+ * Ensures that the receiver, the binary protocol and the simulator agree on
+ * framing over a real socket.
+ */
+class TickFeedServiceTest {
+
+    private final UpstreamHttpClient http = new UpstreamHttpClient(UpstreamSettings.defaults("market-data"));
+    private final MarketDataService marketData = new MarketDataService(new ObjectMapper(), http, 1200, 100, 0, 200,
+            100, new SharedPriceCache(null, new ObjectMapper(), false));
+    private FeedSimulator simulator;
+    private TickFeedService feed;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (feed != null) {
+            feed.stop();
+        }
+        if (simulator != null) {
+            simulator.close();
+        }
+        http.close();
+    }
+
+    @Test
+    void shouldReceiveSimulatedFeedIntoPriceCache() throws Exception {
+        byte[] recording = FeedSimulator.generate(List.of("INFY", "TCS"), 1_000, 11);
+        simulator = new FeedSimulator(recording, 0, 0, true);
+        feed = new TickFeedService(marketData, true, "127.0.0.1", simulator.port(), 1024, 100);
+        feed.start();
+
+        long until = System.currentTimeMillis() + 5_000;
+        while (feed.stats().processed() < 5_000 && System.currentTimeMillis() < until) {
+            Thread.sleep(10);
+        }
+
+        TickFeedStats stats = feed.stats();
+        assertTrue(stats.connected());
+        assertTrue(stats.processed() >= 5_000, "processed " + stats.processed());
+        assertEquals(0, stats.invalidFrames());
+        assertEquals(0, stats.sequenceGaps());
+        assertEquals(0, stats.unresolved());
+        assertTrue(marketData.getPrices(List.of("INFY")).get(0).getLastPrice() > 0);
+    }
+
+    @Test
+    void shouldNotCountGapsAcrossReconnects() throws Exception {
+        byte[] recording = FeedSimulator.generate(List.of("INFY", "TCS"), 200, 11);
+        simulator = new FeedSimulator(recording, 0, 0, false);
+        feed = new TickFeedService(marketData, true, "127.0.0.1", simulator.port(), 1024, 100);
+        feed.start();
+
+        long until = System.currentTimeMillis() + 5_000;
+        while (feed.stats().processed() < 600 && System.currentTimeMillis() < until) {
+            Thread.sleep(10);
+        }
+
+        TickFeedStats stats = feed.stats();
+        assertTrue(stats.processed() >= 600, "processed " + stats.processed());
+        assertEquals(0, stats.sequenceGaps());
+    }
+
+    @Test
+    void shouldStayIdleWhenDisabled() {
+        feed = new TickFeedService(marketData, false, "127.0.0.1", 1, 1024, 100);
+        feed.start();
+
+        TickFeedStats stats = feed.stats();
+        assertFalse(stats.enabled());
+        assertFalse(stats.connected());
+        assertEquals(0, stats.received());
+    }
+}
@@ -0,0 +1,193 @@
+package com.marmik.brokerhub.feed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marmik.brokerhub.broker.service.MarketDataService;
+import com.marmik.brokerhub.broker.service.SharedPriceCache;
+import com.marmik.brokerhub.http.UpstreamHttpClient;
+import com.marmik.brokerhub.http.UpstreamSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for TickPipeline and TickCodec.
+ *
+ * Covers:
+ * - Frame encode/decode round trip.
+ * - Ticks written into MarketDataService's price cache and fanned out to
+ * price listeners only when the price changed.
+ * - Skipping invalid frames and counting feed sequence gaps.
+ * - Restarting sequence tracking for a new feed session.
+ * - Wrapping a ring much smaller than the tick count.
+ * - Per-stage latency and throughput counters.
+ *
+ * Ensures that the feed keeps the local price cache current without losing
+ * or reordering ticks.
+ */
+class TickPipelineTest {
+
+    private final UpstreamHttpClient http = new UpstreamHttpClient(UpstreamSettings.defaults("market-data"));
+    private MarketDataService marketData;
+    private TickPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        marketData = new MarketDataService(new ObjectMapper(), http, 1200, 100, 0, 200, 100,
+                new SharedPriceCache(null, new ObjectMapper(), false));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+        http.close();
+    }
+
+    @Test
+    void shouldRoundTripFrames() {
+        byte[] frame = new byte[TickCodec.FRAME_SIZE];
+        TickCodec.encode(frame, 0, 7, 1_700_000_000_000_000L, "HDFCBANK", 1612.35, 1600.0);
+
+        assertTrue(TickCodec.isValid(frame, 0));
+        assertEquals(7, TickCodec.sequence(frame, 0));
+        assertEquals(1_700_000_000_000_000L, TickCodec.exchangeTimeMicros(frame, 0));
+        assertEquals("HDFCBANK", TickCodec.symbol(frame, 0));
+        assertEquals(1612.35, TickCodec.lastPrice(frame, 0), 1e-9);
+        assertEquals(1600.0, TickCodec.previousClose(frame, 0), 1e-9);
+        assertThrows(IllegalArgumentException.class,
+                () -> TickCodec.encode(frame, 0, 1, 0, "SEVENTEEN_CHARS_X", 1, 1));
+    }
+
+    @Test
+    void shouldUpdatePriceCacheAndNotifyChangedPrices() throws Exception {
+        Map<String, Double> seen = new ConcurrentHashMap<>();
+        List<Integer> notifications = new CopyOnWriteArrayList<>();
+        marketData.addPriceListener((symbol, last, change, pct) -> {
+            seen.put(symbol, last);
+            notifications.add(1);
+        });
+        pipeline = new TickPipeline(marketData, 8);
+        pipeline.start();
+
+        publish(frame(1, "INFY", 1500.0, 1490.0), frame(2, "INFY", 1500.0, 1490.0),
+                frame(3, "TCS", 3500.0, 3400.0), frame(4, "INFY", 1510.0, 1490.0));
+        awaitProcessed(4);
+
+        assertEquals(1510.0, (double) seen.get("INFY"));
+        assertEquals(3500.0, (double) seen.get("TCS"));
+        assertEquals(3, notifications.size());
+        var price = marketData.getPrices(List.of("INFY")).get(0);
+        assertEquals(1510.0, price.getLastPrice());
+        assertEquals(20.0, price.getDayChange(), 1e-9);
+        assertEquals(3, pipeline.stats(true, true).priceChanges());
+    }
+
+    @Test
+    void shouldSkipInvalidFramesAndCountGaps() throws Exception {
+        pipeline = new TickPipeline(marketData, 8);
+        pipeline.start();
+        byte[] bad = frame(2, "INFY", 1500.0, 0);
+        bad[0] = 0;
+
+        publish(frame(1, "INFY", 1500.0, 0), bad, frame(5, "INFY", 1501.0, 0));
+        awaitReceivedThroughPipeline(3);
+
+        TickFeedStats stats = pipeline.stats(true, true);
+        assertEquals(1, stats.invalidFrames());
+        assertEquals(1, stats.sequenceGaps());
+        assertEquals(2, stats.processed());
+    }
+
+    @Test
+    void shouldNotCountGapWhenNewSessionRestartsSequence() throws Exception {
+        pipeline = new TickPipeline(marketData, 8);
+        pipeline.start();
+
+        pipeline.newSession();
+        publish(frame(1, "INFY", 1500.0, 0), frame(2, "INFY", 1501.0, 0), frame(3, "INFY", 1502.0, 0));
+        pipeline.newSession();
+        publish(frame(1, "INFY", 1503.0, 0), frame(2, "INFY", 1504.0, 0));
+        publish(frame(4, "INFY", 1505.0, 0));
+        awaitProcessed(6);
+
+        assertEquals(1, pipeline.stats(true, true).sequenceGaps());
+    }
+
+    @Test
+    void shouldWrapRingAndKeepLatestPrice() throws Exception {
+        pipeline = new TickPipeline(marketData, 16);
+        pipeline.start();
+        byte[] recording = FeedSimulator.generate(List.of("INFY", "TCS", "WIPRO"), 10_000, 7);
+
+        ByteBuffer buf = ByteBuffer.wrap(recording);
+        while (buf.hasRemaining()) {
+            buf.limit(Math.min(recording.length, buf.position() + 100 * TickCodec.FRAME_SIZE));
+            pipeline.publish(buf);
+            buf.limit(recording.length);
+        }
+        awaitProcessed(10_000);
+
+        int lastInfy = (10_000 - 1) / 3 * 3;
+        double expected = TickCodec.lastPrice(recording, lastInfy * TickCodec.FRAME_SIZE);
+        assertEquals(expected, marketData.getPrices(List.of("INFY")).get(0).getLastPrice(), 1e-9);
+
+        TickFeedStats stats = pipeline.stats(true, true);
+        assertEquals(0, stats.sequenceGaps());
+        assertEquals(0, stats.ringBacklog());
+        assertEquals(4, stats.stages().size());
+        for (StageLatencyStats stage : stats.stages()) {
+            assertEquals(10_000, stage.ticks());
+            assertTrue(stage.p50Micros() <= stage.p99Micros());
+            assertTrue(stage.p99Micros() <= stage.maxMicros());
+        }
+    }
+
+    @Test
+    void shouldRejectRingSizeThatIsNotPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TickPipeline(marketData, 1000));
+    }
+
+    private void publish(byte[]... frames) {
+        ByteBuffer buf = ByteBuffer.allocate(frames.length * TickCodec.FRAME_SIZE);
+        for (byte[] f : frames) {
+            buf.put(f);
+        }
+        buf.flip();
+        assertEquals(frames.length, pipeline.publish(buf));
+    }
+
+    private static byte[] frame(long seq, String symbol, double last, double previousClose) {
+        byte[] frame = new byte[TickCodec.FRAME_SIZE];
+        TickCodec.encode(frame, 0, seq, 0, symbol, last, previousClose);
+        return frame;
+    }
+
+    private void awaitProcessed(long count) throws InterruptedException {
+        long until = System.currentTimeMillis() + 5_000;
+        while (pipeline.stats(true, true).processed() < count && System.currentTimeMillis() < until) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, pipeline.stats(true, true).processed());
+    }
+
+    private void awaitReceivedThroughPipeline(long count) throws InterruptedException {
+        long until = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < until) {
+            TickFeedStats stats = pipeline.stats(true, true);
+            if (stats.received() == count && stats.ringBacklog() == 0) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("pipeline did not drain");
+    }
+}
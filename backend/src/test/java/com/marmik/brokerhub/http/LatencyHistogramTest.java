@@ -0,0 +1,44 @@
+package com.marmik.brokerhub.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for LatencyHistogram.
+ *
+ * Covers:
+ * - Percentiles reported as bucket upper bounds.
+ * - Mean and count bookkeeping, and the empty histogram.
+ *
+ * Ensures that latency percentiles used for metrics and limits are not
+ * skewed.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void shouldReportPercentilesAsBucketUpperBounds() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            h.record(TimeUnit.MILLISECONDS.toNanos(8));
+        }
+        h.record(TimeUnit.MILLISECONDS.toNanos(180));
+        h.record(TimeUnit.MILLISECONDS.toNanos(4_000));
+
+        assertEquals(10, h.percentileMs(0.50));
+        assertEquals(10, h.percentileMs(0.98));
+        assertEquals(200, h.percentileMs(0.99));
+        assertEquals(5_000, h.percentileMs(1.0));
+        assertEquals(100, h.count());
+    }
+
+    @Test
+    void shouldReturnZeroForEmptyHistogram() {
+        LatencyHistogram h = new LatencyHistogram();
+
+        assertEquals(0, h.percentileMs(0.99));
+        assertEquals(0.0, h.meanMs());
+    }
+}
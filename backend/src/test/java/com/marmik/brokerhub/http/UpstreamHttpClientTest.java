@@ -0,0 +1,206 @@
+package com.marmik.brokerhub.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for UpstreamHttpClient.
+ *
+ * Covers:
+ * - Queueing of requests beyond the per-upstream concurrency limit.
+ * - Request timeouts against a hung upstream and the timeout metric.
+ * - Blocking RestClient calls sharing the same limit and metrics.
+ * - Caller deadlines shortening the timeout, or skipping the call entirely.
+ * - Cancellation releasing the slot of a running or queued request.
+ * - A queued request cut short by its deadline not keeping the slot it is
+ * handed later.
+ *
+ * Ensures that a slow upstream is bounded by its own pool and timeouts and
+ * that pool metrics stay accurate.
+ */
+class UpstreamHttpClientTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private UpstreamHttpClient client;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/fast", exchange -> respond(exchange, "ok"));
+        server.createContext("/held", exchange -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, "held");
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (client != null) {
+            client.close();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void shouldQueueRequestsBeyondMaxConcurrent() throws Exception {
+        client = new UpstreamHttpClient(settings(1, Duration.ofSeconds(5)));
+
+        CompletableFuture<HttpResponse<byte[]>> first = client.sendAsync(request("/held"));
+        CompletableFuture<HttpResponse<byte[]>> second = client.sendAsync(request("/fast"));
+
+        waitUntil(() -> client.stats().inFlight() == 1 && client.stats().queued() == 1);
+        assertFalse(second.isDone());
+
+        release.countDown();
+
+        assertEquals(200, first.get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(200, second.get(5, TimeUnit.SECONDS).statusCode());
+        UpstreamStats stats = client.stats();
+        assertEquals(2, stats.requests());
+        assertEquals(0, stats.inFlight());
+        assertEquals(0, stats.queued());
+    }
+
+    @Test
+    void shouldTimeOutHungRequestAndCountIt() throws Exception {
+        client = new UpstreamHttpClient(settings(4, Duration.ofMillis(200)));
+
+        CompletableFuture<HttpResponse<byte[]>> hung = client.sendAsync(request("/held"));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> hung.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(HttpTimeoutException.class, ex.getCause());
+        waitUntil(() -> client.stats().timeouts() == 1);
+        assertEquals(0, client.stats().inFlight());
+    }
+
+    @Test
+    void shouldFailWithDeadlineExceededWhenDeadlineIsShorterThanTimeout() {
+        client = new UpstreamHttpClient(settings(4, Duration.ofSeconds(5)));
+
+        CompletableFuture<HttpResponse<byte[]>> hung = client.sendAsync(request("/held"),
+                Deadline.after(Duration.ofMillis(200)));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> hung.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DeadlineExceededException.class, ex.getCause());
+    }
+
+    @Test
+    void shouldNotSendWhenDeadlineHasPassed() {
+        client = new UpstreamHttpClient(settings(4, Duration.ofSeconds(5)));
+
+        CompletableFuture<HttpResponse<byte[]>> skipped = client.sendAsync(request("/fast"),
+                Deadline.after(Duration.ZERO));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, skipped::get);
+        assertInstanceOf(DeadlineExceededException.class, ex.getCause());
+        assertEquals(0, client.stats().requests());
+    }
+
+    @Test
+    void shouldReleaseSlotsWhenRequestsAreCancelled() throws Exception {
+        client = new UpstreamHttpClient(settings(1, Duration.ofSeconds(5)));
+
+        CompletableFuture<HttpResponse<byte[]>> running = client.sendAsync(request("/held"));
+        CompletableFuture<HttpResponse<byte[]>> queued = client.sendAsync(request("/held"));
+        waitUntil(() -> client.stats().inFlight() == 1 && client.stats().queued() == 1);
+
+        queued.cancel(true);
+        running.cancel(true);
+        waitUntil(() -> client.stats().inFlight() == 0 && client.stats().queued() == 0);
+
+        assertEquals(200, client.sendAsync(request("/fast")).get(5, TimeUnit.SECONDS).statusCode());
+    }
+
+    @Test
+    void shouldNotLoseSlotHandedToQueuedRequestPastItsDeadline() throws Exception {
+        client = new UpstreamHttpClient(settings(1, Duration.ofSeconds(5)));
+
+        CompletableFuture<HttpResponse<byte[]>> running = client.sendAsync(request("/held"));
+        waitUntil(() -> client.stats().inFlight() == 1);
+        CompletableFuture<HttpResponse<byte[]>> late = client.sendAsync(request("/fast"),
+                Deadline.after(Duration.ofMillis(100)));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> late.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DeadlineExceededException.class, ex.getCause());
+        release.countDown();
+        assertEquals(200, running.get(5, TimeUnit.SECONDS).statusCode());
+
+        assertEquals(200, client.sendAsync(request("/fast")).get(2, TimeUnit.SECONDS).statusCode());
+        waitUntil(() -> client.stats().inFlight() == 0 && client.stats().queued() == 0);
+    }
+
+    @Test
+    void shouldMeasureBlockingRestClientCalls() {
+        client = new UpstreamHttpClient(settings(2, Duration.ofSeconds(5)));
+        RestClient rest = client.restClient(RestClient.builder());
+
+        String body = rest.get().uri(url("/fast")).retrieve().body(String.class);
+
+        assertEquals("ok", body);
+        assertEquals(1, client.stats().requests());
+        assertEquals(0, client.stats().inFlight());
+    }
+
+    private UpstreamSettings settings(int maxConcurrent, Duration requestTimeout) {
+        return new UpstreamSettings("test", Duration.ofSeconds(1), requestTimeout, maxConcurrent, false);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(url(path))).GET();
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes();
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("condition not met in time");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.marmik.brokerhub.instrument;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for InstrumentMaster.
+ *
+ * Covers:
+ * - Loading a header-driven dump, with extra columns and CRLF line endings.
+ * - Resolving by ISIN, by security ID and by exchange + symbol across broker
+ * spellings, and unspecified exchanges via NSE then BSE.
+ * - One ID per ISIN across exchanges, with NSE as the primary listing.
+ * - Exchange and symbol normalization.
+ * - Rejecting dumps without the required columns.
+ *
+ * Ensures that every broker's spelling of an instrument lands on one ID.
+ */
+class InstrumentMasterTest {
+
+    private Path dump;
+    private final InstrumentMaster master = new InstrumentMaster("");
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dump = Files.createTempFile("instruments", ".csv");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(dump);
+    }
+
+    @Test
+    void shouldResolveEveryBrokerSpellingToOneId() throws IOException {
+        Files.writeString(dump, "name,exchange,trading_symbol,security_id,isin\r\n"
+                + "Reliance,BSE,RELIANCE,500325,INE002A01018\r\n"
+                + "Reliance,NSE_EQ,RELIANCE-EQ,2885,INE002A01018\r\n"
+                + "Infosys,NSE,INFY,1594,INE009A01021\r\n"
+                + ",NSE,NOISIN,1,\r\n");
+
+        assertEquals(2, master.load(dump));
+
+        int reliance = master.resolve("NSE", "RELIANCE", null, null);
+        assertTrue(reliance >= 0);
+        assertEquals(reliance, master.resolve("BSE", "reliance", null, null));
+        assertEquals(reliance, master.resolve("NSE_EQ", "RELIANCE-EQ", null, null));
+        assertEquals(reliance, master.resolve("NSE_EQ", "whatever", "2885", null));
+        assertEquals(reliance, master.resolve("ALL", "RELIANCE", null, null));
+        assertEquals(reliance, master.resolve(null, null, null, "INE002A01018"));
+        assertEquals("INE002A01018", master.isin(reliance));
+        assertEquals("NSE", master.exchange(reliance));
+        assertEquals("RELIANCE", master.symbol(reliance));
+
+        int infy = master.resolve("ALL", "INFY", null, null);
+        assertNotEquals(reliance, infy);
+        assertEquals("INE009A01021", master.isin(infy));
+
+        assertEquals(-1, master.resolve("NSE", "NOISIN", null, null));
+        assertEquals(-1, master.resolve("BSE", "INFY", null, null));
+        assertNull(master.isin(-1));
+    }
+
+    @Test
+    void shouldMissEverythingWithoutDump() {
+        master.loadConfigured();
+
+        assertEquals(0, master.size());
+        assertEquals(-1, master.resolve("NSE", "INFY", null, "INE009A01021"));
+    }
+
+    @Test
+    void shouldRejectDumpWithoutRequiredColumns() throws IOException {
+        Files.writeString(dump, "exchange,symbol\nNSE,INFY\n");
+
+        assertThrows(IOException.class, () -> master.load(dump));
+        assertEquals(0, master.size());
+    }
+
+    @Test
+    void shouldNormalizeBrokerExchangesAndSymbols() {
+        assertEquals("NSE", InstrumentMaster.normalizeExchange("NSE_EQ"));
+        assertEquals("BSE", InstrumentMaster.normalizeExchange("bse_eq"));
+        assertEquals("NFO", InstrumentMaster.normalizeExchange("NSE_FNO"));
+        assertEquals("", InstrumentMaster.normalizeExchange(null));
+        assertEquals("RELIANCE", InstrumentMaster.normalizeSymbol("reliance-eq"));
+        assertEquals("M&M", InstrumentMaster.normalizeSymbol("M&M"));
+        assertEquals("-EQ", InstrumentMaster.normalizeSymbol("-EQ"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.marmik.brokerhub.resilience;
+
+import com.marmik.brokerhub.http.UpstreamStatusException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for BrokerCallGuard and AdaptiveConcurrencyLimit.
+ *
+ * Covers:
+ * - Failing fast without invoking the call once a broker's circuit is open.
+ * - Breakers being scoped per broker type (and per credential when enabled).
+ * - Rejecting calls beyond the adaptive limit and backing the limit off on
+ * failures.
+ * - Auth / client errors only counting against the credential, and
+ * unsupported operations not counting at all.
+ *
+ * Ensures that a degraded broker does not keep consuming executor threads.
+ */
+class BrokerCallGuardTest {
+
+    private static final CircuitBreaker.Settings BREAKER = new CircuitBreaker.Settings(
+            10, 2, 0.5, 1.0, Duration.ofSeconds(5), Duration.ofMinutes(1), 1);
+    private static final AdaptiveConcurrencyLimit.Settings LIMIT = new AdaptiveConcurrencyLimit.Settings(
+            2, 1, 10, 0.5, Duration.ofSeconds(5));
+
+    @Test
+    void shouldFailFastOnceBrokerCircuitIsOpen() {
+        BrokerCallGuard guard = new BrokerCallGuard(true, false, BREAKER, LIMIT);
+        UUID cred = UUID.randomUUID();
+        failOnce(guard, "DHAN", cred);
+        failOnce(guard, "DHAN", cred);
+
+        AtomicInteger invoked = new AtomicInteger();
+        CompletableFuture<String> rejected = guard.execute("DHAN", cred, () -> {
+            invoked.incrementAndGet();
+            return CompletableFuture.completedFuture("x");
+        });
+
+        ExecutionException ex = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(BrokerUnavailableException.class, ex.getCause());
+        assertEquals(0, invoked.get());
+        assertFalse(guard.isCallPermitted("dhan", cred));
+        assertTrue(guard.isCallPermitted("KITE", cred));
+    }
+
+    @Test
+    void shouldOnlyTripFailingCredentialWhenPerCredentialEnabled() {
+        BrokerCallGuard guard = new BrokerCallGuard(true, true, BREAKER, LIMIT);
+        UUID bad = UUID.randomUUID();
+        UUID good = UUID.randomUUID();
+        for (int i = 0; i < 3; i++) {
+            guard.execute("DHAN", good, () -> CompletableFuture.completedFuture("ok"));
+        }
+        failOnce(guard, "DHAN", bad);
+        failOnce(guard, "DHAN", bad);
+
+        assertFalse(guard.isCallPermitted("DHAN", bad));
+        assertTrue(guard.isCallPermitted("DHAN", good));
+    }
+
+    @Test
+    void shouldRejectBeyondLimitAndBackOffOnFailure() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(LIMIT);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        limit.onResult(1_000, true);
+        assertEquals(1, limit.limit());
+        limit.onResult(1_000, false);
+        assertEquals(0, limit.inFlight());
+    }
+
+    @Test
+    void shouldNotTripBrokerOnCredentialErrors() {
+        BrokerCallGuard guard = new BrokerCallGuard(true, false, BREAKER, LIMIT);
+        UUID cred = UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            guard.execute("DHAN", cred, () -> CompletableFuture.failedFuture(
+                    new UpstreamStatusException("Dhan holdings returned HTTP 401", 401)));
+        }
+
+        assertTrue(guard.isCallPermitted("DHAN", cred));
+        assertEquals(2, guard.stats().get(0).limit());
+    }
+
+    @Test
+    void shouldTripOnlyCredentialOnAuthErrorsWhenPerCredentialEnabled() {
+        BrokerCallGuard guard = new BrokerCallGuard(true, true, BREAKER, LIMIT);
+        UUID expired = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        for (int i = 0; i < 2; i++) {
+            guard.execute("DHAN", expired, () -> CompletableFuture.failedFuture(
+                    new UpstreamStatusException("Dhan holdings returned HTTP 403", 403)));
+        }
+
+        assertFalse(guard.isCallPermitted("DHAN", expired));
+        assertTrue(guard.isCallPermitted("DHAN", other));
+    }
+
+    @Test
+    void shouldIgnoreUnsupportedOperations() {
+        BrokerCallGuard guard = new BrokerCallGuard(true, true, BREAKER, LIMIT);
+        UUID cred = UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            guard.execute("KITE", cred, () -> CompletableFuture.supplyAsync(() -> {
+                throw new UnsupportedOperationException("Unimplemented method 'getPositions'");
+            }, Runnable::run));
+        }
+
+        assertTrue(guard.isCallPermitted("KITE", cred));
+        assertEquals(2, guard.stats().get(0).limit());
+        assertEquals(0, guard.stats().get(0).inFlight());
+    }
+
+    @Test
+    void shouldPassThroughWhenDisabled() throws Exception {
+        BrokerCallGuard guard = new BrokerCallGuard(false, false, BREAKER, LIMIT);
+
+        assertEquals("ok", guard.execute("DHAN", null, () -> CompletableFuture.completedFuture("ok")).get());
+    }
+
+    private static void failOnce(BrokerCallGuard guard, String broker, UUID cred) {
+        guard.execute(broker, cred, () -> CompletableFuture.failedFuture(
+                new UpstreamStatusException(broker + " returned HTTP 503", 503)));
+    }
+}
@@ -0,0 +1,110 @@
+package com.marmik.brokerhub.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for BrokerHedgingPolicy.
+ *
+ * Covers:
+ * - Issuing a second attempt once the primary is slower than the observed
+ * percentile, and counting a hedge that wins.
+ * - The hedge budget capping how many calls are hedged.
+ * - Skipping the hedge, and refunding its budget, when admission is refused.
+ * - Failures before the hedge delay failing the call without a hedge.
+ *
+ * Ensures that hedging only duplicates genuinely slow calls.
+ */
+class BrokerHedgingPolicyTest {
+
+    @Test
+    void shouldHedgeSlowCallAndTakeFirstResponse() throws Exception {
+        BrokerHedgingPolicy policy = new BrokerHedgingPolicy(true, 0.95, 10, 5, 1.0, 5);
+        warmUp(policy, 5);
+        CompletableFuture<String> stalled = new CompletableFuture<>();
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> out = policy.execute("DHAN",
+                () -> attempts.getAndIncrement() == 0 ? stalled : CompletableFuture.completedFuture("hedge"));
+
+        assertEquals("hedge", out.get(5, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+        HedgeStats stats = policy.stats().get(0);
+        assertEquals(1, stats.hedgesIssued());
+        assertEquals(1, stats.hedgesWon());
+        assertTrue(stalled.isCancelled());
+    }
+
+    @Test
+    void shouldNotHedgeWhenBudgetIsExhausted() throws Exception {
+        BrokerHedgingPolicy policy = new BrokerHedgingPolicy(true, 0.95, 10, 5, 0.0, 5);
+        warmUp(policy, 5);
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> out = policy.execute("DHAN", () -> {
+            attempts.incrementAndGet();
+            return slow;
+        });
+        TimeUnit.MILLISECONDS.sleep(200);
+        slow.complete("primary");
+
+        assertEquals("primary", out.get(5, TimeUnit.SECONDS));
+        assertEquals(1, attempts.get());
+        assertEquals(0, policy.stats().get(0).hedgesIssued());
+        assertEquals(1, policy.stats().get(0).hedgesSkipped());
+    }
+
+    @Test
+    void shouldSkipHedgeWhenAdmissionIsRefused() throws Exception {
+        BrokerHedgingPolicy policy = new BrokerHedgingPolicy(true, 0.95, 10, 5, 1.0, 5);
+        warmUp(policy, 5);
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger admissions = new AtomicInteger();
+
+        CompletableFuture<String> out = policy.execute("DHAN", () -> {
+            attempts.incrementAndGet();
+            return slow;
+        }, () -> {
+            admissions.incrementAndGet();
+            return CompletableFuture.failedFuture(new BrokerUnavailableException("rate limited"));
+        });
+        TimeUnit.MILLISECONDS.sleep(200);
+        slow.complete("primary");
+
+        assertEquals("primary", out.get(5, TimeUnit.SECONDS));
+        assertEquals(1, attempts.get());
+        assertEquals(1, admissions.get());
+        assertEquals(0, policy.stats().get(0).hedgesIssued());
+        assertEquals(1, policy.stats().get(0).hedgesSkipped());
+    }
+
+    @Test
+    void shouldFailWithoutHedgingWhenPrimaryFailsFast() {
+        BrokerHedgingPolicy policy = new BrokerHedgingPolicy(true, 0.95, 500, 5, 1.0, 5);
+        warmUp(policy, 5);
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> out = policy.execute("DHAN", () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("503"));
+        });
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> out.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        assertEquals(1, attempts.get());
+    }
+
+    private static void warmUp(BrokerHedgingPolicy policy, int calls) {
+        for (int i = 0; i < calls; i++) {
+            policy.execute("DHAN", () -> CompletableFuture.completedFuture("ok")).join();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.marmik.brokerhub.resilience;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for BrokerRateLimiter and TokenBucket.
+ *
+ * Covers:
+ * - Token bucket bursts, refill and reservations bounded by the max wait.
+ * - Node budgets per credential and per broker, with refunds on rejection.
+ * - Cluster budgets charged through Redis, and falling back to node budgets
+ * when Redis fails.
+ *
+ * Ensures that calls over budget are queued or rejected instead of being sent
+ * to the broker.
+ */
+@ExtendWith(MockitoExtension.class)
+class BrokerRateLimiterTest {
+
+    private static final BrokerRateLimiter.Budget WIDE = new BrokerRateLimiter.Budget(100, 100);
+
+    @Mock
+    private StringRedisTemplate redis;
+
+    @Test
+    void shouldQueueWithinMaxWaitAndRejectBeyondIt() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(2, 1, now::get);
+        long maxWait = TimeUnit.SECONDS.toNanos(1);
+
+        assertEquals(0, bucket.reserve(maxWait));
+        assertEquals(0, bucket.reserve(maxWait));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.reserve(maxWait));
+        assertEquals(-1, bucket.reserve(maxWait));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(0, bucket.reserve(maxWait));
+    }
+
+    @Test
+    void shouldRejectCredentialOverBudgetWithoutChargingBroker() throws Exception {
+        BrokerRateLimiter limiter = new BrokerRateLimiter(new BrokerRateLimiter.Settings(true, Duration.ZERO,
+                new BrokerRateLimiter.Budget(2, 1), new BrokerRateLimiter.Budget(1, 1), false, WIDE, WIDE), null);
+        UUID busy = UUID.randomUUID();
+
+        limiter.acquire("DHAN", busy, Runnable::run).get();
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> limiter.acquire("dhan", busy, Runnable::run).get());
+        assertInstanceOf(BrokerUnavailableException.class, ex.getCause());
+
+        // The broker bucket still has its second token for another credential.
+        limiter.acquire("DHAN", UUID.randomUUID(), Runnable::run).get();
+        assertThrows(ExecutionException.class,
+                () -> limiter.acquire("DHAN", UUID.randomUUID(), Runnable::run).get());
+        assertEquals(2, limiter.rejectedCount());
+    }
+
+    @Test
+    void shouldRejectWhenClusterBudgetIsExhausted() {
+        BrokerRateLimiter limiter = new BrokerRateLimiter(
+                new BrokerRateLimiter.Settings(true, Duration.ofSeconds(1), WIDE, WIDE, true, WIDE, WIDE), redis);
+        UUID cred = UUID.randomUUID();
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(-1L);
+
+        CompletableFuture<Void> out = limiter.acquire("DHAN", cred, Runnable::run);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, out::get);
+        assertInstanceOf(BrokerUnavailableException.class, ex.getCause());
+        verify(redis).execute(any(RedisScript.class),
+                eq(List.of("rl:broker:{DHAN}:cred:" + cred, "rl:broker:{DHAN}:app")), any(Object[].class));
+    }
+
+    @Test
+    void shouldFallBackToNodeBudgetWhenRedisFails() throws Exception {
+        BrokerRateLimiter limiter = new BrokerRateLimiter(
+                new BrokerRateLimiter.Settings(true, Duration.ofSeconds(1), WIDE, WIDE, true, WIDE, WIDE), redis);
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        limiter.acquire("DHAN", UUID.randomUUID(), Runnable::run).get(1, TimeUnit.SECONDS);
+
+        assertEquals(1, limiter.clusterErrorCount());
+        assertEquals(0, limiter.rejectedCount());
+    }
+}
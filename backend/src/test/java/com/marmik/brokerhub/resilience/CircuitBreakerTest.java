@@ -0,0 +1,117 @@
+package com.marmik.brokerhub.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for CircuitBreaker.
+ *
+ * Covers:
+ * - Opening on failure rate and on slow-call rate once enough calls are seen.
+ * - Rejection while open and half-open probing after the open duration.
+ * - Closing after successful probes, re-opening on a failed probe.
+ * - Ignoring outcomes of permits issued before a state change.
+ *
+ * Ensures that a degraded broker is shed quickly and re-admitted safely.
+ */
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker("DHAN", new CircuitBreaker.Settings(
+                10, 4, 0.5, 0.8, Duration.ofSeconds(2), Duration.ofSeconds(30), 2), now::get);
+    }
+
+    @Test
+    void shouldOpenWhenFailureRateReachesThreshold() {
+        CircuitBreaker cb = breaker();
+
+        record(cb, false);
+        record(cb, false);
+        record(cb, true);
+        assertEquals(CircuitBreaker.State.CLOSED, cb.state());
+
+        record(cb, true);
+
+        assertEquals(CircuitBreaker.State.OPEN, cb.state());
+        assertNull(cb.tryAcquire());
+        assertFalse(cb.isCallPermitted());
+    }
+
+    @Test
+    void shouldOpenWhenMostCallsAreSlow() {
+        CircuitBreaker cb = breaker();
+
+        for (int i = 0; i < 4; i++) {
+            CircuitBreaker.Permit p = cb.tryAcquire();
+            cb.onResult(p, Duration.ofSeconds(3).toNanos(), false);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, cb.state());
+    }
+
+    @Test
+    void shouldCloseAfterSuccessfulProbes() {
+        CircuitBreaker cb = tripped();
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        CircuitBreaker.Permit p1 = cb.tryAcquire();
+        CircuitBreaker.Permit p2 = cb.tryAcquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, cb.state());
+        assertNull(cb.tryAcquire(), "only the configured number of probes may run");
+
+        cb.onResult(p1, 1_000, false);
+        cb.onResult(p2, 1_000, false);
+
+        assertEquals(CircuitBreaker.State.CLOSED, cb.state());
+    }
+
+    @Test
+    void shouldReopenWhenProbeFails() {
+        CircuitBreaker cb = tripped();
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        CircuitBreaker.Permit probe = cb.tryAcquire();
+        cb.onResult(probe, 1_000, true);
+
+        assertEquals(CircuitBreaker.State.OPEN, cb.state());
+        assertNull(cb.tryAcquire());
+    }
+
+    @Test
+    void shouldIgnoreLateResultsFromBeforeTrip() {
+        CircuitBreaker cb = breaker();
+        CircuitBreaker.Permit early = cb.tryAcquire();
+        for (int i = 0; i < 4; i++) {
+            record(cb, true);
+        }
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        CircuitBreaker.Permit probe = cb.tryAcquire();
+
+        cb.onResult(early, 1_000, true);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, cb.state());
+        cb.onResult(probe, 1_000, false);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, cb.state());
+    }
+
+    private CircuitBreaker tripped() {
+        CircuitBreaker cb = breaker();
+        for (int i = 0; i < 4; i++) {
+            record(cb, true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, cb.state());
+        return cb;
+    }
+
+    private static void record(CircuitBreaker cb, boolean failed) {
+        CircuitBreaker.Permit p = cb.tryAcquire();
+        assertNotNull(p);
+        cb.onResult(p, 1_000, failed);
+    }
+}
@@ -0,0 +1,76 @@
+package com.marmik.brokerhub.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for BrokerTokenVault.
+ *
+ * Covers:
+ * - Round trip of a stored token and independence of returned copies.
+ * - Eviction and shutdown clearing stored tokens.
+ * - Disabled vault never storing anything.
+ *
+ * Ensures that the vault only ever hands out copies and that plaintext does
+ * not survive eviction.
+ */
+class BrokerTokenVaultTest {
+
+    private BrokerTokenVault vault;
+
+    @AfterEach
+    void tearDown() {
+        if (vault != null) {
+            vault.clear();
+        }
+    }
+
+    @Test
+    void shouldReturnIndependentCopyOfStoredToken() {
+        vault = new BrokerTokenVault(true, 60_000, 10);
+        UUID credentialId = UUID.randomUUID();
+        byte[] plain = "secret-token".getBytes(StandardCharsets.UTF_8);
+
+        vault.put(credentialId, plain);
+        Arrays.fill(plain, (byte) 0);
+
+        byte[] first = vault.get(credentialId);
+        assertEquals("secret-token", new String(first, StandardCharsets.UTF_8));
+
+        Arrays.fill(first, (byte) 0);
+        assertEquals("secret-token", new String(vault.get(credentialId), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldForgetTokenOnEvictAndClear() {
+        vault = new BrokerTokenVault(true, 60_000, 10);
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        vault.put(a, new byte[] { 1 });
+        vault.put(b, new byte[] { 2 });
+
+        vault.evict(a);
+        assertNull(vault.get(a));
+        assertNotNull(vault.get(b));
+
+        vault.clear();
+        assertNull(vault.get(b));
+    }
+
+    @Test
+    void shouldStoreNothingWhenDisabled() {
+        vault = new BrokerTokenVault(false, 60_000, 10);
+        UUID credentialId = UUID.randomUUID();
+
+        vault.put(credentialId, new byte[] { 1, 2, 3 });
+
+        assertFalse(vault.isEnabled());
+        assertNull(vault.get(credentialId));
+    }
+}
@@ -0,0 +1,74 @@
+package com.marmik.brokerhub.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for EnvelopeEncryptionService.
+ *
+ * Covers:
+ * - DEK wrap/unwrap and token encrypt/decrypt round trips.
+ * - Multiple master keys selected by key id, and the active key for new wraps.
+ * - Rejection of unknown key ids and misconfigured keys.
+ *
+ * Ensures that rotating the master key never makes existing credentials
+ * unreadable.
+ */
+class EnvelopeEncryptionServiceTest {
+
+    private static final String KEY_V1 = key((byte) 1);
+    private static final String KEY_V2 = key((byte) 2);
+
+    @Test
+    void shouldRoundTripTokenThroughWrappedDek() throws Exception {
+        EnvelopeEncryptionService svc = new EnvelopeEncryptionService(KEY_V1);
+        byte[] dek = svc.generateDek();
+        EnvelopeEncryptionService.EncryptionResult enc = svc.encryptWithDek(dek,
+                "token".getBytes(StandardCharsets.UTF_8));
+
+        byte[] unwrapped = svc.unwrapDek(svc.wrapDek(dek));
+        byte[] plain = svc.decryptWithDek(unwrapped, enc.getIv(), enc.getCipherText());
+
+        assertEquals(EnvelopeEncryptionService.DEFAULT_MASTER_KEY_ID, svc.getActiveKeyId());
+        assertEquals("token", new String(plain, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldUnwrapWithOldKeyAfterRotation() throws Exception {
+        EnvelopeEncryptionService before = new EnvelopeEncryptionService(KEY_V1);
+        byte[] dek = before.generateDek();
+        byte[] wrappedV1 = before.wrapDek(dek);
+
+        EnvelopeEncryptionService after = new EnvelopeEncryptionService(
+                KEY_V1, "local-master-v1", "master-v2:" + KEY_V2, "master-v2");
+
+        assertEquals("master-v2", after.getActiveKeyId());
+        assertArrayEquals(dek, after.unwrapDek("local-master-v1", wrappedV1));
+
+        byte[] wrappedV2 = after.wrapDek(dek);
+        assertArrayEquals(dek, after.unwrapDek("master-v2", wrappedV2));
+        assertThrows(Exception.class, () -> after.unwrapDek("local-master-v1", wrappedV2));
+    }
+
+    @Test
+    void shouldRejectUnknownOrMisconfiguredKeys() {
+        EnvelopeEncryptionService svc = new EnvelopeEncryptionService(KEY_V1);
+
+        assertThrows(IllegalArgumentException.class, () -> svc.unwrapDek("missing", new byte[32]));
+        assertThrows(IllegalArgumentException.class,
+                () -> new EnvelopeEncryptionService(KEY_V1, "local-master-v1", "", "master-v2"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new EnvelopeEncryptionService(KEY_V1, "local-master-v1", "master-v2", ""));
+    }
+
+    private static String key(byte fill) {
+        byte[] raw = new byte[32];
+        Arrays.fill(raw, fill);
+        return Base64.getEncoder().encodeToString(raw);
+    }
+}
@@ -13,6 +13,7 @@ import static org.junit.jupiter.api.Assertions.*;
  * - Subject extraction and validation for valid and invalid JWTs.
  * - Signature verification using different secrets.
  * - Constructor guard for insecure secret length.
+ * - Single-parse verification, expiry handling and the verified-token cache.
  *
  * Ensures that token integrity and JWT security constraints are not broken.
  */
@@ -59,4 +60,36 @@ class JwtUtilTest {
 
         assertEquals("jwt.secret must be at least 32 characters", ex.getMessage());
     }
+
+    @Test
+    void shouldVerifyTokenOnceAndServeRepeatsFromCache() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET_1, 60_000);
+        String token = jwtUtil.generateUserToken("user-123");
+
+        Optional<JwtUtil.VerifiedToken> first = jwtUtil.verify(token);
+        Optional<JwtUtil.VerifiedToken> second = jwtUtil.verify(token);
+
+        assertTrue(first.isPresent());
+        assertEquals("user-123", first.get().subject());
+        assertNotNull(first.get().expiresAt());
+        assertSame(first.get(), second.get());
+    }
+
+    @Test
+    void shouldRejectExpiredToken() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET_1, -1_000);
+        String token = jwtUtil.generateUserToken("user-123");
+
+        assertTrue(jwtUtil.verify(token).isEmpty());
+        assertFalse(jwtUtil.validateToken(token));
+    }
+
+    @Test
+    void shouldVerifyWhenCacheDisabled() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET_1, 60_000, 0);
+        String token = jwtUtil.generateUserToken("user-123");
+
+        assertEquals("user-123", jwtUtil.verify(token).map(JwtUtil.VerifiedToken::subject).orElse(null));
+        assertNotSame(jwtUtil.verify(token).get(), jwtUtil.verify(token).get());
+    }
 }
@@ -2,9 +2,9 @@ package com.marmik.brokerhub.service;
 
 import com.marmik.brokerhub.model.AccountMember;
 import com.marmik.brokerhub.repository.AccountMemberRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.access.AccessDeniedException;
@@ -13,7 +13,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 /**
  * Tests for AccountAccessValidator.
@@ -22,6 +22,7 @@ import static org.mockito.Mockito.when;
  * - Membership enforcement for account-scoped access.
  * - Role enforcement with case-insensitive matching.
  * - AccessDeniedException behavior for unauthorized access.
+ * - Membership cache reuse and invalidation.
  *
  * Ensures that account membership and role guardrails are not broken.
  */
@@ -31,9 +32,15 @@ class AccountAccessValidatorTest {
     @Mock
     private AccountMemberRepository memberRepo;
 
-    @InjectMocks
+    private AccountMembershipCache membershipCache;
     private AccountAccessValidator validator;
 
+    @BeforeEach
+    void setUp() {
+        membershipCache = new AccountMembershipCache(memberRepo, 60_000, 100);
+        validator = new AccountAccessValidator(membershipCache);
+    }
+
     @Test
     void shouldReturnMembershipWhenUserBelongsToAccount() {
         UUID userId = UUID.randomUUID();
@@ -85,4 +92,53 @@ class AccountAccessValidatorTest {
 
         assertEquals("Requires role ADMIN", ex.getMessage());
     }
+
+    @Test
+    void shouldReuseCachedMembershipAcrossChecks() {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        AccountMember membership = new AccountMember();
+        membership.setRole("ADMIN");
+
+        when(memberRepo.findByUserIdAndAccountId(userId, accountId)).thenReturn(Optional.of(membership));
+
+        validator.requireMembership(userId, accountId);
+        validator.requireRole(userId, accountId, "ADMIN");
+
+        verify(memberRepo, times(1)).findByUserIdAndAccountId(userId, accountId);
+    }
+
+    @Test
+    void shouldReloadMembershipAfterInvalidation() {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        AccountMember admin = new AccountMember();
+        admin.setRole("ADMIN");
+        AccountMember demoted = new AccountMember();
+        demoted.setRole("MEMBER");
+
+        when(memberRepo.findByUserIdAndAccountId(userId, accountId))
+                .thenReturn(Optional.of(admin))
+                .thenReturn(Optional.of(demoted));
+
+        validator.requireRole(userId, accountId, "ADMIN");
+        membershipCache.invalidate(userId, accountId);
+
+        assertThrows(AccessDeniedException.class,
+                () -> validator.requireRole(userId, accountId, "ADMIN"));
+    }
+
+    @Test
+    void shouldNotCacheMissingMembership() {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        AccountMember membership = new AccountMember();
+
+        when(memberRepo.findByUserIdAndAccountId(userId, accountId))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(membership));
+
+        assertThrows(AccessDeniedException.class, () -> validator.requireMembership(userId, accountId));
+        assertSame(membership, validator.requireMembership(userId, accountId));
+    }
 }
@@ -3,20 +3,34 @@ package com.marmik.brokerhub.service;
 import com.marmik.brokerhub.broker.core.BrokerClient;
 import com.marmik.brokerhub.broker.dto.HoldingItem;
 import com.marmik.brokerhub.broker.dto.PositionItem;
+import com.marmik.brokerhub.broker.model.PriceResponse;
+import com.marmik.brokerhub.broker.service.MarketDataService;
 import com.marmik.brokerhub.dto.AggregatedHolding;
 import com.marmik.brokerhub.model.AccountMember;
 import com.marmik.brokerhub.model.BrokerCredential;
 import com.marmik.brokerhub.model.User;
 import com.marmik.brokerhub.repository.AccountMemberRepository;
+import com.marmik.brokerhub.http.Deadline;
+import com.marmik.brokerhub.instrument.InstrumentMaster;
 import com.marmik.brokerhub.repository.BrokerCredentialRepository;
+import com.marmik.brokerhub.resilience.AdaptiveConcurrencyLimit;
+import com.marmik.brokerhub.resilience.BrokerCallGuard;
+import com.marmik.brokerhub.resilience.BrokerHedgingPolicy;
+import com.marmik.brokerhub.resilience.BrokerRateLimiter;
+import com.marmik.brokerhub.resilience.CircuitBreaker;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.BeforeEach;
+import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,8 +41,16 @@ import static org.mockito.Mockito.*;
  * Covers:
  * - Empty account behavior for aggregation APIs.
  * - Admin visibility override across member portfolios.
- * - Member privacy filtering for DETAILED/SUMMARY/PRIVATE rules.
+ * - Member privacy filtering for DETAILED/SUMMARY/PRIVATE rules, without
+ * touching member entities (equals/hashCode) in the async stages.
  * - Position aggregation correctness (quantity, weighted average, pnl).
+ * - Use of the async broker contract instead of blocking calls.
+ * - Fallback to last known good holdings when a broker call fails.
+ * - Skipping and reporting credentials once the request deadline has passed.
+ * - Cancelling an async aggregation cancelling the outstanding broker calls.
+ * - Pricing unpriced broker items with one market-data lookup per account.
+ * - Grouping broker spellings of one listing (in full rows and partial
+ * tickers alike), and merging NSE/BSE lines by ISIN when enabled.
  *
  * Ensures that portfolio visibility and aggregation business constraints are
  * not broken.
@@ -44,17 +66,35 @@ class AccountPortfolioServiceTest {
         private BrokerCredentialService credentialService;
         @Mock
         private BrokerHoldingsCacheService holdingsCacheService;
-        @Mock
+        @Mock(answer = Answers.CALLS_REAL_METHODS)
         private BrokerClient brokerClient;
+        @Mock
+        private MarketDataService marketDataService;
 
         private AccountPortfolioService service;
+        private final InstrumentMaster instruments = new InstrumentMaster("");
 
         @BeforeEach
         void setUp() {
                 service = new AccountPortfolioService(memberRepo, credentialRepo, credentialService,
                                 holdingsCacheService,
                                 List.of(brokerClient),
-                                Runnable::run);
+                                Runnable::run,
+                                new BrokerCallGuard(true, false,
+                                                new CircuitBreaker.Settings(20, 5, 0.5, 1.0, Duration.ofSeconds(30),
+                                                                Duration.ofSeconds(30), 1),
+                                                new AdaptiveConcurrencyLimit.Settings(10, 1, 50, 0.7,
+                                                                Duration.ofSeconds(30))),
+                                new BrokerRateLimiter(new BrokerRateLimiter.Settings(true, Duration.ofSeconds(1),
+                                                new BrokerRateLimiter.Budget(100, 100),
+                                                new BrokerRateLimiter.Budget(100, 100),
+                                                false,
+                                                new BrokerRateLimiter.Budget(100, 100),
+                                                new BrokerRateLimiter.Budget(100, 100)), null),
+                                new BrokerHedgingPolicy(false, 0.95, 50, 20, 0.1, 5),
+                                new PriceEnrichmentService(marketDataService,
+                                                new LastKnownPriceStore(null, false, 0, 0, 0)),
+                                instruments);
 
                 lenient().when(holdingsCacheService.getCachedHoldings(anyString(), any())).thenReturn(Optional.empty());
         }
@@ -110,6 +150,40 @@ class AccountPortfolioServiceTest {
                 assertTrue(partial.isEmpty());
         }
 
+        @Test
+        void shouldApplyPrivacyRulesWithoutUsingMemberEntities() throws Exception {
+                UUID accountId = UUID.randomUUID();
+                UUID callerId = UUID.randomUUID();
+
+                AccountMember caller = detachedMember(UUID.randomUUID(), accountId, callerId, "MEMBER", "PRIVATE");
+                AccountMember summary = detachedMember(UUID.randomUUID(), accountId, UUID.randomUUID(), "MEMBER",
+                                "SUMMARY");
+                when(memberRepo.findByAccountId(accountId)).thenReturn(List.of(caller, summary));
+
+                BrokerCredential c1 = cred(caller.getId(), "DHAN");
+                BrokerCredential c2 = cred(summary.getId(), "DHAN");
+                when(credentialRepo.findByAccountMemberId(caller.getId())).thenReturn(List.of(c1));
+                when(credentialRepo.findByAccountMemberId(summary.getId())).thenReturn(List.of(c2));
+                when(credentialService.decryptCredentialToken(any(), eq(c1.getCredentialId())))
+                                .thenReturn("tok-caller".getBytes(StandardCharsets.UTF_8));
+                when(credentialService.decryptCredentialToken(any(), eq(c2.getCredentialId())))
+                                .thenReturn("tok-summary".getBytes(StandardCharsets.UTF_8));
+                when(brokerClient.getBrokerType()).thenReturn("DHAN");
+                when(brokerClient.getHoldings(eq("tok-caller"))).thenReturn(
+                                List.of(HoldingItem.builder().exchange("NSE").tradingSymbol("CALLER").quantity(1)
+                                                .averagePrice(100).build()));
+                when(brokerClient.getHoldings(eq("tok-summary"))).thenReturn(
+                                List.of(HoldingItem.builder().exchange("NSE").tradingSymbol("SUMMARY1").quantity(1)
+                                                .averagePrice(100).build()));
+
+                Map<String, Object> out = service.aggregateHoldingsForAccount(accountId, callerId);
+
+                @SuppressWarnings("unchecked")
+                List<AggregatedHolding> full = (List<AggregatedHolding>) out.get("full");
+                assertEquals(List.of("CALLER"), full.stream().map(AggregatedHolding::getTradingSymbol).toList());
+                assertEquals(Set.of("SUMMARY1"), out.get("partial"));
+        }
+
         @Test
         void shouldApplyPrivacyRulesForMemberCaller() throws Exception {
                 UUID accountId = UUID.randomUUID();
@@ -203,10 +277,281 @@ class AccountPortfolioServiceTest {
                 assertEquals((10 * 100 + 20 * 130) / 30.0, full.get(0).getAveragePrice());
         }
 
+        @Test
+        void shouldUseAsyncBrokerCallWhenAdapterProvidesOne() throws Exception {
+                UUID accountId = UUID.randomUUID();
+                UUID callerId = UUID.randomUUID();
+                AccountMember caller = member(UUID.randomUUID(), accountId, callerId, "ADMIN",
+                                "DETAILED");
+                when(memberRepo.findByAccountId(accountId)).thenReturn(List.of(caller));
+
+                BrokerCredential c = cred(caller.getId(), "DHAN");
+                when(credentialRepo.findByAccountMemberId(caller.getId())).thenReturn(List.of(c));
+                when(credentialService.decryptCredentialToken(any(), eq(c.getCredentialId())))
+                                .thenReturn("tok-async".getBytes(StandardCharsets.UTF_8));
+                when(brokerClient.getBrokerType()).thenReturn("DHAN");
+                doReturn(CompletableFuture.completedFuture(List.of(
+                                PositionItem.builder().exchange("NSE").tradingSymbol("TCS")
+                                                .quantity(3).averagePrice(10).totalPnl(1)
+                                                .build())))
+                                .when(brokerClient).getPositionsAsync(eq("tok-async"), any());
+
+                Map<String, Object> out = service.aggregatePositionsForAccount(accountId, callerId);
+
+                List<?> full = (List<?>) out.get("full");
+                assertEquals(1, full.size());
+                verify(brokerClient, never()).getPositions(anyString());
+        }
+
+        @Test
+        void shouldFallBackToStaleHoldingsWhenBrokerCallFails() throws Exception {
+                UUID accountId = UUID.randomUUID();
+                UUID callerId = UUID.randomUUID();
+                AccountMember caller = member(UUID.randomUUID(), accountId, callerId, "ADMIN",
+                                "DETAILED");
+                when(memberRepo.findByAccountId(accountId)).thenReturn(List.of(caller));
+
+                BrokerCredential c = cred(caller.getId(), "DHAN");
+                when(credentialRepo.findByAccountMemberId(caller.getId())).thenReturn(List.of(c));
+                when(credentialService.decryptCredentialToken(any(), eq(c.getCredentialId())))
+                                .thenReturn("tok-down".getBytes(StandardCharsets.UTF_8));
+                when(brokerClient.getBrokerType()).thenReturn("DHAN");
+                doReturn(CompletableFuture.failedFuture(new IllegalStateException("503")))
+                                .when(brokerClient).getHoldingsAsync(eq("tok-down"), any());
+                when(holdingsCacheService.getStaleHoldings("DHAN", c.getCredentialId())).thenReturn(Optional.of(
+                                List.of(HoldingItem.builder().exchange("NSE").tradingSymbol("STALE").quantity(1)
+                                                .averagePrice(10).build())));
+
+                Map<String, Object> out = service.aggregateHoldingsForAccount(accountId, callerId);
+
+                @SuppressWarnings("unchecked")
+                List<AggregatedHolding> full = (List<AggregatedHolding>) out.get("full");
+                assertEquals("STALE", full.get(0).getTradingSymbol());
+                verify(holdingsCacheService, never()).cacheHoldings(anyString(), any(), any());
+        }
+
+        @Test
+        void shouldReportCutOffCredentialsWithoutCallingBrokerAfterDeadline() {
+                UUID accountId = UUID.randomUUID();
+                UUID callerId = UUID.randomUUID();
+                AccountMember caller = member(UUID.randomUUID(), accountId, callerId, "ADMIN",
+                                "DETAILED");
+                when(memberRepo.findByAccountId(accountId)).thenReturn(List.of(caller));
+                BrokerCredential c = cred(caller.getId(), "DHAN");
+                when(credentialRepo.findByAccountMemberId(caller.getId())).thenReturn(List.of(c));
+
+                Map<String, Object> out = service.aggregatePositionsForAccount(accountId, callerId,
+                                Deadline.after(Duration.ZERO));
+
+                assertEquals(List.of(c.getCredentialId()), out.get("cutOff"));
+                assertEquals(List.of(), out.get("full"));
+                verify(credentialService, never()).decryptCredentialToken(any(), any());
+                verify(brokerClient, never()).getPositionsAsync(anyString(), any(), any());
+        }
+
+        @Test
+        void shouldCancelBrokerCallsWhenAggregationIsCancelled() {
+                UUID accountId = UUID.randomUUID();
+                UUID callerId = UUID.randomUUID();
+                AccountMember caller = member(UUID.randomUUID(), accountId, callerId, "ADMIN",
+                                "DETAILED");
+                when(memberRepo.findByAccountId(accountId)).thenReturn(List.of(caller));
+                BrokerCredential c = cred(caller.getId(), "DHAN");
+                when(credentialRepo.findByAccountMemberId(caller.getId())).thenReturn(List.of(c));
+                when(credentialService.decryptCredentialToken(any(), eq(c.getCredentialId())))
+                                .thenReturn("tok-slow".getBytes(StandardCharsets.UTF_8));
+                when(brokerClient.getBrokerType()).thenReturn("DHAN");
+                CompletableFuture<List<PositionItem>> pending = new CompletableFuture<>();
+                doReturn(pending).when(brokerClient).getPositionsAsync(eq("tok-slow"), any());
+
+                CompletableFuture<Map<String, Object>> out = service.aggregatePositionsForAccountAsync(accountId,
+                                callerId, Deadline.after(Duration.ofSeconds(30)));
+                assertFalse(out.isDone());
+
+                out.cancel(true);
+
+                assertTrue(pending.isCancelled());
+        }
+
+        @Test
+        void shouldPriceAllCredentialsWithOneMarketDataLookup() {
+                UUID accountId = UUID.randomUUID();
+                UUID callerId = UUID.randomUUID();
+                AccountMember admin = member(UUID.randomUUID(), accountId, callerId, "ADMIN", "DETAILED");
+                AccountMember other = member(UUID.randomUUID(), accountId, UUID.randomUUID(), "MEMBER",
+                                "DETAILED");
+                when(memberRepo.findByAccountId(accountId)).thenReturn(List.of(admin, other));
+                BrokerCredential c1 = cred(admin.getId(), "DHAN");
+                BrokerCredential c2 = cred(other.getId(), "DHAN");
+                when(credentialRepo.findByAccountMemberId(admin.getId())).thenReturn(List.of(c1));
+                when(credentialRepo.findByAccountMemberId(other.getId())).thenReturn(List.of(c2));
+                when(credentialService.decryptCredentialToken(any(), eq(c1.getCredentialId())))
+                                .thenReturn("tok-a".getBytes(StandardCharsets.UTF_8));
+                when(credentialService.decryptCredentialToken(any(), eq(c2.getCredentialId())))
+                                .thenReturn("tok-b".getBytes(StandardCharsets.UTF_8));
+                when(brokerClient.getBrokerType()).thenReturn("DHAN");
+                when(brokerClient.requiresPriceEnrichment()).thenReturn(true);
+                doReturn(CompletableFuture.completedFuture(List.of(
+                                HoldingItem.builder().exchange("NSE").tradingSymbol("INFY").quantity(10)
+                                                .averagePrice(100).build(),
+                                HoldingItem.builder().exchange("NSE").tradingSymbol("TCS").quantity(1)
+                                                .averagePrice(50).build())))
+                                .when(brokerClient).getHoldingsAsync(eq("tok-a"), any());
+                doReturn(CompletableFuture.completedFuture(List.of(
+                                HoldingItem.builder().exchange("NSE").tradingSymbol("INFY").quantity(5)
+                                                .averagePrice(100).build())))
+                                .when(brokerClient).getHoldingsAsync(eq("tok-b"), any());
+                PriceResponse infy = new PriceResponse();
+                infy.setSymbol("INFY");
+                infy.setLastPrice(120.0);
+                when(marketDataService.getPrices(argThat(symbols -> symbols.size() == 2
+                                && symbols.containsAll(List.of("INFY", "TCS"))), any()))
+                                .thenReturn(List.of(infy));
+
+                Map<String, Object> out = service.aggregateHoldingsForAccount(accountId, callerId);
+
+                verify(marketDataService, times(1)).getPrices(any(), any());
+                @SuppressWarnings("unchecked")
+                List<AggregatedHolding> full = (List<AggregatedHolding>) out.get("full");
+                AggregatedHolding aggInfy = full.stream().filter(h -> "INFY".equals(h.getTradingSymbol()))
+                                .findFirst().orElseThrow();
+                assertEquals(15, aggInfy.getQuantity());
+                assertEquals(120.0, aggInfy.getLastPrice());
+                assertEquals(300.0, aggInfy.getPnl());
+        }
+
+        @Test
+        void shouldGroupBrokerSpellingsOfOneListing() {
+                UUID accountId = UUID.randomUUID();
+                UUID adminUserId = UUID.randomUUID();
+                AccountMember admin = member(UUID.randomUUID(), accountId, adminUserId, "ADMIN", "PRIVATE");
+                stubHoldings(accountId, admin, List.of(
+                                HoldingItem.builder().exchange("NSE_EQ").tradingSymbol("RELIANCE-EQ").quantity(10)
+                                                .averagePrice(100).build(),
+                                HoldingItem.builder().exchange("NSE").tradingSymbol("reliance").quantity(10)
+                                                .averagePrice(200).build()));
+
+                List<?> full = (List<?>) service.aggregateHoldingsForAccount(accountId, adminUserId).get("full");
+
+                assertEquals(1, full.size());
+                AggregatedHolding row = (AggregatedHolding) full.get(0);
+                assertEquals("NSE", row.getExchange());
+                assertEquals("RELIANCE", row.getTradingSymbol());
+                assertEquals(20, row.getQuantity());
+                assertEquals(150.0, row.getAveragePrice());
+        }
+
+        @Test
+        void shouldListPartialTickersUnderInstrumentSymbol() {
+                UUID accountId = UUID.randomUUID();
+                UUID callerId = UUID.randomUUID();
+                AccountMember caller = member(UUID.randomUUID(), accountId, callerId, "MEMBER", "DETAILED");
+                AccountMember kiteUser = member(UUID.randomUUID(), accountId, UUID.randomUUID(), "MEMBER", "SUMMARY");
+                AccountMember dhanUser = member(UUID.randomUUID(), accountId, UUID.randomUUID(), "MEMBER", "SUMMARY");
+                when(memberRepo.findByAccountId(accountId)).thenReturn(List.of(caller, kiteUser, dhanUser));
+
+                // One client serves every credential; only the Kite / Dhan spellings differ.
+                BrokerCredential own = cred(caller.getId(), "KITE");
+                BrokerCredential kite = cred(kiteUser.getId(), "KITE");
+                BrokerCredential dhan = cred(dhanUser.getId(), "KITE");
+                when(credentialRepo.findByAccountMemberId(caller.getId())).thenReturn(List.of(own));
+                when(credentialRepo.findByAccountMemberId(kiteUser.getId())).thenReturn(List.of(kite));
+                when(credentialRepo.findByAccountMemberId(dhanUser.getId())).thenReturn(List.of(dhan));
+                when(credentialService.decryptCredentialToken(any(), eq(own.getCredentialId())))
+                                .thenReturn("tok-own".getBytes(StandardCharsets.UTF_8));
+                when(credentialService.decryptCredentialToken(any(), eq(kite.getCredentialId())))
+                                .thenReturn("tok-kite".getBytes(StandardCharsets.UTF_8));
+                when(credentialService.decryptCredentialToken(any(), eq(dhan.getCredentialId())))
+                                .thenReturn("tok-dhan".getBytes(StandardCharsets.UTF_8));
+                when(brokerClient.getBrokerType()).thenReturn("KITE");
+                when(brokerClient.getHoldings(eq("tok-own"))).thenReturn(List.of(
+                                HoldingItem.builder().exchange("NSE").tradingSymbol("RELIANCE").quantity(1)
+                                                .averagePrice(100).build()));
+                when(brokerClient.getHoldings(eq("tok-kite"))).thenReturn(List.of(
+                                HoldingItem.builder().exchange("NSE").tradingSymbol("reliance").quantity(1)
+                                                .averagePrice(100).build()));
+                when(brokerClient.getHoldings(eq("tok-dhan"))).thenReturn(List.of(
+                                HoldingItem.builder().exchange("NSE_EQ").tradingSymbol("RELIANCE-EQ").quantity(1)
+                                                .averagePrice(100).build()));
+
+                Map<String, Object> out = service.aggregateHoldingsForAccount(accountId, callerId);
+
+                @SuppressWarnings("unchecked")
+                List<AggregatedHolding> full = (List<AggregatedHolding>) out.get("full");
+                assertEquals("RELIANCE", full.get(0).getTradingSymbol());
+                assertEquals(Set.of("RELIANCE"), out.get("partial"));
+        }
+
+        @Test
+        void shouldMergeExchangesByIsinWhenEnabled() throws Exception {
+                Path dump = Files.createTempFile("instruments", ".csv");
+                try {
+                        Files.writeString(dump, "exchange,symbol,security_id,isin\n"
+                                        + "NSE,RELIANCE,2885,INE002A01018\n"
+                                        + "BSE,RELIANCE,500325,INE002A01018\n");
+                        instruments.load(dump);
+                } finally {
+                        Files.delete(dump);
+                }
+                java.lang.reflect.Field f = AccountPortfolioService.class.getDeclaredField("mergeByIsin");
+                f.setAccessible(true);
+                f.set(service, true);
+                UUID accountId = UUID.randomUUID();
+                UUID adminUserId = UUID.randomUUID();
+                AccountMember admin = member(UUID.randomUUID(), accountId, adminUserId, "ADMIN", "PRIVATE");
+                stubHoldings(accountId, admin, List.of(
+                                HoldingItem.builder().exchange("NSE").tradingSymbol("RELIANCE").quantity(10)
+                                                .averagePrice(100).build(),
+                                HoldingItem.builder().exchange("BSE_EQ").tradingSymbol("RELIANCE").quantity(5)
+                                                .averagePrice(100).build()));
+
+                List<?> full = (List<?>) service.aggregateHoldingsForAccount(accountId, adminUserId).get("full");
+
+                assertEquals(1, full.size());
+                AggregatedHolding row = (AggregatedHolding) full.get(0);
+                assertEquals("NSE,BSE", row.getExchange());
+                assertEquals("INE002A01018", row.getIsin());
+                assertEquals(15, row.getQuantity());
+        }
+
+        private void stubHoldings(UUID accountId, AccountMember member, List<HoldingItem> holdings) {
+                when(memberRepo.findByAccountId(accountId)).thenReturn(List.of(member));
+                BrokerCredential c = cred(member.getId(), "KITE");
+                when(credentialRepo.findByAccountMemberId(member.getId())).thenReturn(List.of(c));
+                when(credentialService.decryptCredentialToken(any(), eq(c.getCredentialId())))
+                                .thenReturn("tok".getBytes(StandardCharsets.UTF_8));
+                when(brokerClient.getBrokerType()).thenReturn("KITE");
+                when(brokerClient.getHoldings(eq("tok"))).thenReturn(holdings);
+        }
+
         private AccountMember member(UUID memberId, UUID accountId, UUID userId, String role, String privacy) {
+                return fill(new AccountMember(), memberId, accountId, userId, role, privacy);
+        }
+
+        /**
+         * A member whose equals/hashCode fail, as a detached entity with a lazy
+         * user would off the request thread.
+         */
+        private AccountMember detachedMember(UUID memberId, UUID accountId, UUID userId, String role,
+                        String privacy) {
+                AccountMember m = new AccountMember() {
+                        @Override
+                        public boolean equals(Object o) {
+                                throw new IllegalStateException("could not initialize proxy - no Session");
+                        }
+
+                        @Override
+                        public int hashCode() {
+                                throw new IllegalStateException("could not initialize proxy - no Session");
+                        }
+                };
+                return fill(m, memberId, accountId, userId, role, privacy);
+        }
+
+        private static AccountMember fill(AccountMember m, UUID memberId, UUID accountId, UUID userId, String role,
+                        String privacy) {
                 User u = new User();
                 u.setId(userId);
-                AccountMember m = new AccountMember();
                 m.setId(memberId);
                 m.setAccountId(accountId);
                 m.setUser(u);
@@ -1,5 +1,6 @@
 package com.marmik.brokerhub.service;
 
+import com.marmik.brokerhub.dto.UserAccountView;
 import com.marmik.brokerhub.model.Account;
 import com.marmik.brokerhub.model.AccountMember;
 import com.marmik.brokerhub.model.User;
@@ -8,11 +9,13 @@ import com.marmik.brokerhub.repository.AccountRepository;
 import com.marmik.brokerhub.repository.UserRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.access.AccessDeniedException;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.Map;
@@ -28,6 +31,7 @@ import static org.mockito.Mockito.*;
  * - Member onboarding constraints (existing user and duplicate prevention).
  * - Membership safety rules (no self-removal, no self-demotion).
  * - Role and privacy validation with access-control checks.
+ * - "My Accounts" view caching and invalidation on membership changes.
  *
  * Ensures that account membership and role/visibility business rules are not
  * broken.
@@ -41,6 +45,10 @@ class AccountServiceTest {
     private AccountMemberRepository memberRepo;
     @Mock
     private UserRepository userRepo;
+    @Mock
+    private UserAccountViewCacheService accountViewCache;
+    @Mock
+    private AccountMembershipCache membershipCache;
 
     @InjectMocks
     private AccountService accountService;
@@ -147,6 +155,8 @@ class AccountServiceTest {
         AccountMember out = accountService.updateOwnMemberPrivacy(userId, accountId, memberId, "summary");
 
         assertEquals(Map.of("privacy", "SUMMARY"), out.getRules());
+        verify(accountViewCache).evict(userId);
+        verify(membershipCache).invalidate(userId, accountId);
     }
 
     @Test
@@ -163,4 +173,37 @@ class AccountServiceTest {
         assertEquals("ADMIN", out.getRole());
         assertEquals(user, out.getUser());
     }
+
+    @Test
+    void shouldServeAccountViewsFromCacheWithoutQuerying() {
+        UUID userId = UUID.randomUUID();
+        List<UserAccountView> cached = List.of(new UserAccountView(
+                UUID.randomUUID(), "Main", null, "ADMIN", UUID.randomUUID(), Map.of("privacy", "DETAILED")));
+        when(accountViewCache.getCachedViews(userId)).thenReturn(Optional.of(cached));
+
+        List<UserAccountView> out = accountService.listUserAccountViews(userId);
+
+        assertSame(cached, out);
+        verifyNoInteractions(memberRepo, accountRepo);
+    }
+
+    @Test
+    void shouldLoadAccountViewsWithSingleQueryOnCacheMiss() {
+        UUID userId = UUID.randomUUID();
+        List<UserAccountView> views = List.of(
+                new UserAccountView(UUID.randomUUID(), "A", "a", "ADMIN", UUID.randomUUID(), Map.of()),
+                new UserAccountView(UUID.randomUUID(), "B", null, "MEMBER", UUID.randomUUID(), Map.of()));
+        when(accountViewCache.getCachedViews(userId)).thenReturn(Optional.empty());
+        when(accountViewCache.generation(userId)).thenReturn(7L);
+        when(memberRepo.findAccountViewsByUserId(userId)).thenReturn(views);
+
+        List<UserAccountView> out = accountService.listUserAccountViews(userId);
+
+        assertEquals(views, out);
+        InOrder order = inOrder(accountViewCache, memberRepo);
+        order.verify(accountViewCache).generation(userId);
+        order.verify(memberRepo).findAccountViewsByUserId(userId);
+        order.verify(accountViewCache).cacheViews(userId, views, 7L);
+        verifyNoInteractions(accountRepo);
+    }
 }
@@ -0,0 +1,97 @@
+package com.marmik.brokerhub.service;
+
+import com.marmik.brokerhub.security.EnvelopeEncryptionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for BrokerCredentialRewrapService.
+ *
+ * Covers:
+ * - Re-wrapping a page of DEKs from an old master key onto the active key.
+ * - Guarded batched update parameters (new dek, new key id, id, old key id).
+ * - Rows that cannot be unwrapped being skipped rather than failing the page.
+ *
+ * Ensures that key rotation never writes a DEK that the active key cannot
+ * unwrap.
+ */
+@ExtendWith(MockitoExtension.class)
+class BrokerCredentialRewrapServiceTest {
+
+        @Mock
+        private JdbcTemplate jdbc;
+
+        private EnvelopeEncryptionService oldEnvelope;
+        private EnvelopeEncryptionService envelope;
+        private BrokerCredentialRewrapService service;
+        private ExecutorService pool;
+
+        @BeforeEach
+        void setUp() {
+                oldEnvelope = new EnvelopeEncryptionService(key((byte) 1));
+                envelope = new EnvelopeEncryptionService(key((byte) 1), "local-master-v1",
+                                "master-v2:" + key((byte) 2), "master-v2");
+                service = new BrokerCredentialRewrapService(jdbc, envelope, false, 10, 2, 0);
+                pool = Executors.newFixedThreadPool(2);
+        }
+
+        @AfterEach
+        void tearDown() {
+                pool.shutdownNow();
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void shouldRewrapPageOntoActiveKeyWithGuardedBatchUpdate() throws Exception {
+                byte[] dek = oldEnvelope.generateDek();
+                UUID credentialId = UUID.randomUUID();
+                BrokerCredentialRewrapService.WrappedDek row = new BrokerCredentialRewrapService.WrappedDek(
+                                credentialId, "local-master-v1", oldEnvelope.wrapDek(dek));
+
+                int done = service.rewrapPage(List.of(row), "master-v2", pool);
+
+                assertEquals(1, done);
+                ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+                verify(jdbc).batchUpdate(anyString(), captor.capture());
+                Object[] params = captor.getValue().get(0);
+                assertArrayEquals(dek, envelope.unwrapDek("master-v2", (byte[]) params[0]));
+                assertEquals("master-v2", params[1]);
+                assertEquals(credentialId, params[2]);
+                assertEquals("local-master-v1", params[3]);
+        }
+
+        @Test
+        void shouldSkipRowsThatCannotBeUnwrapped() throws Exception {
+                BrokerCredentialRewrapService.WrappedDek unknownKey = new BrokerCredentialRewrapService.WrappedDek(
+                                UUID.randomUUID(), "retired-key", oldEnvelope.wrapDek(oldEnvelope.generateDek()));
+
+                int done = service.rewrapPage(List.of(unknownKey), "master-v2", pool);
+
+                assertEquals(0, done);
+                verify(jdbc, never()).batchUpdate(anyString(), anyList());
+        }
+
+        private static String key(byte fill) {
+                byte[] raw = new byte[32];
+                Arrays.fill(raw, fill);
+                return Base64.getEncoder().encodeToString(raw);
+        }
+}
@@ -5,10 +5,13 @@ import com.marmik.brokerhub.model.BrokerCredential;
 import com.marmik.brokerhub.model.User;
 import com.marmik.brokerhub.repository.AccountMemberRepository;
 import com.marmik.brokerhub.repository.BrokerCredentialRepository;
+import com.marmik.brokerhub.resilience.BrokerCallGuard;
+import com.marmik.brokerhub.resilience.BrokerRateLimiter;
+import com.marmik.brokerhub.security.BrokerTokenVault;
 import com.marmik.brokerhub.security.EnvelopeEncryptionService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.access.AccessDeniedException;
@@ -19,6 +22,7 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -28,6 +32,8 @@ import static org.mockito.Mockito.*;
  * - Credential storage authorization for owner paths.
  * - Access-denied behavior for non-owner/non-admin callers.
  * - Token decryption flow for authorized callers.
+ * - Token vault reuse on decrypt and eviction on delete.
+ * - Dropping per-credential breaker and rate-limit state on delete.
  *
  * Ensures that broker credential access-control and decryption constraints are
  * not broken.
@@ -41,10 +47,21 @@ class BrokerCredentialServiceTest {
         private AccountMemberRepository accountMemberRepo;
         @Mock
         private EnvelopeEncryptionService envelope;
+        @Mock
+        private BrokerTokenVault tokenVault;
+        @Mock
+        private BrokerCallGuard callGuard;
+        @Mock
+        private BrokerRateLimiter rateLimiter;
 
-        @InjectMocks
         private BrokerCredentialService service;
 
+        @BeforeEach
+        void setUp() {
+                service = new BrokerCredentialService(repo, accountMemberRepo, envelope,
+                                new AccountMembershipCache(accountMemberRepo, 60_000, 100), tokenVault, callGuard, rateLimiter);
+        }
+
         @Test
         void shouldStoreCredentialWhenCallerIsOwner() throws Exception {
                 UUID callerId = UUID.randomUUID();
@@ -60,7 +77,8 @@ class BrokerCredentialServiceTest {
                 when(envelope.encryptWithDek(any(), any()))
                                 .thenReturn(new EnvelopeEncryptionService.EncryptionResult(new byte[] { 9 },
                                                 new byte[] { 8 }));
-                when(envelope.wrapDek(any())).thenReturn(new byte[] { 7 });
+                when(envelope.getActiveKeyId()).thenReturn("local-master-v1");
+                when(envelope.wrapDek(eq("local-master-v1"), any())).thenReturn(new byte[] { 7 });
                 when(repo.save(any(BrokerCredential.class))).thenAnswer(inv -> inv.getArgument(0));
 
                 BrokerCredential saved = service.storeCredential(callerId, memberId, "DHAN", "nick",
@@ -99,6 +117,7 @@ class BrokerCredentialServiceTest {
                 BrokerCredential cred = new BrokerCredential();
                 cred.setCredentialId(credentialId);
                 cred.setAccountMemberId(memberId);
+                cred.setTokenKeyId("old-master");
                 cred.setTokenEncryptedDek(new byte[] { 1 });
                 cred.setTokenIv(new byte[] { 2 });
                 cred.setTokenCipher(new byte[] { 3 });
@@ -108,12 +127,84 @@ class BrokerCredentialServiceTest {
                                 .thenReturn(Optional.of(membership(memberId, accountId, targetUser, "MEMBER")));
                 when(accountMemberRepo.findByUserIdAndAccountId(callerId, accountId))
                                 .thenReturn(Optional.of(membership(UUID.randomUUID(), accountId, callerId, "ADMIN")));
-                when(envelope.unwrapDek(any())).thenReturn(new byte[] { 10, 11 });
+                when(envelope.unwrapDek(eq("old-master"), any())).thenReturn(new byte[] { 10, 11 });
                 when(envelope.decryptWithDek(any(), any(), any()))
                                 .thenReturn("plain-token".getBytes(StandardCharsets.UTF_8));
 
                 byte[] out = service.decryptCredentialToken(callerId, credentialId);
                 assertEquals("plain-token", new String(out, StandardCharsets.UTF_8));
+                verify(tokenVault).put(eq(credentialId), any());
+        }
+
+        @Test
+        void shouldSkipUnwrapWhenTokenIsVaulted() throws Exception {
+                UUID callerId = UUID.randomUUID();
+                UUID accountId = UUID.randomUUID();
+                UUID memberId = UUID.randomUUID();
+                UUID credentialId = UUID.randomUUID();
+
+                BrokerCredential cred = new BrokerCredential();
+                cred.setCredentialId(credentialId);
+                cred.setAccountMemberId(memberId);
+
+                when(repo.findById(credentialId)).thenReturn(Optional.of(cred));
+                when(accountMemberRepo.findById(memberId))
+                                .thenReturn(Optional.of(membership(memberId, accountId, callerId, "MEMBER")));
+                when(accountMemberRepo.findByUserIdAndAccountId(callerId, accountId))
+                                .thenReturn(Optional.of(membership(memberId, accountId, callerId, "MEMBER")));
+                when(tokenVault.get(credentialId)).thenReturn("vaulted".getBytes(StandardCharsets.UTF_8));
+
+                byte[] out = service.decryptCredentialToken(callerId, credentialId);
+
+                assertEquals("vaulted", new String(out, StandardCharsets.UTF_8));
+                verifyNoInteractions(envelope);
+        }
+
+        @Test
+        void shouldNotConsultVaultWhenCallerIsUnauthorized() {
+                UUID callerId = UUID.randomUUID();
+                UUID accountId = UUID.randomUUID();
+                UUID memberId = UUID.randomUUID();
+                UUID credentialId = UUID.randomUUID();
+
+                BrokerCredential cred = new BrokerCredential();
+                cred.setCredentialId(credentialId);
+                cred.setAccountMemberId(memberId);
+
+                when(repo.findById(credentialId)).thenReturn(Optional.of(cred));
+                when(accountMemberRepo.findById(memberId))
+                                .thenReturn(Optional.of(membership(memberId, accountId, UUID.randomUUID(), "MEMBER")));
+                when(accountMemberRepo.findByUserIdAndAccountId(callerId, accountId))
+                                .thenReturn(Optional.empty());
+
+                assertThrows(AccessDeniedException.class,
+                                () -> service.decryptCredentialToken(callerId, credentialId));
+                verifyNoInteractions(tokenVault);
+        }
+
+        @Test
+        void shouldEvictVaultedTokenOnDelete() {
+                UUID callerId = UUID.randomUUID();
+                UUID accountId = UUID.randomUUID();
+                UUID memberId = UUID.randomUUID();
+                UUID credentialId = UUID.randomUUID();
+
+                BrokerCredential cred = new BrokerCredential();
+                cred.setCredentialId(credentialId);
+                cred.setAccountMemberId(memberId);
+
+                when(repo.findById(credentialId)).thenReturn(Optional.of(cred));
+                when(accountMemberRepo.findById(memberId))
+                                .thenReturn(Optional.of(membership(memberId, accountId, callerId, "MEMBER")));
+                when(accountMemberRepo.findByUserIdAndAccountId(callerId, accountId))
+                                .thenReturn(Optional.of(membership(memberId, accountId, callerId, "MEMBER")));
+
+                service.deleteCredential(callerId, credentialId);
+
+                verify(repo).delete(cred);
+                verify(tokenVault).evict(credentialId);
+                verify(callGuard).forgetCredential(credentialId);
+                verify(rateLimiter).forgetCredential(credentialId);
         }
 
         private AccountMember membership(UUID memberId, UUID accountId, UUID userId, String role) {
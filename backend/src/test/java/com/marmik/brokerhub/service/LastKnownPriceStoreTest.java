@@ -0,0 +1,119 @@
+package com.marmik.brokerhub.service;
+
+import com.marmik.brokerhub.broker.model.PriceResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for LastKnownPriceStore.
+ *
+ * Covers:
+ * - Multi-row INSERT ... ON CONFLICT upserts, split by batch size.
+ * - Keeping rows dirty when a write fails.
+ * - Ignoring zero prices and values that do not fit the table.
+ * - Preloading stored prices without overwriting newer ones.
+ * - Doing nothing when disabled.
+ *
+ * Ensures that the stock_price fallback tier is written in few statements
+ * and never loses a price to a transient database error.
+ */
+@ExtendWith(MockitoExtension.class)
+class LastKnownPriceStoreTest {
+
+    @Mock
+    private JdbcTemplate jdbc;
+
+    @Test
+    void shouldUpsertDirtyRowsInMultiRowBatches() {
+        LastKnownPriceStore store = new LastKnownPriceStore(jdbc, true, 60_000, 2, 1000);
+        store.record("INE009A01021", "NSE", "INFY", price("INFY", 1500.0));
+        store.record("INE467B01029", "NSE", "TCS", price("TCS", 3500.0));
+        store.record("INE002A01018", "NSE", "RELIANCE", price("RELIANCE", 2900.0));
+
+        assertEquals(3, store.flush());
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc, times(2)).update(sql.capture(), args.capture());
+        assertTrue(sql.getAllValues().get(0).startsWith("INSERT INTO stock_price"));
+        assertTrue(sql.getAllValues().get(0).contains("(?, ?, ?, ?, ?, ?), (?, ?, ?, ?, ?, ?) ON CONFLICT (isin, exchange)"));
+        assertEquals(12, args.getAllValues().get(0).length);
+        assertEquals(6, args.getAllValues().get(1).length);
+        assertEquals(0, store.pendingCount());
+        assertEquals(0, store.flush());
+    }
+
+    @Test
+    void shouldKeepRowsDirtyWhenWriteFails() {
+        LastKnownPriceStore store = new LastKnownPriceStore(jdbc, true, 60_000, 500, 1000);
+        store.record("INE009A01021", "NSE", "INFY", price("INFY", 1500.0));
+        when(jdbc.update(anyString(), any(Object[].class)))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(1);
+
+        assertThrows(DataAccessResourceFailureException.class, store::flush);
+        assertEquals(1, store.pendingCount());
+
+        assertEquals(1, store.flush());
+        assertEquals(0, store.pendingCount());
+    }
+
+    @Test
+    void shouldIgnoreZeroPricesAndOversizedValues() {
+        LastKnownPriceStore store = new LastKnownPriceStore(jdbc, true, 60_000, 500, 1000);
+
+        store.record("INE009A01021", "NSE", "INFY", price("INFY", 0.0));
+        store.record(null, "NSE", "INFY", price("INFY", 1500.0));
+        store.record("INE009A01021", "NSE", "X".repeat(51), price("INFY", 1500.0));
+
+        assertEquals(0, store.pendingCount());
+        assertNull(store.get("INFY"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldPreloadWithoutOverwritingNewerPrices() {
+        LastKnownPriceStore store = new LastKnownPriceStore(jdbc, true, 60_000, 500, 1000);
+        store.record("INE009A01021", "NSE", "INFY", price("INFY", 1510.0));
+        when(jdbc.query(anyString(), any(RowMapper.class), eq(1000)))
+                .thenReturn(List.of(price("INFY", 1500.0), price("TCS", 3500.0)));
+
+        assertEquals(2, store.preload());
+
+        assertEquals(1510.0, store.get("INFY").getLastPrice());
+        assertEquals(3500.0, store.get("TCS").getLastPrice());
+    }
+
+    @Test
+    void shouldDoNothingWhenDisabled() {
+        LastKnownPriceStore store = new LastKnownPriceStore(jdbc, false, 60_000, 500, 1000);
+
+        store.record("INE009A01021", "NSE", "INFY", price("INFY", 1500.0));
+        store.startOnReady();
+        store.stop();
+
+        assertNull(store.get("INFY"));
+        verifyNoInteractions(jdbc);
+    }
+
+    private static PriceResponse price(String symbol, double last) {
+        PriceResponse p = new PriceResponse();
+        p.setSymbol(symbol);
+        p.setLastPrice(last);
+        return p;
+    }
+}
@@ -0,0 +1,235 @@
+package com.marmik.brokerhub.service;
+
+import com.marmik.brokerhub.dto.AggregatedHolding;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PortfolioStreamService.
+ *
+ * Covers:
+ * - Snapshot first, then only the rows whose price changed, repriced.
+ * - Coalescing several ticks of a symbol into one event with the latest price.
+ * - Ignoring symbols no subscription holds; matching broker series suffixes.
+ * - A slow client receiving the latest state once its write completes.
+ * - Removing a closed subscription from the symbol index and cancelling a
+ * pending snapshot.
+ *
+ * Ensures that price ticks only touch affected portfolios and that a client
+ * never falls behind by a queue of stale updates.
+ */
+class PortfolioStreamServiceTest {
+
+    private PortfolioStreamService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PortfolioStreamService(null, null, 20, 60_000, 30_000, 30_000, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void shouldSendSnapshotThenRepricedRows() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        service.open(emitter, CompletableFuture.completedFuture(
+                snapshot(holding("INFY", 10, 1400.0, 1500.0), holding("TCS", 5, 3000.0, 3500.0))));
+        emitter.awaitEvents(1);
+        assertEquals(PortfolioStreamService.SNAPSHOT_EVENT, emitter.names.get(0));
+
+        service.onPrice("INFY", 1510.0, 12.0, 0.8);
+        emitter.awaitEvents(2);
+
+        assertEquals(PortfolioStreamService.HOLDINGS_EVENT, emitter.names.get(1));
+        List<AggregatedHolding> rows = emitter.rows(1);
+        assertEquals(1, rows.size());
+        AggregatedHolding infy = rows.get(0);
+        assertEquals("INFY", infy.getTradingSymbol());
+        assertEquals(1510.0, infy.getLastPrice());
+        assertEquals(1100.0, infy.getPnl(), 1e-9);
+        assertEquals(12.0, infy.getDayChange());
+    }
+
+    @Test
+    void shouldCoalesceTicksWithinWindow() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        service.open(emitter, CompletableFuture.completedFuture(snapshot(holding("INFY", 10, 1400.0, 1500.0))));
+        emitter.awaitEvents(1);
+
+        service.onPrice("INFY", 1501.0, 1.0, 0.1);
+        service.onPrice("INFY", 1502.0, 2.0, 0.1);
+        service.onPrice("INFY", 1503.0, 3.0, 0.2);
+        emitter.awaitEvents(2);
+        Thread.sleep(100);
+
+        assertEquals(2, emitter.events());
+        assertEquals(1503.0, emitter.rows(1).get(0).getLastPrice());
+        assertEquals(1030.0, emitter.rows(1).get(0).getPnl(), 1e-9);
+        assertEquals(3, service.stats().rowsUpdated());
+        assertEquals(2, service.stats().rowsSent());
+    }
+
+    @Test
+    void shouldOnlyTouchSubscriptionsHoldingSymbol() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        service.open(emitter, CompletableFuture.completedFuture(snapshot(holding("INFY-EQ", 10, 1400.0, 0.0))));
+        emitter.awaitEvents(1);
+
+        service.onPrice("WIPRO", 450.0, 1.0, 0.2);
+        assertEquals(0, service.stats().ticksMatched());
+
+        service.onPrice("INFY", 1500.0, 10.0, 0.7);
+        emitter.awaitEvents(2);
+        assertEquals(1, service.stats().ticksMatched());
+        // No price in the snapshot: P&L from the average price.
+        assertEquals(1000.0, emitter.rows(1).get(0).getPnl(), 1e-9);
+    }
+
+    @Test
+    void shouldSendLatestStateToSlowClient() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        service.open(emitter, CompletableFuture.completedFuture(snapshot(holding("INFY", 10, 1400.0, 1500.0))));
+        emitter.awaitEvents(1);
+
+        emitter.blockNext();
+        service.onPrice("INFY", 1501.0, 1.0, 0.1);
+        assertTrue(emitter.blocked.await(5, TimeUnit.SECONDS));
+        for (int i = 2; i <= 50; i++) {
+            service.onPrice("INFY", 1500.0 + i, i, 0.1);
+        }
+        emitter.release.countDown();
+        emitter.awaitEvents(3);
+        Thread.sleep(100);
+
+        assertEquals(3, emitter.events());
+        assertEquals(1501.0, emitter.rows(1).get(0).getLastPrice());
+        assertEquals(1550.0, emitter.rows(2).get(0).getLastPrice());
+    }
+
+    @Test
+    void shouldForgetClosedSubscriptions() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        service.open(emitter, CompletableFuture.completedFuture(snapshot(holding("INFY", 10, 1400.0, 1500.0))));
+        emitter.awaitEvents(1);
+        assertEquals(1, service.stats().subscriptions());
+        assertEquals(1, service.stats().indexedSymbols());
+
+        emitter.completion.run();
+        service.onPrice("INFY", 1510.0, 12.0, 0.8);
+
+        assertEquals(0, service.stats().subscriptions());
+        assertEquals(0, service.stats().indexedSymbols());
+        assertEquals(0, service.stats().ticksMatched());
+    }
+
+    @Test
+    void shouldCancelPendingSnapshotWhenClientLeaves() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        CompletableFuture<Map<String, Object>> pending = new CompletableFuture<>();
+        service.open(emitter, pending);
+
+        emitter.completion.run();
+
+        assertTrue(pending.isCancelled());
+        assertEquals(0, service.stats().subscriptions());
+    }
+
+    private static Map<String, Object> snapshot(AggregatedHolding... holdings) {
+        return Map.of("full", List.of(holdings), "partial", List.of());
+    }
+
+    private static AggregatedHolding holding(String symbol, long quantity, double average, double last) {
+        return AggregatedHolding.builder()
+                .exchange("NSE")
+                .tradingSymbol(symbol)
+                .quantity(quantity)
+                .averagePrice(average)
+                .lastPrice(last)
+                .pnl(last > 0 ? (last - average) * quantity : 0)
+                .build();
+    }
+
+    /**
+     * Records events instead of writing them; can hold one send to act as a
+     * slow client.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<String> names = new ArrayList<>();
+        final List<Object> data = new ArrayList<>();
+        Runnable completion;
+        volatile boolean holdNext;
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public synchronized void onCompletion(Runnable callback) {
+            this.completion = callback;
+        }
+
+        void blockNext() {
+            holdNext = true;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (holdNext) {
+                holdNext = false;
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String name = null;
+            Object payload = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String text) {
+                    if (text.startsWith("event:")) {
+                        name = text.substring(6, text.indexOf('\n'));
+                    }
+                } else {
+                    payload = part.getData();
+                }
+            }
+            synchronized (this) {
+                names.add(name);
+                data.add(payload);
+                notifyAll();
+            }
+        }
+
+        synchronized int events() {
+            return names.size();
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized List<AggregatedHolding> rows(int event) {
+            return (List<AggregatedHolding>) data.get(event);
+        }
+
+        synchronized void awaitEvents(int count) throws InterruptedException {
+            long until = System.currentTimeMillis() + 5_000;
+            while (names.size() < count && System.currentTimeMillis() < until) {
+                wait(50);
+            }
+            assertTrue(names.size() >= count, "expected " + count + " events, got " + names.size());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.marmik.brokerhub.service;
+
+import com.marmik.brokerhub.broker.dto.HoldingItem;
+import com.marmik.brokerhub.broker.dto.PositionItem;
+import com.marmik.brokerhub.broker.model.PriceResponse;
+import com.marmik.brokerhub.broker.service.MarketDataService;
+import com.marmik.brokerhub.http.Deadline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for PriceEnrichmentService.
+ *
+ * Covers:
+ * - Holdings enrichment from market prices.
+ * - Fallback behavior when price data is missing.
+ * - Position last-price enrichment behavior.
+ * - One market-data lookup for the distinct symbols of all items.
+ * - No lookup when there is nothing to price.
+ * - Recording market prices and falling back to the last known price.
+ *
+ * Ensures that price-enrichment constraints are not broken when pricing
+ * moves from the broker adapters to the account level.
+ */
+@ExtendWith(MockitoExtension.class)
+class PriceEnrichmentServiceTest {
+
+    @Mock
+    private MarketDataService marketData;
+
+    @Mock
+    private JdbcTemplate jdbc;
+
+    private LastKnownPriceStore lastKnown;
+    private PriceEnrichmentService enrichment;
+
+    @BeforeEach
+    void setUp() {
+        lastKnown = new LastKnownPriceStore(jdbc, true, 60_000, 500, 1000);
+        enrichment = new PriceEnrichmentService(marketData, lastKnown);
+    }
+
+    @Test
+    void shouldEnrichHoldingsWhenMarketPriceAvailable() {
+        when(marketData.getPrices(eq(List.of("INFY")), any())).thenReturn(List.of(price("INFY", 130.0, 5.0, 4.0)));
+
+        List<HoldingItem> out = enrichment.enrichHoldings(List.of(holding("INFY", 10, 100.0)), Deadline.none());
+
+        assertEquals(130.0, out.get(0).getLastPrice());
+        assertEquals(5.0, out.get(0).getDayChange());
+        assertEquals(4.0, out.get(0).getDayChangePercentage());
+        assertEquals(300.0, out.get(0).getPnl());
+    }
+
+    @Test
+    void shouldApplyFallbackWhenMarketPriceMissingOrZero() {
+        when(marketData.getPrices(eq(List.of("INFY", "TCS")), any()))
+                .thenReturn(List.of(price("TCS", 0.0, 0.0, 0.0)));
+
+        List<HoldingItem> out = enrichment.enrichHoldings(
+                List.of(holding("INFY", 10, 100.0), holding("TCS", 1, 50.0)), Deadline.none());
+
+        assertEquals(100.0, out.get(0).getLastPrice());
+        assertEquals(0.0, out.get(0).getPnl());
+        assertEquals(50.0, out.get(1).getLastPrice());
+        assertEquals(0.0, out.get(1).getPnl());
+    }
+
+    @Test
+    void shouldEnrichPositionsLastPriceWhenAvailable() {
+        when(marketData.getPrices(eq(List.of("INFY", "TCS")), any())).thenReturn(List.of(price("INFY", 150.0, 0, 0)));
+        PositionItem infy = PositionItem.builder().tradingSymbol("INFY").quantity(5).lastPrice(100.0).build();
+        PositionItem tcs = PositionItem.builder().tradingSymbol("TCS").quantity(1).lastPrice(90.0).build();
+
+        enrichment.enrichPositions(List.of(infy, tcs), Deadline.none());
+
+        assertEquals(150.0, infy.getLastPrice());
+        assertEquals(90.0, tcs.getLastPrice());
+    }
+
+    @Test
+    void shouldLookUpDistinctSymbolsAcrossCredentialsOnce() {
+        when(marketData.getPrices(eq(List.of("INFY", "TCS")), any()))
+                .thenReturn(List.of(price("INFY", 120.0, 0, 0), price("TCS", 60.0, 0, 0)));
+        List<HoldingItem> items = new ArrayList<>();
+        items.add(holding("INFY", 10, 100.0));
+        items.add(holding("TCS", 2, 50.0));
+        items.add(holding("INFY", 5, 90.0));
+        items.add(holding(null, 1, 1.0));
+
+        enrichment.enrichHoldings(items, Deadline.none());
+
+        verify(marketData, times(1)).getPrices(any(), any());
+        assertEquals(200.0, items.get(0).getPnl());
+        assertEquals(20.0, items.get(1).getPnl());
+        assertEquals(150.0, items.get(2).getPnl());
+    }
+
+    @Test
+    void shouldSkipLookupWhenNothingToPrice() {
+        assertTrue(enrichment.enrichHoldings(List.of(), Deadline.none()).isEmpty());
+        assertTrue(enrichment.enrichPositions(List.of(), Deadline.none()).isEmpty());
+
+        verifyNoInteractions(marketData);
+    }
+
+    @Test
+    void shouldFallBackToLastKnownPriceWhenMarketPriceMissing() {
+        when(marketData.getPrices(eq(List.of("INFY")), any()))
+                .thenReturn(List.of(price("INFY", 130.0, 5.0, 4.0)))
+                .thenReturn(List.of());
+        HoldingItem priced = holding("INFY", 10, 100.0);
+        priced.setIsin("INE009A01021");
+        enrichment.enrichHoldings(List.of(priced), Deadline.none());
+        assertEquals(1, lastKnown.pendingCount());
+
+        List<HoldingItem> out = enrichment.enrichHoldings(List.of(holding("INFY", 10, 100.0)), Deadline.none());
+
+        assertEquals(130.0, out.get(0).getLastPrice());
+        assertEquals(5.0, out.get(0).getDayChange());
+        assertEquals(300.0, out.get(0).getPnl());
+    }
+
+    @Test
+    void shouldUseLastKnownPriceForUnpricedPositionsOnly() {
+        HoldingItem seed = holding("INFY", 1, 100.0);
+        seed.setIsin("INE009A01021");
+        when(marketData.getPrices(any(), any())).thenReturn(List.of(price("INFY", 150.0, 0, 0))).thenReturn(List.of());
+        enrichment.enrichHoldings(List.of(seed), Deadline.none());
+        PositionItem unpriced = PositionItem.builder().tradingSymbol("INFY").quantity(5).build();
+        PositionItem brokerPriced = PositionItem.builder().tradingSymbol("INFY").quantity(5).lastPrice(140.0).build();
+
+        enrichment.enrichPositions(List.of(unpriced, brokerPriced), Deadline.none());
+
+        assertEquals(150.0, unpriced.getLastPrice());
+        assertEquals(140.0, brokerPriced.getLastPrice());
+    }
+
+    private static HoldingItem holding(String symbol, int qty, double avg) {
+        return HoldingItem.builder().exchange("NSE").tradingSymbol(symbol).quantity(qty).averagePrice(avg).build();
+    }
+
+    private static PriceResponse price(String symbol, double last, double dayChange, double dayChangePct) {
+        PriceResponse p = new PriceResponse();
+        p.setSymbol(symbol);
+        p.setLastPrice(last);
+        p.setDayChange(dayChange);
+        p.setDayChangePercentage(dayChangePct);
+        return p;
+    }
+}
@@ -3,7 +3,7 @@ Main FastAPI application entry point.
 """
 from fastapi import FastAPI, Query
 from typing import List
-from app.models import PriceResponse, BatchPriceResponse
+from app.models import PriceResponse, BatchPriceRequest, BatchPriceResponse
 from app.services import fetch_price_single, fetch_prices_batch
 
 app = FastAPI(title="BrokerHub YFinance Service")
@@ -20,3 +20,9 @@ async def get_prices(symbols: str = Query(..., description="Comma separated list
     results = fetch_prices_batch(symbol_list)
     return BatchPriceResponse(results=results)
 
+@app.post("/prices", response_model=BatchPriceResponse)
+async def post_prices(request: BatchPriceRequest):
+    """Fetch the latest prices for a batch of symbols given in the request body."""
+    symbol_list: List[str] = [s.strip() for s in request.symbols if s and s.strip()]
+    results = fetch_prices_batch(symbol_list)
+    return BatchPriceResponse(results=results)
@@ -11,6 +11,10 @@ class PriceResponse(BaseModel):
     dayChange: float
     dayChangePercentage: float
 
+class BatchPriceRequest(BaseModel):
+    """Symbols for a batch price lookup, sent in the request body."""
+    symbols: List[str]
+
 class BatchPriceResponse(BaseModel):
     """Wrapper for a batch of PriceResponse objects."""
     results: List[PriceResponse]
@@ -22,6 +22,8 @@ _inflight: Dict[str, threading.Event] = {}  # per-symbol in-flight marker
 REDIS_URL = os.getenv("REDIS_URL", "redis://localhost:6379/0")
 CACHE_TTL_SECONDS = int(os.getenv("CACHE_TTL_SECONDS", "1200"))
 CACHE_TTL_JITTER_SECONDS = int(os.getenv("CACHE_TTL_JITTER_SECONDS", "30"))
+# Fresh prices are also published here so backend nodes can refresh their local caches
+PRICE_UPDATES_CHANNEL = os.getenv("PRICE_UPDATES_CHANNEL", "md:price-updates")
 _BATCH_CHUNK = 50  # safety: don't request too many tickers in one yfinance call
 
 _redis_client: Optional[redis.Redis] = None
@@ -107,7 +109,12 @@ def _cache_response(sym: str, response: PriceResponse) -> None:
         return
     ttl = CACHE_TTL_SECONDS + random.randint(0, max(0, CACHE_TTL_JITTER_SECONDS))
     try:
-        _redis_client.setex(_cache_key(sym), ttl, _serialize_price(response))
+        payload = _serialize_price(response)
+        pipe = _redis_client.pipeline(transaction=False)
+        pipe.setex(_cache_key(sym), ttl, payload)
+        if PRICE_UPDATES_CHANNEL:
+            pipe.publish(PRICE_UPDATES_CHANNEL, payload)
+        pipe.execute()
     except Exception as exc:
         logger.error("Redis set failed for %s", sym, exc_info=True)
 